@@ -6,4 +6,20 @@ import lombok.Data;
 public class Config {
     private String discordToken = "";
     private String sentry = "";
+    /**
+     * Max seconds to wait for the shard requirements of the modules, before all modules are started anyway
+     */
+    private int shardReadyTimeoutSeconds = 300;
+    /**
+     * Total shard count of all bot processes, -1 lets discord decide. Required when shard ranges are used
+     */
+    private int shardsTotal = -1;
+    /**
+     * First shard id started by this process, -1 starts all shards
+     */
+    private int shardIdFrom = -1;
+    /**
+     * Last shard id started by this process, inclusive
+     */
+    private int shardIdTo = -1;
 }
@@ -4,6 +4,8 @@ import de.timmi6790.discord_framework.exceptions.TopicalSortCycleException;
 import de.timmi6790.discord_framework.module.AbstractModule;
 import de.timmi6790.discord_framework.module.ModuleManager;
 import de.timmi6790.discord_framework.module.ModuleStatus;
+import de.timmi6790.discord_framework.module.ShardReadinessTracker;
+import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
 import de.timmi6790.discord_framework.module.provider.providers.InternalModuleProvider;
 import de.timmi6790.discord_framework.module.provider.providers.jar.JarModuleProvider;
 import de.timmi6790.discord_framework.utilities.commons.GsonUtilities;
@@ -24,7 +26,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 @Getter
@@ -36,6 +37,11 @@ public class DiscordBot {
 
     private final ModuleManager moduleManager = new ModuleManager();
     private ShardManager discord;
+    private ShardReadinessTracker shardReadinessTracker;
+    /**
+     * The lowest shard id of this process, resolved once on start
+     */
+    private int baseShardId;
 
     public static void main(final String[] args) throws LoginException, TopicalSortCycleException, IOException {
         DiscordBot.getInstance().start();
@@ -68,6 +74,43 @@ public class DiscordBot {
         return true;
     }
 
+    /**
+     * Limits the shards of this process to the configured shard range, to distribute all shards over multiple bot
+     * processes.
+     *
+     * @param shardManagerBuilder the shard manager builder
+     * @param config              the main config
+     * @return the shard count of this process or -1 if all shards are started
+     */
+    protected int applyShardRange(final DefaultShardManagerBuilder shardManagerBuilder, final Config config) {
+        if (config.getShardsTotal() > 0) {
+            shardManagerBuilder.setShardsTotal(config.getShardsTotal());
+        }
+
+        if (config.getShardIdFrom() == -1) {
+            return -1;
+        }
+
+        if (config.getShardsTotal() <= 0
+                || config.getShardIdFrom() < 0
+                || config.getShardIdFrom() > config.getShardIdTo()
+                || config.getShardIdTo() >= config.getShardsTotal()) {
+            throw new IllegalStateException(
+                    "Invalid shard range " + config.getShardIdFrom() + ".." + config.getShardIdTo()
+                            + " of " + config.getShardsTotal() + " shards"
+            );
+        }
+
+        log.info(
+                "Starting shards {} to {} of {} shards",
+                config.getShardIdFrom(),
+                config.getShardIdTo(),
+                config.getShardsTotal()
+        );
+        shardManagerBuilder.setShards(config.getShardIdFrom(), config.getShardIdTo());
+        return config.getShardIdTo() - config.getShardIdFrom() + 1;
+    }
+
     public void start() throws TopicalSortCycleException, LoginException, IOException {
         if (!this.setup()) {
             return;
@@ -95,24 +138,42 @@ public class DiscordBot {
         }
 
         log.debug("Starting discord with {} gateway intents.", requiredGatewayIntents);
-        this.discord = DefaultShardManagerBuilder.createLight(mainConfig.getDiscordToken(), requiredGatewayIntents)
+        this.shardReadinessTracker = new ShardReadinessTracker();
+        final DefaultShardManagerBuilder shardManagerBuilder = DefaultShardManagerBuilder.createLight(mainConfig.getDiscordToken(), requiredGatewayIntents)
                 .setStatus(OnlineStatus.ONLINE)
-                .build();
+                .addEventListeners(this.shardReadinessTracker);
+        final int expectedShards = this.applyShardRange(shardManagerBuilder, mainConfig);
+        this.baseShardId = expectedShards == -1 ? 0 : mainConfig.getShardIdFrom();
+        this.discord = shardManagerBuilder.build();
+        this.shardReadinessTracker.setExpectedShards(expectedShards == -1 ? this.discord.getShardsTotal() : expectedShards);
+        this.shardReadinessTracker.completeAfterTimeout(mainConfig.getShardReadyTimeoutSeconds(), TimeUnit.SECONDS);
 
         log.debug("Initialize all modules");
         this.moduleManager.initializeAll();
-        log.debug("Await discord ready");
+        // Gives the modules a chance to persist their state, e.g. the cache snapshots
+        Runtime.getRuntime().addShutdownHook(new Thread(this.moduleManager::stopAll, "module-shutdown"));
+        this.moduleManager.getModule(MetricModule.class)
+                .map(MetricModule::getMeterRegistry)
+                .ifPresent(this.shardReadinessTracker::bindTo);
+
+        // Each module is started as soon as its shard requirement is met, without blocking the caller on the shards
         log.debug("Start all modules");
-        // Delay the module start by 2 seconds to await discord
-        // This is a temporary fix, because the awaitReady method got the bot stuck lately
-        Executors.newSingleThreadScheduledExecutor().schedule(
-                this.moduleManager::startAll,
-                2, TimeUnit.SECONDS
-        );
-        log.debug("Done starting all modules");
+        this.moduleManager.startAllAsync(this.shardReadinessTracker).whenComplete((timings, throwable) -> {
+            if (throwable != null) {
+                log.error("Failed to start all modules", throwable);
+            } else {
+                log.debug("Done starting all modules");
+            }
+        });
     }
 
+    /**
+     * Gets the shard with the lowest id of this process. This is not always shard 0, when the shards are distributed
+     * over multiple processes.
+     *
+     * @return the base shard, null until the shard is started
+     */
     public JDA getBaseShard() {
-        return this.discord.getShardById(0);
+        return this.discord.getShardById(this.baseShardId);
     }
 }
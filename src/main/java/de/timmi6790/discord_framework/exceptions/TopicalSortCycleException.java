@@ -1,12 +1,40 @@
 package de.timmi6790.discord_framework.exceptions;
 
+import lombok.Getter;
+
 import java.io.Serial;
+import java.util.Collections;
+import java.util.List;
 
 public class TopicalSortCycleException extends Exception {
     @Serial
     private static final long serialVersionUID = 8382457320073252593L;
 
+    /**
+     * The vertices of the detected cycle in dependency order. The first vertex depends on the second one and the last
+     * one depends on the first one again.
+     */
+    @Getter
+    private final transient List<?> cycle;
+
     public TopicalSortCycleException() {
         super("Cycle detected");
+        this.cycle = Collections.emptyList();
+    }
+
+    public TopicalSortCycleException(final List<?> cycle) {
+        super("Cycle detected: " + formatCycle(cycle));
+        this.cycle = List.copyOf(cycle);
+    }
+
+    private static String formatCycle(final List<?> cycle) {
+        final StringBuilder builder = new StringBuilder();
+        for (final Object vertex : cycle) {
+            builder.append(vertex).append(" -> ");
+        }
+        if (!cycle.isEmpty()) {
+            builder.append(cycle.get(0));
+        }
+        return builder.toString();
     }
 }
@@ -32,6 +32,11 @@ public abstract class AbstractModule {
      */
     private Set<GatewayIntent> requiredGatewayIntents = EnumSet.noneOf(GatewayIntent.class);
 
+    /**
+     * The discord shards that must be ready before the module is enabled.
+     */
+    private ShardRequirement shardRequirement = ShardRequirement.ALL;
+
     /**
      * Instantiates a new module.
      *
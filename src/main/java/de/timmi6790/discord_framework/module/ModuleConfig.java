@@ -8,4 +8,10 @@ import java.util.Map;
 @Data
 public class ModuleConfig {
     private final Map<String, Boolean> enabledModules = new HashMap<>();
+    /**
+     * Max amount of modules that are initialized or started at the same time. Modules without a load after relation
+     * to each other run in parallel, the registries of the internal modules are thread safe. 1 starts the modules one
+     * after another, for external modules that share state without being thread safe.
+     */
+    private int startupConcurrency = 4;
 }
@@ -7,7 +7,7 @@ import lombok.RequiredArgsConstructor;
 @Data
 @RequiredArgsConstructor
 public class ModuleInfo {
-    private ModuleStatus status = ModuleStatus.REGISTERED;
+    private volatile ModuleStatus status = ModuleStatus.REGISTERED;
     private final Class<? extends AbstractModule> moduleClass;
     private final AbstractModule module;
 
@@ -4,9 +4,12 @@ import com.google.common.collect.Lists;
 import de.timmi6790.discord_framework.exceptions.TopicalSortCycleException;
 import de.timmi6790.discord_framework.module.exceptions.ModuleNotFoundException;
 import de.timmi6790.discord_framework.module.exceptions.ModuleUninitializedException;
+import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
 import de.timmi6790.discord_framework.module.provider.ModuleProvider;
 import de.timmi6790.discord_framework.utilities.TopicalSort;
 import de.timmi6790.discord_framework.utilities.commons.GsonUtilities;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.sentry.Sentry;
 import lombok.Data;
 import lombok.SneakyThrows;
@@ -18,6 +21,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Global module manager. All models are registered,initialized and started over this manager.
@@ -29,7 +38,8 @@ public class ModuleManager {
     private static final Path CONFIG_PATH = Paths.get(CONFIG_DIRECTORY_PATH.toFile().getPath() + "module.json");
 
     private final List<ModuleProvider> providers = new ArrayList<>();
-    private final Map<Class<? extends AbstractModule>, ModuleInfo> modules = new HashMap<>();
+    private final Map<Class<? extends AbstractModule>, ModuleInfo> modules = new ConcurrentHashMap<>();
+    private final List<ModuleStartupTiming> startupTimings = new CopyOnWriteArrayList<>();
 
     private final ModuleConfig config;
 
@@ -300,16 +310,147 @@ public class ModuleManager {
         }
     }
 
-    public void initializeAll() throws TopicalSortCycleException {
-        for (final Class<? extends AbstractModule> moduleClass : this.getSortedModules(ModuleStatus.REGISTERED)) {
-            this.initialize(moduleClass);
+    private Map<Class<? extends AbstractModule>, ModuleStartupTiming> runPhase(final ModuleStatus requiredStatus,
+                                                                               final ModuleStatus phase,
+                                                                               final Predicate<Class<? extends AbstractModule>> action,
+                                                                               final Function<AbstractModule, CompletableFuture<?>> gate) throws TopicalSortCycleException {
+        final Map<Class<? extends AbstractModule>, AbstractModule> sortedModules = new LinkedHashMap<>();
+        for (final Class<? extends AbstractModule> moduleClass : this.getSortedModules(requiredStatus)) {
+            sortedModules.put(moduleClass, this.modules.get(moduleClass).getModule());
         }
+
+        final Map<Class<? extends AbstractModule>, ModuleStartupTiming> timings = new ModuleStartupScheduler(this.config.getStartupConcurrency())
+                .run(phase, sortedModules, action, gate);
+        this.startupTimings.addAll(timings.values());
+        this.recordStartupMetrics(phase, timings.values());
+        return timings;
+    }
+
+    private void recordStartupMetrics(final ModuleStatus phase, final Collection<ModuleStartupTiming> timings) {
+        final Optional<MeterRegistry> registryOpt = this.getModuleInfo(MetricModule.class)
+                .filter(moduleInfo -> moduleInfo.getStatus() != ModuleStatus.REGISTERED)
+                .map(moduleInfo -> ((MetricModule) moduleInfo.getModule()).getMeterRegistry());
+        if (registryOpt.isEmpty()) {
+            return;
+        }
+
+        final MeterRegistry registry = registryOpt.get();
+        final String phaseTag = phase.name().toLowerCase(Locale.ROOT);
+        for (final ModuleStartupTiming timing : timings) {
+            Timer.builder("module.startup.duration")
+                    .description("Module startup phase duration")
+                    .tag("module", timing.getModuleName())
+                    .tag("phase", phaseTag)
+                    .tag("success", String.valueOf(timing.isSuccess()))
+                    .register(registry)
+                    .record(timing.getDurationNanos(), TimeUnit.NANOSECONDS);
+            Timer.builder("module.startup.gate_wait")
+                    .description("Time a module waited for its shard requirement after all dependencies were done")
+                    .tag("module", timing.getModuleName())
+                    .tag("phase", phaseTag)
+                    .register(registry)
+                    .record(timing.getGateWaitNanos(), TimeUnit.NANOSECONDS);
+            Timer.builder("module.startup.queue_wait")
+                    .description("Time a module waited for a free startup worker after all dependencies were done")
+                    .tag("module", timing.getModuleName())
+                    .tag("phase", phaseTag)
+                    .register(registry)
+                    .record(timing.getQueueWaitNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Initialize all registered modules. Each module is initialized as soon as all of its load after dependencies are
+     * done, up to {@link ModuleConfig#getStartupConcurrency()} modules at the same time.
+     *
+     * @return the initialize timings of all modules
+     * @throws TopicalSortCycleException if the load after dependencies contain a cycle
+     */
+    public Map<Class<? extends AbstractModule>, ModuleStartupTiming> initializeAll() throws TopicalSortCycleException {
+        return this.runPhase(
+                ModuleStatus.REGISTERED,
+                ModuleStatus.INITIALIZED,
+                this::initialize,
+                module -> CompletableFuture.completedFuture(null)
+        );
+    }
+
+    /**
+     * Start all initialized modules without waiting for any discord shards.
+     *
+     * @return the start timings of all modules
+     * @see #startAll(ShardReadinessTracker)
+     */
+    @SneakyThrows
+    public Map<Class<? extends AbstractModule>, ModuleStartupTiming> startAll() {
+        return this.runPhase(
+                ModuleStatus.INITIALIZED,
+                ModuleStatus.STARTED,
+                this::start,
+                module -> CompletableFuture.completedFuture(null)
+        );
     }
 
+    /**
+     * Start all initialized modules. Each module is started as soon as all of its load after dependencies are done and
+     * its {@link AbstractModule#getShardRequirement()} is met, up to {@link ModuleConfig#getStartupConcurrency()}
+     * modules at the same time.
+     *
+     * @param shardReadinessTracker the shard readiness tracker
+     * @return the start timings of all modules
+     */
     @SneakyThrows
-    public void startAll() {
-        for (final Class<? extends AbstractModule> moduleClass : this.getSortedModules(ModuleStatus.INITIALIZED)) {
-            this.start(moduleClass);
+    public Map<Class<? extends AbstractModule>, ModuleStartupTiming> startAll(final ShardReadinessTracker shardReadinessTracker) {
+        this.logDelayedShardRequirements();
+        return this.runPhase(
+                ModuleStatus.INITIALIZED,
+                ModuleStatus.STARTED,
+                this::start,
+                module -> shardReadinessTracker.awaitRequirement(module.getShardRequirement())
+        );
+    }
+
+    /**
+     * Start all initialized modules on a separate thread, see {@link #startAll(ShardReadinessTracker)}. The caller
+     * doesn't wait for the shards, which can take minutes for large bots.
+     *
+     * @param shardReadinessTracker the shard readiness tracker
+     * @return a future completed with the start timings of all modules
+     */
+    public CompletableFuture<Map<Class<? extends AbstractModule>, ModuleStartupTiming>> startAllAsync(final ShardReadinessTracker shardReadinessTracker) {
+        final CompletableFuture<Map<Class<? extends AbstractModule>, ModuleStartupTiming>> future = new CompletableFuture<>();
+        final Thread startThread = new Thread(
+                () -> {
+                    try {
+                        future.complete(this.startAll(shardReadinessTracker));
+                    } catch (final Exception e) {
+                        future.completeExceptionally(e);
+                    }
+                },
+                "module-start"
+        );
+        startThread.start();
+        return future;
+    }
+
+    /**
+     * Modules are started after their load after dependencies, a weaker shard requirement than the one of a dependency
+     * has no effect.
+     */
+    private void logDelayedShardRequirements() {
+        for (final AbstractModule module : this.getModules(ModuleStatus.INITIALIZED)) {
+            for (final Class<? extends AbstractModule> dependencyClass : module.getLoadAfterDependencies()) {
+                this.getModuleInfo(dependencyClass)
+                        .map(ModuleInfo::getModule)
+                        .filter(dependency -> dependency.getShardRequirement().compareTo(module.getShardRequirement()) > 0)
+                        .ifPresent(dependency -> log.warn(
+                                "{} requires {} shards, but waits for {} shards through its load after dependency {}",
+                                module.getModuleName(),
+                                module.getShardRequirement(),
+                                dependency.getShardRequirement(),
+                                dependency.getModuleName()
+                        ));
+            }
         }
     }
 
@@ -351,4 +492,17 @@ public class ModuleManager {
             return false;
         }
     }
+
+    /**
+     * Stop all started and initialized modules, in the reverse load order. Modules are stopped before their load after
+     * dependencies, which allows them to still use them inside {@link AbstractModule#onDisable()}.
+     */
+    @SneakyThrows
+    public void stopAll() {
+        for (final ModuleStatus status : new ModuleStatus[]{ModuleStatus.STARTED, ModuleStatus.INITIALIZED}) {
+            for (final Class<? extends AbstractModule> moduleClass : Lists.reverse(this.getSortedModules(status))) {
+                this.stopModule(moduleClass);
+            }
+        }
+    }
 }
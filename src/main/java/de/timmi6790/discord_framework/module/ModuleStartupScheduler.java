@@ -0,0 +1,209 @@
+package de.timmi6790.discord_framework.module;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Runs one startup phase of all modules along their load after dependency graph. Each module is submitted to the
+ * worker pool as soon as all of its load after dependencies are done, independent modules run in parallel.
+ */
+@RequiredArgsConstructor
+@Log4j2
+class ModuleStartupScheduler {
+    private final int concurrency;
+
+    private static long toMillis(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Gets the critical path of the phase. It starts at the module that finished last and follows the dependency that
+     * finished last, the one that released the module, until it reaches a module without dependencies or a module that
+     * was released by its gate.
+     *
+     * @param timings the timings of the phase
+     * @param modules all modules of the phase
+     * @return the critical path, starting with the first module
+     */
+    static List<ModuleStartupTiming> getCriticalPath(final Map<Class<? extends AbstractModule>, ModuleStartupTiming> timings,
+                                                     final Map<Class<? extends AbstractModule>, AbstractModule> modules) {
+        ModuleStartupTiming current = null;
+        for (final ModuleStartupTiming timing : timings.values()) {
+            if (current == null || timing.getEndOffsetNanos() > current.getEndOffsetNanos()) {
+                current = timing;
+            }
+        }
+
+        final LinkedList<ModuleStartupTiming> path = new LinkedList<>();
+        while (current != null) {
+            path.addFirst(current);
+
+            ModuleStartupTiming releasedBy = null;
+            for (final Class<? extends AbstractModule> dependency : modules.get(current.getModuleClass()).getLoadAfterDependencies()) {
+                final ModuleStartupTiming dependencyTiming = timings.get(dependency);
+                if (dependencyTiming != null
+                        && (releasedBy == null || dependencyTiming.getEndOffsetNanos() > releasedBy.getEndOffsetNanos())) {
+                    releasedBy = dependencyTiming;
+                }
+            }
+            // The gate finished after all dependencies, the dependencies didn't delay the module
+            current = current.getGateWaitNanos() > 0 ? null : releasedBy;
+        }
+        return path;
+    }
+
+    /**
+     * Run the phase for all modules.
+     *
+     * @param phase   the status the modules try to reach
+     * @param modules the modules in topological order
+     * @param action  the phase action, returns true when the module reached the phase status
+     * @param gate    additional condition per module, the module is not run before the returned future is done
+     * @return the timings of all modules in topological order
+     */
+    public Map<Class<? extends AbstractModule>, ModuleStartupTiming> run(final ModuleStatus phase,
+                                                                        final Map<Class<? extends AbstractModule>, AbstractModule> modules,
+                                                                        final Predicate<Class<? extends AbstractModule>> action,
+                                                                        final Function<AbstractModule, CompletableFuture<?>> gate) {
+        final Map<Class<? extends AbstractModule>, ModuleStartupTiming> timings = new LinkedHashMap<>();
+        if (modules.isEmpty()) {
+            return timings;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(this.concurrency, modules.size())),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("module-" + phase.name().toLowerCase(Locale.ROOT) + "-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+
+        final long phaseStart = System.nanoTime();
+        final Map<Class<? extends AbstractModule>, CompletableFuture<ModuleStartupTiming>> futures = new LinkedHashMap<>();
+        try {
+            // The modules are sorted, all dependency futures are created before their dependents
+            for (final Map.Entry<Class<? extends AbstractModule>, AbstractModule> entry : modules.entrySet()) {
+                final List<CompletableFuture<?>> dependencies = new ArrayList<>();
+                for (final Class<? extends AbstractModule> dependency : entry.getValue().getLoadAfterDependencies()) {
+                    final CompletableFuture<ModuleStartupTiming> dependencyFuture = futures.get(dependency);
+                    if (dependencyFuture != null) {
+                        dependencies.add(dependencyFuture);
+                    }
+                }
+
+                // Both are timed separately, the gate wait is not part of the dependency or worker wait
+                final CompletableFuture<Long> dependenciesDone = CompletableFuture
+                        .allOf(dependencies.toArray(new CompletableFuture[0]))
+                        .thenApply(ignore -> System.nanoTime());
+                final CompletableFuture<Long> gateDone = gate.apply(entry.getValue())
+                        .thenApply(ignore -> System.nanoTime());
+                final CompletableFuture<ModuleStartupTiming> future = dependenciesDone
+                        .thenCombine(gateDone, (dependenciesNanos, gateNanos) -> new long[]{dependenciesNanos, gateNanos})
+                        .thenApplyAsync(
+                                readyNanos -> this.runModule(
+                                        phase,
+                                        entry.getKey(),
+                                        entry.getValue(),
+                                        action,
+                                        phaseStart,
+                                        Math.max(readyNanos[0], readyNanos[1]),
+                                        Math.max(0, readyNanos[1] - readyNanos[0])
+                                ),
+                                executor
+                        );
+                futures.put(entry.getKey(), future);
+            }
+
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        for (final Map.Entry<Class<? extends AbstractModule>, CompletableFuture<ModuleStartupTiming>> entry : futures.entrySet()) {
+            timings.put(entry.getKey(), entry.getValue().join());
+        }
+        this.logReport(phase, timings, modules, System.nanoTime() - phaseStart);
+        return timings;
+    }
+
+    private ModuleStartupTiming runModule(final ModuleStatus phase,
+                                          final Class<? extends AbstractModule> moduleClass,
+                                          final AbstractModule module,
+                                          final Predicate<Class<? extends AbstractModule>> action,
+                                          final long phaseStart,
+                                          final long readyNanos,
+                                          final long gateWaitNanos) {
+        final long start = System.nanoTime();
+        boolean success;
+        try {
+            success = action.test(moduleClass);
+        } catch (final RuntimeException e) {
+            // The module actions already handle module exceptions, this only protects the remaining graph
+            log.error("Unexpected exception while running module " + module.getModuleName(), e);
+            success = false;
+        }
+
+        return new ModuleStartupTiming(
+                moduleClass,
+                module.getModuleName(),
+                phase,
+                readyNanos - phaseStart,
+                gateWaitNanos,
+                start - phaseStart,
+                System.nanoTime() - start,
+                success
+        );
+    }
+
+    private void logReport(final ModuleStatus phase,
+                           final Map<Class<? extends AbstractModule>, ModuleStartupTiming> timings,
+                           final Map<Class<? extends AbstractModule>, AbstractModule> modules,
+                           final long phaseNanos) {
+        log.info(
+                "Reached {} for {} modules in {} ms with a concurrency of {}",
+                phase,
+                timings.size(),
+                toMillis(phaseNanos),
+                this.concurrency
+        );
+
+        final List<ModuleStartupTiming> sortedTimings = new ArrayList<>(timings.values());
+        sortedTimings.sort(Comparator.comparingLong(ModuleStartupTiming::getStartOffsetNanos));
+        for (final ModuleStartupTiming timing : sortedTimings) {
+            log.info(
+                    "- {} started at +{} ms and took {} ms, waited {} ms for its gate and {} ms for a worker{}",
+                    timing.getModuleName(),
+                    toMillis(timing.getStartOffsetNanos()),
+                    toMillis(timing.getDurationNanos()),
+                    toMillis(timing.getGateWaitNanos()),
+                    toMillis(timing.getQueueWaitNanos()),
+                    timing.isSuccess() ? "" : " and failed"
+            );
+        }
+
+        final List<ModuleStartupTiming> criticalPath = getCriticalPath(timings, modules);
+        final StringJoiner pathJoiner = new StringJoiner(" -> ");
+        final ModuleStartupTiming first = criticalPath.get(0);
+        if (first.getGateWaitNanos() > 0) {
+            pathJoiner.add("gate(" + toMillis(first.getReadyOffsetNanos()) + " ms)");
+        }
+        for (final ModuleStartupTiming timing : criticalPath) {
+            pathJoiner.add(timing.getModuleName() + "(" + toMillis(timing.getDurationNanos()) + " ms)");
+        }
+        log.info(
+                "Critical path of {} took {} ms: {}",
+                phase,
+                toMillis(criticalPath.get(criticalPath.size() - 1).getEndOffsetNanos()),
+                pathJoiner
+        );
+    }
+}
@@ -0,0 +1,38 @@
+package de.timmi6790.discord_framework.module;
+
+import lombok.Data;
+
+/**
+ * Startup timing of a single module inside one startup phase.
+ */
+@Data
+public class ModuleStartupTiming {
+    private final Class<? extends AbstractModule> moduleClass;
+    private final String moduleName;
+    /**
+     * The status the module tried to reach, {@link ModuleStatus#INITIALIZED} or {@link ModuleStatus#STARTED}.
+     */
+    private final ModuleStatus phase;
+    /**
+     * Nanos between the phase start and the time the module was ready to run, all dependencies are done.
+     */
+    private final long readyOffsetNanos;
+    /**
+     * Nanos the module waited for its gate, e.g. the discord shards, after all dependencies were done.
+     */
+    private final long gateWaitNanos;
+    /**
+     * Nanos between the phase start and the start of the module.
+     */
+    private final long startOffsetNanos;
+    private final long durationNanos;
+    private final boolean success;
+
+    public long getQueueWaitNanos() {
+        return this.startOffsetNanos - this.readyOffsetNanos;
+    }
+
+    public long getEndOffsetNanos() {
+        return this.startOffsetNanos + this.durationNanos;
+    }
+}
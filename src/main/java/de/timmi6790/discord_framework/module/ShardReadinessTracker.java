@@ -0,0 +1,140 @@
+package de.timmi6790.discord_framework.module;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.log4j.Log4j2;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+
+import javax.annotation.Nonnull;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the {@link ReadyEvent} of each shard, to start modules as soon as their {@link ShardRequirement} is met.
+ */
+@Log4j2
+public class ShardReadinessTracker implements EventListener {
+    private static final long NOT_READY = -1;
+
+    private final long createdNanos = System.nanoTime();
+    private final Set<Integer> readyShards = ConcurrentHashMap.newKeySet();
+    private final CompletableFuture<Void> anyReady = new CompletableFuture<>();
+    private final CompletableFuture<Void> allReady = new CompletableFuture<>();
+
+    private volatile int expectedShards = -1;
+    private volatile long anyReadyNanos = NOT_READY;
+    private volatile long allReadyNanos = NOT_READY;
+
+    private static double toGaugeValue(final long nanos) {
+        return nanos == NOT_READY ? Double.NaN : nanos;
+    }
+
+    /**
+     * Sets the amount of shards owned by this process. All shards are ready when this amount of shards is ready.
+     *
+     * @param expectedShards the expected shards
+     */
+    public void setExpectedShards(final int expectedShards) {
+        this.expectedShards = expectedShards;
+        this.checkAllReady();
+    }
+
+    public int getReadyShards() {
+        return this.readyShards.size();
+    }
+
+    /**
+     * Gets a future that is completed as soon as the requirement is met.
+     *
+     * @param requirement the shard requirement
+     * @return the requirement future
+     */
+    public CompletableFuture<Void> awaitRequirement(final ShardRequirement requirement) {
+        switch (requirement) {
+            case ANY:
+                return this.anyReady;
+            case ALL:
+                return this.allReady;
+            default:
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Treat all requirements as met after the timeout, so a stuck shard can't block the start of all modules.
+     *
+     * @param timeout the timeout
+     * @param unit    the timeout unit
+     */
+    public void completeAfterTimeout(final long timeout, final TimeUnit unit) {
+        CompletableFuture.runAsync(
+                () -> {
+                    if (!this.allReady.isDone()) {
+                        log.warn(
+                                "Only {}/{} shards are ready after {} {}, starting all modules",
+                                this.readyShards.size(),
+                                this.expectedShards,
+                                timeout,
+                                unit
+                        );
+                        this.anyReady.complete(null);
+                        this.allReady.complete(null);
+                    }
+                },
+                CompletableFuture.delayedExecutor(timeout, unit)
+        );
+    }
+
+    public void bindTo(final MeterRegistry registry) {
+        TimeGauge.builder("discord.shards.time_to_ready", this, TimeUnit.NANOSECONDS, tracker -> toGaugeValue(tracker.anyReadyNanos))
+                .description("Time between the discord login and the ready state of the requirement")
+                .tag("requirement", "any")
+                .register(registry);
+        TimeGauge.builder("discord.shards.time_to_ready", this, TimeUnit.NANOSECONDS, tracker -> toGaugeValue(tracker.allReadyNanos))
+                .description("Time between the discord login and the ready state of the requirement")
+                .tag("requirement", "all")
+                .register(registry);
+        Gauge.builder("discord.shards.ready", this.readyShards, Set::size)
+                .description("Shards that received their ready event")
+                .register(registry);
+        Gauge.builder("discord.shards.expected", this, tracker -> tracker.expectedShards)
+                .description("Shards owned by this process")
+                .register(registry);
+    }
+
+    synchronized void markReady(final int shardId) {
+        if (!this.readyShards.add(shardId)) {
+            return;
+        }
+
+        log.info("Shard {} is ready ({}/{})", shardId, this.readyShards.size(), this.expectedShards);
+        if (this.anyReadyNanos == NOT_READY) {
+            this.anyReadyNanos = System.nanoTime() - this.createdNanos;
+            this.anyReady.complete(null);
+        }
+        this.checkAllReady();
+    }
+
+    private synchronized void checkAllReady() {
+        final int expected = this.expectedShards;
+        if (expected < 0 || this.readyShards.size() < expected || this.allReadyNanos != NOT_READY) {
+            return;
+        }
+
+        this.allReadyNanos = System.nanoTime() - this.createdNanos;
+        log.info("All {} shards are ready after {} ms", expected, TimeUnit.NANOSECONDS.toMillis(this.allReadyNanos));
+        this.allReady.complete(null);
+    }
+
+    @Override
+    public void onEvent(@Nonnull final GenericEvent event) {
+        if (event instanceof ReadyEvent) {
+            this.markReady(event.getJDA().getShardInfo().getShardId());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package de.timmi6790.discord_framework.module;
+
+/**
+ * Discord shards a module needs to be ready before it is started.
+ * <p>
+ * Modules are also started after their load after dependencies, the strongest requirement of them applies to the module
+ * as well. Modules without anything to start should use {@link #NONE}, to not delay modules with a weaker requirement.
+ */
+public enum ShardRequirement {
+    /**
+     * The module doesn't interact with the shards during its start
+     */
+    NONE,
+    /**
+     * The module needs at least one ready shard
+     */
+    ANY,
+    /**
+     * The module needs all shards of this process to be ready
+     */
+    ALL
+}
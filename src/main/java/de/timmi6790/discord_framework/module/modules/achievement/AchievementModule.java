@@ -8,20 +8,23 @@ import de.timmi6790.discord_framework.module.modules.event.EventModule;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
-import org.apache.commons.collections4.map.CaseInsensitiveMap;
 
-import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Handles all achievements inside the bot
+ * Handles all achievements inside the bot. Achievements can be registered by modules that are initialized in parallel.
  */
 @EqualsAndHashCode(callSuper = true)
 public class AchievementModule extends AbstractModule {
     @Getter
-    private final Map<Integer, AbstractAchievement> achievements = new HashMap<>();
-    private final Map<String, Integer> nameIdMatching = new CaseInsensitiveMap<>();
+    private final Map<Integer, AbstractAchievement> achievements = new ConcurrentHashMap<>();
+    /**
+     * Lower case achievement names to their ids
+     */
+    private final Map<String, Integer> nameIdMatching = new ConcurrentHashMap<>();
 
     private AchievementRepository achievementRepository;
     private EventModule eventModule;
@@ -48,6 +51,7 @@ public class AchievementModule extends AbstractModule {
         this.achievementRepository = new AchievementPostgresRepository(
                 this.getModuleOrThrow(DatabaseModule.class).getJdbi()
         );
+        this.getModuleOrThrow(DatabaseModule.class).registerStatements(AchievementPostgresRepository.class);
         this.eventModule = this.getModuleOrThrow(EventModule.class);
         return true;
     }
@@ -74,8 +78,8 @@ public class AchievementModule extends AbstractModule {
      * @param achievement the achievement
      * @return did register correctly
      */
-    public boolean registerAchievement(@NonNull final AbstractModule module,
-                                       @NonNull final AbstractAchievement achievement) {
+    public synchronized boolean registerAchievement(@NonNull final AbstractModule module,
+                                                    @NonNull final AbstractAchievement achievement) {
         if (this.achievements.containsKey(achievement.getRepositoryId())) {
             return false;
         }
@@ -93,7 +97,10 @@ public class AchievementModule extends AbstractModule {
         achievement.setRepositoryId(achievementRepositoryId);
 
         this.achievements.put(achievement.getRepositoryId(), achievement);
-        this.nameIdMatching.put(achievement.getAchievementName(), achievement.getRepositoryId());
+        this.nameIdMatching.put(
+                achievement.getAchievementName().toLowerCase(Locale.ROOT),
+                achievement.getRepositoryId()
+        );
 
         this.eventModule.addEventListener(achievement);
         return true;
@@ -106,7 +113,7 @@ public class AchievementModule extends AbstractModule {
      * @return the achievement
      */
     public Optional<AbstractAchievement> getAchievement(@NonNull final String achievementName) {
-        final Integer achievementId = this.nameIdMatching.get(achievementName);
+        final Integer achievementId = this.nameIdMatching.get(achievementName.toLowerCase(Locale.ROOT));
         if (achievementId != null) {
             return this.getAchievement(achievementId);
         }
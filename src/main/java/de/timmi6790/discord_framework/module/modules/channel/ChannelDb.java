@@ -1,5 +1,6 @@
 package de.timmi6790.discord_framework.module.modules.channel;
 
+import de.timmi6790.discord_framework.module.modules.database.cache.CacheWeights;
 import de.timmi6790.discord_framework.module.modules.guild.GuildDb;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -39,6 +40,16 @@ public class ChannelDb {
         this.discord = discord;
     }
 
+    /**
+     * Estimates the retained heap size of this channel, used to weigh the channel cache. The guild is shared with the
+     * guild cache and not part of the estimate.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateRetainedBytes() {
+        return CacheWeights.objectBytes(Long.BYTES + 1 + 2L * CacheWeights.REFERENCE_BYTES);
+    }
+
     /**
      * Gets the corresponding discord channel for this instance. This might be retrieved if not cached
      *
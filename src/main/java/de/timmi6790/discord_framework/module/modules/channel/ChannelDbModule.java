@@ -6,7 +6,16 @@ import com.google.common.util.concurrent.Striped;
 import de.timmi6790.discord_framework.module.AbstractModule;
 import de.timmi6790.discord_framework.module.modules.channel.repository.ChannelRepository;
 import de.timmi6790.discord_framework.module.modules.channel.repository.postgres.ChannelPostgresRepository;
+import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
+import de.timmi6790.discord_framework.module.modules.database.async.AsyncDatabaseExecutor;
+import de.timmi6790.discord_framework.module.modules.database.async.AsyncEntityRepository;
+import de.timmi6790.discord_framework.module.modules.database.async.ExecutorAsyncEntityRepository;
+import de.timmi6790.discord_framework.module.modules.database.cache.CacheWeights;
+import de.timmi6790.discord_framework.module.modules.database.cache.LoadGenerations;
+import de.timmi6790.discord_framework.module.modules.database.cache.PersistentCacheSnapshot;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationBus;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
 import de.timmi6790.discord_framework.module.modules.guild.GuildDbModule;
 import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
 import de.timmi6790.discord_framework.module.modules.permisssion.PermissionsModule;
@@ -14,7 +23,9 @@ import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
+import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
@@ -27,13 +38,21 @@ public class ChannelDbModule extends AbstractModule {
     private final Striped<Lock> channelGetOrCreateLock = Striped.lock(64);
 
     @Getter
-    private final Cache<Long, ChannelDb> cache = Caffeine.newBuilder()
-            .maximumSize(10_000)
-            .expireAfterWrite(10, TimeUnit.MINUTES)
-            .build();
+    private Cache<Long, ChannelDb> cache;
+    /**
+     * Keeps channels loaded during an invalidation out of the cache
+     */
+    private final LoadGenerations loadGenerations = new LoadGenerations();
 
     private ChannelRepository channelRepository;
+    private AsyncEntityRepository<ChannelDb> asyncChannelRepository;
+    private AsyncDatabaseExecutor asyncExecutor;
     private GuildDbModule guildDbModule;
+    private InvalidationBus invalidationBus;
+    /**
+     * Persisted hot set of the cache, null when disabled
+     */
+    private PersistentCacheSnapshot<ChannelDb> cacheSnapshot;
 
     /**
      * Instantiates a new Channel db module.
@@ -42,6 +61,7 @@ public class ChannelDbModule extends AbstractModule {
         super("ChannelDb");
 
         this.addDependenciesAndLoadAfter(
+                ConfigModule.class,
                 DatabaseModule.class,
                 GuildDbModule.class,
                 PermissionsModule.class
@@ -54,25 +74,167 @@ public class ChannelDbModule extends AbstractModule {
 
     @Override
     public boolean onInitialize() {
+        final Config channelConfig = this.getModuleOrThrow(ConfigModule.class)
+                .registerAndGetConfig(this, new Config());
+        this.cache = Caffeine.newBuilder()
+                .recordStats()
+                .maximumWeight(CacheWeights.megabytesToBytes(channelConfig.getCacheSizeMb()))
+                .weigher((Long discordChannelId, ChannelDb channelDb) ->
+                        CacheWeights.toWeight(channelDb.estimateRetainedBytes())
+                )
+                .expireAfterWrite(channelConfig.getCacheExpireAfterWriteMinutes(), TimeUnit.MINUTES)
+                .build();
+
         this.guildDbModule = this.getModuleOrThrow(GuildDbModule.class);
         this.channelRepository = new ChannelPostgresRepository(
                 this.getDiscord(),
                 this.getModuleOrThrow(DatabaseModule.class),
                 this.guildDbModule
         );
+        this.getModuleOrThrow(DatabaseModule.class).registerStatements(ChannelPostgresRepository.class);
+        this.asyncExecutor = this.getModuleOrThrow(DatabaseModule.class).getAsyncExecutor();
+        this.asyncChannelRepository = new ExecutorAsyncEntityRepository<>(
+                this.asyncExecutor,
+                this::loadChannel
+        );
+        this.loadCacheSnapshot(channelConfig);
 
-        // Register metrics
-        this.getModule(MetricModule.class).ifPresent(metric ->
-                CaffeineCacheMetrics.monitor(
-                        metric.getMeterRegistry(),
-                        this.cache,
-                        "channelDB_channel"
-                )
+        this.invalidationBus = this.getModuleOrThrow(DatabaseModule.class).getInvalidationBus();
+        this.invalidationBus.subscribe(
+                InvalidationTopic.CHANNEL,
+                this::invalidateCached,
+                this::invalidateAllCached
+        );
+        // Channels hold their guild instance
+        this.invalidationBus.subscribe(
+                InvalidationTopic.GUILD,
+                this::invalidateGuildChannels,
+                this::invalidateAllCached
         );
 
+        // Register metrics
+        this.getModule(MetricModule.class).ifPresent(metric -> {
+            CaffeineCacheMetrics.monitor(
+                    metric.getMeterRegistry(),
+                    this.cache,
+                    "channelDB_channel"
+            );
+            CacheWeights.bindEstimatedSize(metric.getMeterRegistry(), "channelDB_channel", this.cache);
+            if (this.cacheSnapshot != null) {
+                this.cacheSnapshot.bindTo(metric.getMeterRegistry());
+            }
+        });
+
+        return true;
+    }
+
+    @Override
+    public boolean onDisable() {
+        if (this.cacheSnapshot != null) {
+            this.cacheSnapshot.save(this.cache);
+        }
         return true;
     }
 
+    /**
+     * Preloads the cache from the cache snapshot. The guilds of the channels are resolved through the guild module,
+     * which preloaded its own snapshot at this point.
+     *
+     * @param channelConfig the channel config
+     */
+    private void loadCacheSnapshot(final Config channelConfig) {
+        if (channelConfig.getCacheSnapshotPath().isEmpty() || channelConfig.getCacheSnapshotEntries() <= 0) {
+            return;
+        }
+
+        this.cacheSnapshot = new PersistentCacheSnapshot<>(
+                "channelDB_channel",
+                Paths.get(channelConfig.getCacheSnapshotPath()),
+                channelConfig.getCacheSnapshotEntries(),
+                new ChannelDbSnapshotCodec(this.guildDbModule, this.getDiscord()),
+                this.channelRepository::getVersions
+        );
+        this.cacheSnapshot.load(this.cache::put);
+        this.cacheSnapshot.validatePendingAsync(
+                discordChannelId -> this.cache.invalidate(discordChannelId),
+                this.asyncExecutor.getExecutor()
+        );
+    }
+
+    /**
+     * Loads the channel from the repository. The version of the loaded channel is recorded for the cache snapshot.
+     *
+     * @param discordChannelId the discord channel id
+     * @return the channel
+     */
+    private Optional<ChannelDb> loadChannel(final long discordChannelId) {
+        if (this.cacheSnapshot == null) {
+            return this.channelRepository.get(discordChannelId);
+        }
+
+        return this.channelRepository.getVersioned(discordChannelId).map(this.cacheSnapshot::recordVersion);
+    }
+
+    /**
+     * Checks if the cached channel can be used, channels preloaded from the cache snapshot are validated on their
+     * first access.
+     *
+     * @param discordChannelId the discord channel id
+     * @return false if the cached channel was stale and is removed
+     */
+    private boolean isCachedChannelValid(final long discordChannelId) {
+        if (this.cacheSnapshot == null || this.cacheSnapshot.validate(discordChannelId)) {
+            return true;
+        }
+
+        this.cache.invalidate(discordChannelId);
+        return false;
+    }
+
+    private void invalidateCached(final long discordChannelId) {
+        this.loadGenerations.invalidate(discordChannelId);
+        this.cache.invalidate(discordChannelId);
+    }
+
+    private void invalidateAllCached() {
+        this.loadGenerations.invalidateAll();
+        this.cache.invalidateAll();
+    }
+
+    private void invalidateGuildChannels(final long discordGuildId) {
+        // The guild of a channel is only known after its load, every running load could hold the old guild
+        this.loadGenerations.invalidateAll();
+        this.cache.asMap().values().removeIf(channelDb -> channelDb.getGuildDb().getDiscordId() == discordGuildId);
+    }
+
+    /**
+     * Invalidates the cached channel on this and all other bot processes, after it was changed inside the repository.
+     *
+     * @param discordChannelId the discord channel id
+     */
+    public void invalidate(final long discordChannelId) {
+        this.invalidateCached(discordChannelId);
+        if (this.invalidationBus != null) {
+            this.invalidationBus.publish(InvalidationTopic.CHANNEL, discordChannelId);
+        }
+    }
+
+    /**
+     * Caches the loaded channel, unless it was invalidated while it was loaded.
+     *
+     * @param discordChannelId the discord channel id
+     * @param channelDb        the loaded channel
+     * @param generation       the load generation captured before the channel was read
+     */
+    private void cacheLoaded(final long discordChannelId, final ChannelDb channelDb, final long generation) {
+        this.loadGenerations.putIfCurrent(
+                discordChannelId,
+                generation,
+                () -> this.cache.put(discordChannelId, channelDb),
+                id -> this.cache.invalidate(id)
+        );
+    }
+
     /**
      * Create a new channel db instance
      *
@@ -85,11 +247,18 @@ public class ChannelDbModule extends AbstractModule {
         final Lock lock = this.channelCreateLock.get(discordChannelId);
         lock.lock();
         try {
+            // A concurrent create of this process could already be done
+            final ChannelDb channelDbCache = this.cache.getIfPresent(discordChannelId);
+            if (channelDbCache != null) {
+                return channelDbCache;
+            }
+
             // Assure that the guild exist
             this.guildDbModule.getOrCreate(discordGuildId);
 
+            final long generation = this.loadGenerations.get(discordChannelId);
             final ChannelDb channelDb = this.channelRepository.create(discordChannelId, discordGuildId);
-            this.getCache().put(discordChannelId, channelDb);
+            this.cacheLoaded(discordChannelId, channelDb, generation);
             return channelDb;
         } finally {
             lock.unlock();
@@ -104,21 +273,68 @@ public class ChannelDbModule extends AbstractModule {
      */
     public Optional<ChannelDb> get(final long discordChannelId) {
         final ChannelDb channelDbCache = this.cache.getIfPresent(discordChannelId);
-        if (channelDbCache != null) {
+        if (channelDbCache != null && this.isCachedChannelValid(discordChannelId)) {
             return Optional.of(channelDbCache);
         }
 
         final Lock lock = this.channelCreateLock.get(discordChannelId);
         lock.lock();
         try {
-            final Optional<ChannelDb> channelDbOpt = this.channelRepository.get(discordChannelId);
-            channelDbOpt.ifPresent(userDb -> this.cache.put(discordChannelId, userDb));
+            final long generation = this.loadGenerations.get(discordChannelId);
+            final Optional<ChannelDb> channelDbOpt = this.loadChannel(discordChannelId);
+            channelDbOpt.ifPresent(channelDb -> this.cacheLoaded(discordChannelId, channelDb, generation));
             return channelDbOpt;
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Non blocking version of {@link #get(long)}. Cached channels complete directly, all other channels are loaded
+     * through the async repository.
+     *
+     * @param discordChannelId the discord channel id
+     * @return the channel db future
+     */
+    public CompletableFuture<Optional<ChannelDb>> getAsync(final long discordChannelId) {
+        final ChannelDb channelDbCache = this.cache.getIfPresent(discordChannelId);
+        if (channelDbCache != null) {
+            if (this.cacheSnapshot == null || !this.cacheSnapshot.isPending(discordChannelId)) {
+                return CompletableFuture.completedFuture(Optional.of(channelDbCache));
+            }
+
+            // Reloading the preloaded channel is as expensive as validating it
+            this.cache.invalidate(discordChannelId);
+            this.cacheSnapshot.discard(discordChannelId);
+        }
+
+        final long generation = this.loadGenerations.get(discordChannelId);
+        return this.asyncChannelRepository.get(discordChannelId)
+                .thenApply(channelDbOpt -> {
+                    channelDbOpt.ifPresent(channelDb -> this.cacheLoaded(discordChannelId, channelDb, generation));
+                    return channelDbOpt;
+                })
+                .toCompletableFuture();
+    }
+
+    /**
+     * Non blocking version of {@link #getOrCreate(long, long)}.
+     *
+     * @param discordChannelId the discord channel id
+     * @param discordGuildId   the discord guild id
+     * @return the channel db future
+     */
+    public CompletableFuture<ChannelDb> getOrCreateAsync(final long discordChannelId, final long discordGuildId) {
+        return this.getAsync(discordChannelId)
+                .thenCompose(channelDbOpt -> channelDbOpt
+                        .map(CompletableFuture::completedFuture)
+                        // The repository was already checked, create only checks the cache again
+                        .orElseGet(() -> this.asyncExecutor.supply(
+                                () -> this.create(discordChannelId, discordGuildId)
+                        ))
+                );
+    }
+
     /**
      * Retrieves or create a discord channel instance
      *
@@ -0,0 +1,49 @@
+package de.timmi6790.discord_framework.module.modules.channel;
+
+import de.timmi6790.discord_framework.module.modules.database.cache.SnapshotCodec;
+import de.timmi6790.discord_framework.module.modules.guild.GuildDbModule;
+import lombok.AllArgsConstructor;
+import net.dv8tion.jda.api.sharding.ShardManager;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Binary format of {@link ChannelDb}s, used for cache snapshots. Only the guild id is stored, the guild is resolved
+ * through the {@link GuildDbModule} while decoding.
+ * <p>
+ * Version 1 layout: the version byte, the discord id, the discord guild id and the disabled flag.
+ */
+@AllArgsConstructor
+public class ChannelDbSnapshotCodec implements SnapshotCodec<ChannelDb> {
+    public static final int CURRENT_VERSION = 1;
+
+    private static final int SNAPSHOT_BYTES = 1 + Long.BYTES + Long.BYTES + 1;
+
+    private final GuildDbModule guildDbModule;
+    private final ShardManager discord;
+
+    @Override
+    public byte[] encode(final ChannelDb channelDb) {
+        return ByteBuffer.allocate(SNAPSHOT_BYTES)
+                .put((byte) CURRENT_VERSION)
+                .putLong(channelDb.getDiscordId())
+                .putLong(channelDb.getGuildDb().getDiscordId())
+                .put((byte) (channelDb.isDisabled() ? 1 : 0))
+                .array();
+    }
+
+    @Override
+    public Optional<ChannelDb> decode(final byte[] snapshot) {
+        if (snapshot.length != SNAPSHOT_BYTES || snapshot[0] != CURRENT_VERSION) {
+            return Optional.empty();
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(snapshot, 1, SNAPSHOT_BYTES - 1);
+        final long discordId = buffer.getLong();
+        final long discordGuildId = buffer.getLong();
+        final boolean disabled = buffer.get() != 0;
+        return this.guildDbModule.get(discordGuildId)
+                .map(guildDb -> new ChannelDb(guildDb, this.discord, discordId, disabled));
+    }
+}
@@ -0,0 +1,26 @@
+package de.timmi6790.discord_framework.module.modules.channel;
+
+import lombok.Data;
+
+/**
+ * Channel db module config.
+ */
+@Data
+public class Config {
+    /**
+     * Max estimated heap size of the cached channels in megabytes
+     */
+    private long cacheSizeMb = 4;
+    /**
+     * Minutes after which a cached channel is removed
+     */
+    private long cacheExpireAfterWriteMinutes = 10;
+    /**
+     * File the hottest cached channels are written into on shutdown and preloaded from on start, empty disables it
+     */
+    private String cacheSnapshotPath = "./cache/channels.snapshot";
+    /**
+     * Max amount of channels written into the cache snapshot
+     */
+    private int cacheSnapshotEntries = 5_000;
+}
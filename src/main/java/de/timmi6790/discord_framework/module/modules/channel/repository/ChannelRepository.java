@@ -1,7 +1,10 @@
 package de.timmi6790.discord_framework.module.modules.channel.repository;
 
 import de.timmi6790.discord_framework.module.modules.channel.ChannelDb;
+import de.timmi6790.discord_framework.module.modules.database.cache.VersionedEntity;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -25,4 +28,20 @@ public interface ChannelRepository {
      * @return the channel
      */
     Optional<ChannelDb> get(final long discordChannelId);
+
+    /**
+     * Tries to find a channel instance together with its database version at the time of the read
+     *
+     * @param discordChannelId the discord channel id
+     * @return the channel with its version
+     */
+    Optional<VersionedEntity<ChannelDb>> getVersioned(final long discordChannelId);
+
+    /**
+     * Gets the current database version of the given channels
+     *
+     * @param discordChannelIds the discord channel ids
+     * @return the versions, channels that don't exist are missing
+     */
+    Map<Long, Long> getVersions(final Collection<Long> discordChannelIds);
 }
@@ -4,24 +4,37 @@ import de.timmi6790.discord_framework.module.modules.channel.ChannelDb;
 import de.timmi6790.discord_framework.module.modules.channel.repository.ChannelRepository;
 import de.timmi6790.discord_framework.module.modules.channel.repository.postgres.mappers.ChannelDbMapper;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
+import de.timmi6790.discord_framework.module.modules.database.cache.VersionedEntity;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
+import de.timmi6790.discord_framework.module.modules.database.replica.ReplicaRouter;
 import de.timmi6790.discord_framework.module.modules.guild.GuildDbModule;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jdbi.v3.core.Jdbi;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Postgres channel repository implementation
  */
 public class ChannelPostgresRepository implements ChannelRepository {
-    private static final String GET_CHANNEL = "SELECT channel.discord_id, channel.disabled, channel.guild_id " +
+    private static final String GET_CHANNEL = "SELECT channel.discord_id, channel.disabled, channel.guild_id, channel.xmin::text::bigint version " +
             "FROM channel.channels channel " +
             "WHERE channel.discord_id = :discordId " +
             "LIMIT 1;";
 
+    // The transaction id of the last row change, which changes on every update
+    private static final String GET_CHANNEL_VERSIONS = "SELECT channel.discord_id, channel.xmin::text::bigint version " +
+            "FROM channel.channels channel " +
+            "WHERE channel.discord_id IN (<discordIds>);";
+
     private static final String INSERT_CHANNEL = "INSERT INTO channel.channels(discord_id, guild_id) VALUES (:discordId, :guildId) RETURNING discord_id, disabled, guild_id;";
 
     private final Jdbi database;
+    private final ReplicaRouter replicaRouter;
+    private final ChannelDbMapper channelDbMapper;
 
     /**
      * Instantiates a new Channel repository.
@@ -34,32 +47,56 @@ public class ChannelPostgresRepository implements ChannelRepository {
                                      final DatabaseModule databaseModule,
                                      final GuildDbModule guildDbModule) {
         this.database = databaseModule.getJdbi();
-        this.database.registerRowMapper(
-                new ChannelDbMapper(
-                        guildDbModule,
-                        discordShardManager
-                )
+        this.replicaRouter = databaseModule.getReplicaRouter();
+        this.channelDbMapper = new ChannelDbMapper(
+                guildDbModule,
+                discordShardManager
         );
+        databaseModule.registerRowMapper(this.channelDbMapper);
     }
 
     @Override
     public ChannelDb create(final long discordChannelId, final long discordGuildID) {
-        return this.database.withHandle(handle ->
+        final ChannelDb channelDb = this.database.withHandle(handle ->
                 handle.createQuery(INSERT_CHANNEL)
                         .bind("discordId", discordChannelId)
                         .bind("guildId", discordGuildID)
                         .mapTo(ChannelDb.class)
                         .first()
         );
+        // The replica could still miss the new channel
+        this.replicaRouter.recordWrite(InvalidationTopic.CHANNEL, discordChannelId);
+        return channelDb;
     }
 
     @Override
     public Optional<ChannelDb> get(final long discordChannelId) {
-        return this.database.withHandle(handle ->
+        return this.getVersioned(discordChannelId).map(VersionedEntity::getEntity);
+    }
+
+    @Override
+    public Optional<VersionedEntity<ChannelDb>> getVersioned(final long discordChannelId) {
+        return this.replicaRouter.withReadHandle(InvalidationTopic.CHANNEL, discordChannelId, handle ->
                 handle.createQuery(GET_CHANNEL)
                         .bind("discordId", discordChannelId)
-                        .mapTo(ChannelDb.class)
+                        .map((rs, ctx) -> new VersionedEntity<>(this.channelDbMapper.map(rs, ctx), rs.getLong("version")))
                         .findFirst()
         );
     }
+
+    @Override
+    public Map<Long, Long> getVersions(final Collection<Long> discordChannelIds) {
+        if (discordChannelIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return this.database.withHandle(handle ->
+                handle.createQuery(GET_CHANNEL_VERSIONS)
+                        .bindList("discordIds", discordChannelIds)
+                        .reduceRows(new HashMap<Long, Long>(), (versions, row) -> {
+                            versions.put(row.getColumn("discord_id", Long.class), row.getColumn("version", Long.class));
+                            return versions;
+                        })
+        );
+    }
 }
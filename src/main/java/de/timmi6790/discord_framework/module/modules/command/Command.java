@@ -6,6 +6,7 @@ import de.timmi6790.discord_framework.module.modules.command.exceptions.CommandR
 import de.timmi6790.discord_framework.module.modules.command.models.BaseCommandResult;
 import de.timmi6790.discord_framework.module.modules.command.models.CommandParameters;
 import de.timmi6790.discord_framework.module.modules.command.models.CommandResult;
+import de.timmi6790.discord_framework.module.modules.command.models.CommandStage;
 import de.timmi6790.discord_framework.module.modules.command.property.CommandProperty;
 import de.timmi6790.discord_framework.module.modules.command.property.properties.info.ExampleCommandsProperty;
 import de.timmi6790.discord_framework.module.modules.command.property.properties.info.RequiredDiscordBotPermsProperty;
@@ -101,17 +102,28 @@ public abstract class Command {
         return true;
     }
 
-    public void executeCommand(final CommandParameters commandParameters) {
+    private void recordStage(final CommandStage stage, final long startTime) {
+        this.commandModule.recordStage(stage, this.name, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Checks the user and guild bans, the required discord permissions and the command permissions. The user is
+     * informed about the failed check.
+     *
+     * @param commandParameters the command parameters
+     * @return true if the command can be executed
+     */
+    private boolean checkPermissions(final CommandParameters commandParameters) {
         // User ban check
         if (commandParameters.getUserDb().isBanned()) {
             MessageUtilities.sendUserBanMessage(commandParameters);
-            return;
+            return false;
         }
 
         // Guild ban check
         if (commandParameters.getGuildDb().isBanned()) {
             MessageUtilities.sendGuildBanMessage(commandParameters);
-            return;
+            return false;
         }
 
         // Discord perms check
@@ -129,25 +141,59 @@ public abstract class Command {
             // Send error message
             if (!missingDiscordPerms.isEmpty()) {
                 MessageUtilities.sendMissingDiscordPermissionMessage(commandParameters, missingDiscordPerms);
-                return;
+                return false;
             }
         }
 
         // Command perms check
         if (!this.canExecute(commandParameters)) {
             MessageUtilities.sendMissingPermissionsMessage(commandParameters);
-            return;
+            return false;
         }
 
-        // Property checks
+        return true;
+    }
+
+    private boolean checkProperties(final CommandParameters commandParameters) {
         for (final CommandProperty<?> commandProperty : this.properties.values()) {
             if (!commandProperty.onCommandExecution(this, commandParameters)) {
-                return;
+                return false;
             }
         }
+        return true;
+    }
+
+    public void executeCommand(final CommandParameters commandParameters) {
+        commandParameters.setCommandName(this.name);
+
+        // Permission checks
+        final long permissionStartTime = System.nanoTime();
+        final boolean hasPermissions;
+        try {
+            hasPermissions = this.checkPermissions(commandParameters);
+        } finally {
+            this.recordStage(CommandStage.PERMISSION, permissionStartTime);
+        }
+        if (!hasPermissions) {
+            return;
+        }
+
+        // Property checks
+        final long propertiesStartTime = System.nanoTime();
+        final boolean validProperties;
+        try {
+            validProperties = this.checkProperties(commandParameters);
+        } finally {
+            this.recordStage(CommandStage.PROPERTIES, propertiesStartTime);
+        }
+        if (!validProperties) {
+            return;
+        }
 
         // Command pre event
+        final long preEventStartTime = System.nanoTime();
         this.getEventModule().executeEvent(new PreCommandExecutionEvent(this, commandParameters));
+        final long preEventTime = System.nanoTime() - preEventStartTime;
 
         CommandResult commandResult;
         final long startTime = System.nanoTime();
@@ -175,6 +221,7 @@ public abstract class Command {
         } finally {
             executionTime = System.nanoTime() - startTime;
         }
+        this.commandModule.recordStage(CommandStage.EXECUTE, this.name, executionTime);
 
         // Assure that the command result is never null
         if (commandResult == null) {
@@ -183,6 +230,7 @@ public abstract class Command {
         }
 
         // Command post event
+        final long postEventStartTime = System.nanoTime();
         this.getEventModule().executeEvent(
                 new PostCommandExecutionEvent(
                         this,
@@ -191,6 +239,11 @@ public abstract class Command {
                         executionTime
                 )
         );
+        this.commandModule.recordStage(
+                CommandStage.EVENTS,
+                this.name,
+                preEventTime + System.nanoTime() - postEventStartTime
+        );
     }
 
     public <V extends CommandProperty<?>> Optional<V> getProperty(final Class<V> propertyClass) {
@@ -1,16 +1,19 @@
 package de.timmi6790.discord_framework.module.modules.command;
 
 import de.timmi6790.discord_framework.module.AbstractModule;
+import de.timmi6790.discord_framework.module.ShardRequirement;
 import de.timmi6790.discord_framework.module.modules.channel.ChannelDbModule;
 import de.timmi6790.discord_framework.module.modules.command.commands.HelpCommand;
 import de.timmi6790.discord_framework.module.modules.command.listeners.MessageListener;
 import de.timmi6790.discord_framework.module.modules.command.listeners.MetricListener;
 import de.timmi6790.discord_framework.module.modules.command.models.CommandParameters;
+import de.timmi6790.discord_framework.module.modules.command.models.CommandStage;
 import de.timmi6790.discord_framework.module.modules.command.property.properties.info.AliasNamesProperty;
 import de.timmi6790.discord_framework.module.modules.command.utilities.ArrayUtilities;
 import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
 import de.timmi6790.discord_framework.module.modules.event.EventModule;
 import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
+import de.timmi6790.discord_framework.module.modules.metric.MultiTaggedTimer;
 import de.timmi6790.discord_framework.module.modules.permisssion.PermissionsModule;
 import de.timmi6790.discord_framework.module.modules.reactions.button.ButtonReaction;
 import de.timmi6790.discord_framework.module.modules.reactions.button.ButtonReactionModule;
@@ -31,18 +34,31 @@ import net.dv8tion.jda.api.interactions.components.Button;
 import net.dv8tion.jda.api.interactions.components.ButtonStyle;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.utils.MarkdownUtil;
-import org.apache.commons.collections4.map.CaseInsensitiveMap;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 @EqualsAndHashCode(callSuper = true)
 @Log4j2
 public class CommandModule extends AbstractModule {
-    private final Map<String, Command> commands = new CaseInsensitiveMap<>();
-    private final Map<String, String> commandAliases = new CaseInsensitiveMap<>();
+    public static final String UNKNOWN_COMMAND_NAME = "unknown";
+
+    /**
+     * Lower case command names to their commands, commands can be registered by modules that are initialized in
+     * parallel
+     */
+    private final Map<String, Command> commands = new ConcurrentHashMap<>();
+    /**
+     * Lower case alias names to their command names
+     */
+    private final Map<String, String> commandAliases = new ConcurrentHashMap<>();
+    // Incremented on each registry change, used by consumers to invalidate derived data
+    private final AtomicLong commandRegistryVersion = new AtomicLong();
 
     private Config config;
 
@@ -51,6 +67,7 @@ public class CommandModule extends AbstractModule {
     @Getter(AccessLevel.PUBLIC)
     private EventModule eventModule;
     private MetricModule metricModule;
+    private MultiTaggedTimer stageTimer;
     @Getter(AccessLevel.PUBLIC)
     private ButtonReactionModule buttonReactionModule;
 
@@ -79,6 +96,9 @@ public class CommandModule extends AbstractModule {
                 UserDbModule.class,
                 ChannelDbModule.class
         );
+
+        // Commands can be handled as soon as the first shard receives messages
+        this.setShardRequirement(ShardRequirement.ANY);
     }
 
     @Override
@@ -99,6 +119,13 @@ public class CommandModule extends AbstractModule {
         );
 
         if (this.metricModule != null) {
+            this.stageTimer = new MultiTaggedTimer(
+                    "command.stage.duration",
+                    "Duration of the individual command execution stages",
+                    this.metricModule.getMeterRegistry(),
+                    "stage",
+                    "command"
+            );
             this.eventModule.addEventListener(
                     new MetricListener(
                             this.metricModule
@@ -144,6 +171,19 @@ public class CommandModule extends AbstractModule {
         return Optional.ofNullable(this.metricModule);
     }
 
+    /**
+     * Records the duration of a command stage. Does nothing when the metric module is not available.
+     *
+     * @param stage        the command stage
+     * @param commandName  the command name or {@link #UNKNOWN_COMMAND_NAME} if the command is not known yet
+     * @param durationNano the stage duration in nanoseconds
+     */
+    public void recordStage(final CommandStage stage, final String commandName, final long durationNano) {
+        if (this.stageTimer != null) {
+            this.stageTimer.get(stage.getTagValue(), commandName).record(durationNano, TimeUnit.NANOSECONDS);
+        }
+    }
+
     public String getMainCommand() {
         return this.config.getMainCommand();
     }
@@ -162,10 +202,20 @@ public class CommandModule extends AbstractModule {
     }
 
     public Optional<Command> getCommand(String commandName) {
-        commandName = this.commandAliases.getOrDefault(commandName, commandName);
+        commandName = commandName.toLowerCase(Locale.ROOT);
+        commandName = this.commandAliases.getOrDefault(commandName, commandName).toLowerCase(Locale.ROOT);
         return Optional.ofNullable(this.commands.get(commandName));
     }
 
+    /**
+     * Gets the current command registry version. The version changes each time a command is registered.
+     *
+     * @return the command registry version
+     */
+    public long getCommandRegistryVersion() {
+        return this.commandRegistryVersion.get();
+    }
+
     public Set<Command> getCommands() {
         return new HashSet<>(this.commands.values());
     }
@@ -188,8 +238,9 @@ public class CommandModule extends AbstractModule {
         }
     }
 
-    public boolean registerCommand(final AbstractModule module, final Command command) {
-        if (this.commands.containsKey(command.getName())) {
+    public synchronized boolean registerCommand(final AbstractModule module, final Command command) {
+        final String commandKey = command.getName().toLowerCase(Locale.ROOT);
+        if (this.commands.containsKey(commandKey)) {
             log.warn(
                     "The module {} tried to register the {} command that already exists.",
                     module.getModuleName(),
@@ -210,12 +261,13 @@ public class CommandModule extends AbstractModule {
                 module.getModuleName(),
                 command.getName()
         );
-        this.commands.put(command.getName(), command);
+        this.commands.put(commandKey, command);
         for (final String aliasName : command.getPropertyValueOrDefault(AliasNamesProperty.class, () -> new String[0])) {
-            final String existingAliasName = this.commandAliases.get(aliasName);
-            if (existingAliasName == null) {
-                this.commandAliases.put(aliasName, command.getName());
-            } else {
+            final String existingAliasName = this.commandAliases.putIfAbsent(
+                    aliasName.toLowerCase(Locale.ROOT),
+                    command.getName()
+            );
+            if (existingAliasName != null) {
                 log.warn(
                         "[{}] Tried to register an already existing alias name {} for {} that is already used for the {} command",
                         module.getModuleName(),
@@ -225,6 +277,7 @@ public class CommandModule extends AbstractModule {
                 );
             }
         }
+        this.commandRegistryVersion.incrementAndGet();
 
         return true;
     }
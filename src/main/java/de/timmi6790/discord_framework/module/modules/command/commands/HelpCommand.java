@@ -1,5 +1,7 @@
 package de.timmi6790.discord_framework.module.modules.command.commands;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import de.timmi6790.discord_framework.module.modules.command.Command;
 import de.timmi6790.discord_framework.module.modules.command.CommandModule;
 import de.timmi6790.discord_framework.module.modules.command.exceptions.CommandReturnException;
@@ -11,6 +13,8 @@ import de.timmi6790.discord_framework.module.modules.command.utilities.MessageUt
 import de.timmi6790.discord_framework.utilities.DataUtilities;
 import de.timmi6790.discord_framework.utilities.MultiEmbedBuilder;
 import de.timmi6790.discord_framework.utilities.commons.StringUtilities;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import net.dv8tion.jda.api.utils.MarkdownUtil;
@@ -21,11 +25,25 @@ import java.util.*;
 @ToString(callSuper = true)
 public class HelpCommand extends Command {
     private static final String DEFAULT_CATEGORY = "";
+    private static final int HELP_PAGE_CACHE_SIZE = 1_000;
 
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
     private final CommandModule commandModule;
 
+    /**
+     * Rendered category lines, per registry version, category and visible commands inside the category
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Cache<HelpPageKey, String> helpPageCache = Caffeine.newBuilder()
+            .maximumSize(HELP_PAGE_CACHE_SIZE)
+            .recordStats()
+            .build();
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile HelpIndex helpIndex;
+
     public HelpCommand(final CommandModule commandModule) {
         super("help", commandModule);
 
@@ -37,6 +55,14 @@ public class HelpCommand extends Command {
                 new SyntaxProperty("[command]"),
                 new AliasNamesProperty("h")
         );
+
+        commandModule.getMetricModule().ifPresent(metric ->
+                CaffeineCacheMetrics.monitor(
+                        metric.getMeterRegistry(),
+                        this.helpPageCache,
+                        "command_help_page"
+                )
+        );
     }
 
     private String getDescription(final Command command) {
@@ -47,6 +73,60 @@ public class HelpCommand extends Command {
         return command.getPropertyValueOrDefault(SyntaxProperty.class, () -> "");
     }
 
+    /**
+     * Gets the help index for the current command registry version. The index is rebuild when a new command is
+     * registered, which also invalidates all cached help pages.
+     *
+     * @return the help index
+     */
+    private HelpIndex getHelpIndex() {
+        final long version = this.commandModule.getCommandRegistryVersion();
+        HelpIndex index = this.helpIndex;
+        if (index == null || index.getVersion() != version) {
+            index = this.createHelpIndex(version);
+            this.helpIndex = index;
+            this.helpPageCache.invalidateAll();
+        }
+
+        return index;
+    }
+
+    private HelpIndex createHelpIndex(final long version) {
+        // Group all commands via their category
+        final Map<String, List<Command>> sortedCommands = new TreeMap<>();
+        for (final Command command : this.commandModule.getCommands()) {
+            sortedCommands.computeIfAbsent(
+                    command.getPropertyValueOrDefault(CategoryProperty.class, () -> DEFAULT_CATEGORY),
+                    k -> new ArrayList<>()
+            ).add(command);
+        }
+
+        // Sort the command after name
+        final Map<String, Command[]> categories = new LinkedHashMap<>(sortedCommands.size());
+        for (final Map.Entry<String, List<Command>> entry : sortedCommands.entrySet()) {
+            entry.getValue().sort(Comparator.comparing(Command::getName));
+            categories.put(entry.getKey(), entry.getValue().toArray(new Command[0]));
+        }
+
+        return new HelpIndex(version, categories);
+    }
+
+    private String renderCategoryLines(final Command[] commands, final BitSet visibleCommands) {
+        final StringJoiner lines = new StringJoiner("\n");
+        for (int index = visibleCommands.nextSetBit(0); index >= 0; index = visibleCommands.nextSetBit(index + 1)) {
+            final Command command = commands[index];
+            final String commandSyntax = this.getSyntax(command);
+            final String syntax = commandSyntax.length() == 0 ? "" : " " + commandSyntax;
+            lines.add(String.format(
+                    "%s %s",
+                    MarkdownUtil.monospace(this.commandModule.getMainCommand() + command.getName() + syntax),
+                    this.getDescription(command)
+            ));
+        }
+
+        return lines.toString();
+    }
+
     @Override
     protected CommandResult onCommand(final CommandParameters commandParameters) {
         // All info
@@ -75,33 +155,28 @@ public class HelpCommand extends Command {
                         this.getName()
                 );
 
-        // Group all commands via their category
-        final Map<String, List<Command>> sortedCommands = new HashMap<>();
-        for (final Command command : this.commandModule.getCommands(command -> command.canExecute(commandParameters))) {
-            sortedCommands.computeIfAbsent(
-                    command.getPropertyValueOrDefault(CategoryProperty.class, () -> DEFAULT_CATEGORY),
-                    k -> new ArrayList<>()
-            ).add(command);
-        }
-
-        // Sort the command after name
-        for (final Map.Entry<String, List<Command>> entry : sortedCommands.entrySet()) {
-            entry.getValue().sort(Comparator.comparing(Command::getName));
+        final HelpIndex index = this.getHelpIndex();
+        for (final Map.Entry<String, Command[]> entry : index.getCategories().entrySet()) {
+            final Command[] commands = entry.getValue();
 
-            final StringJoiner lines = new StringJoiner("\n");
-            for (final Command command : entry.getValue()) {
-                final String commandSyntax = this.getSyntax(command);
-                final String syntax = commandSyntax.length() == 0 ? "" : " " + commandSyntax;
-                lines.add(String.format(
-                        "%s %s",
-                        MarkdownUtil.monospace(this.commandModule.getMainCommand() + command.getName() + syntax),
-                        this.getDescription(command)
-                ));
+            // The visible commands of the category are the fingerprint of the rendered lines
+            final BitSet visibleCommands = new BitSet(commands.length);
+            for (int commandIndex = 0; commands.length > commandIndex; commandIndex++) {
+                if (commands[commandIndex].canExecute(commandParameters)) {
+                    visibleCommands.set(commandIndex);
+                }
+            }
+            if (visibleCommands.isEmpty()) {
+                continue;
             }
 
+            final String lines = this.helpPageCache.get(
+                    new HelpPageKey(index.getVersion(), entry.getKey(), visibleCommands),
+                    key -> this.renderCategoryLines(commands, visibleCommands)
+            );
             message.addField(
                     entry.getKey(),
-                    lines.toString()
+                    lines
             );
         }
 
@@ -195,4 +270,18 @@ public class HelpCommand extends Command {
 
         throw new CommandReturnException();
     }
+
+    @Data
+    private static class HelpIndex {
+        private final long version;
+        // Categories sorted by name, with their commands sorted by name
+        private final Map<String, Command[]> categories;
+    }
+
+    @Data
+    private static class HelpPageKey {
+        private final long version;
+        private final String category;
+        private final BitSet visibleCommands;
+    }
 }
@@ -6,6 +6,7 @@ import de.timmi6790.discord_framework.module.modules.command.Command;
 import de.timmi6790.discord_framework.module.modules.command.CommandModule;
 import de.timmi6790.discord_framework.module.modules.command.models.BaseCommandCause;
 import de.timmi6790.discord_framework.module.modules.command.models.CommandParameters;
+import de.timmi6790.discord_framework.module.modules.command.models.CommandStage;
 import de.timmi6790.discord_framework.module.modules.event.SubscribeEvent;
 import de.timmi6790.discord_framework.module.modules.reactions.button.ButtonReaction;
 import de.timmi6790.discord_framework.module.modules.reactions.button.ButtonReactionModule;
@@ -28,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -193,36 +195,55 @@ public class MessageListener {
         }
 
         // Check if the message either starts with the main command or if the bot was tagged
+        final long parseStartTime = System.nanoTime();
         final Matcher commandMatcher = this.commandPattern.matcher(event.getMessage().getContentRaw());
         if (!commandMatcher.find()) {
             return;
         }
 
-        // Get repository objects async
-        final CompletableFuture<UserDb> userDbFuture = CompletableFuture.supplyAsync(() ->
-                this.userDbModule.getOrCreate(event.getAuthor().getIdLong())
-        );
-        final CompletableFuture<ChannelDb> channelDbFuture = CompletableFuture.supplyAsync(() ->
-                this.channelDbModule.getOrCreate(
-                        event.getChannel().getIdLong(),
-                        event.getGuild().getIdLong()
-                )
-        );
+        long parseTime = System.nanoTime() - parseStartTime;
+
+        // Get repository objects async, cached objects complete directly
+        final AtomicLong userLoadTime = new AtomicLong();
+        final long userLoadStartTime = System.nanoTime();
+        final CompletableFuture<UserDb> userDbFuture = this.userDbModule
+                .getOrCreateAsync(event.getAuthor().getIdLong())
+                .whenComplete((userDb, throwable) -> userLoadTime.set(System.nanoTime() - userLoadStartTime));
+        final AtomicLong channelLoadTime = new AtomicLong();
+        final long channelLoadStartTime = System.nanoTime();
+        final CompletableFuture<ChannelDb> channelDbFuture = this.channelDbModule
+                .getOrCreateAsync(event.getChannel().getIdLong(), event.getGuild().getIdLong())
+                .whenComplete((channelDb, throwable) -> channelLoadTime.set(System.nanoTime() - channelLoadStartTime));
 
         final String commandName = commandMatcher.group(1);
         final String rawArguments = commandMatcher.group(2);
 
         // TODO: Don't forget to add the user and channel to the cache objects to prevent a further rest request
+        final ChannelDb channelDb = channelDbFuture.get();
+        final UserDb userDb = userDbFuture.get();
+        if (event.isFromGuild() && event.getMember() != null) {
+            // The event already contains the member, the embed colour and permission checks don't need to retrieve it
+            channelDb.getGuildDb().cacheMember(event.getMember());
+        }
+
+        final long argumentParseStartTime = System.nanoTime();
         final CommandParameters commandParameters = CommandParameters.of(
                 rawArguments,
                 event.isFromGuild(),
                 BaseCommandCause.MESSAGE,
                 this.commandModule,
-                channelDbFuture.get(),
-                userDbFuture.get()
+                channelDb,
+                userDb
         );
+        final Optional<Command> commandOpt = this.getCommand(commandName, commandParameters);
+        parseTime += System.nanoTime() - argumentParseStartTime;
+
+        // The stages are only tagged with valid command names, to keep the metric cardinality low
+        final String stageCommandName = commandOpt.map(Command::getName).orElse(CommandModule.UNKNOWN_COMMAND_NAME);
+        this.commandModule.recordStage(CommandStage.PARSE, stageCommandName, parseTime);
+        this.commandModule.recordStage(CommandStage.USER_LOAD, stageCommandName, userLoadTime.get());
+        this.commandModule.recordStage(CommandStage.CHANNEL_LOAD, stageCommandName, channelLoadTime.get());
 
-        this.getCommand(commandName, commandParameters)
-                .ifPresent(command -> command.executeCommand(commandParameters));
+        commandOpt.ifPresent(command -> command.executeCommand(commandParameters));
     }
 }
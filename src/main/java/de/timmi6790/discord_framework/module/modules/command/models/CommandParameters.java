@@ -4,25 +4,27 @@ import de.timmi6790.discord_framework.module.modules.channel.ChannelDb;
 import de.timmi6790.discord_framework.module.modules.command.CommandModule;
 import de.timmi6790.discord_framework.module.modules.command.utilities.ArgumentUtilities;
 import de.timmi6790.discord_framework.module.modules.guild.GuildDb;
+import de.timmi6790.discord_framework.module.modules.outbound.MessagePriority;
 import de.timmi6790.discord_framework.module.modules.user.UserDb;
 import de.timmi6790.discord_framework.utilities.MultiEmbedBuilder;
 import de.timmi6790.discord_framework.utilities.discord.DiscordMessagesUtilities;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Data;
-import lombok.SneakyThrows;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.internal.utils.Checks;
 
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 @Data
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 public class CommandParameters {
     public static CommandParameters of(final String rawArgs,
                                        final String[] args,
@@ -85,9 +87,30 @@ public class CommandParameters {
     private final CommandModule commandModule;
     private final ChannelDb channelDb;
     private final UserDb userDb;
+    /**
+     * Name of the executed command, only used to tag metrics
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile String commandName = CommandModule.UNKNOWN_COMMAND_NAME;
 
+    /**
+     * Retrieves the command user without blocking.
+     *
+     * @return the user future
+     */
+    public CompletableFuture<User> retrieveUser() {
+        return this.userDb.retrieveUser();
+    }
+
+    /**
+     * Gets the command user. This will block on a rest request when the user is not cached, prefer {@link
+     * #retrieveUser()}.
+     *
+     * @return the user
+     */
     public User getUser() {
-        return this.userDb.getUser();
+        return this.retrieveUser().join();
     }
 
     public Guild getGuild() {
@@ -98,8 +121,23 @@ public class CommandParameters {
         return this.channelDb.getGuildDb();
     }
 
+    /**
+     * Retrieves the guild member of the command user without blocking.
+     *
+     * @return the member future
+     */
+    public CompletableFuture<Member> retrieveGuildMember() {
+        return this.getGuildDb().getMember(this.userDb.getDiscordId());
+    }
+
+    /**
+     * Gets the guild member of the command user. Members of message commands are cached from the message event, other
+     * members block on a rest request, prefer {@link #retrieveGuildMember()}.
+     *
+     * @return the guild member
+     */
     public Member getGuildMember() {
-        return this.getGuildDb().getMember(this.getUser());
+        return this.retrieveGuildMember().join();
     }
 
     public String[] getArgs() {
@@ -111,11 +149,23 @@ public class CommandParameters {
         return this.channelDb.getChannel();
     }
 
-    @SneakyThrows
+    /**
+     * Retrieves the private channel with the command user without blocking.
+     *
+     * @return the private channel future
+     */
+    public CompletableFuture<PrivateChannel> retrieveUserTextChannel() {
+        return this.userDb.getUserDbModule().getPrivateChannel(this.userDb.getDiscordId());
+    }
+
+    /**
+     * Gets the private channel with the command user. This will block on a rest request when the channel is not
+     * cached, prefer {@link #retrieveUserTextChannel()}.
+     *
+     * @return the private channel
+     */
     public PrivateChannel getUserTextChannel() {
-        final CompletableFuture<PrivateChannel> futureValue = new CompletableFuture<>();
-        this.getUser().openPrivateChannel().queue(futureValue::complete);
-        return futureValue.get(1, TimeUnit.MINUTES);
+        return this.retrieveUserTextChannel().join();
     }
 
     /**
@@ -150,24 +200,48 @@ public class CommandParameters {
     }
 
     // Messages
+    /**
+     * Gets the default embed builder of the command user. Only an already loaded guild member is used for the colour,
+     * the default colour is used instead of waiting for a rest request.
+     *
+     * @return the embed builder
+     */
     public MultiEmbedBuilder getEmbedBuilder() {
         return DiscordMessagesUtilities.getEmbedBuilder(
                 this.getUser(),
-                this.isGuildCommand() ? this.getGuildMember() : null
+                this.isGuildCommand()
+                        ? this.getGuildDb().getCachedMember(this.userDb.getDiscordId()).orElse(null)
+                        : null
         );
     }
 
     public void sendMessage(final MultiEmbedBuilder builder) {
+        final long startTime = System.nanoTime();
+        final String currentCommandName = this.commandName;
+        // Without a success consumer the reply can be coalesced with other messages into the same channel
         DiscordMessagesUtilities.sendMessage(
                 this.getLowestMessageChannel(),
-                builder
-        );
+                builder,
+                MessagePriority.COMMAND_REPLY
+        ).thenRun(() -> this.commandModule.recordStage(
+                CommandStage.REPLY_SEND,
+                currentCommandName,
+                System.nanoTime() - startTime
+        ));
     }
 
-    public void sendPrivateMessage(final MultiEmbedBuilder builder) {
-        DiscordMessagesUtilities.sendPrivateMessage(
-                this.getUser(),
-                builder
+    /**
+     * Sends the message to the private channel of the user.
+     *
+     * @param builder the message
+     * @return future completed with the send messages, it fails when the user doesn't accept private messages
+     */
+    public CompletableFuture<List<Message>> sendPrivateMessage(final MultiEmbedBuilder builder) {
+        return this.retrieveUser().thenCompose(user ->
+                DiscordMessagesUtilities.sendPrivateMessage(
+                        user,
+                        builder
+                )
         );
     }
 
@@ -0,0 +1,46 @@
+package de.timmi6790.discord_framework.module.modules.command.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The measured stages of a command execution, from the received message until the reply is send.
+ */
+@AllArgsConstructor
+@Getter
+public enum CommandStage {
+    /**
+     * Command pattern matching, argument parsing and command lookup
+     */
+    PARSE("parse"),
+    /**
+     * Loading the user repository object
+     */
+    USER_LOAD("user_load"),
+    /**
+     * Loading the channel repository object
+     */
+    CHANNEL_LOAD("channel_load"),
+    /**
+     * Ban, discord permission and command permission checks
+     */
+    PERMISSION("permission"),
+    /**
+     * Command property checks
+     */
+    PROPERTIES("properties"),
+    /**
+     * Pre and post command execution events
+     */
+    EVENTS("events"),
+    /**
+     * The command itself
+     */
+    EXECUTE("execute"),
+    /**
+     * From the reply send call until all reply messages are send
+     */
+    REPLY_SEND("reply_send");
+
+    private final String tagValue;
+}
@@ -77,6 +77,15 @@ public class CooldownProperty implements CommandProperty<Boolean> {
         );
     }
 
+    /**
+     * Removes the cooldown of the user, used when the command failed after the cooldown was started.
+     *
+     * @param userId the user id
+     */
+    public void resetCooldown(final long userId) {
+        this.cache.invalidate(userId);
+    }
+
     @Override
     public Boolean getValue() {
         return Boolean.TRUE;
@@ -17,6 +17,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -116,12 +117,13 @@ public class ArgumentUtilities {
         if (userIdMatcher.find()) {
             // The type is guaranteed through the regex
             final long userId = Long.parseLong(userIdMatcher.group(2));
-            final User user = commandParameters.getUserDb()
-                    .getUserDbModule()
-                    .getDiscordUserCache()
-                    .get(userId);
-            if (user != null) {
-                return user;
+            try {
+                return commandParameters.getUserDb()
+                        .getUserDbModule()
+                        .getDiscordUser(userId)
+                        .join();
+            } catch (final CompletionException ignore) {
+                // The user doesn't exist or discord didn't answer in time
             }
         }
 
@@ -2,6 +2,7 @@ package de.timmi6790.discord_framework.module.modules.config;
 
 import de.timmi6790.discord_framework.utilities.commons.GsonUtilities;
 import de.timmi6790.discord_framework.module.AbstractModule;
+import de.timmi6790.discord_framework.module.ShardRequirement;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.SneakyThrows;
@@ -23,6 +24,9 @@ public class ConfigModule extends AbstractModule {
      */
     public ConfigModule() {
         super("Config");
+
+        // Nothing is started, modules waiting for shards shouldn't wait for this module
+        this.setShardRequirement(ShardRequirement.NONE);
     }
 
     private String getFormattedModuleName(@NonNull final AbstractModule module) {
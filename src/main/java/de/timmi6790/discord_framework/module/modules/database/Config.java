@@ -19,4 +19,55 @@ public class Config {
      * The database password for the given user.
      */
     private String password = "";
+    /**
+     * Statements taking at least this many milliseconds are logged, 0 or lower disables the slow statement log.
+     */
+    private long slowStatementThresholdMs = 0;
+    /**
+     * Listen to postgres notifications of other bot processes, to invalidate cached entities changed by them.
+     */
+    private boolean crossProcessNotifications = true;
+    /**
+     * Invalidations for other bot processes are collected and sent as one batch every interval in the background. The
+     * interval is at least 1 ms, the changing caller never waits for the send.
+     */
+    private long invalidationBatchMillis = 50;
+    /**
+     * Max amount of queries executed at the same time, which is used as connection pool size. 0 or lower derives it
+     * from the cpu count
+     */
+    private int queryConcurrency = 0;
+    /**
+     * Max milliseconds a query waits for a free connection before it fails
+     */
+    private long connectionTimeoutMs = 5_000;
+    /**
+     * Connections borrowed for at least this many milliseconds are logged as possible leak, 0 disables it
+     */
+    private long leakDetectionThresholdMs = 30_000;
+    /**
+     * Executions of the same statement on one connection before it is prepared on the server
+     */
+    private int prepareThreshold = 3;
+    /**
+     * Prepared statements cached per connection
+     */
+    private int preparedStatementCacheQueries = 512;
+    /**
+     * Url of a read only replica, entity reads are routed to it when set. The replica uses the same user and password
+     */
+    private String replicaUrl = "";
+    /**
+     * Milliseconds after a write in which the written entity is read from the primary instead of the replica. Should
+     * be above the usual replication lag
+     */
+    private long readYourWritesMillis = 2_000;
+    /**
+     * Milliseconds an unreachable replica is skipped before a read tries it again. Reads use the primary in this time
+     */
+    private long replicaRetryMillis = 10_000;
+    /**
+     * Max amount of async database calls waiting for a free database thread, calls above it fail directly
+     */
+    private int asyncQueueCapacity = 10_000;
 }
@@ -3,13 +3,31 @@ package de.timmi6790.discord_framework.module.modules.database;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import de.timmi6790.discord_framework.module.AbstractModule;
+import de.timmi6790.discord_framework.module.ShardRequirement;
 import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
+import de.timmi6790.discord_framework.module.modules.database.async.AsyncDatabaseExecutor;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InMemoryInvalidationBus;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationBus;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.PostgresInvalidationBus;
+import de.timmi6790.discord_framework.module.modules.database.metrics.PoolMetricsTrackerFactory;
+import de.timmi6790.discord_framework.module.modules.database.metrics.RowCountingStatementBuilder;
+import de.timmi6790.discord_framework.module.modules.database.metrics.StatementMetrics;
+import de.timmi6790.discord_framework.module.modules.database.metrics.StatementNameRegistry;
+import de.timmi6790.discord_framework.module.modules.database.notification.PostgresNotificationListener;
+import de.timmi6790.discord_framework.module.modules.database.replica.ReplicaRouter;
+import de.timmi6790.discord_framework.module.modules.database.replica.ReplicaRoutingInvalidationBus;
 import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 import org.flywaydb.core.Flyway;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementBuilderFactory;
+
+import java.util.Optional;
 
 /**
  * Database module.
@@ -19,11 +37,41 @@ import org.jdbi.v3.core.Jdbi;
 @Log4j2
 public class DatabaseModule extends AbstractModule {
     private static final String TEST_QUERY = "SELECT 1;";
+    /**
+     * Min interval of the cross process invalidation batches
+     */
+    private static final long MIN_INVALIDATION_BATCH_MILLIS = 1;
 
     /**
      * Database access point
      */
     private Jdbi jdbi;
+    /**
+     * Read only replica, null when not configured
+     */
+    @Getter(AccessLevel.NONE)
+    private Jdbi replicaJdbi;
+    /**
+     * Executes blocking database calls for the async repositories
+     */
+    private AsyncDatabaseExecutor asyncExecutor;
+    /**
+     * Routes entity reads to the read replica
+     */
+    private ReplicaRouter replicaRouter;
+    /**
+     * Statement names used to tag the statement metrics
+     */
+    private final StatementNameRegistry statementNameRegistry = new StatementNameRegistry();
+    /**
+     * Notifications from and to the other bot processes, null when disabled
+     */
+    @Getter(AccessLevel.NONE)
+    private PostgresNotificationListener notificationListener;
+    /**
+     * Cache invalidations from and to the other bot processes
+     */
+    private InvalidationBus invalidationBus;
 
     /**
      * Instantiates a new Database module.
@@ -38,6 +86,9 @@ public class DatabaseModule extends AbstractModule {
         this.addLoadAfterDependencies(
                 MetricModule.class
         );
+
+        // Nothing is started, modules waiting for shards shouldn't wait for this module
+        this.setShardRequirement(ShardRequirement.NONE);
     }
 
     /**
@@ -72,19 +123,104 @@ public class DatabaseModule extends AbstractModule {
                 .migrate();
     }
 
-    private HikariConfig getHikariConfig(final Config databaseConfig) {
+    /**
+     * Registers all statement constants of the given repository, to record metrics for them under their constant name.
+     *
+     * @param repositoryClass the repository class
+     */
+    public void registerStatements(final Class<?> repositoryClass) {
+        this.statementNameRegistry.registerRepository(repositoryClass);
+    }
+
+    /**
+     * Records latency and row count metrics per named statement and logs slow statements.
+     *
+     * @param databaseConfig the database config
+     * @return the statement metrics
+     */
+    private StatementMetrics createStatementMetrics(final Config databaseConfig) {
+        this.registerStatements(DatabaseModule.class);
+
+        return new StatementMetrics(
+                this.statementNameRegistry,
+                this.getModule(MetricModule.class).map(MetricModule::getMeterRegistry).orElse(null),
+                databaseConfig.getSlowStatementThresholdMs()
+        );
+    }
+
+    private void registerStatementMetrics(final Jdbi database, final StatementMetrics statementMetrics) {
+        database.setSqlLogger(statementMetrics);
+
+        if (statementMetrics.isRecordingMetrics()) {
+            final StatementBuilderFactory statementBuilderFactory = database.getStatementBuilderFactory();
+            database.setStatementBuilderFactory(connection ->
+                    new RowCountingStatementBuilder(
+                            statementBuilderFactory.createStatementBuilder(connection),
+                            statementMetrics
+                    )
+            );
+        }
+    }
+
+    /**
+     * Registers the row mapper on the primary database and the read replica, used by repositories that read through
+     * the {@link ReplicaRouter}.
+     *
+     * @param rowMapper the row mapper
+     */
+    public void registerRowMapper(final RowMapper<?> rowMapper) {
+        this.jdbi.registerRowMapper(rowMapper);
+        if (this.replicaJdbi != null) {
+            this.replicaJdbi.registerRowMapper(rowMapper);
+        }
+    }
+
+    /**
+     * Gets the cross process notification listener.
+     *
+     * @return the notification listener or empty when cross process notifications are disabled
+     */
+    public Optional<PostgresNotificationListener> getNotificationListener() {
+        return Optional.ofNullable(this.notificationListener);
+    }
+
+    /**
+     * Gets the max amount of concurrent queries. Without a configured value, the cpu count based formula of the hikari
+     * pool sizing guide is used.
+     *
+     * @param databaseConfig the database config
+     * @return the query concurrency
+     */
+    public static int resolveQueryConcurrency(final Config databaseConfig) {
+        if (databaseConfig.getQueryConcurrency() > 0) {
+            return databaseConfig.getQueryConcurrency();
+        }
+        return Runtime.getRuntime().availableProcessors() * 2 + 1;
+    }
+
+    HikariConfig getHikariConfig(final Config databaseConfig) {
+        return this.getHikariConfig(databaseConfig, databaseConfig.getUrl(), "primary");
+    }
+
+    HikariConfig getHikariConfig(final Config databaseConfig, final String url, final String poolName) {
         final HikariConfig hikariConfig = new HikariConfig();
-        
-        hikariConfig.setJdbcUrl(databaseConfig.getUrl());
+
+        hikariConfig.setPoolName(poolName);
+        hikariConfig.setJdbcUrl(url);
         hikariConfig.setUsername(databaseConfig.getName());
         hikariConfig.setPassword(databaseConfig.getPassword());
 
-        hikariConfig.addDataSourceProperty("dataSourceClassName", "org.postgresql.ds.PGSimpleDataSource");
-        // I'm not sure if those properties even work for postgres
-        hikariConfig.addDataSourceProperty("cachePrepStmts", true);
-        hikariConfig.addDataSourceProperty("prepStmtCacheSize", 250);
-        hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", 2048);
-        hikariConfig.addDataSourceProperty("useServerPrepStmts", true);
+        // A fixed size pool, with one connection per concurrent query
+        final int poolSize = resolveQueryConcurrency(databaseConfig);
+        hikariConfig.setMaximumPoolSize(poolSize);
+        hikariConfig.setMinimumIdle(poolSize);
+        hikariConfig.setConnectionTimeout(databaseConfig.getConnectionTimeoutMs());
+        hikariConfig.setLeakDetectionThreshold(databaseConfig.getLeakDetectionThresholdMs());
+
+        // Postgres driver properties, prepared statements are cached per connection by the driver
+        hikariConfig.addDataSourceProperty("prepareThreshold", databaseConfig.getPrepareThreshold());
+        hikariConfig.addDataSourceProperty("preparedStatementCacheQueries", databaseConfig.getPreparedStatementCacheQueries());
+        hikariConfig.addDataSourceProperty("reWriteBatchedInserts", true);
 
         return hikariConfig;
     }
@@ -94,14 +230,30 @@ public class DatabaseModule extends AbstractModule {
         final Config databaseConfig = this.getModuleOrThrow(ConfigModule.class)
                 .registerAndGetConfig(this, new Config());
 
-        final HikariConfig hikariConfig = this.getHikariConfig(databaseConfig);
-
-        // Metrics
-        this.getModule(MetricModule.class).ifPresent(metric ->
-                hikariConfig.setMetricRegistry(metric.getMeterRegistry())
+        final StatementMetrics statementMetrics = this.createStatementMetrics(databaseConfig);
+        this.jdbi = this.createJdbi(this.getHikariConfig(databaseConfig), statementMetrics);
+        if (!databaseConfig.getReplicaUrl().isEmpty()) {
+            final HikariConfig replicaConfig = this.getHikariConfig(databaseConfig, databaseConfig.getReplicaUrl(), "replica");
+            replicaConfig.setReadOnly(true);
+            // Reads fall back to the primary, an unreachable replica shouldn't prevent the start
+            replicaConfig.setInitializationFailTimeout(-1);
+            this.replicaJdbi = this.createJdbi(replicaConfig, statementMetrics);
+        }
+        this.replicaRouter = new ReplicaRouter(
+                this.jdbi,
+                this.replicaJdbi,
+                databaseConfig.getReadYourWritesMillis(),
+                databaseConfig.getReplicaRetryMillis()
         );
+        this.asyncExecutor = new AsyncDatabaseExecutor(
+                resolveQueryConcurrency(databaseConfig),
+                databaseConfig.getAsyncQueueCapacity()
+        );
+        this.getModule(MetricModule.class).ifPresent(metric -> {
+            this.replicaRouter.bindTo(metric.getMeterRegistry());
+            this.asyncExecutor.bindTo(metric.getMeterRegistry());
+        });
 
-        this.jdbi = Jdbi.create(new HikariDataSource(hikariConfig));
         // Check if the connection is valid before doing any further actions
         if (!this.isConnectedToDatabase()) {
             log.error("Invalid database credentials");
@@ -109,6 +261,61 @@ public class DatabaseModule extends AbstractModule {
         }
 
         this.databaseVersioning(databaseConfig.getUrl(), databaseConfig.getName(), databaseConfig.getPassword());
+
+        if (databaseConfig.isCrossProcessNotifications()) {
+            this.notificationListener = new PostgresNotificationListener(
+                    this.jdbi,
+                    databaseConfig.getUrl(),
+                    databaseConfig.getName(),
+                    databaseConfig.getPassword()
+            );
+            this.notificationListener.start();
+        }
+        this.invalidationBus = this.createInvalidationBus(databaseConfig);
+        if (this.replicaRouter.hasReplica()) {
+            this.invalidationBus = new ReplicaRoutingInvalidationBus(this.invalidationBus, this.replicaRouter);
+        }
+        return true;
+    }
+
+    private Jdbi createJdbi(final HikariConfig hikariConfig, final StatementMetrics statementMetrics) {
+        this.getModule(MetricModule.class).ifPresent(metric ->
+                hikariConfig.setMetricsTrackerFactory(new PoolMetricsTrackerFactory(metric.getMeterRegistry()))
+        );
+
+        final Jdbi database = Jdbi.create(new HikariDataSource(hikariConfig));
+        this.registerStatementMetrics(database, statementMetrics);
+        return database;
+    }
+
+    private InvalidationBus createInvalidationBus(final Config databaseConfig) {
+        final MeterRegistry meterRegistry = this.getModule(MetricModule.class)
+                .map(MetricModule::getMeterRegistry)
+                .orElse(null);
+        if (this.notificationListener == null) {
+            // Without cross process notifications there is nobody to receive the invalidations
+            return new InMemoryInvalidationBus(0, meterRegistry);
+        }
+
+        // Sending directly would block every changing caller on a database round trip
+        return new PostgresInvalidationBus(
+                this.notificationListener,
+                Math.max(MIN_INVALIDATION_BATCH_MILLIS, databaseConfig.getInvalidationBatchMillis()),
+                meterRegistry
+        );
+    }
+
+    @Override
+    public boolean onDisable() {
+        if (this.asyncExecutor != null) {
+            this.asyncExecutor.close();
+        }
+        if (this.invalidationBus != null) {
+            this.invalidationBus.close();
+        }
+        if (this.notificationListener != null) {
+            this.notificationListener.close();
+        }
         return true;
     }
 }
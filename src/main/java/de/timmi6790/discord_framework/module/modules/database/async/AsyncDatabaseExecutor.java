@@ -0,0 +1,82 @@
+package de.timmi6790.discord_framework.module.modules.database.async;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded executor for blocking database calls. The thread count matches the connection pool size, a query never
+ * waits inside a thread for a free connection. Calls above the queue capacity are rejected, instead of queueing
+ * unbounded work while the database is slow.
+ */
+@Log4j2
+public class AsyncDatabaseExecutor implements AutoCloseable {
+    /**
+     * Max time we wait for the queued calls on close
+     */
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    @Getter
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Instantiates a new async database executor.
+     *
+     * @param concurrency   the max amount of calls executed at the same time
+     * @param queueCapacity the max amount of waiting calls
+     */
+    public AsyncDatabaseExecutor(final int concurrency, final int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(
+                concurrency,
+                concurrency,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("database-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+    }
+
+    /**
+     * Executes the blocking database call on this executor.
+     *
+     * @param call the blocking call
+     * @param <R>  the result type
+     * @return the result future, completed exceptionally if the call failed or was rejected
+     */
+    public <R> CompletableFuture<R> supply(final Supplier<R> call) {
+        try {
+            return CompletableFuture.supplyAsync(call, this.executor);
+        } catch (final RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public void bindTo(final MeterRegistry registry) {
+        new ExecutorServiceMetrics(this.executor, "database", Collections.emptyList()).bindTo(registry);
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Database calls are still running after {} seconds", CLOSE_TIMEOUT_SECONDS);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
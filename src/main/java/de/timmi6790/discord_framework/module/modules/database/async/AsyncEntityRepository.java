@@ -0,0 +1,20 @@
+package de.timmi6790.discord_framework.module.modules.database.async;
+
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non blocking entity repository. Implementations can use a non blocking database driver, or run the blocking
+ * repository on the {@link AsyncDatabaseExecutor}, see {@link ExecutorAsyncEntityRepository}.
+ *
+ * @param <V> the entity type
+ */
+public interface AsyncEntityRepository<V> {
+    /**
+     * Loads the entity.
+     *
+     * @param id the entity id
+     * @return the entity stage, completed with empty if the entity doesn't exist
+     */
+    CompletionStage<Optional<V>> get(long id);
+}
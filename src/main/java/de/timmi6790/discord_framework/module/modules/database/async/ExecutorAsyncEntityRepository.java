@@ -0,0 +1,23 @@
+package de.timmi6790.discord_framework.module.modules.database.async;
+
+import lombok.AllArgsConstructor;
+
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.function.LongFunction;
+
+/**
+ * Async entity repository that runs the blocking jdbi repository on the {@link AsyncDatabaseExecutor}.
+ *
+ * @param <V> the entity type
+ */
+@AllArgsConstructor
+public class ExecutorAsyncEntityRepository<V> implements AsyncEntityRepository<V> {
+    private final AsyncDatabaseExecutor executor;
+    private final LongFunction<Optional<V>> blockingGet;
+
+    @Override
+    public CompletionStage<Optional<V>> get(final long id) {
+        return this.executor.supply(() -> this.blockingGet.apply(id));
+    }
+}
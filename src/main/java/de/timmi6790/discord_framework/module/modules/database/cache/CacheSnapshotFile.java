@@ -0,0 +1,135 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import lombok.Data;
+import lombok.experimental.UtilityClass;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary file of cached entity snapshots, used to fill the caches directly after a restart.
+ * <p>
+ * The file starts with a header of the magic number, the format version and the entity type. It is followed by the
+ * entry count and the entries, each as id, database version, snapshot length and snapshot. Files are written into a
+ * temporary file first and moved into place afterwards, a crash while writing never leaves a partial file behind.
+ */
+@UtilityClass
+public class CacheSnapshotFile {
+    public static final int MAGIC = 0x53444243;
+    public static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Writes the entries into the given file, replacing an existing file.
+     *
+     * @param path       the file path
+     * @param entityType the entity type, to prevent loading the file into a cache of another type
+     * @param entries    the entries
+     * @throws IOException if the file can't be written
+     */
+    public void write(final Path path, final String entityType, final Collection<Entry> entries) throws IOException {
+        final Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        final Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+            output.writeInt(MAGIC);
+            output.writeByte(FORMAT_VERSION);
+            output.writeUTF(entityType);
+            output.writeInt(entries.size());
+            for (final Entry entry : entries) {
+                output.writeLong(entry.getId());
+                output.writeLong(entry.getVersion());
+                output.writeInt(entry.getSnapshot().length);
+                output.write(entry.getSnapshot());
+            }
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads all entries of the given file. The file is memory mapped, to read it without copying it into a heap buffer
+     * first.
+     *
+     * @param path       the file path
+     * @param entityType the expected entity type
+     * @return the entries, empty if the file doesn't exist
+     * @throws IOException              if the file can't be read
+     * @throws IllegalArgumentException if the file is not a snapshot file of the given type or is corrupted
+     */
+    public List<Entry> read(final Path path, final String entityType) throws IOException {
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (buffer.getInt() != MAGIC) {
+                    throw new IllegalArgumentException(path + " is not a cache snapshot file");
+                }
+                final byte formatVersion = buffer.get();
+                if (formatVersion != FORMAT_VERSION) {
+                    throw new IllegalArgumentException("Unsupported cache snapshot format version " + formatVersion);
+                }
+                final String fileEntityType = readUtf(buffer);
+                if (!entityType.equals(fileEntityType)) {
+                    throw new IllegalArgumentException(
+                            "Expected a snapshot of " + entityType + ", found " + fileEntityType
+                    );
+                }
+
+                final int count = buffer.getInt();
+                if (count < 0) {
+                    throw new IllegalArgumentException("Invalid entry count " + count);
+                }
+                final List<Entry> entries = new ArrayList<>(Math.min(count, buffer.remaining() / 20));
+                for (int index = 0; count > index; index++) {
+                    final long id = buffer.getLong();
+                    final long version = buffer.getLong();
+                    final int length = buffer.getInt();
+                    if (length < 0 || length > buffer.remaining()) {
+                        throw new IllegalArgumentException("Invalid snapshot length " + length + " of " + id);
+                    }
+                    final byte[] snapshot = new byte[length];
+                    buffer.get(snapshot);
+                    entries.add(new Entry(id, version, snapshot));
+                }
+                return entries;
+            } catch (final BufferUnderflowException e) {
+                throw new IllegalArgumentException(path + " is truncated", e);
+            }
+        }
+    }
+
+    private String readUtf(final MappedByteBuffer buffer) {
+        final int length = Short.toUnsignedInt(buffer.getShort());
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        // The entity types are plain ascii, which is encoded the same in modified utf-8
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A cached entity with the database version it was written at.
+     */
+    @Data
+    public static class Entry {
+        private final long id;
+        private final long version;
+        private final byte[] snapshot;
+    }
+}
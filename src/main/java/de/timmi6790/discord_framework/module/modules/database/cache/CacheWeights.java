@@ -0,0 +1,105 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Helpers to estimate the retained heap size of cached entities, used as caffeine weights. The estimates assume a 64
+ * bit jvm with compressed references and 8 byte object alignment. Objects shared between entities, like interned
+ * strings or module instances, are not part of the estimate.
+ */
+@UtilityClass
+public class CacheWeights {
+    public final int OBJECT_HEADER_BYTES = 12;
+    public final int ARRAY_HEADER_BYTES = 16;
+    public final int REFERENCE_BYTES = 4;
+    /**
+     * Caffeine node, boxed key and hash table slot of a single cache entry
+     */
+    public final int CACHE_ENTRY_BYTES = 96;
+
+    private final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+
+    public long align(final long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Estimated size of an object with the given field bytes.
+     *
+     * @param fieldBytes the summed size of all fields
+     * @return the object size
+     */
+    public long objectBytes(final long fieldBytes) {
+        return align(OBJECT_HEADER_BYTES + fieldBytes);
+    }
+
+    /**
+     * Estimated size of an int array. Empty arrays are shared and not counted.
+     *
+     * @param length the array length
+     * @return the array size
+     */
+    public long intArrayBytes(final int length) {
+        return length == 0 ? 0 : align(ARRAY_HEADER_BYTES + (long) Integer.BYTES * length);
+    }
+
+    /**
+     * Estimated size of an object array, without the referenced objects. Empty arrays are shared and not counted.
+     *
+     * @param length the array length
+     * @return the array size
+     */
+    public long referenceArrayBytes(final int length) {
+        return length == 0 ? 0 : align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * length);
+    }
+
+    /**
+     * Converts the estimate into a caffeine weight, including the cache entry overhead.
+     *
+     * @param entityBytes the estimated entity size
+     * @return the weight
+     */
+    public int toWeight(final long entityBytes) {
+        return (int) Math.min(Integer.MAX_VALUE, CACHE_ENTRY_BYTES + entityBytes);
+    }
+
+    public long megabytesToBytes(final long megabytes) {
+        return megabytes * BYTES_PER_MEGABYTE;
+    }
+
+    private long getEstimatedSize(final Cache<?, ?> cache) {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+
+    private long getBudget(final Cache<?, ?> cache) {
+        return cache.policy().eviction()
+                .map(Policy.Eviction::getMaximum)
+                .orElse(0L);
+    }
+
+    /**
+     * Register the estimated size and the size budget of the weighted cache.
+     *
+     * @param registry  the meter registry
+     * @param cacheName the cache name
+     * @param cache     the weighted cache
+     */
+    public void bindEstimatedSize(final MeterRegistry registry, final String cacheName, final Cache<?, ?> cache) {
+        Gauge.builder("cache.estimated.size", cache, CacheWeights::getEstimatedSize)
+                .tag("cache", cacheName)
+                .description("estimated retained heap size of the cached entities")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cache.budget", cache, CacheWeights::getBudget)
+                .tag("cache", cacheName)
+                .description("max estimated heap size of the cached entities")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,19 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Looks up the current database version of entities. The version changes with every change of the entity, but has no
+ * order.
+ */
+@FunctionalInterface
+public interface EntityVersionLookup {
+    /**
+     * Gets the current versions of the given entities.
+     *
+     * @param ids the entity ids
+     * @return the versions, entities that don't exist are missing
+     */
+    Map<Long, Long> getVersions(Collection<Long> ids);
+}
@@ -0,0 +1,87 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Detects invalidations that happen while an entity is loaded from the database. A load captures the generation of the
+ * id before it reads the entity and only keeps the loaded entity cached when the generation didn't change.
+ * <p>
+ * Ids share striped counters, a collision only drops a loaded entity from the cache. Invalidations must increase the
+ * generation before they remove the cached entity.
+ */
+public class LoadGenerations {
+    private static final int DEFAULT_STRIPES = 1024;
+
+    private final AtomicLongArray generations;
+    private final AtomicLong globalGeneration = new AtomicLong();
+    private final int mask;
+
+    public LoadGenerations() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Instantiates new load generations.
+     *
+     * @param stripes the amount of counters, must be a power of two
+     */
+    public LoadGenerations(final int stripes) {
+        if (0 >= stripes || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("The stripes must be a power of two");
+        }
+
+        this.generations = new AtomicLongArray(stripes);
+        this.mask = stripes - 1;
+    }
+
+    private int stripe(final long id) {
+        final long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & this.mask;
+    }
+
+    /**
+     * Gets the current generation of the id, it must be captured before the entity is read.
+     *
+     * @param id the entity id
+     * @return the generation
+     */
+    public long get(final long id) {
+        return this.globalGeneration.get() + this.generations.get(this.stripe(id));
+    }
+
+    public void invalidate(final long id) {
+        this.generations.incrementAndGet(this.stripe(id));
+    }
+
+    public void invalidateAll() {
+        this.globalGeneration.incrementAndGet();
+    }
+
+    /**
+     * Caches the loaded entity, unless the id was invalidated since the generation was captured.
+     *
+     * @param id         the entity id
+     * @param generation the generation captured before the entity was read
+     * @param put        puts the loaded entity into the cache
+     * @param invalidate removes the id from the cache
+     * @return true if the loaded entity stays cached
+     */
+    public boolean putIfCurrent(final long id,
+                                final long generation,
+                                final Runnable put,
+                                final LongConsumer invalidate) {
+        if (this.get(id) != generation) {
+            return false;
+        }
+
+        put.run();
+        // An invalidation between the check and the put found nothing to remove
+        if (this.get(id) != generation) {
+            invalidate.accept(id);
+            return false;
+        }
+        return true;
+    }
+}
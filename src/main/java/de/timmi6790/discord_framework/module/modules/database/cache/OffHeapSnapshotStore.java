@@ -0,0 +1,326 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Snapshot store inside a single direct byte buffer, outside of the java heap.
+ * <p>
+ * The buffer is used as a ring log. New snapshots are appended at the head, when the buffer is full the oldest
+ * snapshots at the tail are overwritten. Only the id to position index is kept on the heap, as two primitive arrays
+ * without boxing. Positions are absolute and only increase, the physical position inside the buffer is the absolute
+ * position modulo the capacity. A record without an index entry is dead, it is skipped when the tail reaches it.
+ * <p>
+ * Each record starts with a header of the snapshot length, the id and the write time. Records never wrap around the
+ * end of the buffer, the unused rest is skipped and marked with a negative length if there is enough space for it.
+ */
+public class OffHeapSnapshotStore {
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Long.BYTES;
+    private static final int SKIP_MARKER = -1;
+
+    private final ByteBuffer buffer;
+    @Getter
+    private final int capacity;
+    private final long expireAfterWriteMillis;
+    /**
+     * Id to absolute record position
+     */
+    private final PositionIndex index = new PositionIndex();
+
+    /**
+     * Absolute position of the next record
+     */
+    private long head;
+    /**
+     * Absolute position of the oldest record that wasn't overwritten yet
+     */
+    private long tail;
+    private long evictions;
+
+    /**
+     * Instantiates a new off heap snapshot store. The buffer counts towards the max direct memory of the jvm.
+     *
+     * @param capacity               the buffer size in bytes
+     * @param expireAfterWriteMillis snapshots older than this are not returned anymore, 0 or lower never expires them
+     */
+    public OffHeapSnapshotStore(final int capacity, final long expireAfterWriteMillis) {
+        if (HEADER_BYTES > capacity) {
+            throw new IllegalArgumentException("The capacity must be at least " + HEADER_BYTES + " bytes, provided is " + capacity);
+        }
+
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+        this.expireAfterWriteMillis = expireAfterWriteMillis;
+    }
+
+    private int toPhysical(final long position) {
+        return (int) (position % this.capacity);
+    }
+
+    /**
+     * Store the snapshot, replacing the previous snapshot of the id.
+     *
+     * @param id       the entity id
+     * @param snapshot the snapshot
+     * @return false if the snapshot is larger than the buffer
+     */
+    public synchronized boolean put(final long id, final byte[] snapshot) {
+        final int recordBytes = HEADER_BYTES + snapshot.length;
+        if (recordBytes > this.capacity) {
+            return false;
+        }
+
+        this.index.remove(id);
+
+        final int physicalHead = this.toPhysical(this.head);
+        final int remaining = this.capacity - physicalHead;
+        final long start = remaining >= recordBytes ? this.head : this.head + remaining;
+        this.evictBefore(start + recordBytes - this.capacity);
+        if (this.tail >= this.head) {
+            // Everything is evicted, the skipped rest doesn't need to be walked anymore
+            this.tail = start;
+        }
+
+        if (start != this.head && remaining >= Integer.BYTES) {
+            this.buffer.putInt(physicalHead, SKIP_MARKER);
+        }
+
+        final int physicalStart = this.toPhysical(start);
+        this.buffer.putInt(physicalStart, snapshot.length);
+        this.buffer.putLong(physicalStart + Integer.BYTES, id);
+        this.buffer.putLong(physicalStart + Integer.BYTES + Long.BYTES, System.currentTimeMillis());
+        this.buffer.put(physicalStart + HEADER_BYTES, snapshot);
+
+        this.index.put(id, start);
+        this.head = start + recordBytes;
+        return true;
+    }
+
+    /**
+     * Walks from the tail and drops all records starting before the given position, they are overwritten next.
+     *
+     * @param position the absolute position
+     */
+    private void evictBefore(final long position) {
+        while (position > this.tail && this.head > this.tail) {
+            final int physicalTail = this.toPhysical(this.tail);
+            final int remaining = this.capacity - physicalTail;
+            if (HEADER_BYTES > remaining) {
+                this.tail += remaining;
+                continue;
+            }
+
+            final int length = this.buffer.getInt(physicalTail);
+            if (length == SKIP_MARKER) {
+                this.tail += remaining;
+                continue;
+            }
+
+            final long id = this.buffer.getLong(physicalTail + Integer.BYTES);
+            // Replaced and removed snapshots are still inside the buffer, but not in the index
+            if (this.index.get(id) == this.tail) {
+                this.index.remove(id);
+                this.evictions++;
+            }
+            this.tail += HEADER_BYTES + length;
+        }
+    }
+
+    private Optional<byte[]> read(final long id, final boolean remove) {
+        final long position = remove ? this.index.remove(id) : this.index.get(id);
+        if (position == PositionIndex.NO_POSITION) {
+            return Optional.empty();
+        }
+
+        final int physicalPosition = this.toPhysical(position);
+        if (this.expireAfterWriteMillis > 0) {
+            final long writtenAt = this.buffer.getLong(physicalPosition + Integer.BYTES + Long.BYTES);
+            if (System.currentTimeMillis() - writtenAt > this.expireAfterWriteMillis) {
+                this.index.remove(id);
+                return Optional.empty();
+            }
+        }
+
+        final byte[] snapshot = new byte[this.buffer.getInt(physicalPosition)];
+        this.buffer.get(physicalPosition + HEADER_BYTES, snapshot);
+        return Optional.of(snapshot);
+    }
+
+    /**
+     * Gets the snapshot of the id.
+     *
+     * @param id the entity id
+     * @return the snapshot or empty if not stored or expired
+     */
+    public synchronized Optional<byte[]> get(final long id) {
+        return this.read(id, false);
+    }
+
+    /**
+     * Gets and removes the snapshot of the id.
+     *
+     * @param id the entity id
+     * @return the removed snapshot or empty if not stored or expired
+     */
+    public synchronized Optional<byte[]> remove(final long id) {
+        return this.read(id, true);
+    }
+
+    /**
+     * Marks the snapshot of the id as dead without reading it. The record stays inside the buffer until it is
+     * overwritten.
+     *
+     * @param id the entity id
+     * @return true if a snapshot was stored
+     */
+    public synchronized boolean invalidate(final long id) {
+        return this.index.remove(id) != PositionIndex.NO_POSITION;
+    }
+
+    /**
+     * Remove all snapshots. The buffer itself stays allocated.
+     */
+    public synchronized void clear() {
+        this.index.clear();
+        this.tail = this.head;
+    }
+
+    /**
+     * Gets the amount of stored snapshots, including expired snapshots that weren't requested since they expired.
+     *
+     * @return the snapshot count
+     */
+    public synchronized int size() {
+        return this.index.size();
+    }
+
+    /**
+     * Gets the bytes between the oldest and newest record, including replaced snapshots that are not overwritten yet.
+     *
+     * @return the used bytes
+     */
+    public synchronized long getUsedBytes() {
+        return this.head - this.tail;
+    }
+
+    /**
+     * Gets the amount of snapshots that were overwritten because the buffer was full.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return this.evictions;
+    }
+
+    /**
+     * Open addressing hash map from id to absolute record position with linear probing. Removed entries are filled by
+     * shifting the following entries of the probe sequence back, there are no tombstones.
+     */
+    private static class PositionIndex {
+        private static final long NO_POSITION = -1;
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private long[] positions = newPositions(INITIAL_CAPACITY);
+        private int size;
+
+        private static long[] newPositions(final int capacity) {
+            final long[] positions = new long[capacity];
+            Arrays.fill(positions, NO_POSITION);
+            return positions;
+        }
+
+        private static int slot(final long id, final int mask) {
+            // Spread the bits, discord ids only differ in their lower and middle bits
+            final long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private int find(final long id) {
+            final int mask = this.ids.length - 1;
+            int slot = slot(id, mask);
+            while (this.positions[slot] != NO_POSITION) {
+                if (this.ids[slot] == id) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private long get(final long id) {
+            final int slot = this.find(id);
+            return slot == -1 ? NO_POSITION : this.positions[slot];
+        }
+
+        private void put(final long id, final long position) {
+            // Max load factor of 0.75
+            if ((this.size + 1) * 4L > this.ids.length * 3L) {
+                this.resize(this.ids.length * 2);
+            }
+
+            final int mask = this.ids.length - 1;
+            int slot = slot(id, mask);
+            while (this.positions[slot] != NO_POSITION) {
+                if (this.ids[slot] == id) {
+                    this.positions[slot] = position;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            this.ids[slot] = id;
+            this.positions[slot] = position;
+            this.size++;
+        }
+
+        private long remove(final long id) {
+            int slot = this.find(id);
+            if (slot == -1) {
+                return NO_POSITION;
+            }
+
+            final long removed = this.positions[slot];
+            final int mask = this.ids.length - 1;
+            int next = (slot + 1) & mask;
+            while (this.positions[next] != NO_POSITION) {
+                final int home = slot(this.ids[next], mask);
+                // Only move the entry if its home slot isn't between the free slot and its current slot
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    this.ids[slot] = this.ids[next];
+                    this.positions[slot] = this.positions[next];
+                    slot = next;
+                }
+                next = (next + 1) & mask;
+            }
+            this.positions[slot] = NO_POSITION;
+            this.size--;
+            return removed;
+        }
+
+        private void resize(final int capacity) {
+            final long[] oldIds = this.ids;
+            final long[] oldPositions = this.positions;
+            this.ids = new long[capacity];
+            this.positions = newPositions(capacity);
+            this.size = 0;
+            for (int slot = 0; oldIds.length > slot; slot++) {
+                if (oldPositions[slot] != NO_POSITION) {
+                    this.put(oldIds[slot], oldPositions[slot]);
+                }
+            }
+        }
+
+        private void clear() {
+            this.ids = new long[INITIAL_CAPACITY];
+            this.positions = newPositions(INITIAL_CAPACITY);
+            this.size = 0;
+        }
+
+        private int size() {
+            return this.size;
+        }
+    }
+}
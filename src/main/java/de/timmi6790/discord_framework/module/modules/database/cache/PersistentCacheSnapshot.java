@@ -0,0 +1,350 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Persists the hot set of a cache into a {@link CacheSnapshotFile} on shutdown and preloads it on the next start.
+ * <p>
+ * Every entry is stored with the database version that was read together with the cached instance, see
+ * {@link #recordVersion(Object, long)}. Entries without a recorded version are not written. The stored version is
+ * never newer than the cached state, local changes after the load only make the entry stale on the next start.
+ * <p>
+ * Preloaded entries are not trusted until this version is validated against the database, which is either done on the
+ * first access of the entry or in batches by {@link #validatePendingAsync(LongConsumer, Executor)}. Entries changed
+ * since the snapshot are reported as stale and must be removed from the cache.
+ *
+ * @param <V> the entity type
+ */
+@Log4j2
+public class PersistentCacheSnapshot<V> {
+    /**
+     * Max ids per version lookup
+     */
+    public static final int VERSION_BATCH_SIZE = 500;
+
+    @Getter
+    private final String name;
+    @Getter
+    private final Path path;
+    private final int maxEntries;
+    private final SnapshotCodec<V> codec;
+    private final EntityVersionLookup versionLookup;
+
+    /**
+     * Version read together with the cached instance, weak keys compare by identity and are dropped with the instance
+     */
+    private final Cache<V, Long> loadedVersions = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+    /**
+     * Snapshot version of all preloaded entries that are not validated yet
+     */
+    private final Map<Long, Long> pendingVersions = new ConcurrentHashMap<>();
+    private final AtomicInteger loadedEntries = new AtomicInteger();
+    private final LongAdder validEntries = new LongAdder();
+    private final LongAdder staleEntries = new LongAdder();
+
+    /**
+     * Instantiates a new persistent cache snapshot.
+     *
+     * @param name          the cache name, used as entity type inside the file and as metric tag
+     * @param path          the snapshot file
+     * @param maxEntries    the max amount of entries written into the file
+     * @param codec         the snapshot codec
+     * @param versionLookup the database version lookup, used to validate preloaded entries
+     */
+    public PersistentCacheSnapshot(final String name,
+                                   final Path path,
+                                   final int maxEntries,
+                                   final SnapshotCodec<V> codec,
+                                   final EntityVersionLookup versionLookup) {
+        this.name = name;
+        this.path = path;
+        this.maxEntries = maxEntries;
+        this.codec = codec;
+        this.versionLookup = versionLookup;
+    }
+
+    /**
+     * Gets the hottest entries of the cache, based on the eviction policy of the cache.
+     *
+     * @param cache the cache
+     * @param limit the max amount of entries
+     * @param <T>   the entity type
+     * @return the hottest entries, ordered from hottest to coldest
+     */
+    public static <T> Map<Long, T> hottest(final Cache<Long, T> cache, final int limit) {
+        return cache.policy()
+                .eviction()
+                .map(eviction -> eviction.hottest(limit))
+                .orElseGet(() -> ImmutableMap.copyOf(Iterables.limit(cache.asMap().entrySet(), limit)));
+    }
+
+    /**
+     * Writes the hottest entries of the cache into the snapshot file.
+     *
+     * @param cache the cache
+     * @return the amount of written entries
+     */
+    public int save(final Cache<Long, V> cache) {
+        return this.save(hottest(cache, this.maxEntries));
+    }
+
+    /**
+     * Records the database version of a loaded entity. The version must be read by the same statement as the entity,
+     * a version read by a separate query could be newer than the entity, e.g. when the entity is read from a replica.
+     *
+     * @param entity  the loaded entity instance, that is put into the cache
+     * @param version the version of the entity
+     */
+    public void recordVersion(final V entity, final long version) {
+        this.loadedVersions.put(entity, version);
+    }
+
+    /**
+     * Records the version of the loaded entity, see {@link #recordVersion(Object, long)}.
+     *
+     * @param versionedEntity the loaded entity with its version
+     * @return the entity
+     */
+    public V recordVersion(final VersionedEntity<V> versionedEntity) {
+        this.recordVersion(versionedEntity.getEntity(), versionedEntity.getVersion());
+        return versionedEntity.getEntity();
+    }
+
+    /**
+     * Writes the given entries with their recorded version into the snapshot file. Entries without a recorded version
+     * are skipped.
+     *
+     * @param entries the entries, only the first max entries are written
+     * @return the amount of written entries
+     */
+    public int save(final Map<Long, V> entries) {
+        final long startTime = System.nanoTime();
+        final List<CacheSnapshotFile.Entry> snapshotEntries = new ArrayList<>(Math.min(entries.size(), this.maxEntries));
+        try {
+            for (final Map.Entry<Long, V> entry : Iterables.limit(entries.entrySet(), this.maxEntries)) {
+                final Long version = this.loadedVersions.getIfPresent(entry.getValue());
+                if (version != null) {
+                    snapshotEntries.add(
+                            new CacheSnapshotFile.Entry(entry.getKey(), version, this.codec.encode(entry.getValue()))
+                    );
+                }
+            }
+
+            CacheSnapshotFile.write(this.path, this.name, snapshotEntries);
+        } catch (final Exception e) {
+            log.warn("Failed to save the {} cache snapshot into {}", this.name, this.path, e);
+            return 0;
+        }
+
+        log.info(
+                "Saved {} {} cache entries into {} in {} ms",
+                snapshotEntries.size(),
+                this.name,
+                this.path,
+                (System.nanoTime() - startTime) / 1_000_000
+        );
+        return snapshotEntries.size();
+    }
+
+    /**
+     * Reads the snapshot file and passes all decodable entries to the preload consumer. A missing or unreadable file
+     * is ignored, the cache then starts empty.
+     *
+     * @param preload the consumer that puts the entries into the cache
+     * @return the amount of preloaded entries
+     */
+    public int load(final BiConsumer<Long, V> preload) {
+        final List<CacheSnapshotFile.Entry> entries;
+        try {
+            entries = CacheSnapshotFile.read(this.path, this.name);
+        } catch (final IOException | IllegalArgumentException e) {
+            log.warn("Failed to read the {} cache snapshot from {}", this.name, this.path, e);
+            return 0;
+        }
+
+        int loaded = 0;
+        for (final CacheSnapshotFile.Entry entry : entries) {
+            final Optional<V> valueOpt;
+            try {
+                valueOpt = this.codec.decode(entry.getSnapshot());
+            } catch (final IllegalArgumentException e) {
+                log.debug("Skipped corrupted {} cache snapshot of {}", this.name, entry.getId(), e);
+                continue;
+            }
+
+            if (valueOpt.isPresent()) {
+                // The version must be pending before the entry is visible, otherwise it could be used unvalidated
+                this.pendingVersions.put(entry.getId(), entry.getVersion());
+                this.recordVersion(valueOpt.get(), entry.getVersion());
+                preload.accept(entry.getId(), valueOpt.get());
+                loaded++;
+            }
+        }
+
+        this.loadedEntries.addAndGet(loaded);
+        if (loaded > 0) {
+            log.info("Preloaded {} {} cache entries from {}", loaded, this.name, this.path);
+        }
+        return loaded;
+    }
+
+    /**
+     * Checks if the cached entry can be used. Entries that are not preloaded from the snapshot, or are already
+     * validated, are always valid.
+     *
+     * @param id the entity id
+     * @return false if the entry changed since the snapshot and must be reloaded
+     */
+    public boolean validate(final long id) {
+        if (this.pendingVersions.isEmpty()) {
+            return true;
+        }
+
+        final Long expectedVersion = this.pendingVersions.get(id);
+        if (expectedVersion == null) {
+            return true;
+        }
+
+        final Long currentVersion = this.versionLookup.getVersions(Collections.singletonList(id)).get(id);
+        final boolean valid = expectedVersion.equals(currentVersion);
+        this.pendingVersions.remove(id, expectedVersion);
+        (valid ? this.validEntries : this.staleEntries).increment();
+        return valid;
+    }
+
+    /**
+     * Checks if the entry is preloaded from the snapshot and not validated yet.
+     *
+     * @param id the entity id
+     * @return true if the entry is pending
+     */
+    public boolean isPending(final long id) {
+        return !this.pendingVersions.isEmpty() && this.pendingVersions.containsKey(id);
+    }
+
+    /**
+     * Stops tracking the entry without validating it, after it was removed from the cache.
+     *
+     * @param id the entity id
+     */
+    public void discard(final long id) {
+        this.pendingVersions.remove(id);
+    }
+
+    /**
+     * Validates all pending entries in batches.
+     *
+     * @param onStale called for every stale entry, before it is marked as validated
+     */
+    public void validatePending(final LongConsumer onStale) {
+        final List<Long> ids = new ArrayList<>(this.pendingVersions.keySet());
+        for (final List<Long> batch : Lists.partition(ids, VERSION_BATCH_SIZE)) {
+            final Map<Long, Long> currentVersions = this.versionLookup.getVersions(batch);
+            for (final Long id : batch) {
+                final Long expectedVersion = this.pendingVersions.get(id);
+                // Already validated on access
+                if (expectedVersion == null) {
+                    continue;
+                }
+
+                if (expectedVersion.equals(currentVersions.get(id))) {
+                    if (this.pendingVersions.remove(id, expectedVersion)) {
+                        this.validEntries.increment();
+                    }
+                } else {
+                    onStale.accept(id);
+                    if (this.pendingVersions.remove(id, expectedVersion)) {
+                        this.staleEntries.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Validates all pending entries in the background. Entries that can't be validated, because of a database error,
+     * stay pending and are validated on their next access.
+     *
+     * @param onStale  called for every stale entry
+     * @param executor the executor running the validation, should be the database executor
+     * @return the validation future
+     */
+    public CompletableFuture<Void> validatePendingAsync(final LongConsumer onStale, final Executor executor) {
+        if (this.pendingVersions.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> validation;
+        try {
+            validation = CompletableFuture.runAsync(() -> this.validatePending(onStale), executor);
+        } catch (final RejectedExecutionException e) {
+            validation = CompletableFuture.failedFuture(e);
+        }
+        return validation.whenComplete((ignore, throwable) -> {
+            if (throwable != null) {
+                log.warn("Failed to validate the preloaded {} cache entries", this.name, throwable);
+            } else {
+                log.info(
+                        "Validated the preloaded {} cache entries, {} were stale",
+                        this.name,
+                        this.staleEntries.sum()
+                );
+            }
+        });
+    }
+
+    /**
+     * Gets the amount of preloaded entries that are not validated yet.
+     *
+     * @return the pending count
+     */
+    public int getPendingCount() {
+        return this.pendingVersions.size();
+    }
+
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("cache.snapshot.preloaded", this.loadedEntries, AtomicInteger::get)
+                .tag("cache", this.name)
+                .description("Entries preloaded from the persisted cache snapshot")
+                .register(registry);
+        Gauge.builder("cache.snapshot.pending", this, PersistentCacheSnapshot::getPendingCount)
+                .tag("cache", this.name)
+                .description("Preloaded entries that are not validated against the database yet")
+                .register(registry);
+        FunctionCounter.builder("cache.snapshot.validations", this.validEntries, LongAdder::sum)
+                .tags("cache", this.name, "result", "valid")
+                .description("Validated preloaded entries")
+                .register(registry);
+        FunctionCounter.builder("cache.snapshot.validations", this.staleEntries, LongAdder::sum)
+                .tags("cache", this.name, "result", "stale")
+                .description("Validated preloaded entries")
+                .register(registry);
+    }
+}
@@ -0,0 +1,26 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import java.util.Optional;
+
+/**
+ * Converts cached entities into compact binary snapshots and back.
+ *
+ * @param <V> the entity type
+ */
+public interface SnapshotCodec<V> {
+    /**
+     * Encode the current state of the entity.
+     *
+     * @param value the entity
+     * @return the snapshot
+     */
+    byte[] encode(V value);
+
+    /**
+     * Decode a snapshot created by {@link #encode(Object)}.
+     *
+     * @param snapshot the snapshot
+     * @return the entity or empty if the snapshot references data that doesn't exist anymore
+     */
+    Optional<V> decode(byte[] snapshot);
+}
@@ -0,0 +1,279 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Entity cache with two tiers. The first tier is a normal caffeine cache on the heap. Entities evicted from it are
+ * encoded and moved into an optional off heap second tier, from where they are promoted back on their next access.
+ * Only entities evicted because of the first tier size are moved, expired entities are dropped.
+ * <p>
+ * An entity is only stored inside one of the tiers at the same time.
+ *
+ * @param <V> the entity type
+ */
+@Log4j2
+public class TieredCache<V> {
+    private static final String TIER_HEAP = "heap";
+    private static final String TIER_OFF_HEAP = "off_heap";
+
+    @Getter
+    private final String name;
+    /**
+     * The first tier
+     */
+    @Getter
+    private final Cache<Long, V> heapCache;
+    @Nullable
+    private final OffHeapSnapshotStore offHeapStore;
+    private final SnapshotCodec<V> codec;
+    @Nullable
+    private final LongConsumer onHeapEviction;
+
+    private final LongAdder heapHits = new LongAdder();
+    private final LongAdder heapMisses = new LongAdder();
+    private final LongAdder offHeapHits = new LongAdder();
+    private final LongAdder offHeapMisses = new LongAdder();
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+
+    /**
+     * Instantiates a new tiered cache.
+     *
+     * @param name         the cache name used for the metrics
+     * @param heapBuilder  the builder of the first tier, the eviction listener is set by this cache
+     * @param offHeapStore the second tier or null to only use the first tier
+     * @param codec        the codec used to move entities into the second tier
+     */
+    public TieredCache(final String name,
+                       final Caffeine<? super Long, ? super V> heapBuilder,
+                       @Nullable final OffHeapSnapshotStore offHeapStore,
+                       final SnapshotCodec<V> codec) {
+        this(name, heapBuilder, offHeapStore, codec, null);
+    }
+
+    /**
+     * Instantiates a new tiered cache.
+     *
+     * @param name           the cache name used for the metrics
+     * @param heapBuilder    the builder of the first tier, the eviction listener is set by this cache
+     * @param offHeapStore   the second tier or null to only use the first tier
+     * @param codec          the codec used to move entities into the second tier
+     * @param onHeapEviction called with the id of every entity evicted from the first tier, or null
+     */
+    public TieredCache(final String name,
+                       final Caffeine<? super Long, ? super V> heapBuilder,
+                       @Nullable final OffHeapSnapshotStore offHeapStore,
+                       final SnapshotCodec<V> codec,
+                       @Nullable final LongConsumer onHeapEviction) {
+        this.name = name;
+        this.offHeapStore = offHeapStore;
+        this.codec = codec;
+        this.onHeapEviction = onHeapEviction;
+        this.heapCache = heapBuilder
+                .recordStats()
+                .<Long, V>evictionListener(this::demote)
+                .build();
+    }
+
+    private void demote(@Nullable final Long key, @Nullable final V value, final RemovalCause cause) {
+        if (this.onHeapEviction != null && key != null) {
+            this.onHeapEviction.accept(key);
+        }
+        // Expired and collected entities are outdated, only entities evicted because of the size are worth keeping
+        if (this.offHeapStore == null || key == null || value == null || cause != RemovalCause.SIZE) {
+            return;
+        }
+
+        try {
+            if (this.offHeapStore.put(key, this.codec.encode(value))) {
+                this.demotions.increment();
+            }
+        } catch (final RuntimeException e) {
+            log.warn("Can't move " + this.name + " " + key + " into the off heap cache", e);
+        }
+    }
+
+    @Nullable
+    private V promote(final long key) {
+        if (this.offHeapStore == null) {
+            return null;
+        }
+
+        final Optional<byte[]> snapshotOpt = this.offHeapStore.remove(key);
+        if (snapshotOpt.isEmpty()) {
+            this.offHeapMisses.increment();
+            return null;
+        }
+
+        try {
+            final Optional<V> valueOpt = this.codec.decode(snapshotOpt.get());
+            if (valueOpt.isPresent()) {
+                this.offHeapHits.increment();
+                this.promotions.increment();
+                return valueOpt.get();
+            }
+        } catch (final RuntimeException e) {
+            log.warn("Can't decode " + this.name + " " + key + " from the off heap cache", e);
+        }
+
+        this.offHeapMisses.increment();
+        return null;
+    }
+
+    /**
+     * Gets the cached entity from the first tier or promotes it from the second tier.
+     *
+     * @param key the entity id
+     * @return the entity or null if not cached in any tier
+     */
+    @Nullable
+    public V getIfPresent(final long key) {
+        final V heapValue = this.heapCache.getIfPresent(key);
+        if (heapValue != null) {
+            this.heapHits.increment();
+            return heapValue;
+        }
+
+        this.heapMisses.increment();
+        if (this.offHeapStore == null) {
+            return null;
+        }
+
+        // The promotion is atomic per key, concurrent readers get the same instance
+        return this.heapCache.get(key, this::promote);
+    }
+
+    /**
+     * Cache the entity inside the first tier.
+     *
+     * @param key   the entity id
+     * @param value the entity
+     */
+    public void put(final long key, final V value) {
+        this.heapCache.put(key, value);
+        if (this.offHeapStore != null) {
+            this.offHeapStore.invalidate(key);
+        }
+    }
+
+    /**
+     * Remove the entity from all tiers.
+     *
+     * @param key the entity id
+     */
+    public void invalidate(final long key) {
+        this.heapCache.invalidate(key);
+        if (this.offHeapStore != null) {
+            this.offHeapStore.invalidate(key);
+        }
+    }
+
+    /**
+     * Remove the entity only from the second tier. Used when an entity instance that could already be evicted from the
+     * first tier is changed.
+     *
+     * @param key the entity id
+     */
+    public void invalidateOffHeap(final long key) {
+        if (this.offHeapStore != null) {
+            this.offHeapStore.invalidate(key);
+        }
+    }
+
+    /**
+     * Remove all entities from all tiers.
+     */
+    public void invalidateAll() {
+        this.heapCache.invalidateAll();
+        if (this.offHeapStore != null) {
+            this.offHeapStore.clear();
+        }
+    }
+
+    /**
+     * Gets the amount of entities inside the second tier.
+     *
+     * @return the off heap entity count, 0 if the second tier is disabled
+     */
+    public long getOffHeapSize() {
+        return this.offHeapStore == null ? 0 : this.offHeapStore.size();
+    }
+
+    /**
+     * Register the first tier caffeine metrics, the estimated size of a weighted first tier and the hit, miss,
+     * promotion and demotion counters of both tiers.
+     *
+     * @param registry the meter registry
+     */
+    public void bindTo(final MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, this.heapCache, this.name);
+        final boolean weighted = this.heapCache.policy().eviction()
+                .map(Policy.Eviction::isWeighted)
+                .orElse(Boolean.FALSE);
+        if (weighted) {
+            CacheWeights.bindEstimatedSize(registry, this.name, this.heapCache);
+        }
+
+        this.registerTierGets(registry, TIER_HEAP, "hit", this.heapHits);
+        this.registerTierGets(registry, TIER_HEAP, "miss", this.heapMisses);
+
+        if (this.offHeapStore == null) {
+            return;
+        }
+
+        this.registerTierGets(registry, TIER_OFF_HEAP, "hit", this.offHeapHits);
+        this.registerTierGets(registry, TIER_OFF_HEAP, "miss", this.offHeapMisses);
+
+        FunctionCounter.builder("cache.tier.promotions", this.promotions, LongAdder::sum)
+                .tag("cache", this.name)
+                .description("entities moved from the off heap tier into the heap tier")
+                .register(registry);
+        FunctionCounter.builder("cache.tier.demotions", this.demotions, LongAdder::sum)
+                .tag("cache", this.name)
+                .description("entities moved from the heap tier into the off heap tier")
+                .register(registry);
+        FunctionCounter.builder("cache.tier.evictions", this.offHeapStore, OffHeapSnapshotStore::getEvictionCount)
+                .tags("cache", this.name, "tier", TIER_OFF_HEAP)
+                .description("entities overwritten because the off heap tier was full")
+                .register(registry);
+
+        Gauge.builder("cache.tier.size", this.offHeapStore, OffHeapSnapshotStore::size)
+                .tags("cache", this.name, "tier", TIER_OFF_HEAP)
+                .description("entities inside the tier")
+                .register(registry);
+        Gauge.builder("cache.tier.used", this.offHeapStore, OffHeapSnapshotStore::getUsedBytes)
+                .tags("cache", this.name, "tier", TIER_OFF_HEAP)
+                .description("used bytes of the tier")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cache.tier.capacity", this.offHeapStore, OffHeapSnapshotStore::getCapacity)
+                .tags("cache", this.name, "tier", TIER_OFF_HEAP)
+                .description("max bytes of the tier")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private void registerTierGets(final MeterRegistry registry,
+                                  final String tier,
+                                  final String result,
+                                  final LongAdder counter) {
+        FunctionCounter.builder("cache.tier.gets", counter, LongAdder::sum)
+                .tags("cache", this.name, "tier", tier, "result", result)
+                .description("cache lookups per tier")
+                .register(registry);
+    }
+}
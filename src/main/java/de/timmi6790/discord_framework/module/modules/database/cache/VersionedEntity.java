@@ -0,0 +1,17 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import lombok.Data;
+
+/**
+ * Entity together with its database version, both read by the same statement.
+ *
+ * @param <V> the entity type
+ */
+@Data
+public class VersionedEntity<V> {
+    private final V entity;
+    /**
+     * The version of the entity, see {@link EntityVersionLookup}
+     */
+    private final long version;
+}
@@ -0,0 +1,282 @@
+package de.timmi6790.discord_framework.module.modules.database.invalidation;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.sentry.Sentry;
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * Base of all invalidation buses. Published invalidations are collected per topic and sent as one batch every batch
+ * interval, duplicated ids inside a batch are only sent once.
+ * <p>
+ * Failed sends are retried. When a batch still can't be sent, the other processes are told to drop all their cached
+ * entities with a resync marker, which is retried on every flush until it is sent.
+ * <p>
+ * The invalidation lag is measured between the first publish of a batch and the receive on the other process. Across
+ * machines it includes the clock difference between them.
+ */
+@Log4j2
+public abstract class AbstractInvalidationBus implements InvalidationBus {
+    private static final int MAX_SEND_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 100;
+
+    private final Map<InvalidationTopic, List<Subscription>> subscriptions = new EnumMap<>(InvalidationTopic.class);
+    /**
+     * Pending invalidations, guarded by itself
+     */
+    private final Map<InvalidationTopic, PendingBatch> pendingBatches = new EnumMap<>(InvalidationTopic.class);
+    @Nullable
+    private final ScheduledExecutorService flushExecutor;
+    /**
+     * Set when a batch was lost, until the resync marker is sent
+     */
+    private final AtomicBoolean resyncPending = new AtomicBoolean();
+
+    @Nullable
+    private final Map<InvalidationTopic, TopicMetrics> topicMetrics;
+
+    /**
+     * Instantiates a new invalidation bus.
+     *
+     * @param batchMillis   the batch interval, 0 or lower sends every invalidation directly
+     * @param meterRegistry the meter registry or null to not record metrics
+     */
+    protected AbstractInvalidationBus(final long batchMillis, @Nullable final MeterRegistry meterRegistry) {
+        for (final InvalidationTopic topic : InvalidationTopic.values()) {
+            this.subscriptions.put(topic, new CopyOnWriteArrayList<>());
+        }
+
+        if (batchMillis > 0) {
+            this.flushExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("invalidation-flush-%d")
+                            .setDaemon(true)
+                            .build()
+            );
+            this.flushExecutor.scheduleWithFixedDelay(this::flush, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flushExecutor = null;
+        }
+
+        if (meterRegistry != null) {
+            this.topicMetrics = new EnumMap<>(InvalidationTopic.class);
+            for (final InvalidationTopic topic : InvalidationTopic.values()) {
+                this.topicMetrics.put(topic, new TopicMetrics(topic, meterRegistry));
+            }
+        } else {
+            this.topicMetrics = null;
+        }
+    }
+
+    /**
+     * Send the batch to all other processes.
+     *
+     * @param topic       the topic
+     * @param publishedAt epoch millis of the first publish inside the batch
+     * @param ids         the invalidated ids
+     */
+    protected abstract void sendBatch(InvalidationTopic topic, long publishedAt, long[] ids);
+
+    /**
+     * Tell all other processes that invalidations were lost, they call {@link #resync()} on receive.
+     */
+    protected abstract void sendResync();
+
+    @Override
+    public void publish(final InvalidationTopic topic, final long id) {
+        if (this.topicMetrics != null) {
+            this.topicMetrics.get(topic).getPublished().increment();
+        }
+
+        if (this.flushExecutor == null) {
+            this.send(topic, System.currentTimeMillis(), new long[]{id});
+            return;
+        }
+
+        synchronized (this.pendingBatches) {
+            this.pendingBatches
+                    .computeIfAbsent(topic, k -> new PendingBatch(System.currentTimeMillis()))
+                    .getIds()
+                    .add(id);
+        }
+    }
+
+    @Override
+    public void subscribe(final InvalidationTopic topic, final LongConsumer onInvalidation, final Runnable onResync) {
+        this.subscriptions.get(topic).add(new Subscription(onInvalidation, onResync));
+    }
+
+    @Override
+    public void flush() {
+        this.sendResyncIfPending();
+
+        final Map<InvalidationTopic, PendingBatch> batches;
+        synchronized (this.pendingBatches) {
+            if (this.pendingBatches.isEmpty()) {
+                return;
+            }
+            batches = new EnumMap<>(this.pendingBatches);
+            this.pendingBatches.clear();
+        }
+
+        for (final Map.Entry<InvalidationTopic, PendingBatch> entry : batches.entrySet()) {
+            final Set<Long> ids = entry.getValue().getIds();
+            final long[] idArray = new long[ids.size()];
+            int index = 0;
+            for (final long id : ids) {
+                idArray[index++] = id;
+            }
+            this.send(entry.getKey(), entry.getValue().getPublishedAt(), idArray);
+        }
+    }
+
+    private void send(final InvalidationTopic topic, final long publishedAt, final long[] ids) {
+        if (this.topicMetrics != null) {
+            this.topicMetrics.get(topic).getBatchSize().record(ids.length);
+        }
+
+        final boolean sent = this.trySend(
+                () -> this.sendBatch(topic, publishedAt, ids),
+                ids.length + " " + topic + " invalidations"
+        );
+        if (!sent) {
+            // The other processes can't know which entities are outdated anymore
+            this.resyncPending.set(true);
+            this.sendResyncIfPending();
+        }
+    }
+
+    private void sendResyncIfPending() {
+        if (this.resyncPending.get() && this.trySend(this::sendResync, "the invalidation resync")) {
+            this.resyncPending.set(false);
+        }
+    }
+
+    private boolean trySend(final Runnable sender, final String description) {
+        for (int attempt = 1; MAX_SEND_ATTEMPTS >= attempt; attempt++) {
+            try {
+                sender.run();
+                return true;
+            } catch (final Exception e) {
+                if (attempt == MAX_SEND_ATTEMPTS) {
+                    log.error("Can't send " + description + " after " + attempt + " attempts", e);
+                    Sentry.captureException(e);
+                    return false;
+                }
+                log.warn("Can't send " + description + ", retrying", e);
+            }
+
+            try {
+                Thread.sleep(RETRY_DELAY_MS * attempt);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deliver a batch of another process to all subscribers.
+     *
+     * @param topic       the topic
+     * @param publishedAt epoch millis of the first publish inside the batch
+     * @param ids         the invalidated ids
+     */
+    protected void receiveBatch(final InvalidationTopic topic, final long publishedAt, final long[] ids) {
+        if (this.topicMetrics != null) {
+            final TopicMetrics metrics = this.topicMetrics.get(topic);
+            metrics.getReceived().increment(ids.length);
+            metrics.getLag().record(Math.max(0, System.currentTimeMillis() - publishedAt), TimeUnit.MILLISECONDS);
+        }
+
+        for (final Subscription subscription : this.subscriptions.get(topic)) {
+            for (final long id : ids) {
+                try {
+                    subscription.getOnInvalidation().accept(id);
+                } catch (final Exception e) {
+                    log.error("Exception while invalidating " + topic + " " + id, e);
+                    Sentry.captureException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tell all subscribers that invalidations could have been lost.
+     */
+    protected void resync() {
+        for (final List<Subscription> topicSubscriptions : this.subscriptions.values()) {
+            for (final Subscription subscription : topicSubscriptions) {
+                try {
+                    subscription.getOnResync().run();
+                } catch (final Exception e) {
+                    log.error("Exception while resyncing invalidation subscriber", e);
+                    Sentry.captureException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.flushExecutor != null) {
+            this.flushExecutor.shutdown();
+        }
+        this.flush();
+    }
+
+    @Data
+    private static class Subscription {
+        private final LongConsumer onInvalidation;
+        private final Runnable onResync;
+    }
+
+    @Data
+    private static class PendingBatch {
+        private final long publishedAt;
+        private final Set<Long> ids = new LinkedHashSet<>();
+    }
+
+    @Data
+    private static class TopicMetrics {
+        private final Counter published;
+        private final Counter received;
+        private final Timer lag;
+        private final DistributionSummary batchSize;
+
+        TopicMetrics(final InvalidationTopic topic, final MeterRegistry registry) {
+            final String tagValue = topic.getTagValue();
+            this.published = Counter.builder("cache.invalidation.published")
+                    .description("Invalidations published to other processes")
+                    .tag("topic", tagValue)
+                    .register(registry);
+            this.received = Counter.builder("cache.invalidation.received")
+                    .description("Invalidations received from other processes")
+                    .tag("topic", tagValue)
+                    .register(registry);
+            this.lag = Timer.builder("cache.invalidation.lag")
+                    .description("Time between the publish on the other process and the receive")
+                    .tag("topic", tagValue)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.batchSize = DistributionSummary.builder("cache.invalidation.batch.size")
+                    .description("Distinct ids per sent invalidation batch")
+                    .tag("topic", tagValue)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package de.timmi6790.discord_framework.module.modules.database.invalidation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Invalidation bus inside a single process. Connected buses act like separate bot processes, which allows to test the
+ * cross process invalidation without a database. Without connected buses all invalidations are discarded.
+ */
+public class InMemoryInvalidationBus extends AbstractInvalidationBus {
+    private final List<InMemoryInvalidationBus> peers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Instantiates a new bus that sends every invalidation directly.
+     */
+    public InMemoryInvalidationBus() {
+        this(0, null);
+    }
+
+    public InMemoryInvalidationBus(final long batchMillis, @Nullable final MeterRegistry meterRegistry) {
+        super(batchMillis, meterRegistry);
+    }
+
+    /**
+     * Connect both buses to each other, invalidations published on one bus are received by the other one.
+     *
+     * @param other the other bus
+     */
+    public void connect(final InMemoryInvalidationBus other) {
+        this.peers.add(other);
+        other.peers.add(this);
+    }
+
+    /**
+     * Simulates lost invalidations, all subscribers are asked to resync.
+     */
+    public void triggerResync() {
+        this.resync();
+    }
+
+    @Override
+    protected void sendBatch(final InvalidationTopic topic, final long publishedAt, final long[] ids) {
+        for (final InMemoryInvalidationBus peer : this.peers) {
+            peer.receiveBatch(topic, publishedAt, ids.clone());
+        }
+    }
+
+    @Override
+    protected void sendResync() {
+        for (final InMemoryInvalidationBus peer : this.peers) {
+            peer.resync();
+        }
+    }
+}
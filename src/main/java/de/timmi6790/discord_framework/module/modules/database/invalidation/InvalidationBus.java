@@ -0,0 +1,35 @@
+package de.timmi6790.discord_framework.module.modules.database.invalidation;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Publishes cache invalidations of changed entities to all other bot processes. Invalidations are not delivered back
+ * to the publishing process, it already applied the change locally.
+ */
+public interface InvalidationBus extends AutoCloseable {
+    /**
+     * Invalidate the entity on all other bot processes. Invalidations can be batched and are delivered with a small
+     * delay.
+     *
+     * @param topic the entity topic
+     * @param id    the entity id
+     */
+    void publish(InvalidationTopic topic, long id);
+
+    /**
+     * Subscribe to the invalidations of other bot processes.
+     *
+     * @param topic          the entity topic
+     * @param onInvalidation called with each invalidated entity id
+     * @param onResync       called when invalidations could have been lost, all cached entities should be dropped
+     */
+    void subscribe(InvalidationTopic topic, LongConsumer onInvalidation, Runnable onResync);
+
+    /**
+     * Send all batched invalidations now.
+     */
+    void flush();
+
+    @Override
+    void close();
+}
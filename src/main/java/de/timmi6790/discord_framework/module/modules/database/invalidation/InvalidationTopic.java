@@ -0,0 +1,18 @@
+package de.timmi6790.discord_framework.module.modules.database.invalidation;
+
+import java.util.Locale;
+
+/**
+ * Entity types that can be invalidated on other bot processes. The invalidated id is the discord id for users, guilds
+ * and channels and the repository id for ranks.
+ */
+public enum InvalidationTopic {
+    USER,
+    GUILD,
+    CHANNEL,
+    RANK;
+
+    public String getTagValue() {
+        return this.name().toLowerCase(Locale.ROOT);
+    }
+}
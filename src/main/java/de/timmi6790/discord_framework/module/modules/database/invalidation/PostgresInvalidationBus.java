@@ -0,0 +1,124 @@
+package de.timmi6790.discord_framework.module.modules.database.invalidation;
+
+import de.timmi6790.discord_framework.module.modules.database.notification.PostgresNotificationListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Invalidation bus over postgres LISTEN/NOTIFY. Each batch is sent as one or more notifications on the
+ * {@link #CHANNEL}, with the payload {@code topic;publishedAt;id,id,...}. Lost batches are replaced by the
+ * {@link #RESYNC_PAYLOAD}.
+ */
+@Log4j2
+public class PostgresInvalidationBus extends AbstractInvalidationBus {
+    public static final String CHANNEL = "cache_invalidation";
+    /**
+     * Tells the other processes to drop all cached entities
+     */
+    static final String RESYNC_PAYLOAD = "RESYNC";
+    /**
+     * Postgres limits notification payloads to 8000 bytes, a long id takes at most 20 chars including the separator
+     */
+    static final int MAX_IDS_PER_NOTIFICATION = 350;
+
+    private static final char FIELD_SEPARATOR = ';';
+    private static final char ID_SEPARATOR = ',';
+
+    private final PostgresNotificationListener notificationListener;
+
+    public PostgresInvalidationBus(final PostgresNotificationListener notificationListener,
+                                   final long batchMillis,
+                                   @Nullable final MeterRegistry meterRegistry) {
+        super(batchMillis, meterRegistry);
+
+        this.notificationListener = notificationListener;
+        notificationListener.listen(CHANNEL, this::onNotification);
+        notificationListener.onReconnect(this::resync);
+    }
+
+    static List<String> encode(final InvalidationTopic topic, final long publishedAt, final long[] ids) {
+        final List<String> payloads = new ArrayList<>(ids.length / MAX_IDS_PER_NOTIFICATION + 1);
+        for (int start = 0; ids.length > start; start += MAX_IDS_PER_NOTIFICATION) {
+            final StringBuilder payload = new StringBuilder()
+                    .append(topic.name())
+                    .append(FIELD_SEPARATOR)
+                    .append(publishedAt)
+                    .append(FIELD_SEPARATOR);
+
+            final int end = Math.min(ids.length, start + MAX_IDS_PER_NOTIFICATION);
+            for (int index = start; end > index; index++) {
+                if (index != start) {
+                    payload.append(ID_SEPARATOR);
+                }
+                payload.append(ids[index]);
+            }
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    private static long[] decodeIds(final String ids) {
+        int count = 1;
+        for (int index = 0; ids.length() > index; index++) {
+            if (ids.charAt(index) == ID_SEPARATOR) {
+                count++;
+            }
+        }
+
+        final long[] result = new long[count];
+        int start = 0;
+        for (int index = 0; count > index; index++) {
+            int end = ids.indexOf(ID_SEPARATOR, start);
+            if (end == -1) {
+                end = ids.length();
+            }
+            result[index] = Long.parseLong(ids, start, end, 10);
+            start = end + 1;
+        }
+        return result;
+    }
+
+    @Override
+    protected void sendBatch(final InvalidationTopic topic, final long publishedAt, final long[] ids) {
+        this.notificationListener.notify(CHANNEL, encode(topic, publishedAt, ids));
+    }
+
+    @Override
+    protected void sendResync() {
+        this.notificationListener.notify(CHANNEL, RESYNC_PAYLOAD);
+    }
+
+    void onNotification(final String payload) {
+        if (RESYNC_PAYLOAD.equals(payload)) {
+            log.info("Another process lost invalidations, resyncing all cached entities");
+            this.resync();
+            return;
+        }
+
+        final int topicEnd = payload.indexOf(FIELD_SEPARATOR);
+        final int publishedAtEnd = payload.indexOf(FIELD_SEPARATOR, topicEnd + 1);
+        if (topicEnd == -1 || publishedAtEnd == -1) {
+            log.warn("Received invalid invalidation payload {}", payload);
+            return;
+        }
+
+        final InvalidationTopic topic;
+        try {
+            topic = InvalidationTopic.valueOf(payload.substring(0, topicEnd));
+        } catch (final IllegalArgumentException e) {
+            // Sent by a newer bot version
+            log.debug("Received invalidation of unknown topic {}", payload);
+            return;
+        }
+
+        this.receiveBatch(
+                topic,
+                Long.parseLong(payload, topicEnd + 1, publishedAtEnd, 10),
+                decodeIds(payload.substring(publishedAtEnd + 1))
+        );
+    }
+}
@@ -0,0 +1,89 @@
+package de.timmi6790.discord_framework.module.modules.database.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the default hikari pool metrics and additionally a histogram of the time threads wait for a connection, and
+ * the saturation of the pool.
+ * <p>
+ * The pool is saturated when threads have to wait for a free connection. A saturated pool adds the wait time to every
+ * query, either the pool size is too small or the queries hold their connection too long.
+ */
+public class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+    private final MeterRegistry registry;
+    private final MetricsTrackerFactory delegate;
+
+    public PoolMetricsTrackerFactory(final MeterRegistry registry) {
+        this.registry = registry;
+        this.delegate = new MicrometerMetricsTrackerFactory(registry);
+    }
+
+    private static double getUtilization(final PoolStats poolStats) {
+        final int maxConnections = poolStats.getMaxConnections();
+        return maxConnections > 0 ? (double) poolStats.getActiveConnections() / maxConnections : 0;
+    }
+
+    @Override
+    public IMetricsTracker create(final String poolName, final PoolStats poolStats) {
+        final Timer waitTimer = Timer.builder("database.pool.wait")
+                .description("Time threads waited to borrow a connection from the pool")
+                .tag("pool", poolName)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(10)))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(this.registry);
+
+        Gauge.builder("database.pool.utilization", poolStats, PoolMetricsTrackerFactory::getUtilization)
+                .description("Ratio of the active connections to the max pool size")
+                .tag("pool", poolName)
+                .register(this.registry);
+        Gauge.builder("database.pool.saturated", poolStats, stats -> stats.getPendingThreads() > 0 ? 1 : 0)
+                .description("1 while threads are waiting for a free connection, alert on it staying 1")
+                .tag("pool", poolName)
+                .register(this.registry);
+
+        return new Tracker(this.delegate.create(poolName, poolStats), waitTimer);
+    }
+
+    @RequiredArgsConstructor
+    private static class Tracker implements IMetricsTracker {
+        private final IMetricsTracker delegate;
+        private final Timer waitTimer;
+
+        @Override
+        public void recordConnectionCreatedMillis(final long connectionCreatedMillis) {
+            this.delegate.recordConnectionCreatedMillis(connectionCreatedMillis);
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(final long elapsedAcquiredNanos) {
+            this.delegate.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+            this.waitTimer.record(elapsedAcquiredNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(final long elapsedBorrowedMillis) {
+            this.delegate.recordConnectionUsageMillis(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            this.delegate.recordConnectionTimeout();
+        }
+
+        @Override
+        public void close() {
+            this.delegate.close();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package de.timmi6790.discord_framework.module.modules.database.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.jdbi.v3.core.statement.StatementBuilder;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+/**
+ * Statement builder that wraps the prepared statements of the delegate, to count the rows returned or modified by
+ * each named statement. Jdbi maps result sets lazily, which makes the row count otherwise unavailable.
+ * <p>
+ * The wrappers are proxies that only intercept the executing methods, the result set access and next and close of the
+ * result sets. Unwrapping resolves to the driver objects, like for every other pool wrapper.
+ */
+@RequiredArgsConstructor
+public class RowCountingStatementBuilder implements StatementBuilder {
+    private final StatementBuilder delegate;
+    private final StatementMetrics statementMetrics;
+
+    /**
+     * Wraps the prepared statement to count its rows.
+     *
+     * @param statement        the prepared statement
+     * @param statementName    the name the rows are recorded for
+     * @param statementMetrics the statement metrics
+     * @return the counting statement
+     */
+    static PreparedStatement wrap(final PreparedStatement statement,
+                                  final StatementName statementName,
+                                  final StatementMetrics statementMetrics) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new StatementHandler(statement, statementName, statementMetrics)
+        );
+    }
+
+    private static Object invokeDelegate(final Object target,
+                                         final Method method,
+                                         final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public Statement create(final Connection connection, final StatementContext context) throws SQLException {
+        return this.delegate.create(connection, context);
+    }
+
+    @Override
+    public PreparedStatement create(final Connection connection,
+                                    final String sql,
+                                    final StatementContext context) throws SQLException {
+        return wrap(
+                this.delegate.create(connection, sql, context),
+                this.statementMetrics.resolve(context.getRawSql()),
+                this.statementMetrics
+        );
+    }
+
+    @Override
+    public CallableStatement createCall(final Connection connection,
+                                        final String sql,
+                                        final StatementContext context) throws SQLException {
+        return this.delegate.createCall(connection, sql, context);
+    }
+
+    @Override
+    public void close(final Connection connection, final String sql, final Statement statement) throws SQLException {
+        this.delegate.close(connection, sql, statement);
+    }
+
+    @Override
+    public void close(final Connection connection) {
+        this.delegate.close(connection);
+    }
+
+    /**
+     * Handles the methods every proxy must answer itself and delegates all other methods to the intercepting handler.
+     */
+    @RequiredArgsConstructor
+    private abstract static class WrapperHandler implements InvocationHandler {
+        private final Wrapper wrapped;
+
+        protected abstract Object invokeWrapped(Object proxy, Method method, Object[] args) throws Throwable;
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                    final Class<?> iface = (Class<?>) args[0];
+                    return iface.isInstance(this.wrapped) ? this.wrapped : this.wrapped.unwrap(iface);
+                case "isWrapperFor":
+                    final Class<?> wrapperIface = (Class<?>) args[0];
+                    return wrapperIface.isInstance(this.wrapped) || this.wrapped.isWrapperFor(wrapperIface);
+                default:
+                    return this.invokeWrapped(proxy, method, args);
+            }
+        }
+    }
+
+    private static class StatementHandler extends WrapperHandler {
+        private final PreparedStatement statement;
+        private final StatementName statementName;
+        private final StatementMetrics statementMetrics;
+        private ResultSet originalResultSet;
+        private ResultSet resultSet;
+
+        StatementHandler(final PreparedStatement statement,
+                         final StatementName statementName,
+                         final StatementMetrics statementMetrics) {
+            super(statement);
+            this.statement = statement;
+            this.statementName = statementName;
+            this.statementMetrics = statementMetrics;
+        }
+
+        private ResultSet wrapResultSet(final Object proxy, final ResultSet original) {
+            if (original == null) {
+                return null;
+            }
+
+            // Jdbi can request the same result set multiple times
+            if (this.originalResultSet != original) {
+                this.originalResultSet = original;
+                this.resultSet = (ResultSet) Proxy.newProxyInstance(
+                        ResultSet.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class},
+                        new ResultSetHandler(original, (Statement) proxy, this.statementName, this.statementMetrics)
+                );
+            }
+            return this.resultSet;
+        }
+
+        private void recordRows(final long rows) {
+            this.statementMetrics.recordRows(this.statementName, rows);
+        }
+
+        @Override
+        protected Object invokeWrapped(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final Object result = invokeDelegate(this.statement, method, args);
+            switch (method.getName()) {
+                case "executeQuery":
+                case "getResultSet":
+                    return this.wrapResultSet(proxy, (ResultSet) result);
+                case "execute":
+                    // False means that the first result is an update count
+                    if (Boolean.FALSE.equals(result)) {
+                        this.recordRows(this.statement.getUpdateCount());
+                    }
+                    return result;
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    this.recordRows(((Number) result).longValue());
+                    return result;
+                case "executeBatch":
+                    long rows = 0;
+                    for (final int updateCount : (int[]) result) {
+                        rows += Math.max(0, updateCount);
+                    }
+                    this.recordRows(rows);
+                    return result;
+                case "executeLargeBatch":
+                    long largeRows = 0;
+                    for (final long updateCount : (long[]) result) {
+                        largeRows += Math.max(0, updateCount);
+                    }
+                    this.recordRows(largeRows);
+                    return result;
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private static class ResultSetHandler extends WrapperHandler {
+        private final ResultSet resultSet;
+        private final Statement statement;
+        private final StatementName statementName;
+        private final StatementMetrics statementMetrics;
+        private long rows;
+        private boolean closed;
+
+        ResultSetHandler(final ResultSet resultSet,
+                         final Statement statement,
+                         final StatementName statementName,
+                         final StatementMetrics statementMetrics) {
+            super(resultSet);
+            this.resultSet = resultSet;
+            this.statement = statement;
+            this.statementName = statementName;
+            this.statementMetrics = statementMetrics;
+        }
+
+        @Override
+        protected Object invokeWrapped(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    final Object hasNext = invokeDelegate(this.resultSet, method, args);
+                    if (Boolean.TRUE.equals(hasNext)) {
+                        this.rows++;
+                    }
+                    return hasNext;
+                case "close":
+                    if (!this.closed) {
+                        this.closed = true;
+                        this.statementMetrics.recordRows(this.statementName, this.rows);
+                    }
+                    return invokeDelegate(this.resultSet, method, args);
+                case "getStatement":
+                    return this.statement;
+                default:
+                    return invokeDelegate(this.resultSet, method, args);
+            }
+        }
+    }
+}
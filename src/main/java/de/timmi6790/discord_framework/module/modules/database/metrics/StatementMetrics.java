@@ -0,0 +1,123 @@
+package de.timmi6790.discord_framework.module.modules.database.metrics;
+
+import de.timmi6790.discord_framework.module.modules.metric.MultiTaggedTimer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Jdbi sql logger that records the latency and row counts of each named statement and logs slow statements.
+ */
+@Log4j2
+public class StatementMetrics implements SqlLogger {
+    private static final String RESULT_SUCCESS = "success";
+    private static final String RESULT_EXCEPTION = "exception";
+
+    private final StatementNameRegistry statementNameRegistry;
+    @Nullable
+    private final MeterRegistry meterRegistry;
+    @Nullable
+    private final MultiTaggedTimer statementTimer;
+    private final Map<StatementName, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+    private final long slowStatementThresholdNanos;
+
+    /**
+     * Instantiates a new statement metrics.
+     *
+     * @param statementNameRegistry    the statement name registry
+     * @param meterRegistry            the meter registry or null to only log slow statements
+     * @param slowStatementThresholdMs statements taking at least this long are logged, 0 or lower disables it
+     */
+    public StatementMetrics(final StatementNameRegistry statementNameRegistry,
+                            @Nullable final MeterRegistry meterRegistry,
+                            final long slowStatementThresholdMs) {
+        this.statementNameRegistry = statementNameRegistry;
+        this.meterRegistry = meterRegistry;
+        this.slowStatementThresholdNanos = slowStatementThresholdMs > 0 ? Duration.ofMillis(slowStatementThresholdMs).toNanos() : -1;
+
+        if (meterRegistry == null) {
+            this.statementTimer = null;
+        } else {
+            this.statementTimer = new MultiTaggedTimer(
+                    "database.statement.duration",
+                    "Execution time of named sql statements",
+                    meterRegistry,
+                    "repository",
+                    "statement",
+                    "result"
+            ).publishPercentileHistogram();
+        }
+    }
+
+    public boolean isRecordingMetrics() {
+        return this.meterRegistry != null;
+    }
+
+    public StatementName resolve(final String rawSql) {
+        return this.statementNameRegistry.resolve(rawSql);
+    }
+
+    /**
+     * Records the amount of rows returned or modified by the statement.
+     *
+     * @param statementName the statement name
+     * @param rows          the row count
+     */
+    public void recordRows(final StatementName statementName, final long rows) {
+        if (this.meterRegistry == null || rows < 0) {
+            return;
+        }
+
+        this.rowSummaries.computeIfAbsent(
+                statementName,
+                name -> DistributionSummary.builder("database.statement.rows")
+                        .description("Rows returned or modified by named sql statements")
+                        .tag("repository", name.getRepository())
+                        .tag("statement", name.getStatement())
+                        .register(this.meterRegistry)
+        ).record(rows);
+    }
+
+    private void recordExecution(final StatementContext context, final Instant endMoment, final String result) {
+        final Instant executionMoment = context.getExecutionMoment();
+        if (executionMoment == null || endMoment == null) {
+            return;
+        }
+
+        final long durationNanos = Duration.between(executionMoment, endMoment).toNanos();
+        final StatementName statementName = this.resolve(context.getRawSql());
+        if (this.statementTimer != null) {
+            this.statementTimer.get(statementName.getRepository(), statementName.getStatement(), result)
+                    .record(Duration.ofNanos(durationNanos));
+        }
+
+        if (this.slowStatementThresholdNanos > 0 && durationNanos >= this.slowStatementThresholdNanos) {
+            log.warn(
+                    "Slow statement {}.{} took {} ms: {}",
+                    statementName.getRepository(),
+                    statementName.getStatement(),
+                    Duration.ofNanos(durationNanos).toMillis(),
+                    context.getRawSql()
+            );
+        }
+    }
+
+    @Override
+    public void logAfterExecution(final StatementContext context) {
+        this.recordExecution(context, context.getCompletionMoment(), RESULT_SUCCESS);
+    }
+
+    @Override
+    public void logException(final StatementContext context, final SQLException exception) {
+        this.recordExecution(context, context.getExceptionMoment(), RESULT_EXCEPTION);
+    }
+}
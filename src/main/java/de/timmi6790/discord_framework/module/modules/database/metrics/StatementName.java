@@ -0,0 +1,14 @@
+package de.timmi6790.discord_framework.module.modules.database.metrics;
+
+import lombok.Data;
+
+/**
+ * Name of a sql statement, made of the declaring repository and the statement constant.
+ */
+@Data
+public class StatementName {
+    public static final StatementName UNKNOWN = new StatementName("unknown", "unknown");
+
+    private final String repository;
+    private final String statement;
+}
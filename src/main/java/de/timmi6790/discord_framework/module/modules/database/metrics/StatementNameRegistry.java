@@ -0,0 +1,63 @@
+package de.timmi6790.discord_framework.module.modules.database.metrics;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves raw sql statements to their statement constant inside the declaring repository.
+ */
+@Log4j2
+public class StatementNameRegistry {
+    private final Map<String, StatementName> statementNames = new ConcurrentHashMap<>();
+
+    /**
+     * Registers all static final string constants of the given repository class as statements.
+     *
+     * @param repositoryClass the repository class
+     */
+    public void registerRepository(final Class<?> repositoryClass) {
+        for (final Field field : repositoryClass.getDeclaredFields()) {
+            final int modifiers = field.getModifiers();
+            if (field.getType() != String.class || !Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers)) {
+                continue;
+            }
+
+            try {
+                field.setAccessible(true);
+                final String sql = (String) field.get(null);
+                if (sql != null) {
+                    this.registerStatement(sql, new StatementName(repositoryClass.getSimpleName(), field.getName()));
+                }
+            } catch (final IllegalAccessException | RuntimeException e) {
+                log.warn("Can't read statement {} of {}", field.getName(), repositoryClass.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Registers the given raw sql statement under the given name. The first registration wins.
+     *
+     * @param sql           the raw sql statement
+     * @param statementName the statement name
+     */
+    public void registerStatement(final String sql, final StatementName statementName) {
+        this.statementNames.putIfAbsent(sql, statementName);
+    }
+
+    /**
+     * Resolve the name of the given raw sql statement.
+     *
+     * @param sql the raw sql statement
+     * @return the statement name or {@link StatementName#UNKNOWN} for unregistered statements
+     */
+    public StatementName resolve(final String sql) {
+        if (sql == null) {
+            return StatementName.UNKNOWN;
+        }
+        return this.statementNames.getOrDefault(sql, StatementName.UNKNOWN);
+    }
+}
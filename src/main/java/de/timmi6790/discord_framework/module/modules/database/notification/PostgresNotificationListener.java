@@ -0,0 +1,252 @@
+package de.timmi6790.discord_framework.module.modules.database.notification;
+
+import io.sentry.Sentry;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.jdbi.v3.core.Jdbi;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Cross process notifications over postgres LISTEN/NOTIFY. Every bot process connected to the same database receives
+ * the notifications of all other processes, notifications of this process are not delivered back to it.
+ * <p>
+ * The listener holds one dedicated connection outside of the connection pool, because a LISTEN is bound to its
+ * connection. Notifications sent while the connection was lost can't be recovered, the reconnect handlers are called
+ * after each reconnect to resynchronize instead.
+ */
+@Log4j2
+public class PostgresNotificationListener implements AutoCloseable {
+    private static final Pattern CHANNEL_PATTERN = Pattern.compile("^[a-z_]{1,63}$");
+    private static final String NOTIFY = "SELECT pg_notify(?, ?);";
+    private static final char NODE_SEPARATOR = ':';
+    private static final int POLL_TIMEOUT_MS = 1_000;
+    private static final long MAX_RECONNECT_DELAY_MS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Random id of this process, used to ignore our own notifications
+     */
+    @Getter
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Jdbi jdbi;
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+    private final List<Runnable> reconnectHandlers = new CopyOnWriteArrayList<>();
+    private final Thread listenerThread;
+
+    private volatile Connection connection;
+    private volatile boolean running = true;
+
+    public PostgresNotificationListener(final Jdbi jdbi, final String url, final String user, final String password) {
+        this.jdbi = jdbi;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+
+        this.listenerThread = new Thread(this::run, "postgres-notifications");
+        this.listenerThread.setDaemon(true);
+    }
+
+    private static void validateChannel(final String channel) {
+        if (!CHANNEL_PATTERN.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid notification channel " + channel);
+        }
+    }
+
+    public void start() {
+        this.listenerThread.start();
+    }
+
+    public boolean isConnected() {
+        return this.connection != null;
+    }
+
+    /**
+     * Listen to all notifications of other processes on the channel.
+     *
+     * @param channel the channel, lower case letters and underscores only
+     * @param handler the payload handler, called on the listener thread
+     */
+    public synchronized void listen(final String channel, final Consumer<String> handler) {
+        validateChannel(channel);
+
+        final List<Consumer<String>> channelHandlers = this.handlers.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>());
+        final boolean newChannel = channelHandlers.isEmpty();
+        channelHandlers.add(handler);
+        if (newChannel) {
+            final Connection currentConnection = this.connection;
+            if (currentConnection != null) {
+                try {
+                    this.listenOnConnection(currentConnection, channel);
+                } catch (final SQLException e) {
+                    // The channel is listened to again after the reconnect
+                    log.warn("Can't listen to channel " + channel, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called after the listener connection was lost and reconnected. Notifications can be lost in this time.
+     *
+     * @param handler the reconnect handler
+     */
+    public void onReconnect(final Runnable handler) {
+        this.reconnectHandlers.add(handler);
+    }
+
+    /**
+     * Send the payload to all other processes listening on the channel. The notification is delivered after the
+     * transaction is committed, which is directly for this auto commit statement.
+     *
+     * @param channel the channel
+     * @param payload the payload, below 8000 bytes
+     */
+    public void notify(final String channel, final String payload) {
+        this.notify(channel, List.of(payload));
+    }
+
+    /**
+     * Send all payloads to all other processes listening on the channel. The payloads share one connection and
+     * transaction, they are delivered together after the commit.
+     *
+     * @param channel  the channel
+     * @param payloads the payloads, each below 8000 bytes
+     */
+    public void notify(final String channel, final List<String> payloads) {
+        validateChannel(channel);
+        if (payloads.isEmpty()) {
+            return;
+        }
+
+        this.jdbi.useTransaction(handle -> {
+            for (final String payload : payloads) {
+                handle.execute(NOTIFY, channel, this.nodeId + NODE_SEPARATOR + payload);
+            }
+        });
+    }
+
+    private void listenOnConnection(final Connection listenConnection, final String channel) throws SQLException {
+        try (final Statement statement = listenConnection.createStatement()) {
+            // Channel names are validated, identifiers can't be bound as parameters
+            statement.execute("LISTEN " + channel);
+        }
+    }
+
+    private synchronized void connect() throws SQLException {
+        final Connection newConnection = DriverManager.getConnection(this.url, this.user, this.password);
+        try {
+            for (final String channel : this.handlers.keySet()) {
+                this.listenOnConnection(newConnection, channel);
+            }
+        } catch (final SQLException e) {
+            newConnection.close();
+            throw e;
+        }
+        this.connection = newConnection;
+    }
+
+    void dispatch(final String channel, final String rawPayload) {
+        final int separatorIndex = rawPayload.indexOf(NODE_SEPARATOR);
+        if (separatorIndex == -1) {
+            log.warn("Received notification without node id on channel {}: {}", channel, rawPayload);
+            return;
+        }
+        // Our own changes are already applied locally
+        if (this.nodeId.equals(rawPayload.substring(0, separatorIndex))) {
+            return;
+        }
+
+        final String payload = rawPayload.substring(separatorIndex + 1);
+        for (final Consumer<String> handler : this.handlers.getOrDefault(channel, List.of())) {
+            try {
+                handler.accept(payload);
+            } catch (final Exception e) {
+                log.error("Exception while handling notification on channel " + channel, e);
+                Sentry.captureException(e);
+            }
+        }
+    }
+
+    private void pollNotifications(final Connection listenConnection) throws SQLException {
+        final PGNotification[] notifications = listenConnection
+                .unwrap(PGConnection.class)
+                .getNotifications(POLL_TIMEOUT_MS);
+        if (notifications == null) {
+            return;
+        }
+
+        for (final PGNotification notification : notifications) {
+            this.dispatch(notification.getName(), notification.getParameter());
+        }
+    }
+
+    private void closeConnection() {
+        final Connection currentConnection = this.connection;
+        this.connection = null;
+        if (currentConnection != null) {
+            try {
+                currentConnection.close();
+            } catch (final SQLException ignore) {
+                // The connection is most likely already broken
+            }
+        }
+    }
+
+    private void run() {
+        long reconnectDelay = 0;
+        boolean reconnect = false;
+        while (this.running) {
+            try {
+                if (this.connection == null) {
+                    this.connect();
+                    reconnectDelay = 0;
+                    if (reconnect) {
+                        log.info("Reconnected to postgres notifications");
+                        this.reconnectHandlers.forEach(Runnable::run);
+                    }
+                    reconnect = true;
+                }
+
+                this.pollNotifications(this.connection);
+            } catch (final SQLException e) {
+                if (!this.running) {
+                    return;
+                }
+
+                this.closeConnection();
+                reconnectDelay = Math.min(MAX_RECONNECT_DELAY_MS, Math.max(500, reconnectDelay * 2));
+                log.warn("Lost postgres notification connection, reconnecting in " + reconnectDelay + " ms", e);
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (final InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        this.running = false;
+        this.listenerThread.interrupt();
+        this.closeConnection();
+    }
+}
@@ -0,0 +1,243 @@
+package de.timmi6790.discord_framework.module.modules.database.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.jdbi.v3.core.ConnectionException;
+import org.jdbi.v3.core.HandleCallback;
+import org.jdbi.v3.core.Jdbi;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes entity reads to the read replica and all writes to the primary database.
+ * <p>
+ * The replica lags behind the primary. Entities written by this or another bot process are read from the primary for
+ * the read your writes window after the write, to prevent caching the state before the write. Writes are recorded
+ * through the invalidations every entity change publishes, see {@link ReplicaRoutingInvalidationBus}.
+ * <p>
+ * An unreachable replica is skipped for the replica retry time, instead of waiting for the connection timeout on every
+ * read. The first read after the retry time probes the replica again, while the other reads keep using the primary.
+ */
+@Log4j2
+public class ReplicaRouter {
+    @Getter
+    private final Jdbi primary;
+    @Nullable
+    private final Jdbi replica;
+    private final long readYourWritesNanos;
+    private final long replicaRetryNanos;
+    private final Ticker ticker;
+
+    private final Map<InvalidationTopic, Cache<Long, Boolean>> recentWrites = new EnumMap<>(InvalidationTopic.class);
+    /**
+     * All reads use the primary until this tick, after writes could have been missed
+     */
+    private volatile long primaryOnlyUntil;
+    /**
+     * False after the replica was not reachable, reads skip it until the retry tick
+     */
+    private volatile boolean replicaAvailable = true;
+    private volatile long replicaRetryAt;
+    /**
+     * Held by the read that probes the unavailable replica
+     */
+    private final AtomicBoolean replicaProbe = new AtomicBoolean();
+
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder replicaFailures = new LongAdder();
+
+    /**
+     * Instantiates a new replica router.
+     *
+     * @param primary             the primary database
+     * @param replica              the read replica or null to use the primary for all reads
+     * @param readYourWritesMillis milliseconds after a write in which the entity is read from the primary
+     * @param replicaRetryMillis   milliseconds an unreachable replica is skipped before it is tried again
+     */
+    public ReplicaRouter(final Jdbi primary,
+                         @Nullable final Jdbi replica,
+                         final long readYourWritesMillis,
+                         final long replicaRetryMillis) {
+        this(primary, replica, readYourWritesMillis, replicaRetryMillis, Ticker.systemTicker());
+    }
+
+    ReplicaRouter(final Jdbi primary,
+                  @Nullable final Jdbi replica,
+                  final long readYourWritesMillis,
+                  final long replicaRetryMillis,
+                  final Ticker ticker) {
+        this.primary = primary;
+        this.replica = replica;
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMillis);
+        this.replicaRetryNanos = TimeUnit.MILLISECONDS.toNanos(replicaRetryMillis);
+        this.ticker = ticker;
+        this.primaryOnlyUntil = ticker.read();
+
+        for (final InvalidationTopic topic : InvalidationTopic.values()) {
+            this.recentWrites.put(
+                    topic,
+                    Caffeine.newBuilder()
+                            .expireAfterWrite(this.readYourWritesNanos, TimeUnit.NANOSECONDS)
+                            .ticker(ticker)
+                            .executor(Runnable::run)
+                            .build()
+            );
+        }
+    }
+
+    public boolean hasReplica() {
+        return this.replica != null;
+    }
+
+    /**
+     * Checks if reads can use the replica. Unreachable replicas are unavailable until a probe read succeeded.
+     *
+     * @return true if the replica was reachable on the last read
+     */
+    public boolean isReplicaAvailable() {
+        return this.replica != null && this.replicaAvailable;
+    }
+
+    private boolean isReplicaRetryDue() {
+        return this.ticker.read() - this.replicaRetryAt >= 0;
+    }
+
+    /**
+     * Records a write of the entity. The entity is read from the primary for the read your writes window.
+     *
+     * @param topic the entity topic
+     * @param id    the entity id
+     */
+    public void recordWrite(final InvalidationTopic topic, final long id) {
+        if (this.replica != null) {
+            this.recentWrites.get(topic).put(id, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Reads all entities from the primary for the read your writes window, used when writes could have been missed.
+     */
+    public void recordUnknownWrites() {
+        this.primaryOnlyUntil = this.ticker.read() + this.readYourWritesNanos;
+    }
+
+    private boolean isPrimaryOnly() {
+        return this.ticker.read() - this.primaryOnlyUntil < 0;
+    }
+
+    /**
+     * Gets the database to read the entity from.
+     *
+     * @param topic the entity topic
+     * @param id    the entity id
+     * @return the replica or the primary if the entity was written recently or the replica is not reachable
+     */
+    public Jdbi forRead(final InvalidationTopic topic, final long id) {
+        if (this.replica == null
+                || (!this.replicaAvailable && !this.isReplicaRetryDue())
+                || this.isPrimaryOnly()
+                || this.recentWrites.get(topic).getIfPresent(id) != null) {
+            return this.primary;
+        }
+        return this.replica;
+    }
+
+    /**
+     * Reads the entity from the database returned by {@link #forRead(InvalidationTopic, long)}. Reads fall back to the
+     * primary when the replica is not reachable. Only one read at a time probes an unavailable replica.
+     *
+     * @param topic    the entity topic
+     * @param id       the entity id
+     * @param callback the read callback
+     * @param <R>      the result type
+     * @param <X>      the exception type
+     * @return the callback result
+     * @throws X if the callback throws
+     */
+    public <R, X extends Exception> R withReadHandle(final InvalidationTopic topic,
+                                                     final long id,
+                                                     final HandleCallback<R, X> callback) throws X {
+        final Jdbi database = this.forRead(topic, id);
+        if (database == this.primary) {
+            return this.readFromPrimary(callback);
+        }
+        if (this.replicaAvailable) {
+            return this.readFromReplica(database, topic, id, callback);
+        }
+
+        if (!this.replicaProbe.compareAndSet(false, true)) {
+            return this.readFromPrimary(callback);
+        }
+        try {
+            return this.readFromReplica(database, topic, id, callback);
+        } finally {
+            this.replicaProbe.set(false);
+        }
+    }
+
+    private <R, X extends Exception> R readFromPrimary(final HandleCallback<R, X> callback) throws X {
+        this.primaryReads.increment();
+        return this.primary.withHandle(callback);
+    }
+
+    private <R, X extends Exception> R readFromReplica(final Jdbi replica,
+                                                       final InvalidationTopic topic,
+                                                       final long id,
+                                                       final HandleCallback<R, X> callback) throws X {
+        try {
+            this.replicaReads.increment();
+            final R result = replica.withHandle(callback);
+            if (!this.replicaAvailable) {
+                this.replicaAvailable = true;
+                log.info("The read replica is reachable again");
+            }
+            return result;
+        } catch (final ConnectionException e) {
+            this.replicaFailures.increment();
+            this.replicaRetryAt = this.ticker.read() + this.replicaRetryNanos;
+            if (this.replicaAvailable) {
+                this.replicaAvailable = false;
+                log.warn(
+                        "Failed to connect to the read replica while reading {} {}, reading from the primary for {} ms",
+                        topic,
+                        id,
+                        TimeUnit.NANOSECONDS.toMillis(this.replicaRetryNanos),
+                        e
+                );
+            } else {
+                log.debug("The read replica is still not reachable", e);
+            }
+            return this.readFromPrimary(callback);
+        }
+    }
+
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("database.reads", this.primaryReads, LongAdder::sum)
+                .tag("target", "primary")
+                .description("Entity reads per database")
+                .register(registry);
+        FunctionCounter.builder("database.reads", this.replicaReads, LongAdder::sum)
+                .tag("target", "replica")
+                .description("Entity reads per database")
+                .register(registry);
+        FunctionCounter.builder("database.replica.failures", this.replicaFailures, LongAdder::sum)
+                .description("Replica reads that fell back to the primary, because the replica was not reachable")
+                .register(registry);
+        Gauge.builder("database.replica.available", this, router -> router.isReplicaAvailable() ? 1 : 0)
+                .description("1 if reads use the replica, 0 if it is skipped after it was not reachable")
+                .register(registry);
+    }
+}
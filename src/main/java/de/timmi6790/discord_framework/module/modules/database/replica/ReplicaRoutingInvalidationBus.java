@@ -0,0 +1,50 @@
+package de.timmi6790.discord_framework.module.modules.database.replica;
+
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationBus;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Invalidation bus that records all invalidations as writes in the {@link ReplicaRouter}. Every entity change publishes
+ * an invalidation, which makes them a complete source of the writes of this and all other bot processes.
+ */
+public class ReplicaRoutingInvalidationBus implements InvalidationBus {
+    private final InvalidationBus delegate;
+    private final ReplicaRouter replicaRouter;
+
+    public ReplicaRoutingInvalidationBus(final InvalidationBus delegate, final ReplicaRouter replicaRouter) {
+        this.delegate = delegate;
+        this.replicaRouter = replicaRouter;
+
+        // Subscribed before all entity modules, the write is recorded before the cached entity is invalidated
+        for (final InvalidationTopic topic : InvalidationTopic.values()) {
+            delegate.subscribe(
+                    topic,
+                    id -> replicaRouter.recordWrite(topic, id),
+                    replicaRouter::recordUnknownWrites
+            );
+        }
+    }
+
+    @Override
+    public void publish(final InvalidationTopic topic, final long id) {
+        this.replicaRouter.recordWrite(topic, id);
+        this.delegate.publish(topic, id);
+    }
+
+    @Override
+    public void subscribe(final InvalidationTopic topic, final LongConsumer onInvalidation, final Runnable onResync) {
+        this.delegate.subscribe(topic, onInvalidation, onResync);
+    }
+
+    @Override
+    public void flush() {
+        this.delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        this.delegate.close();
+    }
+}
@@ -14,6 +14,7 @@ import de.timmi6790.discord_framework.utilities.discord.DiscordMessagesUtilities
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
+import lombok.extern.log4j.Log4j2;
 
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
@@ -23,6 +24,7 @@ import java.util.concurrent.TimeUnit;
  */
 @EqualsAndHashCode(callSuper = true)
 @Getter
+@Log4j2
 public class DataRequestCommand extends Command {
     /**
      * The Dsgvo module.
@@ -50,22 +52,50 @@ public class DataRequestCommand extends Command {
     @Override
     protected CommandResult onCommand(final CommandParameters commandParameters) {
         final String userData = this.dsgvoModule.getUserData(commandParameters.getUserDb());
-        commandParameters.getUserTextChannel().sendFile(
-                userData.getBytes(StandardCharsets.UTF_8),
-                "Your-personal-data.json"
-        ).queue();
+        commandParameters.retrieveUserTextChannel()
+                .thenCompose(privateChannel ->
+                        privateChannel.sendFile(
+                                userData.getBytes(StandardCharsets.UTF_8),
+                                "Your-personal-data.json"
+                        ).submit()
+                )
+                .whenComplete((message, throwable) -> {
+                    if (throwable != null) {
+                        this.onDataSendFailure(commandParameters, throwable);
+                    } else if (commandParameters.isGuildCommand()) {
+                        // Inform the user that his data is in his dms
+                        DiscordMessagesUtilities.sendMessageTimed(
+                                commandParameters.getGuildTextChannel(),
+                                new MultiEmbedBuilder()
+                                        .setTitle("Your Personal Data")
+                                        .setDescription(
+                                                "Check your private messages with the bot to access your personal data."
+                                        ),
+                                90
+                        );
+                    }
+                });
+
+        return BaseCommandResult.SUCCESSFUL;
+    }
+
+    private void onDataSendFailure(final CommandParameters commandParameters, final Throwable throwable) {
+        log.info("Failed to send the personal data to {}", commandParameters.getUserDb().getDiscordId(), throwable);
+        // The user can request it again after enabling private messages
+        this.getProperty(CooldownProperty.class)
+                .ifPresent(cooldown -> cooldown.resetCooldown(commandParameters.getUserDb().getDiscordId()));
 
-        // Inform the user that his data is in his dms
         if (commandParameters.isGuildCommand()) {
             DiscordMessagesUtilities.sendMessageTimed(
                     commandParameters.getGuildTextChannel(),
                     new MultiEmbedBuilder()
                             .setTitle("Your Personal Data")
-                            .setDescription("Check your private messages with the bot to access your personal data."),
+                            .setDescription(
+                                    "I can't send you private messages. Allow private messages from server members "
+                                            + "and request your data again."
+                            ),
                     90
             );
         }
-
-        return BaseCommandResult.SUCCESSFUL;
     }
 }
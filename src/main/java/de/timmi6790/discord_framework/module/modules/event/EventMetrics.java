@@ -0,0 +1,95 @@
+package de.timmi6790.discord_framework.module.modules.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Event dispatch metrics. All meters used on the dispatch path are resolved once and cached afterwards, to keep the
+ * overhead low enough to always run them.
+ */
+class EventMetrics {
+    private static final String TAG_EVENT = "event";
+    private static final String TAG_LISTENER = "listener";
+
+    private final MeterRegistry registry;
+    private final Map<Class<?>, Counter> dispatchCounters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Timer> queueWaitTimers = new ConcurrentHashMap<>();
+
+    EventMetrics(final MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    private static String getListenerName(final EventObject listener) {
+        final Class<?> listenerClass = listener.getObject().getClass();
+        final String className = listenerClass.getSimpleName().isEmpty() ? listenerClass.getName() : listenerClass.getSimpleName();
+        return className + "." + listener.getMethod().getName();
+    }
+
+    Counter getDispatchCounter(final Class<?> eventClass) {
+        return this.dispatchCounters.computeIfAbsent(
+                eventClass,
+                key -> Counter.builder("event.dispatch")
+                        .description("Dispatched events with at least one listener")
+                        .tag(TAG_EVENT, key.getSimpleName())
+                        .register(this.registry)
+        );
+    }
+
+    Timer getQueueWaitTimer(final Class<?> eventClass) {
+        return this.queueWaitTimers.computeIfAbsent(
+                eventClass,
+                key -> Timer.builder("event.async.queue_wait")
+                        .description("Time async listeners wait for a free executor thread")
+                        .tag(TAG_EVENT, key.getSimpleName())
+                        .register(this.registry)
+        );
+    }
+
+    /**
+     * Gets the metrics of the given listener. The metrics are created on the first call and stored inside the
+     * listener afterwards.
+     *
+     * @param listener   the listener
+     * @param eventClass the event class the listener is registered for
+     * @return the listener metrics
+     */
+    ListenerMetrics getListenerMetrics(final EventObject listener, final Class<?> eventClass) {
+        ListenerMetrics listenerMetrics = listener.getMetrics();
+        if (listenerMetrics == null) {
+            final String listenerName = getListenerName(listener);
+            final String eventName = eventClass.getSimpleName();
+            listenerMetrics = new ListenerMetrics(
+                    listenerName,
+                    eventName,
+                    Timer.builder("event.listener.duration")
+                            .description("Execution time of event listener methods")
+                            .tag(TAG_LISTENER, listenerName)
+                            .tag(TAG_EVENT, eventName)
+                            .register(this.registry)
+            );
+            listener.setMetrics(listenerMetrics);
+        }
+        return listenerMetrics;
+    }
+
+    void recordException(final ListenerMetrics listenerMetrics, final Throwable exception) {
+        this.registry.counter(
+                "event.listener.exceptions",
+                TAG_LISTENER, listenerMetrics.getListenerName(),
+                TAG_EVENT, listenerMetrics.getEventName(),
+                "exception", exception.getClass().getSimpleName()
+        ).increment();
+    }
+
+    @Data
+    static class ListenerMetrics {
+        private final String listenerName;
+        private final String eventName;
+        private final Timer timer;
+    }
+}
@@ -4,8 +4,11 @@ import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.SetMultimap;
 import de.timmi6790.discord_framework.utilities.commons.ReflectionUtilities;
 import de.timmi6790.discord_framework.module.AbstractModule;
+import de.timmi6790.discord_framework.module.ShardRequirement;
+import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
 import de.timmi6790.discord_framework.utilities.sentry.BreadcrumbBuilder;
 import de.timmi6790.discord_framework.utilities.sentry.SentryEventBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.sentry.Sentry;
 import io.sentry.SentryLevel;
 import lombok.AccessLevel;
@@ -14,27 +17,48 @@ import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 import net.dv8tion.jda.api.events.GenericEvent;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @EqualsAndHashCode(callSuper = true)
 @Log4j2
 public class EventModule extends AbstractModule {
     private static final String EVENT = "Event";
 
+    /**
+     * Listeners per event. The listener multimaps are copied on each change and never modified after they are
+     * published, events are dispatched without locking while modules register listeners in parallel.
+     */
     @Getter(value = AccessLevel.PROTECTED)
-    private final Map<Class<GenericEvent>, SetMultimap<EventPriority, EventObject>> eventListeners = new HashMap<>();
+    private final Map<Class<GenericEvent>, SetMultimap<EventPriority, EventObject>> eventListeners = new ConcurrentHashMap<>();
 
     private final ExecutorService executorService = Executors.newCachedThreadPool();
 
+    private volatile EventMetrics eventMetrics;
 
     public EventModule() {
         super(EVENT);
+
+        this.addLoadAfterDependencies(
+                MetricModule.class
+        );
+
+        // The listener is registered on the shard manager and receives the events of each shard once it is ready
+        this.setShardRequirement(ShardRequirement.NONE);
+    }
+
+    @Override
+    public boolean onInitialize() {
+        this.getModule(MetricModule.class).ifPresent(metric ->
+                this.enableMetrics(metric.getMeterRegistry())
+        );
+        return true;
     }
 
     @Override
@@ -43,7 +67,16 @@ public class EventModule extends AbstractModule {
         return true;
     }
 
-    private void handleEventException(final Exception exception, final GenericEvent event, final EventObject listener) {
+    /**
+     * Records listener timings, dispatch counts, async queue wait times and listener exceptions into the registry.
+     *
+     * @param registry the meter registry
+     */
+    void enableMetrics(final MeterRegistry registry) {
+        this.eventMetrics = new EventMetrics(registry);
+    }
+
+    private void handleEventException(final Throwable exception, final GenericEvent event, final EventObject listener) {
         log.error("Exception during event execution", exception);
 
         // Sentry error
@@ -60,7 +93,15 @@ public class EventModule extends AbstractModule {
                 .build());
     }
 
-    public boolean addEventListener(final Object listener) {
+    private static SetMultimap<EventPriority, EventObject> copyListeners(final SetMultimap<EventPriority, EventObject> listeners) {
+        final SetMultimap<EventPriority, EventObject> copy = MultimapBuilder.enumKeys(EventPriority.class).hashSetValues().build();
+        if (listeners != null) {
+            copy.putAll(listeners);
+        }
+        return copy;
+    }
+
+    public synchronized boolean addEventListener(final Object listener) {
         boolean registeredListener = false;
         for (final Method method : listener.getClass().getMethods()) {
             final Optional<SubscribeEvent> annotationOpt = ReflectionUtilities.getAnnotation(method, SubscribeEvent.class);
@@ -87,12 +128,14 @@ public class EventModule extends AbstractModule {
                 }
 
                 registeredListener = true;
-                this.eventListeners.computeIfAbsent(
+                final EventObject eventObject = new EventObject(listener, method, annotation.ignoreCanceled());
+                this.eventListeners.compute(
                         (Class<GenericEvent>) parameter,
-                        key -> MultimapBuilder.enumKeys(EventPriority.class).hashSetValues().build()
-                ).put(
-                        annotation.priority(),
-                        new EventObject(listener, method, annotation.ignoreCanceled())
+                        (key, listeners) -> {
+                            final SetMultimap<EventPriority, EventObject> copy = copyListeners(listeners);
+                            copy.put(annotation.priority(), eventObject);
+                            return copy;
+                        }
                 );
 
                 log.info(
@@ -113,32 +156,55 @@ public class EventModule extends AbstractModule {
         }
     }
 
-    public void removeEventListener(final Object listener) {
-        for (final SetMultimap<EventPriority, EventObject> value : this.eventListeners.values()) {
-            final Iterator<EventObject> valueIterator = value.values().iterator();
-            while (valueIterator.hasNext()) {
-                final EventObject eventObject = valueIterator.next();
-                if (eventObject.getObject().equals(listener)) {
-                    for (final Method method : listener.getClass().getMethods()) {
-                        if (eventObject.getMethod().equals(method)) {
-                            valueIterator.remove();
-                        }
-                    }
-                }
-            }
-        }
+    public synchronized void removeEventListener(final Object listener) {
+        this.eventListeners.replaceAll((eventClass, listeners) -> {
+            final SetMultimap<EventPriority, EventObject> copy = copyListeners(listeners);
+            copy.values().removeIf(eventObject -> eventObject.getObject().equals(listener));
+            return copy;
+        });
     }
 
-    public void clearEventListener() {
+    public synchronized void clearEventListener() {
         this.eventListeners.clear();
     }
 
-    public void executeEvent(final GenericEvent event) {
-        if (!this.eventListeners.containsKey(event.getClass())) {
+    private void invokeListener(final EventObject listener, final GenericEvent event) {
+        final EventMetrics metrics = this.eventMetrics;
+        if (metrics == null) {
+            try {
+                listener.getMethod().invoke(listener.getObject(), event);
+            } catch (final Exception e) {
+                this.handleEventException(e, event, listener);
+            }
             return;
         }
 
+        final EventMetrics.ListenerMetrics listenerMetrics = metrics.getListenerMetrics(listener, event.getClass());
+        final long startTime = System.nanoTime();
+        try {
+            listener.getMethod().invoke(listener.getObject(), event);
+        } catch (final Exception e) {
+            metrics.recordException(
+                    listenerMetrics,
+                    e instanceof InvocationTargetException && e.getCause() != null ? e.getCause() : e
+            );
+            this.handleEventException(e, event, listener);
+        } finally {
+            listenerMetrics.getTimer().record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void executeEvent(final GenericEvent event) {
         final SetMultimap<EventPriority, EventObject> entry = this.eventListeners.get(event.getClass());
+        if (entry == null) {
+            return;
+        }
+
+        final EventMetrics metrics = this.eventMetrics;
+        if (metrics != null) {
+            metrics.getDispatchCounter(event.getClass()).increment();
+        }
+
         final boolean canCancel = Cancelable.class.isAssignableFrom(event.getClass());
         for (final EventObject listener : entry.values()) {
             if (canCancel && !listener.isIgnoreCanceled() && ((Cancelable) event).isCancelled()) {
@@ -147,19 +213,15 @@ public class EventModule extends AbstractModule {
 
             // If there is no way to cancel the event, we can run it in multiple threads
             if (canCancel) {
-                try {
-                    listener.getMethod().invoke(listener.getObject(), event);
-                } catch (final Exception e) {
-                    this.handleEventException(e, event, listener);
-
-                }
+                this.invokeListener(listener, event);
             } else {
+                final long submitTime = System.nanoTime();
                 this.executorService.execute(() -> {
-                    try {
-                        listener.getMethod().invoke(listener.getObject(), event);
-                    } catch (final Exception e) {
-                        this.handleEventException(e, event, listener);
+                    if (metrics != null) {
+                        metrics.getQueueWaitTimer(event.getClass())
+                                .record(System.nanoTime() - submitTime, TimeUnit.NANOSECONDS);
                     }
+                    this.invokeListener(listener, event);
                 });
             }
         }
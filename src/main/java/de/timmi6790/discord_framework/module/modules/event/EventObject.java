@@ -1,7 +1,9 @@
 package de.timmi6790.discord_framework.module.modules.event;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
+import lombok.ToString;
 
 import java.lang.reflect.Method;
 
@@ -12,4 +14,7 @@ class EventObject {
     @NonNull
     private final Method method;
     private final boolean ignoreCanceled;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile EventMetrics.ListenerMetrics metrics;
 }
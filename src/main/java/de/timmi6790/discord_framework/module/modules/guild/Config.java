@@ -0,0 +1,26 @@
+package de.timmi6790.discord_framework.module.modules.guild;
+
+import lombok.Data;
+
+/**
+ * Guild db module config.
+ */
+@Data
+public class Config {
+    /**
+     * Max estimated heap size of the cached guilds in megabytes
+     */
+    private long cacheSizeMb = 16;
+    /**
+     * Minutes after which a cached guild is removed
+     */
+    private long cacheExpireAfterWriteMinutes = 10;
+    /**
+     * File the hottest cached guilds are written into on shutdown and preloaded from on start, empty disables it
+     */
+    private String cacheSnapshotPath = "./cache/guilds.snapshot";
+    /**
+     * Max amount of guilds written into the cache snapshot
+     */
+    private int cacheSnapshotEntries = 5_000;
+}
@@ -1,7 +1,9 @@
 package de.timmi6790.discord_framework.module.modules.guild;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import de.timmi6790.discord_framework.module.modules.database.cache.CacheWeights;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
@@ -11,11 +13,21 @@ import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.sharding.ShardManager;
 
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 @Data
 public class GuildDb {
+    /**
+     * Max time we wait for discord to answer a member retrieve request
+     */
+    private static final long DISCORD_RETRIEVE_TIMEOUT_SECONDS = 10;
+    /**
+     * Rough retained size of the empty member cache
+     */
+    private static final long EMPTY_MEMBER_CACHE_BYTES = 1_024;
+
     private final long discordId;
     private final boolean banned;
 
@@ -23,32 +35,99 @@ public class GuildDb {
     @ToString.Exclude
     private final ShardManager discord;
 
-    private final LoadingCache<Long, Member> memberCache = Caffeine.newBuilder()
-            .expireAfterWrite(5, TimeUnit.MINUTES)
-            .build(key -> {
-                final CompletableFuture<Member> futureValue = new CompletableFuture<>();
-                this.getGuild().retrieveMemberById(key, false).queue(futureValue::complete);
-                return futureValue.get(1, TimeUnit.MINUTES);
-            });
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final AsyncLoadingCache<Long, Member> memberCache;
 
     public GuildDb(final ShardManager discord,
+                   final StatsCounter memberCacheStatsCounter,
                    final long discordId,
                    final boolean banned) {
         this.discord = discord;
 
         this.discordId = discordId;
         this.banned = banned;
+
+        this.memberCache = Caffeine.newBuilder()
+                .recordStats(() -> memberCacheStatsCounter)
+                .expireAfterWrite(5, TimeUnit.MINUTES)
+                .buildAsync((key, executor) -> this.retrieveMember(key));
+    }
+
+    /**
+     * Loads the guild member. The jda entity cache is checked first, before we fall back to a rest request.
+     *
+     * @param userId the discord user id
+     * @return the member future, completed exceptionally if the member can't be retrieved in time
+     */
+    private CompletableFuture<Member> retrieveMember(final long userId) {
+        final Guild guild = this.getGuild();
+        if (guild == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Guild " + this.discordId + " is not available on this instance.")
+            );
+        }
+
+        final Member cachedMember = guild.getMemberById(userId);
+        if (cachedMember != null) {
+            return CompletableFuture.completedFuture(cachedMember);
+        }
+
+        return guild.retrieveMemberById(userId, false)
+                .timeout(DISCORD_RETRIEVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .submit();
+    }
+
+    /**
+     * Estimates the retained heap size of this guild, used to weigh the guild cache. The weight is only calculated
+     * when the guild is cached, members retrieved afterwards are not part of it.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateRetainedBytes() {
+        return CacheWeights.objectBytes(Long.BYTES + 1 + 2L * CacheWeights.REFERENCE_BYTES)
+                + EMPTY_MEMBER_CACHE_BYTES
+                + this.memberCache.synchronous().estimatedSize() * CacheWeights.CACHE_ENTRY_BYTES;
     }
 
     public Guild getGuild() {
         return this.discord.getGuildById(this.discordId);
     }
 
-    public Member getMember(@NonNull final User user) {
+    public CompletableFuture<Member> getMember(@NonNull final User user) {
         return this.getMember(user.getIdLong());
     }
 
-    public Member getMember(final long userId) {
+    /**
+     * Gets the guild member for the given id. Failed requests are not cached and are propagated to the future.
+     *
+     * @param userId the discord user id
+     * @return the member future
+     */
+    public CompletableFuture<Member> getMember(final long userId) {
         return this.memberCache.get(userId);
     }
+
+    /**
+     * Gets the guild member without loading it.
+     *
+     * @param userId the discord user id
+     * @return the member if it is already loaded
+     */
+    public Optional<Member> getCachedMember(final long userId) {
+        final CompletableFuture<Member> member = this.memberCache.getIfPresent(userId);
+        if (member == null || !member.isDone() || member.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(member.join());
+    }
+
+    /**
+     * Caches the member received with an event, to prevent a rest request for it.
+     *
+     * @param member the guild member
+     */
+    public void cacheMember(@NonNull final Member member) {
+        this.memberCache.put(member.getIdLong(), CompletableFuture.completedFuture(member));
+    }
 }
@@ -2,40 +2,74 @@ package de.timmi6790.discord_framework.module.modules.guild;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
 import com.google.common.util.concurrent.Striped;
 import de.timmi6790.discord_framework.module.AbstractModule;
 import de.timmi6790.discord_framework.module.modules.command.CommandModule;
+import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
+import de.timmi6790.discord_framework.module.modules.database.async.AsyncDatabaseExecutor;
+import de.timmi6790.discord_framework.module.modules.database.async.AsyncEntityRepository;
+import de.timmi6790.discord_framework.module.modules.database.async.ExecutorAsyncEntityRepository;
+import de.timmi6790.discord_framework.module.modules.database.cache.CacheWeights;
+import de.timmi6790.discord_framework.module.modules.database.cache.LoadGenerations;
+import de.timmi6790.discord_framework.module.modules.database.cache.PersistentCacheSnapshot;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationBus;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
 import de.timmi6790.discord_framework.module.modules.guild.repository.GuildDbRepository;
 import de.timmi6790.discord_framework.module.modules.guild.repository.postgres.GuildDbPostgresRepository;
 import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
 import de.timmi6790.discord_framework.module.modules.permisssion.PermissionsModule;
 import de.timmi6790.discord_framework.module.modules.setting.SettingModule;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
+import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.function.ToDoubleFunction;
 
 @EqualsAndHashCode(callSuper = true)
 @Getter
 public class GuildDbModule extends AbstractModule {
     private final Striped<Lock> guildCreateLock = Striped.lock(64);
     private final Striped<Lock> guildGetOrCreateLock = Striped.lock(64);
-    private final Cache<Long, GuildDb> cache = Caffeine.newBuilder()
-            .recordStats()
-            .maximumSize(10_000)
-            .expireAfterWrite(10, TimeUnit.MINUTES)
-            .build();
+    private Cache<Long, GuildDb> cache;
+    /**
+     * Keeps guilds loaded during an invalidation out of the cache
+     */
+    @Getter(AccessLevel.NONE)
+    private final LoadGenerations loadGenerations = new LoadGenerations();
+    /**
+     * Shared stats of all guild member caches
+     */
+    private final StatsCounter memberCacheStatsCounter = new ConcurrentStatsCounter();
 
     private GuildDbRepository guildDbRepository;
+    private AsyncEntityRepository<GuildDb> asyncGuildDbRepository;
+    @Getter(AccessLevel.NONE)
+    private AsyncDatabaseExecutor asyncExecutor;
+    @Getter(AccessLevel.NONE)
+    private InvalidationBus invalidationBus;
+    /**
+     * Persisted hot set of the cache, null when disabled
+     */
+    @Getter(AccessLevel.NONE)
+    private PersistentCacheSnapshot<GuildDb> cacheSnapshot;
 
     public GuildDbModule() {
         super("Guild");
 
         this.addDependenciesAndLoadAfter(
+                ConfigModule.class,
                 DatabaseModule.class,
                 PermissionsModule.class
         );
@@ -52,30 +86,183 @@ public class GuildDbModule extends AbstractModule {
 
     @Override
     public boolean onInitialize() {
+        final Config guildConfig = this.getModuleOrThrow(ConfigModule.class)
+                .registerAndGetConfig(this, new Config());
+        this.cache = Caffeine.newBuilder()
+                .recordStats()
+                .maximumWeight(CacheWeights.megabytesToBytes(guildConfig.getCacheSizeMb()))
+                .weigher((Long discordId, GuildDb guildDb) -> CacheWeights.toWeight(guildDb.estimateRetainedBytes()))
+                .expireAfterWrite(guildConfig.getCacheExpireAfterWriteMinutes(), TimeUnit.MINUTES)
+                .build();
+
         this.guildDbRepository = new GuildDbPostgresRepository(
-                this.getModuleOrThrow(DatabaseModule.class).getJdbi(),
-                this.getDiscord()
+                this.getModuleOrThrow(DatabaseModule.class),
+                this.getDiscord(),
+                this.memberCacheStatsCounter
+        );
+        this.getModuleOrThrow(DatabaseModule.class).registerStatements(GuildDbPostgresRepository.class);
+        this.asyncExecutor = this.getModuleOrThrow(DatabaseModule.class).getAsyncExecutor();
+        this.asyncGuildDbRepository = new ExecutorAsyncEntityRepository<>(
+                this.asyncExecutor,
+                this::loadGuild
         );
+        this.loadCacheSnapshot(guildConfig);
 
-        // Register metrics
-        this.getModule(MetricModule.class).ifPresent(metric ->
-                CaffeineCacheMetrics.monitor(
-                        metric.getMeterRegistry(),
-                        this.cache,
-                        "guildDB_guild"
-                )
+        this.invalidationBus = this.getModuleOrThrow(DatabaseModule.class).getInvalidationBus();
+        this.invalidationBus.subscribe(
+                InvalidationTopic.GUILD,
+                this::invalidateCached,
+                this::invalidateAllCached
         );
 
+        // Register metrics
+        this.getModule(MetricModule.class).ifPresent(metric -> {
+            CaffeineCacheMetrics.monitor(
+                    metric.getMeterRegistry(),
+                    this.cache,
+                    "guildDB_guild"
+            );
+            CacheWeights.bindEstimatedSize(metric.getMeterRegistry(), "guildDB_guild", this.cache);
+            if (this.cacheSnapshot != null) {
+                this.cacheSnapshot.bindTo(metric.getMeterRegistry());
+            }
+            this.registerMemberCacheMetrics(metric.getMeterRegistry());
+        });
+
+        return true;
+    }
+
+    @Override
+    public boolean onDisable() {
+        if (this.cacheSnapshot != null) {
+            this.cacheSnapshot.save(this.cache);
+        }
         return true;
     }
 
+    private void loadCacheSnapshot(final Config guildConfig) {
+        if (guildConfig.getCacheSnapshotPath().isEmpty() || guildConfig.getCacheSnapshotEntries() <= 0) {
+            return;
+        }
+
+        this.cacheSnapshot = new PersistentCacheSnapshot<>(
+                "guildDB_guild",
+                Paths.get(guildConfig.getCacheSnapshotPath()),
+                guildConfig.getCacheSnapshotEntries(),
+                new GuildDbSnapshotCodec(this.getDiscord(), this.memberCacheStatsCounter),
+                this.guildDbRepository::getVersions
+        );
+        this.cacheSnapshot.load(this.cache::put);
+        this.cacheSnapshot.validatePendingAsync(
+                discordId -> this.cache.invalidate(discordId),
+                this.asyncExecutor.getExecutor()
+        );
+    }
+
+    /**
+     * Loads the guild from the repository. The version of the loaded guild is recorded for the cache snapshot.
+     *
+     * @param discordId the discord guild id
+     * @return the guild
+     */
+    private Optional<GuildDb> loadGuild(final long discordId) {
+        if (this.cacheSnapshot == null) {
+            return this.guildDbRepository.getGuild(discordId);
+        }
+
+        return this.guildDbRepository.getVersionedGuild(discordId).map(this.cacheSnapshot::recordVersion);
+    }
+
+    /**
+     * Checks if the cached guild can be used, guilds preloaded from the cache snapshot are validated on their first
+     * access.
+     *
+     * @param discordId the discord guild id
+     * @return false if the cached guild was stale and is removed
+     */
+    private boolean isCachedGuildValid(final long discordId) {
+        if (this.cacheSnapshot == null || this.cacheSnapshot.validate(discordId)) {
+            return true;
+        }
+
+        this.cache.invalidate(discordId);
+        return false;
+    }
+
+    private void registerMemberCacheMetric(final MeterRegistry registry,
+                                           final String name,
+                                           final String result,
+                                           final ToDoubleFunction<CacheStats> function) {
+        FunctionCounter
+                .builder(name, this.memberCacheStatsCounter, counter -> function.applyAsDouble(counter.snapshot()))
+                .tags("cache", "guildDB_member", "result", result)
+                .register(registry);
+    }
+
+    /**
+     * Every guild owns its own member cache, we expose the combined stats of all of them to prevent a meter per guild.
+     *
+     * @param registry the registry
+     */
+    private void registerMemberCacheMetrics(final MeterRegistry registry) {
+        this.registerMemberCacheMetric(registry, "cache.gets", "hit", CacheStats::hitCount);
+        this.registerMemberCacheMetric(registry, "cache.gets", "miss", CacheStats::missCount);
+        this.registerMemberCacheMetric(registry, "cache.load", "success", CacheStats::loadSuccessCount);
+        this.registerMemberCacheMetric(registry, "cache.load", "failure", CacheStats::loadFailureCount);
+    }
+
+    /**
+     * Invalidates the cached guild on this and all other bot processes, after it was changed inside the repository.
+     *
+     * @param discordId the discord guild id
+     */
+    public void invalidate(final long discordId) {
+        this.invalidateCached(discordId);
+        if (this.invalidationBus != null) {
+            this.invalidationBus.publish(InvalidationTopic.GUILD, discordId);
+        }
+    }
+
+    private void invalidateCached(final long discordId) {
+        this.loadGenerations.invalidate(discordId);
+        this.cache.invalidate(discordId);
+    }
+
+    private void invalidateAllCached() {
+        this.loadGenerations.invalidateAll();
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * Caches the loaded guild, unless it was invalidated while it was loaded.
+     *
+     * @param discordId  the discord guild id
+     * @param guildDb    the loaded guild
+     * @param generation the load generation captured before the guild was read
+     */
+    private void cacheLoaded(final long discordId, final GuildDb guildDb, final long generation) {
+        this.loadGenerations.putIfCurrent(
+                discordId,
+                generation,
+                () -> this.cache.put(discordId, guildDb),
+                id -> this.cache.invalidate(id)
+        );
+    }
+
     protected GuildDb create(final long discordId) {
         // Lock the current discord id to prevent multiple creates
         final Lock lock = this.guildCreateLock.get(discordId);
         lock.lock();
         try {
+            // A concurrent create of this process could already be done
+            final GuildDb guildDbCache = this.cache.getIfPresent(discordId);
+            if (guildDbCache != null) {
+                return guildDbCache;
+            }
+
+            final long generation = this.loadGenerations.get(discordId);
             final GuildDb guildDb = this.getGuildDbRepository().createGuild(discordId);
-            this.getCache().put(discordId, guildDb);
+            this.cacheLoaded(discordId, guildDb, generation);
             return guildDb;
         } finally {
             lock.unlock();
@@ -84,15 +271,16 @@ public class GuildDbModule extends AbstractModule {
 
     public Optional<GuildDb> get(final long discordId) {
         final GuildDb guildDbCache = this.getCache().getIfPresent(discordId);
-        if (guildDbCache != null) {
+        if (guildDbCache != null && this.isCachedGuildValid(discordId)) {
             return Optional.of(guildDbCache);
         }
 
         final Lock lock = this.guildCreateLock.get(discordId);
         lock.lock();
         try {
-            final Optional<GuildDb> guildDbOpt = this.getGuildDbRepository().getGuild(discordId);
-            guildDbOpt.ifPresent(userDb -> this.getCache().put(discordId, userDb));
+            final long generation = this.loadGenerations.get(discordId);
+            final Optional<GuildDb> guildDbOpt = this.loadGuild(discordId);
+            guildDbOpt.ifPresent(guildDb -> this.cacheLoaded(discordId, guildDb, generation));
 
             return guildDbOpt;
         } finally {
@@ -100,6 +288,49 @@ public class GuildDbModule extends AbstractModule {
         }
     }
 
+    /**
+     * Non blocking version of {@link #get(long)}. Cached guilds complete directly, all other guilds are loaded through
+     * the async repository.
+     *
+     * @param discordId the discord guild id
+     * @return the guild future
+     */
+    public CompletableFuture<Optional<GuildDb>> getAsync(final long discordId) {
+        final GuildDb guildDbCache = this.cache.getIfPresent(discordId);
+        if (guildDbCache != null) {
+            if (this.cacheSnapshot == null || !this.cacheSnapshot.isPending(discordId)) {
+                return CompletableFuture.completedFuture(Optional.of(guildDbCache));
+            }
+
+            // Reloading the preloaded guild is as expensive as validating it
+            this.cache.invalidate(discordId);
+            this.cacheSnapshot.discard(discordId);
+        }
+
+        final long generation = this.loadGenerations.get(discordId);
+        return this.asyncGuildDbRepository.get(discordId)
+                .thenApply(guildDbOpt -> {
+                    guildDbOpt.ifPresent(guildDb -> this.cacheLoaded(discordId, guildDb, generation));
+                    return guildDbOpt;
+                })
+                .toCompletableFuture();
+    }
+
+    /**
+     * Non blocking version of {@link #getOrCreate(long)}.
+     *
+     * @param discordId the discord guild id
+     * @return the guild future
+     */
+    public CompletableFuture<GuildDb> getOrCreateAsync(final long discordId) {
+        return this.getAsync(discordId)
+                .thenCompose(guildDbOpt -> guildDbOpt
+                        .map(CompletableFuture::completedFuture)
+                        // The repository was already checked, create only checks the cache again
+                        .orElseGet(() -> this.asyncExecutor.supply(() -> this.create(discordId)))
+                );
+    }
+
     public GuildDb getOrCreate(final long discordId) {
         final Lock lock = this.guildGetOrCreateLock.get(discordId);
         lock.lock();
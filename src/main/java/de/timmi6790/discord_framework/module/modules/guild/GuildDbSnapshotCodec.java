@@ -0,0 +1,50 @@
+package de.timmi6790.discord_framework.module.modules.guild;
+
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import de.timmi6790.discord_framework.module.modules.database.cache.SnapshotCodec;
+import lombok.AllArgsConstructor;
+import net.dv8tion.jda.api.sharding.ShardManager;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Binary format of {@link GuildDb}s, used for cache snapshots. The member cache is not part of the snapshot.
+ * <p>
+ * Version 1 layout: the version byte, the discord id and the banned flag.
+ */
+@AllArgsConstructor
+public class GuildDbSnapshotCodec implements SnapshotCodec<GuildDb> {
+    public static final int CURRENT_VERSION = 1;
+
+    private static final int SNAPSHOT_BYTES = 1 + Long.BYTES + 1;
+
+    private final ShardManager discord;
+    private final StatsCounter memberCacheStatsCounter;
+
+    @Override
+    public byte[] encode(final GuildDb guildDb) {
+        return ByteBuffer.allocate(SNAPSHOT_BYTES)
+                .put((byte) CURRENT_VERSION)
+                .putLong(guildDb.getDiscordId())
+                .put((byte) (guildDb.isBanned() ? 1 : 0))
+                .array();
+    }
+
+    @Override
+    public Optional<GuildDb> decode(final byte[] snapshot) {
+        if (snapshot.length != SNAPSHOT_BYTES || snapshot[0] != CURRENT_VERSION) {
+            return Optional.empty();
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(snapshot, 1, SNAPSHOT_BYTES - 1);
+        return Optional.of(
+                new GuildDb(
+                        this.discord,
+                        this.memberCacheStatsCounter,
+                        buffer.getLong(),
+                        buffer.get() != 0
+                )
+        );
+    }
+}
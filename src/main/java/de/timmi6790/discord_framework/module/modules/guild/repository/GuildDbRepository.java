@@ -1,11 +1,30 @@
 package de.timmi6790.discord_framework.module.modules.guild.repository;
 
+import de.timmi6790.discord_framework.module.modules.database.cache.VersionedEntity;
 import de.timmi6790.discord_framework.module.modules.guild.GuildDb;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 public interface GuildDbRepository {
     GuildDb createGuild(final long discordId);
 
     Optional<GuildDb> getGuild(final long discordId);
+
+    /**
+     * Gets the guild together with its database version at the time of the read.
+     *
+     * @param discordId the discord guild id
+     * @return the guild with its version
+     */
+    Optional<VersionedEntity<GuildDb>> getVersionedGuild(final long discordId);
+
+    /**
+     * Gets the current database version of the given guilds.
+     *
+     * @param discordIds the discord guild ids
+     * @return the versions, guilds that don't exist are missing
+     */
+    Map<Long, Long> getVersions(final Collection<Long> discordIds);
 }
@@ -1,47 +1,89 @@
 package de.timmi6790.discord_framework.module.modules.guild.repository.postgres;
 
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
+import de.timmi6790.discord_framework.module.modules.database.cache.VersionedEntity;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
+import de.timmi6790.discord_framework.module.modules.database.replica.ReplicaRouter;
 import de.timmi6790.discord_framework.module.modules.guild.GuildDb;
 import de.timmi6790.discord_framework.module.modules.guild.repository.GuildDbRepository;
 import de.timmi6790.discord_framework.module.modules.guild.repository.postgres.mappers.GuildDbMapper;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jdbi.v3.core.Jdbi;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 public class GuildDbPostgresRepository implements GuildDbRepository {
-    private static final String GET_GUILD = "SELECT guild.discord_id, guild.banned " +
+    private static final String GET_GUILD = "SELECT guild.discord_id, guild.banned, guild.xmin::text::bigint version " +
             "FROM guild.guilds guild " +
             "WHERE guild.discord_id = :discordId " +
             "LIMIT 1;";
 
+    // The transaction id of the last row change, which changes on every update
+    private static final String GET_GUILD_VERSIONS = "SELECT guild.discord_id, guild.xmin::text::bigint version " +
+            "FROM guild.guilds guild " +
+            "WHERE guild.discord_id IN (<discordIds>);";
+
     private static final String CREATE_GUILD = "INSERT INTO guild.guilds(discord_id) VALUES (:discordId) RETURNING discord_id, banned;";
 
     private final Jdbi database;
+    private final ReplicaRouter replicaRouter;
+    private final GuildDbMapper guildDbMapper;
 
-    public GuildDbPostgresRepository(final Jdbi database, final ShardManager discord) {
-        this.database = database;
+    public GuildDbPostgresRepository(final DatabaseModule databaseModule,
+                                     final ShardManager discord,
+                                     final StatsCounter memberCacheStatsCounter) {
+        this.database = databaseModule.getJdbi();
+        this.replicaRouter = databaseModule.getReplicaRouter();
 
-        this.database
-                .registerRowMapper(new GuildDbMapper(discord));
+        this.guildDbMapper = new GuildDbMapper(discord, memberCacheStatsCounter);
+        databaseModule.registerRowMapper(this.guildDbMapper);
     }
 
     @Override
     public GuildDb createGuild(final long discordId) {
-        return this.database.withHandle(handle ->
+        final GuildDb guildDb = this.database.withHandle(handle ->
                 handle.createQuery(CREATE_GUILD)
                         .bind("discordId", discordId)
                         .mapTo(GuildDb.class)
                         .first()
         );
+        // The replica could still miss the new guild
+        this.replicaRouter.recordWrite(InvalidationTopic.GUILD, discordId);
+        return guildDb;
     }
 
     @Override
     public Optional<GuildDb> getGuild(final long discordId) {
-        return this.database.withHandle(handle ->
+        return this.getVersionedGuild(discordId).map(VersionedEntity::getEntity);
+    }
+
+    @Override
+    public Optional<VersionedEntity<GuildDb>> getVersionedGuild(final long discordId) {
+        return this.replicaRouter.withReadHandle(InvalidationTopic.GUILD, discordId, handle ->
                 handle.createQuery(GET_GUILD)
                         .bind("discordId", discordId)
-                        .mapTo(GuildDb.class)
+                        .map((rs, ctx) -> new VersionedEntity<>(this.guildDbMapper.map(rs, ctx), rs.getLong("version")))
                         .findFirst()
         );
     }
+
+    @Override
+    public Map<Long, Long> getVersions(final Collection<Long> discordIds) {
+        if (discordIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return this.database.withHandle(handle ->
+                handle.createQuery(GET_GUILD_VERSIONS)
+                        .bindList("discordIds", discordIds)
+                        .reduceRows(new HashMap<Long, Long>(), (versions, row) -> {
+                            versions.put(row.getColumn("discord_id", Long.class), row.getColumn("version", Long.class));
+                            return versions;
+                        })
+        );
+    }
 }
@@ -1,5 +1,6 @@
 package de.timmi6790.discord_framework.module.modules.guild.repository.postgres.mappers;
 
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
 import de.timmi6790.discord_framework.module.modules.guild.GuildDb;
 import lombok.AllArgsConstructor;
 import net.dv8tion.jda.api.sharding.ShardManager;
@@ -12,11 +13,13 @@ import java.sql.SQLException;
 @AllArgsConstructor
 public class GuildDbMapper implements RowMapper<GuildDb> {
     private final ShardManager discord;
+    private final StatsCounter memberCacheStatsCounter;
 
     @Override
     public GuildDb map(final ResultSet rs, final StatementContext ctx) throws SQLException {
         return new GuildDb(
                 this.discord,
+                this.memberCacheStatsCounter,
                 rs.getLong("discord_id"),
                 rs.getBoolean("banned")
         );
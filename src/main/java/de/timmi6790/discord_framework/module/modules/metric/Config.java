@@ -0,0 +1,42 @@
+package de.timmi6790.discord_framework.module.modules.metric;
+
+import lombok.Data;
+
+/**
+ * Metric module config.
+ */
+@Data
+public class Config {
+    /**
+     * The address the metrics endpoint binds to
+     */
+    private String bindAddress = "0.0.0.0";
+    /**
+     * The port of the metrics endpoint
+     */
+    private int port = 8001;
+    /**
+     * Time in milliseconds a scrape is reused for further requests, 0 or lower disables the cache
+     */
+    private long scrapeCacheMillis = 1_000;
+    /**
+     * Compress the response when the scraper accepts gzip
+     */
+    private boolean gzip = true;
+    /**
+     * Expose allocation, lock contention, gc pause and postgres socket read metrics from JDK Flight Recorder events
+     */
+    private boolean jfrMetrics = true;
+    /**
+     * The postgres port used to filter the socket read events
+     */
+    private int postgresPort = 5432;
+    /**
+     * Enable the /profiling endpoints to start and download JDK Flight Recorder recordings
+     */
+    private boolean profilingEndpoint = false;
+    /**
+     * Bearer token required for the profiling endpoints, the endpoints are not registered without a token
+     */
+    private String profilingToken = "";
+}
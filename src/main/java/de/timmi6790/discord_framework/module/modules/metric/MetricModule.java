@@ -1,6 +1,10 @@
 package de.timmi6790.discord_framework.module.modules.metric;
 
 import de.timmi6790.discord_framework.module.AbstractModule;
+import de.timmi6790.discord_framework.module.ShardRequirement;
+import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
+import de.timmi6790.discord_framework.module.modules.metric.profiling.JfrEventMetrics;
+import de.timmi6790.discord_framework.module.modules.metric.profiling.ProfilingHttpHandler;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -13,8 +17,9 @@ import io.micrometer.core.instrument.binder.system.UptimeMetrics;
 import io.micrometer.prometheus.PrometheusConfig;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.prometheus.client.CollectorRegistry;
+import io.undertow.Handlers;
 import io.undertow.Undertow;
-import io.undertow.util.Headers;
+import io.undertow.server.handlers.PathHandler;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
@@ -27,19 +32,42 @@ public class MetricModule extends AbstractModule {
     private PrometheusMeterRegistry meterRegistry;
 
     private Undertow metricsServer;
+    private JfrEventMetrics jfrEventMetrics;
+    private ProfilingHttpHandler profilingHttpHandler;
 
     public MetricModule() {
         super("Metric");
+
+        this.addDependenciesAndLoadAfter(
+                ConfigModule.class
+        );
+
+        // Nothing is started, modules waiting for shards shouldn't wait for this module
+        this.setShardRequirement(ShardRequirement.NONE);
     }
 
-    private void startMetricsServer() {
+    private void startMetricsServer(final Config config) {
+        final PathHandler pathHandler = Handlers.path(
+                new MetricsHttpHandler(
+                        new ScrapeCache(this.meterRegistry, config.getScrapeCacheMillis()),
+                        config.isGzip()
+                )
+        );
+        if (config.isProfilingEndpoint()) {
+            if (config.getProfilingToken().isEmpty()) {
+                log.error("The profiling endpoint is enabled without a profiling token, it is not registered");
+            } else {
+                this.profilingHttpHandler = new ProfilingHttpHandler(config.getProfilingToken());
+                pathHandler.addPrefixPath("/profiling", this.profilingHttpHandler);
+            }
+        }
+
         this.metricsServer = Undertow.builder()
-                .addHttpListener(8001, "0.0.0.0")
-                .setHandler(exchange -> {
-                    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
-                    exchange.getResponseSender().send(this.meterRegistry.scrape());
-                }).build();
+                .addHttpListener(config.getPort(), config.getBindAddress())
+                .setHandler(pathHandler)
+                .build();
         this.metricsServer.start();
+        log.info("Started metrics endpoint on {}:{}", config.getBindAddress(), config.getPort());
     }
 
     private void registerMetrics(final MeterRegistry registry) {
@@ -80,21 +108,39 @@ public class MetricModule extends AbstractModule {
 
     @Override
     public boolean onInitialize() {
+        final Config config = this.getModuleOrThrow(ConfigModule.class)
+                .registerAndGetConfig(this, new Config());
+
         this.meterRegistry = new PrometheusMeterRegistry(
                 PrometheusConfig.DEFAULT,
                 CollectorRegistry.defaultRegistry,
                 Clock.SYSTEM
         );
 
-        this.startMetricsServer();
+        this.startMetricsServer(config);
         this.registerMetrics(this.meterRegistry);
 
+        if (config.isJfrMetrics()) {
+            try {
+                this.jfrEventMetrics = new JfrEventMetrics(this.meterRegistry, config.getPostgresPort());
+                this.jfrEventMetrics.start();
+            } catch (final RuntimeException e) {
+                log.warn("Can't start the JFR event metrics", e);
+            }
+        }
+
         return true;
     }
 
     @Override
     public boolean onDisable() {
         this.metricsServer.stop();
+        if (this.jfrEventMetrics != null) {
+            this.jfrEventMetrics.close();
+        }
+        if (this.profilingHttpHandler != null) {
+            this.profilingHttpHandler.close();
+        }
         return true;
     }
 }
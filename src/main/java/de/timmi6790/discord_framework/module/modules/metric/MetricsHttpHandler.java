@@ -0,0 +1,93 @@
+package de.timmi6790.discord_framework.module.modules.metric;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import lombok.RequiredArgsConstructor;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Serves the metrics on a worker thread, with gzip and OpenMetrics content negotiation.
+ */
+@RequiredArgsConstructor
+class MetricsHttpHandler implements HttpHandler {
+    private final ScrapeCache scrapeCache;
+    private final boolean gzipEnabled;
+
+    /**
+     * Checks if the client accepts gzip. Codings with a quality of 0 are refused, an explicit gzip entry has priority
+     * over the wildcard.
+     *
+     * @param acceptEncoding the accept encoding header or null
+     * @return true if gzip is accepted
+     */
+    static boolean acceptsGzip(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        boolean wildcardAccepted = false;
+        for (final String coding : acceptEncoding.split(",")) {
+            final String[] parameters = coding.split(";");
+            final String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            if ("gzip".equals(name) || "x-gzip".equals(name)) {
+                return getQuality(parameters) > 0;
+            }
+            if ("*".equals(name)) {
+                wildcardAccepted = getQuality(parameters) > 0;
+            }
+        }
+        return wildcardAccepted;
+    }
+
+    private static double getQuality(final String[] parameters) {
+        for (int index = 1; parameters.length > index; index++) {
+            final String parameter = parameters[index].trim();
+            if (parameter.length() > 2
+                    && Character.toLowerCase(parameter.charAt(0)) == 'q'
+                    && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (final NumberFormatException e) {
+                    // Invalid qualities are treated as refused
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        // Serializing the registry is too expensive for the io thread
+        if (exchange.isInIoThread()) {
+            exchange.dispatch(this);
+            return;
+        }
+
+        final ScrapeCache.ScrapeFormat format = ScrapeCache.ScrapeFormat.fromAcceptHeader(
+                exchange.getRequestHeaders().getFirst(Headers.ACCEPT)
+        );
+        final boolean gzip = this.gzipEnabled
+                && acceptsGzip(exchange.getRequestHeaders().getFirst(Headers.ACCEPT_ENCODING));
+
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, format.getContentType());
+        if (gzip) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, "gzip");
+        }
+
+        if (this.scrapeCache.isCacheEnabled()) {
+            final byte[] scrape = this.scrapeCache.getScrape(format, gzip);
+            exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, scrape.length);
+            exchange.getResponseSender().send(ByteBuffer.wrap(scrape));
+        } else {
+            exchange.startBlocking();
+            try (final OutputStream outputStream = exchange.getOutputStream()) {
+                this.scrapeCache.writeScrape(format, gzip, outputStream);
+            }
+        }
+    }
+}
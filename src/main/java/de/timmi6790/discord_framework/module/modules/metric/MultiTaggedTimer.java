@@ -1,67 +1,193 @@
 package de.timmi6790.discord_framework.module.modules.metric;
 
-import com.google.common.util.concurrent.Striped;
 import io.micrometer.core.instrument.ImmutableTag;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
 
-import java.util.*;
-import java.util.concurrent.locks.Lock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Timer with a fixed set of tag names, that registers one timer per distinct tag value combination.
+ * <p>
+ * The timers are stored in a tree of concurrent maps, one level per tag. A lookup of an already registered timer
+ * only walks this tree and neither locks nor allocates. The amount of registered timers is limited, all tag value
+ * combinations above this limit are recorded into a single overflow timer.
+ */
+@Log4j2
 public class MultiTaggedTimer {
+    public static final int DEFAULT_MAX_CARDINALITY = 1_000;
+    public static final String OVERFLOW_TAG_VALUE = "overflow";
+
     private final String name;
     private final String description;
     private final String[] tagNames;
     private final MeterRegistry registry;
+    private final int maxCardinality;
+
+    /**
+     * Each level maps the tag value of its tag name to the next level, the last level maps to the timer.
+     */
+    private final ConcurrentMap<String, Object> timers = new ConcurrentHashMap<>();
+    private final AtomicInteger cardinality = new AtomicInteger();
+    private volatile Timer overflowTimer;
+    private volatile boolean percentileHistogram;
 
-    private final Striped<Lock> locks = Striped.lock(16);
-    private final Map<String, Timer> timers = new HashMap<>();
+    public MultiTaggedTimer(final String name,
+                            final String description,
+                            final MeterRegistry registry,
+                            final String... tags) {
+        this(name, description, registry, DEFAULT_MAX_CARDINALITY, tags);
+    }
 
     public MultiTaggedTimer(final String name,
                             final String description,
                             final MeterRegistry registry,
+                            final int maxCardinality,
                             final String... tags) {
+        if (tags.length == 0) {
+            throw new IllegalArgumentException("At least one tag name is required, use a normal timer instead");
+        }
+        if (maxCardinality < 1) {
+            throw new IllegalArgumentException("The max cardinality must be at least 1, provided is " + maxCardinality);
+        }
+
         this.name = name;
         this.description = description;
         this.tagNames = tags.clone();
         this.registry = registry;
+        this.maxCardinality = maxCardinality;
+    }
+
+    /**
+     * Publish a percentile histogram for all timers registered after this call.
+     *
+     * @return this timer
+     */
+    public MultiTaggedTimer publishPercentileHistogram() {
+        this.percentileHistogram = true;
+        return this;
+    }
+
+    /**
+     * Gets the amount of registered timers, excluding the overflow timer.
+     *
+     * @return the registered timer count
+     */
+    public int getCardinality() {
+        return this.cardinality.get();
     }
 
     public Timer get(final String... tagValues) {
-        final String values = Arrays.toString(tagValues);
-
-        final Lock lock = this.locks.get(values);
-        lock.lock();
-        try {
-            if (tagValues.length != this.tagNames.length) {
-                throw new IllegalArgumentException(
-                        "Expected args are " + Arrays.toString(this.tagNames) + ", provided tags are " + values
-                );
+        if (tagValues.length != this.tagNames.length) {
+            throw new IllegalArgumentException(
+                    "Expected args are " + Arrays.toString(this.tagNames) + ", provided tags are " + Arrays.toString(tagValues)
+            );
+        }
+
+        // Fast path, the timer is already registered
+        Object node = this.timers;
+        for (int index = 0; tagValues.length > index && node != null; index++) {
+            node = this.getChild(node, tagValues[index]);
+        }
+        if (node != null) {
+            return (Timer) node;
+        }
+
+        return this.getOrCreate(tagValues);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object getChild(final Object node, final String tagValue) {
+        if (tagValue == null) {
+            throw new IllegalArgumentException("Tag values can't be null");
+        }
+        return ((ConcurrentMap<String, Object>) node).get(tagValue);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Timer getOrCreate(final String[] tagValues) {
+        for (final String tagValue : tagValues) {
+            if (tagValue == null) {
+                throw new IllegalArgumentException("Tag values can't be null");
             }
+        }
 
-            Timer timer = this.timers.get(values);
-            if (timer == null) {
-                final List<Tag> tags = new ArrayList<>(this.tagNames.length);
-                for (int index = 0; this.tagNames.length > index; index++) {
-                    tags.add(
-                            new ImmutableTag(
-                                    this.tagNames[index],
-                                    tagValues[index]
-                            )
-                    );
+        ConcurrentMap<String, Object> level = this.timers;
+        final int lastLevel = tagValues.length - 1;
+        for (int index = 0; lastLevel > index; index++) {
+            Object next = level.get(tagValues[index]);
+            if (next == null) {
+                // Don't grow the tree when we can't register new timers anyway
+                if (this.cardinality.get() >= this.maxCardinality) {
+                    return this.getOverflowTimer();
                 }
+                next = level.computeIfAbsent(tagValues[index], k -> new ConcurrentHashMap<String, Object>());
+            }
+            level = (ConcurrentMap<String, Object>) next;
+        }
+
+        final Object timer = level.computeIfAbsent(
+                tagValues[lastLevel],
+                k -> this.tryReserveCardinality() ? this.registerTimer(tagValues) : null
+        );
+        return timer == null ? this.getOverflowTimer() : (Timer) timer;
+    }
 
-                timer = Timer
-                        .builder(this.name)
-                        .description(this.description)
-                        .tags(tags)
-                        .register(this.registry);
-                this.timers.put(values, timer);
+    private boolean tryReserveCardinality() {
+        int current;
+        do {
+            current = this.cardinality.get();
+            if (current >= this.maxCardinality) {
+                return false;
             }
-            return timer;
-        } finally {
-            lock.unlock();
+        } while (!this.cardinality.compareAndSet(current, current + 1));
+
+        if (current + 1 == this.maxCardinality) {
+            log.warn(
+                    "The {} timer reached its max cardinality of {}, new tag combinations are recorded as {}",
+                    this.name,
+                    this.maxCardinality,
+                    OVERFLOW_TAG_VALUE
+            );
+        }
+        return true;
+    }
+
+    private Timer getOverflowTimer() {
+        Timer timer = this.overflowTimer;
+        if (timer == null) {
+            final String[] tagValues = new String[this.tagNames.length];
+            Arrays.fill(tagValues, OVERFLOW_TAG_VALUE);
+            // Registering the same timer twice returns the already registered timer
+            timer = this.registerTimer(tagValues);
+            this.overflowTimer = timer;
         }
+        return timer;
+    }
+
+    private Timer registerTimer(final String[] tagValues) {
+        final List<Tag> tags = new ArrayList<>(this.tagNames.length);
+        for (int index = 0; this.tagNames.length > index; index++) {
+            tags.add(
+                    new ImmutableTag(
+                            this.tagNames[index],
+                            tagValues[index]
+                    )
+            );
+        }
+
+        return Timer
+                .builder(this.name)
+                .description(this.description)
+                .tags(tags)
+                .publishPercentileHistogram(this.percentileHistogram)
+                .register(this.registry);
     }
 }
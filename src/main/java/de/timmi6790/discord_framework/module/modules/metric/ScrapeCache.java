@@ -0,0 +1,119 @@
+package de.timmi6790.discord_framework.module.modules.metric;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import lombok.Data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializes the registry in the requested format and reuses the result for a short time window. Concurrent scrapes
+ * inside the same window wait for the first one instead of serializing the registry again. The gzip result is only
+ * compressed when a scrape inside the window requests it.
+ */
+class ScrapeCache {
+    private final PrometheusMeterRegistry meterRegistry;
+    private final long cacheNanos;
+
+    private final CachedScrape[] cachedScrapes = new CachedScrape[ScrapeFormat.values().length];
+
+    ScrapeCache(final PrometheusMeterRegistry meterRegistry, final long cacheMillis) {
+        this.meterRegistry = meterRegistry;
+        this.cacheNanos = cacheMillis > 0 ? cacheMillis * 1_000_000L : 0;
+    }
+
+    boolean isCacheEnabled() {
+        return this.cacheNanos > 0;
+    }
+
+    /**
+     * Writes the registry directly into the output stream, without any intermediate copies.
+     *
+     * @param format       the scrape format
+     * @param gzip         compress the output
+     * @param outputStream the output stream
+     * @throws IOException on write failures
+     */
+    void writeScrape(final ScrapeFormat format, final boolean gzip, final OutputStream outputStream) throws IOException {
+        final OutputStream targetStream = gzip ? new GZIPOutputStream(outputStream) : outputStream;
+        try (final Writer writer = new OutputStreamWriter(targetStream, StandardCharsets.UTF_8)) {
+            this.meterRegistry.scrape(writer, format.getContentType());
+        }
+    }
+
+    /**
+     * Gets the serialized registry in the requested format. The result is shared, it must not be modified.
+     *
+     * @param format the scrape format
+     * @param gzip   get the gzip compressed result
+     * @return the serialized registry
+     * @throws IOException on serialization failures
+     */
+    synchronized byte[] getScrape(final ScrapeFormat format, final boolean gzip) throws IOException {
+        final CachedScrape cachedScrape = this.getCachedScrape(format);
+        if (!gzip) {
+            return cachedScrape.getPlain();
+        }
+
+        if (cachedScrape.getGzip() == null) {
+            final byte[] plain = cachedScrape.getPlain();
+            final ByteArrayOutputStream gzipStream = new ByteArrayOutputStream(plain.length / 4 + 64);
+            try (final GZIPOutputStream outputStream = new GZIPOutputStream(gzipStream)) {
+                outputStream.write(plain);
+            }
+            cachedScrape.setGzip(gzipStream.toByteArray());
+        }
+        return cachedScrape.getGzip();
+    }
+
+    private CachedScrape getCachedScrape(final ScrapeFormat format) throws IOException {
+        final long now = System.nanoTime();
+        CachedScrape cachedScrape = this.cachedScrapes[format.ordinal()];
+        if (cachedScrape == null || now - cachedScrape.getCreatedNanos() >= this.cacheNanos) {
+            final ByteArrayOutputStream plainStream = new ByteArrayOutputStream();
+            this.writeScrape(format, false, plainStream);
+
+            cachedScrape = new CachedScrape(now, plainStream.toByteArray());
+            this.cachedScrapes[format.ordinal()] = cachedScrape;
+        }
+        return cachedScrape;
+    }
+
+    enum ScrapeFormat {
+        PROMETHEUS(TextFormat.CONTENT_TYPE_004),
+        OPEN_METRICS(TextFormat.CONTENT_TYPE_OPENMETRICS_100);
+
+        private final String contentType;
+
+        ScrapeFormat(final String contentType) {
+            this.contentType = contentType;
+        }
+
+        static ScrapeFormat fromAcceptHeader(final String acceptHeader) {
+            if (acceptHeader != null && acceptHeader.contains("application/openmetrics-text")) {
+                return OPEN_METRICS;
+            }
+            return PROMETHEUS;
+        }
+
+        String getContentType() {
+            return this.contentType;
+        }
+    }
+
+    @Data
+    private static class CachedScrape {
+        private final long createdNanos;
+        private final byte[] plain;
+        /**
+         * Compressed on the first gzip request, guarded by the scrape cache
+         */
+        private byte[] gzip;
+    }
+}
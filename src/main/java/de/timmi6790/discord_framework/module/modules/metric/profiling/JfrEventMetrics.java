@@ -0,0 +1,140 @@
+package de.timmi6790.discord_framework.module.modules.metric.profiling;
+
+import de.timmi6790.discord_framework.module.modules.metric.MultiTaggedTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.log4j.Log4j2;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Continuously streams a small set of JDK Flight Recorder events and exposes them as metrics. Only events above
+ * low thresholds and throttled allocation samples are enabled, to keep the overhead negligible.
+ */
+@Log4j2
+public class JfrEventMetrics implements AutoCloseable {
+    private static final Duration LOCK_THRESHOLD = Duration.ofMillis(10);
+    private static final Duration SOCKET_READ_THRESHOLD = Duration.ofMillis(1);
+    private static final int MAX_LOCK_CLASSES = 100;
+    /**
+     * Synchronizers of the explicit locks, the other parks are idle pool threads waiting on their queue conditions
+     */
+    private static final Set<String> LOCK_SYNC_CLASSES = Set.of(
+            "java.util.concurrent.locks.ReentrantLock$NonfairSync",
+            "java.util.concurrent.locks.ReentrantLock$FairSync",
+            "java.util.concurrent.locks.ReentrantReadWriteLock$NonfairSync",
+            "java.util.concurrent.locks.ReentrantReadWriteLock$FairSync"
+    );
+    private static final String UNKNOWN = "unknown";
+
+    private final Counter allocationCounter;
+    private final MultiTaggedTimer lockContentionTimer;
+    private final MultiTaggedTimer gcPauseTimer;
+    private final Timer postgresSocketReadTimer;
+    private final int postgresPort;
+
+    private RecordingStream recordingStream;
+
+    public JfrEventMetrics(final MeterRegistry registry, final int postgresPort) {
+        this.postgresPort = postgresPort;
+
+        this.allocationCounter = Counter.builder("jfr.allocation")
+                .description("Sampled bytes allocated on the heap")
+                .baseUnit("bytes")
+                .register(registry);
+        this.lockContentionTimer = new MultiTaggedTimer(
+                "jfr.lock.contention",
+                "Time threads were blocked on monitors or reentrant locks, above " + LOCK_THRESHOLD.toMillis() + "ms",
+                registry,
+                MAX_LOCK_CLASSES,
+                "kind",
+                "class"
+        );
+        this.gcPauseTimer = new MultiTaggedTimer(
+                "jfr.gc.pause",
+                "Garbage collection pause times",
+                registry,
+                "gc"
+        );
+        this.postgresSocketReadTimer = Timer.builder("jfr.postgres.socket.read")
+                .description("Socket read time from postgres, above " + SOCKET_READ_THRESHOLD.toMillis() + "ms")
+                .tag("port", String.valueOf(postgresPort))
+                .register(registry);
+    }
+
+    private static String getClassName(final RecordedEvent event, final String field) {
+        if (!event.hasField(field)) {
+            return UNKNOWN;
+        }
+
+        final RecordedClass recordedClass = event.getClass(field);
+        if (recordedClass == null) {
+            return UNKNOWN;
+        }
+
+        // Strip the package to keep the tag values short
+        final String name = recordedClass.getName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Checks if the park event waited on a reentrant lock, which includes the striped locks.
+     *
+     * @param event the park event
+     * @return true if the parked class is a lock synchronizer
+     */
+    private static boolean isLockPark(final RecordedEvent event) {
+        final RecordedClass parkedClass = event.getClass("parkedClass");
+        return parkedClass != null && LOCK_SYNC_CLASSES.contains(parkedClass.getName());
+    }
+
+    public synchronized void start() {
+        if (this.recordingStream != null) {
+            return;
+        }
+
+        final RecordingStream stream = new RecordingStream();
+        stream.enable("jdk.ObjectAllocationSample").with("throttle", "150/s");
+        stream.enable("jdk.GarbageCollection");
+        stream.enable("jdk.JavaMonitorEnter").withThreshold(LOCK_THRESHOLD).withoutStackTrace();
+        stream.enable("jdk.ThreadPark").withThreshold(LOCK_THRESHOLD).withoutStackTrace();
+        stream.enable("jdk.SocketRead").withThreshold(SOCKET_READ_THRESHOLD).withoutStackTrace();
+
+        stream.onEvent("jdk.ObjectAllocationSample", event ->
+                this.allocationCounter.increment(event.getLong("weight"))
+        );
+        stream.onEvent("jdk.GarbageCollection", event ->
+                this.gcPauseTimer.get(event.getString("name")).record(event.getDuration("sumOfPauses"))
+        );
+        stream.onEvent("jdk.JavaMonitorEnter", event ->
+                this.lockContentionTimer.get("monitor", getClassName(event, "monitorClass")).record(event.getDuration())
+        );
+        stream.onEvent("jdk.ThreadPark", event -> {
+            if (isLockPark(event)) {
+                this.lockContentionTimer.get("park", getClassName(event, "parkedClass")).record(event.getDuration());
+            }
+        });
+        stream.onEvent("jdk.SocketRead", event -> {
+            if (event.getInt("port") == this.postgresPort) {
+                this.postgresSocketReadTimer.record(event.getDuration());
+            }
+        });
+
+        stream.startAsync();
+        this.recordingStream = stream;
+        log.info("Started JFR event metrics");
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.recordingStream != null) {
+            this.recordingStream.close();
+            this.recordingStream = null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package de.timmi6790.discord_framework.module.modules.metric.profiling;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * Starts and stops JDK Flight Recorder recordings over http.
+ * <ul>
+ *     <li>POST /start?settings=default&duration=300 starts a new recording</li>
+ *     <li>POST /stop stops the recording and streams the .jfr file back</li>
+ *     <li>GET /status returns the recording state</li>
+ * </ul>
+ * Only the predefined JDK settings are allowed, default has roughly 1% overhead and profile roughly 2%.
+ */
+@Log4j2
+public class ProfilingHttpHandler implements HttpHandler {
+    private static final Set<String> ALLOWED_SETTINGS = Set.of("default", "profile");
+    private static final String DEFAULT_SETTINGS = "default";
+    private static final Duration DEFAULT_DURATION = Duration.ofMinutes(5);
+    private static final Duration MAX_DURATION = Duration.ofHours(1);
+
+    private final byte[] token;
+
+    private Recording recording;
+
+    /**
+     * Instantiates a new profiling http handler.
+     *
+     * @param token the required bearer token, must not be empty
+     */
+    public ProfilingHttpHandler(final String token) {
+        if (token.isEmpty()) {
+            throw new IllegalArgumentException("The profiling token must not be empty");
+        }
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String getQueryParameter(final HttpServerExchange exchange, final String name, final String defaultValue) {
+        final Deque<String> values = exchange.getQueryParameters().get(name);
+        return values == null || values.isEmpty() ? defaultValue : values.getFirst();
+    }
+
+    private static void sendText(final HttpServerExchange exchange, final int statusCode, final String text) {
+        exchange.setStatusCode(statusCode);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain; charset=utf-8");
+        exchange.getResponseSender().send(text + "\n");
+    }
+
+    private boolean isAuthorized(final HttpServerExchange exchange) {
+        final String authorization = exchange.getRequestHeaders().getFirst(Headers.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        // Constant time comparison
+        return MessageDigest.isEqual(
+                this.token,
+                authorization.substring("Bearer ".length()).getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        if (exchange.isInIoThread()) {
+            exchange.dispatch(this);
+            return;
+        }
+
+        if (!this.isAuthorized(exchange)) {
+            sendText(exchange, StatusCodes.UNAUTHORIZED, "Unauthorized");
+            return;
+        }
+
+        final String path = exchange.getRelativePath();
+        final boolean post = Methods.POST.equals(exchange.getRequestMethod());
+        if ("/start".equals(path) && post) {
+            this.startRecording(exchange);
+        } else if ("/stop".equals(path) && post) {
+            this.stopRecording(exchange);
+        } else if ("/status".equals(path)) {
+            this.sendStatus(exchange);
+        } else {
+            sendText(exchange, StatusCodes.NOT_FOUND, "Valid endpoints are POST /start, POST /stop and GET /status");
+        }
+    }
+
+    private synchronized void startRecording(final HttpServerExchange exchange) throws IOException, ParseException {
+        if (this.recording != null && this.recording.getState() == RecordingState.RUNNING) {
+            sendText(exchange, StatusCodes.CONFLICT, "A recording is already running");
+            return;
+        }
+
+        final String settings = getQueryParameter(exchange, "settings", DEFAULT_SETTINGS);
+        if (!ALLOWED_SETTINGS.contains(settings)) {
+            sendText(exchange, StatusCodes.BAD_REQUEST, "Allowed settings are " + ALLOWED_SETTINGS);
+            return;
+        }
+
+        Duration duration;
+        try {
+            duration = Duration.ofSeconds(Long.parseLong(getQueryParameter(exchange, "duration", String.valueOf(DEFAULT_DURATION.toSeconds()))));
+        } catch (final NumberFormatException e) {
+            sendText(exchange, StatusCodes.BAD_REQUEST, "The duration must be the amount of seconds");
+            return;
+        }
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(MAX_DURATION) > 0) {
+            duration = MAX_DURATION;
+        }
+
+        this.closeRecording();
+        final Recording newRecording = new Recording(Configuration.getConfiguration(settings));
+        newRecording.setName("discord-framework-profiling");
+        newRecording.setToDisk(true);
+        // Auto stop, in case nobody stops it
+        newRecording.setDuration(duration);
+        newRecording.start();
+        this.recording = newRecording;
+
+        log.info("Started JFR recording with {} settings for {}", settings, duration);
+        sendText(exchange, StatusCodes.OK, "Started recording with " + settings + " settings for " + duration.toSeconds() + " seconds");
+    }
+
+    private synchronized void stopRecording(final HttpServerExchange exchange) throws IOException {
+        if (this.recording == null) {
+            sendText(exchange, StatusCodes.NOT_FOUND, "There is no recording");
+            return;
+        }
+
+        if (this.recording.getState() == RecordingState.RUNNING) {
+            this.recording.stop();
+        }
+
+        final Path file = Files.createTempFile("profiling-", ".jfr");
+        try {
+            this.recording.dump(file);
+            this.closeRecording();
+
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/octet-stream");
+            exchange.getResponseHeaders().put(Headers.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"");
+            exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, Files.size(file));
+            exchange.startBlocking();
+            try (final OutputStream outputStream = exchange.getOutputStream()) {
+                Files.copy(file, outputStream);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        log.info("Stopped JFR recording");
+    }
+
+    private synchronized void sendStatus(final HttpServerExchange exchange) {
+        final RecordingState state = this.recording == null ? RecordingState.CLOSED : this.recording.getState();
+        sendText(exchange, StatusCodes.OK, state.name());
+    }
+
+    private void closeRecording() {
+        if (this.recording != null) {
+            this.recording.close();
+            this.recording = null;
+        }
+    }
+
+    /**
+     * Closes the current recording without dumping it.
+     */
+    public synchronized void close() {
+        this.closeRecording();
+    }
+}
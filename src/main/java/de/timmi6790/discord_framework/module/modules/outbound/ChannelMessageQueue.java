@@ -0,0 +1,114 @@
+package de.timmi6790.discord_framework.module.modules.outbound;
+
+import de.timmi6790.discord_framework.module.modules.outbound.models.OutboundMessage;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pending embeds of a single channel. This class is not thread safe, all access is guarded by the channel queue map of
+ * the {@link OutboundMessageModule}.
+ */
+class ChannelMessageQueue {
+    /**
+     * Discord allows at most 10 embeds per message
+     */
+    protected static final int MAX_EMBEDS_PER_MESSAGE = 10;
+    /**
+     * The combined length of all embeds inside one message
+     */
+    protected static final int MAX_TOTAL_LENGTH = MessageEmbed.EMBED_MAX_LENGTH_BOT;
+
+    private final Map<MessagePriority, Deque<PendingEmbed>> pendingEmbeds = new EnumMap<>(MessagePriority.class);
+
+    @Getter
+    private int size;
+    /**
+     * Is a flush scheduled or a request in flight for this channel
+     */
+    @Getter
+    @Setter
+    private boolean flushing;
+
+    public void add(final OutboundMessage message) {
+        final Deque<PendingEmbed> queue = this.pendingEmbeds.computeIfAbsent(
+                message.getPriority(),
+                key -> new ArrayDeque<>()
+        );
+        for (final MessageEmbed embed : message.getEmbeds()) {
+            queue.add(new PendingEmbed(message, embed));
+        }
+        this.size += message.getEmbeds().size();
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    private static boolean canShareMessage(final OutboundMessage batchMessage, final OutboundMessage message) {
+        if (batchMessage == message) {
+            return true;
+        }
+        return !batchMessage.isExclusive() && !message.isExclusive();
+    }
+
+    /**
+     * Removes the next embeds that fit into a single discord message. Higher priorities are always polled first and
+     * the order inside a priority is kept. Embeds of an {@link OutboundMessage#isExclusive() exclusive} message are
+     * never combined with embeds of other messages.
+     *
+     * @return the embeds of the next message, empty if nothing is pending
+     */
+    public List<PendingEmbed> pollBatch() {
+        final List<PendingEmbed> batch = new ArrayList<>(Math.min(this.size, MAX_EMBEDS_PER_MESSAGE));
+        int totalLength = 0;
+        for (final MessagePriority priority : MessagePriority.values()) {
+            final Deque<PendingEmbed> queue = this.pendingEmbeds.get(priority);
+            if (queue == null) {
+                continue;
+            }
+
+            while (!queue.isEmpty()) {
+                if (batch.size() >= MAX_EMBEDS_PER_MESSAGE) {
+                    return this.removeFromSize(batch);
+                }
+
+                final PendingEmbed next = queue.peek();
+                // Exclusive messages are never combined with other messages
+                if (!batch.isEmpty() && !canShareMessage(batch.get(0).getMessage(), next.getMessage())) {
+                    return this.removeFromSize(batch);
+                }
+
+                final int embedLength = next.getEmbed().getLength();
+                // Always allow at least one embed to prevent a stuck queue
+                if (!batch.isEmpty() && totalLength + embedLength > MAX_TOTAL_LENGTH) {
+                    return this.removeFromSize(batch);
+                }
+
+                batch.add(queue.poll());
+                totalLength += embedLength;
+            }
+        }
+
+        return this.removeFromSize(batch);
+    }
+
+    private List<PendingEmbed> removeFromSize(final List<PendingEmbed> batch) {
+        this.size -= batch.size();
+        return batch;
+    }
+
+    @Data
+    public static class PendingEmbed {
+        private final OutboundMessage message;
+        private final MessageEmbed embed;
+    }
+}
@@ -0,0 +1,18 @@
+package de.timmi6790.discord_framework.module.modules.outbound;
+
+import lombok.Data;
+
+/**
+ * Outbound message module config.
+ */
+@Data
+public class Config {
+    /**
+     * Time in milliseconds we wait for further messages into the same channel, before we send them together
+     */
+    private long coalesceDelayMillis = 25;
+    /**
+     * Requests taking longer than this are counted as rate limited
+     */
+    private long rateLimitThresholdMillis = 1_000;
+}
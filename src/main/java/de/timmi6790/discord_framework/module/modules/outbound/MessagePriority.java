@@ -0,0 +1,15 @@
+package de.timmi6790.discord_framework.module.modules.outbound;
+
+/**
+ * Priority of an outbound message. Messages with a lower ordinal are always send first inside the same channel.
+ */
+public enum MessagePriority {
+    /**
+     * Direct replies to a user command
+     */
+    COMMAND_REPLY,
+    /**
+     * Background notifications, like achievement unlocks
+     */
+    NOTIFICATION
+}
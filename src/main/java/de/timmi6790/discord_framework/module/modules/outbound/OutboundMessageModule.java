@@ -0,0 +1,304 @@
+package de.timmi6790.discord_framework.module.modules.outbound;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.timmi6790.discord_framework.module.AbstractModule;
+import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
+import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
+import de.timmi6790.discord_framework.module.modules.outbound.models.OutboundMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import net.dv8tion.jda.api.entities.ChannelType;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.exceptions.RateLimitedException;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Outbound message pipeline. All embeds send to the same channel in a short time window are packed together into as
+ * few discord messages as possible, while respecting the discord limit of 10 embeds and 6000 characters per message.
+ * There is always at most one request in flight per channel, everything queued while waiting on discord is coalesced
+ * into the next request. Messages with a success consumer are never combined with other messages, see
+ * {@link OutboundMessage#isExclusive()}.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Log4j2
+public class OutboundMessageModule extends AbstractModule {
+    /**
+     * All messages are send over the create message route, the major parameter is the channel id
+     */
+    private static final String ROUTE = "channels/{channel_id}/messages";
+    /**
+     * Max time we wait for the pending messages on disable
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final Map<Long, ChannelMessageQueue> channelQueues = new ConcurrentHashMap<>();
+    private final Map<ChannelType, ChannelTypeMeters> channelTypeMeters = new ConcurrentHashMap<>();
+    private final Map<MessagePriority, Counter> embedCounters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("outbound-message-%d")
+                    .setDaemon(true)
+                    .build()
+    );
+
+    @Getter
+    private Config config = new Config();
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    public OutboundMessageModule() {
+        super("OutboundMessage");
+
+        this.addDependenciesAndLoadAfter(
+                ConfigModule.class
+        );
+
+        this.addLoadAfterDependencies(
+                MetricModule.class
+        );
+    }
+
+    @Override
+    public boolean onInitialize() {
+        this.config = this.getModuleOrThrow(ConfigModule.class)
+                .registerAndGetConfig(this, new Config());
+
+        this.getModule(MetricModule.class).ifPresent(metric ->
+                this.meterRegistry = metric.getMeterRegistry()
+        );
+
+        return true;
+    }
+
+    @Override
+    public boolean onDisable() {
+        // Flushes waiting for the coalesce delay still run after the shutdown
+        this.flushExecutor.shutdown();
+        try {
+            if (!this.flushExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("The outbound message flush is still running after {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Send everything that is still queued without waiting for the previous request of the channel
+        final List<CompletableFuture<Message>> requests = new ArrayList<>();
+        for (final long channelId : new ArrayList<>(this.channelQueues.keySet())) {
+            List<ChannelMessageQueue.PendingEmbed> batch;
+            while (!(batch = this.pollBatch(channelId)).isEmpty()) {
+                requests.add(this.send(channelId, batch));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(requests.toArray(new CompletableFuture[0]))
+                    .get(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            // Already logged per request
+        } catch (final TimeoutException e) {
+            log.warn("Failed to send all pending messages in {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+        }
+        return true;
+    }
+
+    private static String getChannelTypeTag(final ChannelType channelType) {
+        return channelType.name().toLowerCase();
+    }
+
+    private ChannelTypeMeters getChannelTypeMeters(final ChannelType channelType) {
+        return this.channelTypeMeters.computeIfAbsent(
+                channelType,
+                type -> new ChannelTypeMeters(getChannelTypeTag(type), this.meterRegistry)
+        );
+    }
+
+    private Counter getEmbedCounter(final MessagePriority priority) {
+        return this.embedCounters.computeIfAbsent(
+                priority,
+                key -> Counter.builder("discord.outbound.embeds")
+                        .tags("priority", key.name().toLowerCase())
+                        .description("embeds queued to be send")
+                        .register(this.meterRegistry)
+        );
+    }
+
+    /**
+     * Queues the embeds to be send into the channel.
+     *
+     * @param channel  the channel
+     * @param embeds   the embeds
+     * @param priority the priority
+     * @param success  consumed for every discord message containing embeds of this message
+     * @return future completed with all discord messages containing embeds of this message
+     */
+    public CompletableFuture<List<Message>> sendMessage(final MessageChannel channel,
+                                                        final Collection<MessageEmbed> embeds,
+                                                        final MessagePriority priority,
+                                                        @Nullable final Consumer<Message> success) {
+        final OutboundMessage message = new OutboundMessage(channel, priority, new ArrayList<>(embeds), success);
+        if (embeds.isEmpty()) {
+            message.getFuture().complete(Collections.emptyList());
+            return message.getFuture();
+        }
+
+        this.getChannelTypeMeters(channel.getType()).getQueueDepth().addAndGet(embeds.size());
+        this.getEmbedCounter(priority).increment(embeds.size());
+
+        final long channelId = channel.getIdLong();
+        final AtomicBoolean scheduleFlush = new AtomicBoolean();
+        this.channelQueues.compute(channelId, (id, queue) -> {
+            final ChannelMessageQueue channelQueue = queue == null ? new ChannelMessageQueue() : queue;
+            channelQueue.add(message);
+
+            if (!channelQueue.isFlushing()) {
+                channelQueue.setFlushing(true);
+                scheduleFlush.set(true);
+            }
+            return channelQueue;
+        });
+
+        if (scheduleFlush.get()) {
+            try {
+                this.flushExecutor.schedule(
+                        () -> this.flush(channelId),
+                        this.config.getCoalesceDelayMillis(),
+                        TimeUnit.MILLISECONDS
+                );
+            } catch (final RejectedExecutionException e) {
+                // Disabled, send it without waiting for further messages
+                this.flush(channelId);
+            }
+        }
+
+        return message.getFuture();
+    }
+
+    private List<ChannelMessageQueue.PendingEmbed> pollBatch(final long channelId) {
+        final List<ChannelMessageQueue.PendingEmbed> batch = new ArrayList<>();
+        this.channelQueues.computeIfPresent(channelId, (id, queue) -> {
+            batch.addAll(queue.pollBatch());
+            // Remove idle queues, the next message will create a new one
+            return batch.isEmpty() ? null : queue;
+        });
+        return batch;
+    }
+
+    private void flush(final long channelId) {
+        final List<ChannelMessageQueue.PendingEmbed> batch = this.pollBatch(channelId);
+        if (!batch.isEmpty()) {
+            this.send(channelId, batch);
+        }
+    }
+
+    private void scheduleFlush(final long channelId) {
+        try {
+            this.flushExecutor.execute(() -> this.flush(channelId));
+        } catch (final RejectedExecutionException e) {
+            // Disabled, send the remaining messages directly
+            this.flush(channelId);
+        }
+    }
+
+    private CompletableFuture<Message> send(final long channelId, final List<ChannelMessageQueue.PendingEmbed> batch) {
+        final MessageChannel channel = batch.get(0).getMessage().getChannel();
+        final List<MessageEmbed> embeds = new ArrayList<>(batch.size());
+        // Amount of embeds per outbound message inside this batch, equal messages of separate sends are separate keys
+        final Map<OutboundMessage, Integer> embedCounts = new IdentityHashMap<>();
+        for (final ChannelMessageQueue.PendingEmbed pendingEmbed : batch) {
+            embeds.add(pendingEmbed.getEmbed());
+            embedCounts.merge(pendingEmbed.getMessage(), 1, Integer::sum);
+        }
+        final ChannelTypeMeters meters = this.getChannelTypeMeters(channel.getType());
+        meters.getQueueDepth().addAndGet(-batch.size());
+
+        final long startTime = System.nanoTime();
+        CompletableFuture<Message> request;
+        try {
+            request = channel.sendMessageEmbeds(embeds).submit();
+        } catch (final Exception e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+
+        return request.whenComplete((message, throwable) -> {
+            this.recordRequest(meters, System.nanoTime() - startTime, throwable);
+
+            for (final Map.Entry<OutboundMessage, Integer> entry : embedCounts.entrySet()) {
+                if (throwable == null) {
+                    entry.getKey().onSend(message, entry.getValue());
+                } else {
+                    entry.getKey().onFailure(throwable);
+                }
+            }
+
+            if (throwable != null) {
+                log.warn("Failed to send message into channel {}", channelId, throwable);
+            }
+
+            // Send everything that was queued while this request was in flight
+            this.scheduleFlush(channelId);
+        });
+    }
+
+    private void recordRequest(final ChannelTypeMeters meters,
+                               final long durationNanos,
+                               @Nullable final Throwable throwable) {
+        (throwable == null ? meters.getSuccessRequests() : meters.getFailedRequests())
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+
+        // JDA handles the rate limits internally, requests waiting on a rate limit bucket show up as slow requests
+        final Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        if (cause instanceof RateLimitedException
+                || TimeUnit.NANOSECONDS.toMillis(durationNanos) >= this.config.getRateLimitThresholdMillis()) {
+            meters.getRateLimitHits().increment();
+        }
+    }
+
+    /**
+     * Meters of a single channel type, registered once on first use.
+     */
+    @Getter
+    private static class ChannelTypeMeters {
+        private final AtomicInteger queueDepth = new AtomicInteger();
+        private final Timer successRequests;
+        private final Timer failedRequests;
+        private final Counter rateLimitHits;
+
+        private ChannelTypeMeters(final String channelTypeTag, final MeterRegistry registry) {
+            Gauge.builder("discord.outbound.queue.depth", this.queueDepth, AtomicInteger::get)
+                    .tags("route", ROUTE, "channel_type", channelTypeTag)
+                    .description("embeds waiting to be send")
+                    .register(registry);
+            this.successRequests = createRequestTimer(channelTypeTag, "success", registry);
+            this.failedRequests = createRequestTimer(channelTypeTag, "failure", registry);
+            this.rateLimitHits = Counter.builder("discord.outbound.ratelimit.hits")
+                    .tags("route", ROUTE, "channel_type", channelTypeTag)
+                    .description("send message requests delayed by rate limits")
+                    .register(registry);
+        }
+
+        private static Timer createRequestTimer(final String channelTypeTag,
+                                                final String result,
+                                                final MeterRegistry registry) {
+            return Timer.builder("discord.outbound.requests")
+                    .tags("route", ROUTE, "channel_type", channelTypeTag, "result", result)
+                    .description("send message requests")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package de.timmi6790.discord_framework.module.modules.outbound.models;
+
+import de.timmi6790.discord_framework.module.modules.outbound.MessagePriority;
+import lombok.Getter;
+import lombok.ToString;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A single logical message. The embeds of it can be split over multiple discord messages and can share a discord
+ * message with other outbound messages of the same channel, unless the message is {@link #isExclusive() exclusive}.
+ * <p>
+ * Equality is the identity, two sends of the same embeds into the same channel are still two messages.
+ */
+@Getter
+@ToString
+public class OutboundMessage {
+    private final MessageChannel channel;
+    private final MessagePriority priority;
+    private final List<MessageEmbed> embeds;
+    @Nullable
+    @ToString.Exclude
+    private final Consumer<Message> success;
+
+    @ToString.Exclude
+    private final CompletableFuture<List<Message>> future = new CompletableFuture<>();
+    @ToString.Exclude
+    private final List<Message> sentMessages = new ArrayList<>();
+    private int remainingEmbeds;
+
+    public OutboundMessage(final MessageChannel channel,
+                           final MessagePriority priority,
+                           final List<MessageEmbed> embeds,
+                           @Nullable final Consumer<Message> success) {
+        this.channel = channel;
+        this.priority = priority;
+        this.embeds = embeds;
+        this.success = success;
+        this.remainingEmbeds = embeds.size();
+    }
+
+    /**
+     * Messages with a success consumer never share a discord message with other outbound messages. The consumer can
+     * act on the discord message, e.g. delete it after some time, which must not affect unrelated messages.
+     *
+     * @return true if the embeds of this message are only send together with embeds of the same message
+     */
+    public boolean isExclusive() {
+        return this.success != null;
+    }
+
+    /**
+     * Called after a discord message containing embeds of this message was send.
+     *
+     * @param message    the discord message
+     * @param embedCount the amount of embeds from this message inside the discord message
+     */
+    public synchronized void onSend(final Message message, final int embedCount) {
+        this.sentMessages.add(message);
+        this.remainingEmbeds -= embedCount;
+
+        if (this.success != null) {
+            this.success.accept(message);
+        }
+
+        if (this.remainingEmbeds <= 0) {
+            this.future.complete(this.sentMessages);
+        }
+    }
+
+    /**
+     * Called after a discord message containing embeds of this message failed to send.
+     *
+     * @param throwable the failure
+     */
+    public void onFailure(final Throwable throwable) {
+        this.future.completeExceptionally(throwable);
+    }
+}
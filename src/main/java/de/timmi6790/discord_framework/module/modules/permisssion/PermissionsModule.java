@@ -2,22 +2,24 @@ package de.timmi6790.discord_framework.module.modules.permisssion;
 
 
 import de.timmi6790.discord_framework.module.AbstractModule;
+import de.timmi6790.discord_framework.module.ShardRequirement;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
 import de.timmi6790.discord_framework.module.modules.permisssion.repository.PermissionRepository;
 import de.timmi6790.discord_framework.module.modules.permisssion.repository.postgres.PermissionPostgresRepository;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Stores the permission nodes for all perms(player, group). With an id and perm_node
+ * Stores the permission nodes for all perms(player, group). With an id and perm_node. Permissions can be added by
+ * modules that are initialized in parallel.
  */
 @EqualsAndHashCode(callSuper = true)
 public class PermissionsModule extends AbstractModule {
-    private final Map<Integer, String> permissionsMap = new HashMap<>();
+    private final Map<Integer, String> permissionsMap = new ConcurrentHashMap<>();
 
     private PermissionRepository permissionRepository;
 
@@ -30,6 +32,9 @@ public class PermissionsModule extends AbstractModule {
         this.addDependenciesAndLoadAfter(
                 DatabaseModule.class
         );
+
+        // Nothing is started, modules waiting for shards shouldn't wait for this module
+        this.setShardRequirement(ShardRequirement.NONE);
     }
 
     @Override
@@ -37,6 +42,7 @@ public class PermissionsModule extends AbstractModule {
         this.permissionRepository = new PermissionPostgresRepository(
                 this.getModuleOrThrow(DatabaseModule.class).getJdbi()
         );
+        this.getModuleOrThrow(DatabaseModule.class).registerStatements(PermissionPostgresRepository.class);
 
         return true;
     }
@@ -53,7 +59,7 @@ public class PermissionsModule extends AbstractModule {
      * @param permissionNode the permission node
      * @return the permission id
      */
-    public int addPermission(final @NonNull String permissionNode) {
+    public synchronized int addPermission(final @NonNull String permissionNode) {
         // Check if the permission node already exists
         final Optional<Integer> permissionIdOpt = this.getPermissionId(permissionNode);
         if (permissionIdOpt.isPresent()) {
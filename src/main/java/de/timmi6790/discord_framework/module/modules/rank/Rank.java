@@ -4,12 +4,13 @@ import de.timmi6790.discord_framework.module.modules.permisssion.PermissionsModu
 import lombok.*;
 
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 
 /**
- * Rank instance.
+ * Rank instance. The id sets are copy on write, readers never see a set that is changed while they iterate over it.
  */
 @Data
 @Getter(AccessLevel.NONE)
@@ -35,14 +36,15 @@ public class Rank {
     @Getter
     private final int repositoryId;
     /**
-     * The permission of every extended rank is used inside the permission check of the rank.
+     * The permission of every extended rank is used inside the permission check of the rank. Unmodifiable, replaced on
+     * every change.
      */
     @Getter
-    private final Set<Integer> extendedRankIds;
+    private volatile Set<Integer> extendedRankIds;
     /**
-     * The Permission ids of the rank.
+     * The Permission ids of the rank. Unmodifiable, replaced on every change.
      */
-    private final Set<Integer> permissionIds;
+    private volatile Set<Integer> permissionIds;
 
     /**
      * The name of the rank.
@@ -55,7 +57,7 @@ public class Rank {
      */
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
-    private Set<Integer> cachedAllPermissions;
+    private volatile Set<Integer> cachedAllPermissions;
 
     /**
      * Instantiates a new Rank.
@@ -77,8 +79,20 @@ public class Rank {
         this.permissionsModule = permissionsModule;
         this.repositoryId = repositoryId;
         this.rankName = rankName;
-        this.extendedRankIds = extendedRankIds;
-        this.permissionIds = permissionIds;
+        this.extendedRankIds = Collections.unmodifiableSet(new HashSet<>(extendedRankIds));
+        this.permissionIds = Collections.unmodifiableSet(new HashSet<>(permissionIds));
+    }
+
+    private static Set<Integer> with(final Set<Integer> ids, final int id) {
+        final Set<Integer> copy = new HashSet<>(ids);
+        copy.add(id);
+        return Collections.unmodifiableSet(copy);
+    }
+
+    private static Set<Integer> without(final Set<Integer> ids, final int id) {
+        final Set<Integer> copy = new HashSet<>(ids);
+        copy.remove(id);
+        return Collections.unmodifiableSet(copy);
     }
 
     /**
@@ -109,8 +123,22 @@ public class Rank {
             }
         }
 
-        this.cachedAllPermissions = foundPermissions;
-        return foundPermissions;
+        final Set<Integer> allPermissions = Collections.unmodifiableSet(foundPermissions);
+        this.cachedAllPermissions = allPermissions;
+        return allPermissions;
+    }
+
+    /**
+     * Replace the data of this rank with the data of the given rank, after another bot process changed it. The instance
+     * itself is kept, because it is referenced by the cached users.
+     *
+     * @param rank the rank loaded from the repository
+     */
+    synchronized void updateFrom(@NonNull final Rank rank) {
+        this.rankName = rank.rankName;
+        this.extendedRankIds = rank.extendedRankIds;
+        this.permissionIds = rank.permissionIds;
+        this.invalidateCachedPermissions();
     }
 
     /**
@@ -151,8 +179,8 @@ public class Rank {
      *
      * @param permissionId the permission id
      */
-    public void addPermissionRepositoryOnly(final int permissionId) {
-        this.permissionIds.add(permissionId);
+    public synchronized void addPermissionRepositoryOnly(final int permissionId) {
+        this.permissionIds = with(this.permissionIds, permissionId);
     }
 
     /**
@@ -161,14 +189,15 @@ public class Rank {
      * @param permissionId the permission id
      * @return if permission was added to the rank
      */
-    public boolean addPermission(final int permissionId) {
+    public synchronized boolean addPermission(final int permissionId) {
         if (this.hasPermission(permissionId, false)) {
             return false;
         }
 
         this.rankModule.getRankRepository().addPermission(this.getRepositoryId(), permissionId);
-        this.permissionIds.add(permissionId);
+        this.permissionIds = with(this.permissionIds, permissionId);
         this.rankModule.invalidateAllPermCaches();
+        this.rankModule.publishInvalidation(this.getRepositoryId());
 
         return true;
     }
@@ -179,14 +208,15 @@ public class Rank {
      * @param permissionId the permission id
      * @return if permission was removed from the rank
      */
-    public boolean removePermission(final int permissionId) {
+    public synchronized boolean removePermission(final int permissionId) {
         if (!this.hasPermission(permissionId, false)) {
             return false;
         }
 
         this.rankModule.getRankRepository().removePermission(this.getRepositoryId(), permissionId);
-        this.permissionIds.remove(permissionId);
+        this.permissionIds = without(this.permissionIds, permissionId);
         this.rankModule.invalidateAllPermCaches();
+        this.rankModule.publishInvalidation(this.getRepositoryId());
 
         return true;
     }
@@ -257,8 +287,8 @@ public class Rank {
      *
      * @param rankId the rank id
      */
-    public void addExtendedRankRepositoryOnly(final int rankId) {
-        this.extendedRankIds.add(rankId);
+    public synchronized void addExtendedRankRepositoryOnly(final int rankId) {
+        this.extendedRankIds = with(this.extendedRankIds, rankId);
     }
 
     /**
@@ -267,15 +297,16 @@ public class Rank {
      * @param rankId the rank id
      * @return if the rank was added as an extended rank
      */
-    public boolean addExtendedRank(final int rankId) {
+    public synchronized boolean addExtendedRank(final int rankId) {
         if (rankId == this.getRepositoryId() || this.hasExtendedRank(rankId)) {
             return false;
         }
 
         this.rankModule.getRankRepository().addExtendedRank(this.getRepositoryId(), rankId);
-        this.extendedRankIds.add(rankId);
+        this.extendedRankIds = with(this.extendedRankIds, rankId);
 
         this.rankModule.invalidateAllPermCaches();
+        this.rankModule.publishInvalidation(this.getRepositoryId());
 
         return true;
     }
@@ -296,15 +327,16 @@ public class Rank {
      * @param rankId the rank id
      * @return if the rank was removed from the extended rank
      */
-    public boolean removeExtendedRank(final int rankId) {
+    public synchronized boolean removeExtendedRank(final int rankId) {
         if (!this.hasExtendedRank(rankId)) {
             return false;
         }
 
         this.rankModule.getRankRepository().removeExtendedRank(this.getRepositoryId(), rankId);
-        this.getExtendedRankIds().remove(rankId);
+        this.extendedRankIds = without(this.extendedRankIds, rankId);
 
         this.rankModule.invalidateAllPermCaches();
+        this.rankModule.publishInvalidation(this.getRepositoryId());
 
         return true;
     }
@@ -324,6 +356,7 @@ public class Rank {
 
         this.rankModule.getRankRepository().setRankName(this.getRepositoryId(), newRankName);
         this.rankName = newRankName;
+        this.rankModule.publishInvalidation(this.getRepositoryId());
         return true;
     }
 }
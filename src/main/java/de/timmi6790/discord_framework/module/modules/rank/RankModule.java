@@ -3,6 +3,8 @@ package de.timmi6790.discord_framework.module.modules.rank;
 import de.timmi6790.discord_framework.module.AbstractModule;
 import de.timmi6790.discord_framework.module.modules.command.CommandModule;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationBus;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
 import de.timmi6790.discord_framework.module.modules.permisssion.PermissionsModule;
 import de.timmi6790.discord_framework.module.modules.rank.commands.RankCommand;
 import de.timmi6790.discord_framework.module.modules.rank.repository.RankRepository;
@@ -11,6 +13,7 @@ import de.timmi6790.discord_framework.module.modules.setting.SettingModule;
 import lombok.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Rank module.
@@ -21,7 +24,7 @@ public class RankModule extends AbstractModule {
     /**
      * Rank id to rank mapping
      */
-    private final Map<Integer, Rank> rankMap = new HashMap<>();
+    private final Map<Integer, Rank> rankMap = new ConcurrentHashMap<>();
 
     /**
      * The Rank repository.
@@ -29,6 +32,10 @@ public class RankModule extends AbstractModule {
     @Getter(AccessLevel.PROTECTED)
     private RankRepository rankRepository;
 
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private InvalidationBus invalidationBus;
+
     /**
      * Instantiates a new Rank module.
      */
@@ -50,6 +57,56 @@ public class RankModule extends AbstractModule {
         }
     }
 
+    /**
+     * Reload the rank from the repository, after another bot process changed it. An existing rank instance is updated
+     * instead of replaced, because it is referenced by the cached users.
+     *
+     * @param rankId the rank id
+     */
+    private void reloadRank(final int rankId) {
+        final Optional<Rank> loadedRankOpt = this.rankRepository.findRank(rankId);
+        if (loadedRankOpt.isPresent()) {
+            final Rank existingRank = this.rankMap.putIfAbsent(rankId, loadedRankOpt.get());
+            if (existingRank != null) {
+                existingRank.updateFrom(loadedRankOpt.get());
+            }
+        } else {
+            this.rankMap.remove(rankId);
+        }
+
+        this.invalidateAllPermCaches();
+    }
+
+    /**
+     * Reload all ranks from the repository, after invalidations of other bot processes could have been lost. Existing
+     * rank instances are updated instead of replaced, because they are referenced by the cached users.
+     */
+    private void reloadRanksFromRepository() {
+        final Set<Integer> loadedRankIds = new HashSet<>();
+        for (final Rank loadedRank : this.rankRepository.getRanks()) {
+            loadedRankIds.add(loadedRank.getRepositoryId());
+
+            final Rank existingRank = this.rankMap.putIfAbsent(loadedRank.getRepositoryId(), loadedRank);
+            if (existingRank != null) {
+                existingRank.updateFrom(loadedRank);
+            }
+        }
+
+        this.rankMap.keySet().retainAll(loadedRankIds);
+        this.invalidateAllPermCaches();
+    }
+
+    /**
+     * Reloads the ranks on all other bot processes, after a rank was changed by this process.
+     *
+     * @param rankId the changed rank id
+     */
+    protected void publishInvalidation(final int rankId) {
+        if (this.invalidationBus != null) {
+            this.invalidationBus.publish(InvalidationTopic.RANK, rankId);
+        }
+    }
+
     /**
      * Add the rank to all maps and reload the permission cache of all ranks
      *
@@ -67,7 +124,14 @@ public class RankModule extends AbstractModule {
                 this.getModuleOrThrow(DatabaseModule.class),
                 this.getModuleOrThrow(PermissionsModule.class)
         );
+        this.getModuleOrThrow(DatabaseModule.class).registerStatements(RankPostgresRepository.class);
         this.loadRanksFromRepository();
+        this.invalidationBus = this.getModuleOrThrow(DatabaseModule.class).getInvalidationBus();
+        this.invalidationBus.subscribe(
+                InvalidationTopic.RANK,
+                rankId -> this.reloadRank((int) rankId),
+                this::reloadRanksFromRepository
+        );
 
         final CommandModule commandModule = this.getModuleOrThrow(CommandModule.class);
         commandModule
@@ -172,6 +236,7 @@ public class RankModule extends AbstractModule {
 
         final Rank newRank = this.rankRepository.createRank(rankName);
         this.addRank(newRank);
+        this.publishInvalidation(newRank.getRepositoryId());
 
         return true;
     }
@@ -202,6 +267,7 @@ public class RankModule extends AbstractModule {
         this.rankMap.remove(rankId);
 
         this.invalidateAllPermCaches();
+        this.publishInvalidation(rankId);
 
         return true;
     }
@@ -4,6 +4,7 @@ import de.timmi6790.discord_framework.module.modules.rank.Rank;
 import lombok.NonNull;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Rank repository.
@@ -32,6 +33,14 @@ public interface RankRepository {
      */
     Rank getRank(int rankId);
 
+    /**
+     * Find a rank by id inside the repository.
+     *
+     * @param rankId the rank id
+     * @return the rank or empty if no rank with the id exists
+     */
+    Optional<Rank> findRank(int rankId);
+
     /**
      * Delete a rank from the repository.
      *
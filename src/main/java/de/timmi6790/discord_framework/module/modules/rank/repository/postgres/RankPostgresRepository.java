@@ -1,6 +1,8 @@
 package de.timmi6790.discord_framework.module.modules.rank.repository.postgres;
 
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
+import de.timmi6790.discord_framework.module.modules.database.replica.ReplicaRouter;
 import de.timmi6790.discord_framework.module.modules.permisssion.PermissionsModule;
 import de.timmi6790.discord_framework.module.modules.rank.Rank;
 import de.timmi6790.discord_framework.module.modules.rank.RankModule;
@@ -11,6 +13,7 @@ import lombok.NonNull;
 import org.jdbi.v3.core.Jdbi;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 public class RankPostgresRepository implements RankRepository {
@@ -45,6 +48,10 @@ public class RankPostgresRepository implements RankRepository {
      * The Database.
      */
     private final Jdbi database;
+    /**
+     * Routes single rank reads, all ranks are loaded from the primary on start
+     */
+    private final ReplicaRouter replicaRouter;
 
     /**
      * Instantiates a new Rank postgres repository.
@@ -57,7 +64,8 @@ public class RankPostgresRepository implements RankRepository {
                                   final DatabaseModule databaseModule,
                                   final PermissionsModule permissionsModule) {
         this.database = databaseModule.getJdbi();
-        this.database.registerRowMapper(
+        this.replicaRouter = databaseModule.getReplicaRouter();
+        databaseModule.registerRowMapper(
                 new RankMapper(
                         rankModule,
                         permissionsModule
@@ -82,17 +90,23 @@ public class RankPostgresRepository implements RankRepository {
                         .mapTo(int.class)
                         .first()
         );
+        // The replica could still miss the new rank
+        this.replicaRouter.recordWrite(InvalidationTopic.RANK, rankId);
         return this.getRank(rankId);
     }
 
     @Override
     public Rank getRank(final int rankId) {
-        return this.database.withHandle(handle ->
+        return this.findRank(rankId).orElseThrow(RuntimeException::new);
+    }
+
+    @Override
+    public Optional<Rank> findRank(final int rankId) {
+        return this.replicaRouter.withReadHandle(InvalidationTopic.RANK, rankId, handle ->
                 handle.createQuery(GET_RANK_BY_ID)
                         .bind(DATABASE_ID, rankId)
                         .reduceRows(new RankReducer())
                         .findAny()
-                        .orElseThrow(RuntimeException::new)
         );
     }
 
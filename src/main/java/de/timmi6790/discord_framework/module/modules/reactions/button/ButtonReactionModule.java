@@ -3,6 +3,7 @@ package de.timmi6790.discord_framework.module.modules.reactions.button;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import de.timmi6790.discord_framework.module.AbstractModule;
+import de.timmi6790.discord_framework.module.ShardRequirement;
 import de.timmi6790.discord_framework.module.modules.event.EventModule;
 import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
 import de.timmi6790.discord_framework.module.modules.reactions.button.listeners.ButtonReactionListener;
@@ -32,6 +33,9 @@ public class ButtonReactionModule extends AbstractModule {
         this.addLoadAfterDependencies(
                 MetricModule.class
         );
+
+        // Nothing is started, modules waiting for shards shouldn't wait for this module
+        this.setShardRequirement(ShardRequirement.NONE);
     }
 
     @Override
@@ -9,16 +9,16 @@ import de.timmi6790.discord_framework.module.modules.setting.settings.CommandAut
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @EqualsAndHashCode(callSuper = true)
 public class SettingModule extends AbstractModule {
     @Getter
-    private final Map<Integer, AbstractSetting<?>> settings = new HashMap<>();
-    private final Map<String, Integer> nameIdMatching = new HashMap<>();
-    private final Map<String, String> aliasNameMatcher = new HashMap<>();
+    private final Map<Integer, AbstractSetting<?>> settings = new ConcurrentHashMap<>();
+    private final Map<String, Integer> nameIdMatching = new ConcurrentHashMap<>();
+    private final Map<String, String> aliasNameMatcher = new ConcurrentHashMap<>();
 
     private SettingRepository settingRepository;
     private PermissionsModule permissionsModule;
@@ -42,6 +42,7 @@ public class SettingModule extends AbstractModule {
         this.settingRepository = new SettingPostgresRepository(
                 this.getModuleOrThrow(DatabaseModule.class).getJdbi()
         );
+        this.getModuleOrThrow(DatabaseModule.class).registerStatements(SettingPostgresRepository.class);
         this.permissionsModule = this.getModuleOrThrow(PermissionsModule.class);
 
         this.registerSettings(
@@ -58,7 +59,14 @@ public class SettingModule extends AbstractModule {
         }
     }
 
-    public void registerSetting(final AbstractModule module, final AbstractSetting<?> setting) {
+    /**
+     * Registers the setting and creates its database id and permission when they are missing. The alias names are
+     * added last, an alias never resolves to a setting that isn't registered yet.
+     *
+     * @param module  the module
+     * @param setting the setting
+     */
+    public synchronized void registerSetting(final AbstractModule module, final AbstractSetting<?> setting) {
         setting.setInternalName(this.generateInternalName(module, "setting", setting.getStatName()))
                 .setDatabaseId(this.getSettingIdOrCreate(setting.getInternalName()))
                 .setPermissionId(this.permissionsModule.addPermission(setting.getInternalName()));
@@ -9,15 +9,15 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @EqualsAndHashCode(callSuper = true)
 public class StatModule extends AbstractModule {
     @Getter
-    private final Map<Integer, AbstractStat> stats = new HashMap<>();
-    private final Map<String, Integer> nameIdMatching = new HashMap<>();
+    private final Map<Integer, AbstractStat> stats = new ConcurrentHashMap<>();
+    private final Map<String, Integer> nameIdMatching = new ConcurrentHashMap<>();
 
     private StatRepository statRepository;
     private EventModule eventModule;
@@ -41,6 +41,7 @@ public class StatModule extends AbstractModule {
         this.statRepository = new StatPostgresRepository(
                 this.getModuleOrThrow(DatabaseModule.class).getJdbi()
         );
+        this.getModuleOrThrow(DatabaseModule.class).registerStatements(StatPostgresRepository.class);
         this.eventModule = this.getModuleOrThrow(EventModule.class);
 
         return true;
@@ -56,7 +57,15 @@ public class StatModule extends AbstractModule {
         }
     }
 
-    public boolean registerStat(@NonNull final AbstractModule module, @NonNull final AbstractStat stat) {
+    /**
+     * Registers the stat and subscribes it to the events it counts. The presence check and the registration are one
+     * step, the same stat is never subscribed twice.
+     *
+     * @param module the module
+     * @param stat   the stat
+     * @return true if the stat was registered
+     */
+    public synchronized boolean registerStat(@NonNull final AbstractModule module, @NonNull final AbstractStat stat) {
         if (this.hasStat(stat)) {
             return false;
         }
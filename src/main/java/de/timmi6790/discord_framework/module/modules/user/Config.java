@@ -0,0 +1,46 @@
+package de.timmi6790.discord_framework.module.modules.user;
+
+import lombok.Data;
+
+/**
+ * User db module config.
+ */
+@Data
+public class Config {
+    /**
+     * Max estimated heap size of the cached users in megabytes, users above it are moved into the off heap cache when
+     * enabled
+     */
+    private long cacheSizeMb = 32;
+    /**
+     * Minutes after which a cached user is dropped from the heap, expired users are never moved into the off heap cache
+     */
+    private long cacheExpireAfterWriteMinutes = 10;
+    /**
+     * Size of the off heap user cache in megabytes, 0 or lower disables it. The cache counts towards the max direct
+     * memory of the jvm
+     */
+    private int offHeapCacheSizeMb = 64;
+    /**
+     * Minutes after which a user inside the off heap cache is reloaded from the database, 0 or lower never expires
+     * them
+     */
+    private long offHeapExpireAfterWriteMinutes = 60;
+    /**
+     * File the hottest cached users are written into on shutdown and preloaded from on start, empty disables it
+     */
+    private String cacheSnapshotPath = "./cache/users.snapshot";
+    /**
+     * Max amount of users written into the cache snapshot
+     */
+    private int cacheSnapshotEntries = 10_000;
+    /**
+     * Milliseconds without setting changes of a user after which the changed settings are written, 0 or lower writes
+     * every change directly
+     */
+    private long settingWriteDebounceMillis = 2_000;
+    /**
+     * Max milliseconds a changed setting stays unwritten while the user keeps changing settings
+     */
+    private long settingWriteMaxStalenessMillis = 10_000;
+}
@@ -1,13 +1,17 @@
 package de.timmi6790.discord_framework.module.modules.user;
 
 import de.timmi6790.discord_framework.module.modules.achievement.AbstractAchievement;
+import de.timmi6790.discord_framework.module.modules.achievement.AchievementModule;
 import de.timmi6790.discord_framework.module.modules.command.models.CommandParameters;
+import de.timmi6790.discord_framework.module.modules.database.cache.CacheWeights;
 import de.timmi6790.discord_framework.module.modules.event.EventModule;
 import de.timmi6790.discord_framework.module.modules.rank.Rank;
+import de.timmi6790.discord_framework.module.modules.rank.RankModule;
 import de.timmi6790.discord_framework.module.modules.setting.AbstractSetting;
 import de.timmi6790.discord_framework.module.modules.setting.SettingModule;
 import de.timmi6790.discord_framework.module.modules.setting.settings.CommandAutoCorrectSetting;
 import de.timmi6790.discord_framework.module.modules.stat.AbstractStat;
+import de.timmi6790.discord_framework.module.modules.stat.StatModule;
 import de.timmi6790.discord_framework.module.modules.stat.events.StatsChangeEvent;
 import de.timmi6790.discord_framework.module.modules.user.repository.UserDbRepository;
 import de.timmi6790.discord_framework.utilities.discord.DiscordMessagesUtilities;
@@ -18,20 +22,17 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
 
-
+/**
+ * User of the bot. The state of the user is stored inside an immutable {@link UserDbSnapshot}, which is replaced on
+ * every change. Ranks, stats, settings and achievements are resolved through their modules on access.
+ */
 @Data
-@AllArgsConstructor
 public class UserDb {
-    private final long discordId;
-    private final Set<Rank> ranks = Collections.newSetFromMap(new WeakHashMap<>());
-    private final Set<Integer> permissionIds = new HashSet<>();
-    // TODO: Maybe already convert it and instead save it as object
-    private final Map<AbstractSetting<?>, String> settings = new WeakHashMap<>();
-    private final Map<AbstractStat, Integer> stats = new WeakHashMap<>();
-    private final Set<AbstractAchievement> achievements = Collections.newSetFromMap(new WeakHashMap<>());
-    private Rank primaryRank;
-    private boolean banned;
+    @Setter(AccessLevel.NONE)
+    private volatile UserDbSnapshot snapshot;
 
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
@@ -44,12 +45,97 @@ public class UserDb {
     @EqualsAndHashCode.Exclude
     private final SettingModule settingModule;
 
+    public UserDb(@NonNull final UserDbSnapshot snapshot,
+                  final UserDbModule userDbModule,
+                  final EventModule eventModule,
+                  @Nullable final SettingModule settingModule) {
+        this.snapshot = snapshot;
+        this.userDbModule = userDbModule;
+        this.eventModule = eventModule;
+        this.settingModule = settingModule;
+    }
+
+    public UserDb(final long discordId,
+                  @NonNull final Rank primaryRank,
+                  final boolean banned,
+                  final UserDbModule userDbModule,
+                  final EventModule eventModule,
+                  @Nullable final SettingModule settingModule) {
+        this(
+                UserDbSnapshot.of(discordId, primaryRank.getRepositoryId(), banned),
+                userDbModule,
+                eventModule,
+                settingModule
+        );
+    }
+
+    private synchronized void updateSnapshot(final UnaryOperator<UserDbSnapshot> change) {
+        final UserDbSnapshot newSnapshot = change.apply(this.snapshot);
+        if (newSnapshot != this.snapshot) {
+            this.snapshot = newSnapshot;
+        }
+    }
+
+    synchronized void applyChanges(final List<UnaryOperator<UserDbSnapshot>> changes) {
+        UserDbSnapshot newSnapshot = this.snapshot;
+        for (final UnaryOperator<UserDbSnapshot> change : changes) {
+            newSnapshot = change.apply(newSnapshot);
+        }
+        this.snapshot = newSnapshot;
+    }
+
+    private RankModule getRankModule() {
+        return this.userDbModule.getRankModule();
+    }
+
+    public long getDiscordId() {
+        return this.snapshot.getDiscordId();
+    }
+
+    public boolean isBanned() {
+        return this.snapshot.isBanned();
+    }
+
+    /**
+     * Estimates the retained heap size of this user, used to weigh the user cache.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateRetainedBytes() {
+        return CacheWeights.objectBytes(4L * CacheWeights.REFERENCE_BYTES) + this.snapshot.estimateRetainedBytes();
+    }
+
     protected UserDbRepository getUserDbRepository() {
         return this.userDbModule.getUserDbRepository();
     }
 
+    /**
+     * Retrieves the discord user of this instance without blocking.
+     *
+     * @return the user future
+     */
+    public CompletableFuture<User> retrieveUser() {
+        return this.userDbModule.getDiscordUser(this.getDiscordId());
+    }
+
+    /**
+     * Gets the discord user of this instance. This will block until the user is retrieved and throws a {@link
+     * java.util.concurrent.CompletionException} if the user can't be retrieved, prefer {@link #retrieveUser()}.
+     *
+     * @return the user
+     */
     public User getUser() {
-        return this.userDbModule.getDiscordUserCache().get(this.getDiscordId());
+        return this.retrieveUser().join();
+    }
+
+    /**
+     * Starts a unit of work for this user. Use it for multiple changes, they are written in one transaction instead
+     * of one per change.
+     *
+     * @return the edit, changes are only written on {@link UserDbEdit#commit()}
+     */
+    public UserDbEdit edit() {
+        return new UserDbEdit(this);
     }
 
     public void ban(final CommandParameters commandParameters, final String reason) {
@@ -66,20 +152,30 @@ public class UserDb {
     }
 
     public boolean setBanned(final boolean newBanStatus) {
-        if (this.banned == newBanStatus) {
+        if (this.isBanned() == newBanStatus) {
             return false;
         }
 
-        this.getUserDbRepository().setBanStatus(this.discordId, newBanStatus);
-        this.banned = newBanStatus;
+        this.getUserDbRepository().setBanStatus(this.getDiscordId(), newBanStatus);
+        this.updateSnapshot(current -> current.withBanned(newBanStatus));
+        this.userDbModule.publishInvalidation(this.getDiscordId());
         return true;
     }
 
     // Permission
+    public Set<Integer> getPermissionIds() {
+        final int[] permissionIds = this.snapshot.getPermissionIds();
+        final Set<Integer> permissionSet = new HashSet<>(permissionIds.length);
+        for (final int permissionId : permissionIds) {
+            permissionSet.add(permissionId);
+        }
+        return permissionSet;
+    }
+
     public Set<Integer> getAllPermissionIds() {
-        final Set<Integer> permissionSet = new HashSet<>(this.permissionIds);
+        final Set<Integer> permissionSet = this.getPermissionIds();
 
-        permissionSet.addAll(this.primaryRank.getPermissionIds(true));
+        permissionSet.addAll(this.getPrimaryRank().getPermissionIds(true));
         for (final Rank rank : this.getRanks()) {
             permissionSet.addAll(rank.getPermissionIds(true));
         }
@@ -88,7 +184,7 @@ public class UserDb {
     }
 
     public boolean hasPermission(final int permissionId) {
-        return this.permissionIds.contains(permissionId);
+        return this.snapshot.hasPermission(permissionId);
     }
 
     public boolean addPermission(final int permissionId) {
@@ -96,8 +192,9 @@ public class UserDb {
             return false;
         }
 
-        this.getUserDbRepository().addPermission(this.discordId, permissionId);
-        this.permissionIds.add(permissionId);
+        this.getUserDbRepository().addPermission(this.getDiscordId(), permissionId);
+        this.updateSnapshot(current -> current.withPermission(permissionId));
+        this.userDbModule.publishInvalidation(this.getDiscordId());
 
         return true;
     }
@@ -107,30 +204,52 @@ public class UserDb {
             return false;
         }
 
-        this.permissionIds.remove(permissionId);
-        this.getUserDbRepository().removePermission(this.discordId, permissionId);
+        this.updateSnapshot(current -> current.withoutPermission(permissionId));
+        this.getUserDbRepository().removePermission(this.getDiscordId(), permissionId);
+        this.userDbModule.publishInvalidation(this.getDiscordId());
 
         return true;
     }
 
     // Ranks
+    public Rank getPrimaryRank() {
+        final RankModule rankModule = this.getRankModule();
+        return rankModule.getRank(this.snapshot.getPrimaryRankId()).orElseGet(rankModule::getDefaultRank);
+    }
+
     public boolean hasPrimaryRank(@NonNull final Rank rank) {
-        return this.primaryRank == rank;
+        return this.snapshot.getPrimaryRankId() == rank.getRepositoryId();
     }
 
     public boolean setPrimaryRank(@NonNull final Rank rank) {
-        if (this.primaryRank == rank) {
+        if (this.hasPrimaryRank(rank)) {
             return false;
         }
 
-        this.getUserDbRepository().setPrimaryRank(this.discordId, rank.getRepositoryId());
-        this.primaryRank = rank;
+        this.getUserDbRepository().setPrimaryRank(this.getDiscordId(), rank.getRepositoryId());
+        this.updateSnapshot(current -> current.withPrimaryRankId(rank.getRepositoryId()));
+        this.userDbModule.publishInvalidation(this.getDiscordId());
 
         return true;
     }
 
+    /**
+     * Gets the ranks of the user. Ranks deleted since the user was loaded are skipped.
+     *
+     * @return the ranks
+     */
+    public Set<Rank> getRanks() {
+        final RankModule rankModule = this.getRankModule();
+        final int[] rankIds = this.snapshot.getRankIds();
+        final Set<Rank> ranks = new HashSet<>(rankIds.length);
+        for (final int rankId : rankIds) {
+            rankModule.getRank(rankId).ifPresent(ranks::add);
+        }
+        return ranks;
+    }
+
     public boolean hasRank(@NonNull final Rank rank) {
-        return this.ranks.contains(rank);
+        return this.snapshot.hasRank(rank.getRepositoryId());
     }
 
     public boolean addRank(@NonNull final Rank rank) {
@@ -138,8 +257,9 @@ public class UserDb {
             return false;
         }
 
-        this.getUserDbRepository().addRank(this.discordId, rank.getRepositoryId());
-        this.ranks.add(rank);
+        this.getUserDbRepository().addRank(this.getDiscordId(), rank.getRepositoryId());
+        this.updateSnapshot(current -> current.withRank(rank.getRepositoryId()));
+        this.userDbModule.publishInvalidation(this.getDiscordId());
 
         return true;
     }
@@ -149,15 +269,33 @@ public class UserDb {
             return false;
         }
 
-        this.getUserDbRepository().removeRank(this.discordId, rank.getRepositoryId());
-        this.ranks.remove(rank);
+        this.getUserDbRepository().removeRank(this.getDiscordId(), rank.getRepositoryId());
+        this.updateSnapshot(current -> current.withoutRank(rank.getRepositoryId()));
+        this.userDbModule.publishInvalidation(this.getDiscordId());
 
         return true;
     }
 
     // Achievements
+    /**
+     * Gets the achievements of the user. Achievements of a disabled achievement module are skipped.
+     *
+     * @return the achievements
+     */
+    public Set<AbstractAchievement> getAchievements() {
+        final AchievementModule achievementModule = this.userDbModule.getAchievementModule();
+        final int[] achievementIds = this.snapshot.getAchievementIds();
+        final Set<AbstractAchievement> achievements = new HashSet<>(achievementIds.length);
+        if (achievementModule != null) {
+            for (final int achievementId : achievementIds) {
+                achievementModule.getAchievement(achievementId).ifPresent(achievements::add);
+            }
+        }
+        return achievements;
+    }
+
     public boolean hasAchievement(@NonNull final AbstractAchievement achievement) {
-        return this.achievements.contains(achievement);
+        return this.snapshot.hasAchievement(achievement.getRepositoryId());
     }
 
     public boolean grantAchievement(@NonNull final AbstractAchievement achievement, final boolean sendUnlockMessage) {
@@ -165,8 +303,14 @@ public class UserDb {
             return false;
         }
 
-        this.getUserDbRepository().grantAchievement(this.discordId, achievement.getRepositoryId());
-        this.achievements.add(achievement);
+        this.getUserDbRepository().grantAchievement(this.getDiscordId(), achievement.getRepositoryId());
+        this.updateSnapshot(current -> current.withAchievement(achievement.getRepositoryId()));
+        this.userDbModule.publishInvalidation(this.getDiscordId());
+        this.unlockAchievement(achievement, sendUnlockMessage);
+        return true;
+    }
+
+    void unlockAchievement(final AbstractAchievement achievement, final boolean sendUnlockMessage) {
         achievement.onUnlock(this);
         if (sendUnlockMessage) {
             // Show all the perks the players unlocked with this achievement
@@ -175,25 +319,46 @@ public class UserDb {
                 perks.add("- " + unlocked);
             }
 
-            final User user = this.getUser();
             // Always inform the user only inside his dms about the unlocked achievement to reduce spam
-            DiscordMessagesUtilities.sendPrivateMessage(
-                    user,
-                    DiscordMessagesUtilities.getEmbedBuilder(user, null)
-                            .setTitle("Achievement Unlocked")
-                            .setDescription(
-                                    "Unlocked: %s%n%nPerks:%n%s",
-                                    MarkdownUtil.bold(achievement.getAchievementName()),
-                                    perks.toString()
-                            )
+            this.retrieveUser().thenCompose(user ->
+                    DiscordMessagesUtilities.sendPrivateMessage(
+                            user,
+                            DiscordMessagesUtilities.getEmbedBuilder(user, null)
+                                    .setTitle("Achievement Unlocked")
+                                    .setDescription(
+                                            "Unlocked: %s%n%nPerks:%n%s",
+                                            MarkdownUtil.bold(achievement.getAchievementName()),
+                                            perks.toString()
+                                    )
+                    )
             );
         }
-        return true;
     }
 
     // Stats
+    /**
+     * Gets the stat values of the user. Stats of a disabled stat module are skipped.
+     *
+     * @return the stat values
+     */
+    public Map<AbstractStat, Integer> getStats() {
+        final StatModule statModule = this.userDbModule.getStatModule();
+        final UserDbSnapshot currentSnapshot = this.snapshot;
+        final int[] statIds = currentSnapshot.getStatIds();
+        final int[] statValues = currentSnapshot.getStatValues();
+        final Map<AbstractStat, Integer> stats = new HashMap<>(statIds.length);
+        if (statModule != null) {
+            for (int index = 0; statIds.length > index; index++) {
+                final int value = statValues[index];
+                statModule.getStat(statIds[index]).ifPresent(stat -> stats.put(stat, value));
+            }
+        }
+        return stats;
+    }
+
     public Optional<Integer> getStatValue(final AbstractStat stat) {
-        return Optional.ofNullable(this.stats.get(stat));
+        final OptionalInt value = this.snapshot.getStatValue(stat.getDatabaseId());
+        return value.isPresent() ? Optional.of(value.getAsInt()) : Optional.empty();
     }
 
     public void increaseStat(final AbstractStat stat) {
@@ -210,19 +375,24 @@ public class UserDb {
     public void setStatValue(final AbstractStat stat, final int value) {
         final Optional<Integer> currentValueOpt = this.getStatValue(stat);
         if (currentValueOpt.isPresent()) {
-            this.getUserDbRepository().updateStat(this.discordId, stat.getDatabaseId(), value);
+            this.getUserDbRepository().updateStat(this.getDiscordId(), stat.getDatabaseId(), value);
         } else {
-            this.getUserDbRepository().insertStat(this.discordId, stat.getDatabaseId(), value);
+            this.getUserDbRepository().insertStat(this.getDiscordId(), stat.getDatabaseId(), value);
         }
 
-        this.stats.put(stat, value);
+        this.updateSnapshot(current -> current.withStat(stat.getDatabaseId(), value));
+        // Stats change often, the invalidations of them are batched
+        this.userDbModule.publishInvalidation(this.getDiscordId());
+        this.executeStatChangeEvent(stat, currentValueOpt.orElse(-1), value);
+    }
 
+    void executeStatChangeEvent(final AbstractStat stat, final int oldValue, final int newValue) {
         final StatsChangeEvent statsChangeEvent = new StatsChangeEvent(
                 this.userDbModule.getDiscordBot().getBaseShard(),
                 this,
                 stat,
-                currentValueOpt.orElse(-1),
-                value
+                oldValue,
+                newValue
         );
 
         this.eventModule.executeEvent(statsChangeEvent);
@@ -290,21 +460,29 @@ public class UserDb {
 
     public <T> void setSetting(final AbstractSetting<T> setting, final T value) {
         final String newValue = setting.toDatabaseValue(value);
-        if (this.settings.containsKey(setting)) {
+        // Repeated changes are coalesced into one write
+        if (this.userDbModule.isSettingWriteBuffered()) {
+            this.updateSnapshot(current -> current.withSetting(setting.getDatabaseId(), newValue));
+            this.userDbModule.bufferSettingWrite(this.getDiscordId(), setting.getDatabaseId(), newValue);
+            return;
+        }
+
+        if (this.snapshot.getSettingValue(setting.getDatabaseId()).isPresent()) {
             this.getUserDbRepository().updateSetting(
-                    this.discordId,
+                    this.getDiscordId(),
                     setting.getDatabaseId(),
                     newValue
             );
         } else {
             this.getUserDbRepository().grantSetting(
-                    this.discordId,
+                    this.getDiscordId(),
                     setting.getDatabaseId(),
                     newValue
             );
         }
 
-        this.settings.put(setting, newValue);
+        this.updateSnapshot(current -> current.withSetting(setting.getDatabaseId(), newValue));
+        this.userDbModule.publishInvalidation(this.getDiscordId());
     }
 
     public <T> Optional<T> getSetting(final Class<? extends AbstractSetting<T>> settingClazz) {
@@ -318,9 +496,9 @@ public class UserDb {
             return Optional.empty();
         }
 
-        final String value = this.settings.get(setting);
-        if (value != null) {
-            return Optional.ofNullable(setting.fromDatabaseValue(value));
+        final Optional<String> valueOpt = this.snapshot.getSettingValue(setting.getDatabaseId());
+        if (valueOpt.isPresent()) {
+            return Optional.ofNullable(setting.fromDatabaseValue(valueOpt.get()));
         }
 
         return Optional.of(setting.getDefaultValue());
@@ -346,22 +524,22 @@ public class UserDb {
 
     // Repository help methods
     public void addRankRepositoryOnly(@Nonnull final Rank rank) {
-        this.ranks.add(rank);
+        this.updateSnapshot(current -> current.withRank(rank.getRepositoryId()));
     }
 
     public void addPermissionRepositoryOnly(final int permissionId) {
-        this.permissionIds.add(permissionId);
+        this.updateSnapshot(current -> current.withPermission(permissionId));
     }
 
     public void addSettingRepositoryOnly(@Nonnull final AbstractSetting<?> setting, @Nonnull final String value) {
-        this.settings.put(setting, value);
+        this.updateSnapshot(current -> current.withSetting(setting.getDatabaseId(), value));
     }
 
     public void addStatRepositoryOnly(@Nonnull final AbstractStat stat, final int value) {
-        this.stats.put(stat, value);
+        this.updateSnapshot(current -> current.withStat(stat.getDatabaseId(), value));
     }
 
     public void addAchievementRepositoryOnly(@Nonnull final AbstractAchievement achievement) {
-        this.achievements.add(achievement);
+        this.updateSnapshot(current -> current.withAchievement(achievement.getRepositoryId()));
     }
 }
@@ -0,0 +1,201 @@
+package de.timmi6790.discord_framework.module.modules.user;
+
+import de.timmi6790.discord_framework.module.modules.achievement.AbstractAchievement;
+import de.timmi6790.discord_framework.module.modules.rank.Rank;
+import de.timmi6790.discord_framework.module.modules.setting.AbstractSetting;
+import de.timmi6790.discord_framework.module.modules.stat.AbstractStat;
+import de.timmi6790.discord_framework.module.modules.user.repository.UserDbMutation;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.UnaryOperator;
+
+/**
+ * Unit of work for the changes of one {@link UserDb}, created by {@link UserDb#edit()}.
+ * <p>
+ * The changes are collected and written by {@link #commit()} as batches inside one transaction. Either all changes are
+ * applied or none of them, the user is only changed after the transaction succeeded. Every change is checked against
+ * the state of the user including the previous changes of this edit, changes without effect are skipped.
+ */
+public class UserDbEdit {
+    private final UserDb userDb;
+
+    private final List<UserDbMutation> mutations = new ArrayList<>();
+    private final List<UnaryOperator<UserDbSnapshot>> changes = new ArrayList<>();
+    /**
+     * Stat values before this edit, used for the stat change events
+     */
+    private final Map<AbstractStat, Integer> previousStatValues = new LinkedHashMap<>();
+    /**
+     * Granted achievements and if their unlock message should be send
+     */
+    private final Map<AbstractAchievement, Boolean> grantedAchievements = new LinkedHashMap<>();
+
+    /**
+     * State of the user with all changes of this edit
+     */
+    private UserDbSnapshot snapshot;
+    private boolean committed;
+
+    UserDbEdit(final UserDb userDb) {
+        this.userDb = userDb;
+        this.snapshot = userDb.getSnapshot();
+    }
+
+    private UserDbEdit change(final UserDbMutation mutation, final UnaryOperator<UserDbSnapshot> change) {
+        if (this.committed) {
+            throw new IllegalStateException("The edit of " + this.userDb.getDiscordId() + " is already committed");
+        }
+
+        this.mutations.add(mutation);
+        this.changes.add(change);
+        this.snapshot = change.apply(this.snapshot);
+        return this;
+    }
+
+    public UserDbEdit setBanned(final boolean banned) {
+        if (this.snapshot.isBanned() == banned) {
+            return this;
+        }
+
+        return this.change(UserDbMutation.setBanned(banned), current -> current.withBanned(banned));
+    }
+
+    public UserDbEdit setPrimaryRank(@NonNull final Rank rank) {
+        final int rankId = rank.getRepositoryId();
+        if (this.snapshot.getPrimaryRankId() == rankId) {
+            return this;
+        }
+
+        return this.change(UserDbMutation.setPrimaryRank(rankId), current -> current.withPrimaryRankId(rankId));
+    }
+
+    public UserDbEdit addRank(@NonNull final Rank rank) {
+        final int rankId = rank.getRepositoryId();
+        if (this.snapshot.hasRank(rankId)) {
+            return this;
+        }
+
+        return this.change(UserDbMutation.addRank(rankId), current -> current.withRank(rankId));
+    }
+
+    public UserDbEdit removeRank(@NonNull final Rank rank) {
+        final int rankId = rank.getRepositoryId();
+        if (!this.snapshot.hasRank(rankId)) {
+            return this;
+        }
+
+        return this.change(UserDbMutation.removeRank(rankId), current -> current.withoutRank(rankId));
+    }
+
+    public UserDbEdit addPermission(final int permissionId) {
+        if (this.snapshot.hasPermission(permissionId)) {
+            return this;
+        }
+
+        return this.change(UserDbMutation.addPermission(permissionId), current -> current.withPermission(permissionId));
+    }
+
+    public UserDbEdit removePermission(final int permissionId) {
+        if (!this.snapshot.hasPermission(permissionId)) {
+            return this;
+        }
+
+        return this.change(
+                UserDbMutation.removePermission(permissionId),
+                current -> current.withoutPermission(permissionId)
+        );
+    }
+
+    public <T> UserDbEdit setSetting(@NonNull final AbstractSetting<T> setting, final T value) {
+        final int settingId = setting.getDatabaseId();
+        final String newValue = setting.toDatabaseValue(value);
+        final Optional<String> currentValue = this.snapshot.getSettingValue(settingId);
+        if (currentValue.isPresent() && currentValue.get().equals(newValue)) {
+            return this;
+        }
+
+        return this.change(
+                UserDbMutation.setSetting(settingId, newValue),
+                current -> current.withSetting(settingId, newValue)
+        );
+    }
+
+    public UserDbEdit setStatValue(@NonNull final AbstractStat stat, final int value) {
+        final int statId = stat.getDatabaseId();
+        final OptionalInt currentValue = this.snapshot.getStatValue(statId);
+        if (currentValue.isPresent() && currentValue.getAsInt() == value) {
+            return this;
+        }
+
+        this.previousStatValues.putIfAbsent(stat, currentValue.orElse(-1));
+        return this.change(UserDbMutation.setStat(statId, value), current -> current.withStat(statId, value));
+    }
+
+    public UserDbEdit grantAchievement(@NonNull final AbstractAchievement achievement,
+                                       final boolean sendUnlockMessage) {
+        final int achievementId = achievement.getRepositoryId();
+        if (this.snapshot.hasAchievement(achievementId)) {
+            return this;
+        }
+
+        this.grantedAchievements.put(achievement, sendUnlockMessage);
+        return this.change(
+                UserDbMutation.grantAchievement(achievementId),
+                current -> current.withAchievement(achievementId)
+        );
+    }
+
+    /**
+     * Checks if this edit contains any changes.
+     *
+     * @return true if there is nothing to commit
+     */
+    public boolean isEmpty() {
+        return this.mutations.isEmpty();
+    }
+
+    /**
+     * Writes all changes in one transaction and applies them to the user afterwards. Stat change events and achievement
+     * unlocks are executed after the changes are applied. An edit is only committed once, a failed commit changed
+     * nothing and can be retried.
+     *
+     * @return true if any change was written
+     */
+    public boolean commit() {
+        if (this.committed) {
+            throw new IllegalStateException("The edit of " + this.userDb.getDiscordId() + " is already committed");
+        }
+
+        if (this.mutations.isEmpty()) {
+            this.committed = true;
+            return false;
+        }
+
+        // Dirty settings are older than the changes of this edit
+        this.userDb.getUserDbModule().flushSettings(this.userDb.getDiscordId());
+        this.userDb.getUserDbRepository().applyMutations(this.userDb.getDiscordId(), this.mutations);
+        this.committed = true;
+        this.userDb.applyChanges(this.changes);
+        this.userDb.getUserDbModule().publishInvalidation(this.userDb.getDiscordId());
+
+        for (final Map.Entry<AbstractStat, Integer> entry : this.previousStatValues.entrySet()) {
+            final AbstractStat stat = entry.getKey();
+            this.userDb.executeStatChangeEvent(
+                    stat,
+                    entry.getValue(),
+                    this.snapshot.getStatValue(stat.getDatabaseId()).orElse(-1)
+            );
+        }
+        for (final Map.Entry<AbstractAchievement, Boolean> entry : this.grantedAchievements.entrySet()) {
+            this.userDb.unlockAchievement(entry.getKey(), entry.getValue());
+        }
+
+        return true;
+    }
+}
@@ -1,13 +1,23 @@
 package de.timmi6790.discord_framework.module.modules.user;
 
-import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.util.concurrent.Striped;
 import de.timmi6790.discord_framework.module.AbstractModule;
 import de.timmi6790.discord_framework.module.modules.achievement.AchievementModule;
 import de.timmi6790.discord_framework.module.modules.command.CommandModule;
+import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
+import de.timmi6790.discord_framework.module.modules.database.async.AsyncDatabaseExecutor;
+import de.timmi6790.discord_framework.module.modules.database.async.AsyncEntityRepository;
+import de.timmi6790.discord_framework.module.modules.database.async.ExecutorAsyncEntityRepository;
+import de.timmi6790.discord_framework.module.modules.database.cache.CacheWeights;
+import de.timmi6790.discord_framework.module.modules.database.cache.LoadGenerations;
+import de.timmi6790.discord_framework.module.modules.database.cache.OffHeapSnapshotStore;
+import de.timmi6790.discord_framework.module.modules.database.cache.PersistentCacheSnapshot;
+import de.timmi6790.discord_framework.module.modules.database.cache.TieredCache;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationBus;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
 import de.timmi6790.discord_framework.module.modules.event.EventModule;
 import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
 import de.timmi6790.discord_framework.module.modules.permisssion.PermissionsModule;
@@ -19,13 +29,18 @@ import de.timmi6790.discord_framework.module.modules.user.commands.UserCommand;
 import de.timmi6790.discord_framework.module.modules.user.listeners.DsgvoListener;
 import de.timmi6790.discord_framework.module.modules.user.repository.UserDbRepository;
 import de.timmi6790.discord_framework.module.modules.user.repository.postgres.UserDbPostgresRepository;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
+import net.dv8tion.jda.api.entities.PrivateChannel;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.sharding.ShardManager;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.file.Paths;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -34,29 +49,64 @@ import java.util.concurrent.locks.Lock;
 @EqualsAndHashCode(callSuper = true)
 @Getter
 public class UserDbModule extends AbstractModule {
-    private final LoadingCache<Long, User> discordUserCache = Caffeine.newBuilder()
+    /**
+     * Max time we wait for discord to answer a user retrieve request
+     */
+    private static final long DISCORD_RETRIEVE_TIMEOUT_SECONDS = 10;
+    /**
+     * Max cached private channels, every user that received a private message in the last minutes is cached
+     */
+    private static final long PRIVATE_CHANNEL_CACHE_SIZE = 10_000;
+
+    private final AsyncLoadingCache<Long, User> discordUserCache = Caffeine.newBuilder()
             .recordStats()
             .expireAfterWrite(5, TimeUnit.MINUTES)
             .expireAfterAccess(1, TimeUnit.MINUTES)
-            .build(key -> {
-                final CompletableFuture<User> futureValue = new CompletableFuture<>();
-                this.discord.retrieveUserById(key).queue(futureValue::complete);
-                return futureValue.get(1, TimeUnit.MINUTES);
-            });
+            .buildAsync((key, executor) -> this.retrieveDiscordUser(key));
+
+    private final AsyncLoadingCache<Long, PrivateChannel> privateChannelCache = Caffeine.newBuilder()
+            .recordStats()
+            .maximumSize(PRIVATE_CHANNEL_CACHE_SIZE)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .buildAsync((key, executor) -> this.openPrivateChannel(key));
 
     private final Striped<Lock> userCreateLock = Striped.lock(64);
-    private final Cache<Long, UserDb> cache = Caffeine.newBuilder()
-            .maximumSize(10_000)
-            .expireAfterWrite(10, TimeUnit.MINUTES)
-            .build();
+    private TieredCache<UserDb> cache;
+    /**
+     * Keeps users loaded during an invalidation out of the cache
+     */
+    @Getter(AccessLevel.NONE)
+    private final LoadGenerations loadGenerations = new LoadGenerations();
 
     private UserDbRepository userDbRepository;
+    private AsyncEntityRepository<UserDb> asyncUserDbRepository;
+    @Getter(AccessLevel.NONE)
+    private AsyncDatabaseExecutor asyncExecutor;
     private ShardManager discord;
+    private RankModule rankModule;
+    @Nullable
+    private AchievementModule achievementModule;
+    @Nullable
+    private StatModule statModule;
+    @Getter(AccessLevel.NONE)
+    private InvalidationBus invalidationBus;
+    /**
+     * Coalesces setting writes, null when disabled
+     */
+    @Nullable
+    @Getter(AccessLevel.NONE)
+    private UserSettingWriteBuffer settingWriteBuffer;
+    /**
+     * Persisted hot set of the heap cache, null when disabled
+     */
+    @Getter(AccessLevel.NONE)
+    private PersistentCacheSnapshot<UserDb> cacheSnapshot;
 
     public UserDbModule() {
         super("UserDb");
 
         this.addDependenciesAndLoadAfter(
+                ConfigModule.class,
                 DatabaseModule.class,
                 PermissionsModule.class,
                 CommandModule.class,
@@ -77,15 +127,51 @@ public class UserDbModule extends AbstractModule {
     @Override
     public boolean onInitialize() {
         this.discord = super.getDiscord();
+        final Config userConfig = this.getModuleOrThrow(ConfigModule.class)
+                .registerAndGetConfig(this, new Config());
         final EventModule eventModule = this.getModuleOrThrow(EventModule.class);
+        this.rankModule = this.getModuleOrThrow(RankModule.class);
+        this.achievementModule = this.getModule(AchievementModule.class).orElse(null);
+        this.statModule = this.getModule(StatModule.class).orElse(null);
         this.userDbRepository = new UserDbPostgresRepository(
                 this,
                 this.getModuleOrThrow(DatabaseModule.class),
                 eventModule,
-                this.getModuleOrThrow(RankModule.class),
-                this.getModule(AchievementModule.class).orElse(null),
+                this.rankModule,
+                this.achievementModule,
                 this.getModule(SettingModule.class).orElse(null),
-                this.getModule(StatModule.class).orElse(null)
+                this.statModule
+        );
+        this.getModuleOrThrow(DatabaseModule.class).registerStatements(UserDbPostgresRepository.class);
+        this.asyncExecutor = this.getModuleOrThrow(DatabaseModule.class).getAsyncExecutor();
+        this.asyncUserDbRepository = new ExecutorAsyncEntityRepository<>(
+                this.asyncExecutor,
+                discordId -> {
+                    this.flushSettings(discordId);
+                    return this.loadUser(discordId);
+                }
+        );
+        if (userConfig.getSettingWriteDebounceMillis() > 0) {
+            this.settingWriteBuffer = new UserSettingWriteBuffer(
+                    this.userDbRepository,
+                    this::publishWrittenSettings,
+                    userConfig.getSettingWriteDebounceMillis(),
+                    userConfig.getSettingWriteMaxStalenessMillis()
+            );
+            this.settingWriteBuffer.start();
+        }
+        final UserDbSnapshotCodec snapshotCodec = new UserDbSnapshotCodec(
+                this,
+                eventModule,
+                this.getModule(SettingModule.class).orElse(null)
+        );
+        this.cache = this.createCache(userConfig, snapshotCodec);
+        this.loadCacheSnapshot(userConfig, snapshotCodec);
+        this.invalidationBus = this.getModuleOrThrow(DatabaseModule.class).getInvalidationBus();
+        this.invalidationBus.subscribe(
+                InvalidationTopic.USER,
+                this::invalidateCached,
+                this::invalidateAllCached
         );
 
         final CommandModule commandModule = this.getModuleOrThrow(CommandModule.class);
@@ -117,17 +203,263 @@ public class UserDbModule extends AbstractModule {
         );
 
         // Register metrics
-        this.getModule(MetricModule.class).ifPresent(metric ->
-                CaffeineCacheMetrics.monitor(
-                        metric.getMeterRegistry(),
-                        this.cache,
-                        "userDB_user"
-                )
-        );
+        this.getModule(MetricModule.class).ifPresent(metric -> {
+            this.cache.bindTo(metric.getMeterRegistry());
+            if (this.settingWriteBuffer != null) {
+                this.settingWriteBuffer.bindTo(metric.getMeterRegistry());
+            }
+            if (this.cacheSnapshot != null) {
+                this.cacheSnapshot.bindTo(metric.getMeterRegistry());
+            }
+            CaffeineCacheMetrics.monitor(
+                    metric.getMeterRegistry(),
+                    this.discordUserCache.synchronous(),
+                    "userDB_discord_user"
+            );
+            CaffeineCacheMetrics.monitor(
+                    metric.getMeterRegistry(),
+                    this.privateChannelCache.synchronous(),
+                    "userDB_private_channel"
+            );
+
+            // Every cache hit is an open private channel rest request we didn't need to do
+            FunctionCounter
+                    .builder(
+                            "discord.rest.avoided",
+                            this.privateChannelCache,
+                            cache -> cache.synchronous().stats().hitCount()
+                    )
+                    .tags("request", "open_private_channel")
+                    .description("rest requests avoided through caching")
+                    .register(metric.getMeterRegistry());
+        });
 
         return true;
     }
 
+    @Override
+    public boolean onDisable() {
+        // Written before the snapshot, the snapshot stores the database version of the users
+        if (this.settingWriteBuffer != null) {
+            this.settingWriteBuffer.close();
+        }
+        if (this.cacheSnapshot != null) {
+            this.cacheSnapshot.save(this.cache.getHeapCache());
+        }
+        return true;
+    }
+
+    private void loadCacheSnapshot(final Config userConfig, final UserDbSnapshotCodec codec) {
+        if (userConfig.getCacheSnapshotPath().isEmpty() || userConfig.getCacheSnapshotEntries() <= 0) {
+            return;
+        }
+
+        this.cacheSnapshot = new PersistentCacheSnapshot<>(
+                "userDB_user",
+                Paths.get(userConfig.getCacheSnapshotPath()),
+                userConfig.getCacheSnapshotEntries(),
+                codec,
+                this.userDbRepository::getVersions
+        );
+        this.cacheSnapshot.load(this.cache::put);
+        this.cacheSnapshot.validatePendingAsync(
+                discordId -> this.cache.invalidate(discordId),
+                this.asyncExecutor.getExecutor()
+        );
+    }
+
+    /**
+     * Loads the user from the repository. The version of the loaded user is recorded for the cache snapshot.
+     *
+     * @param discordId the discord id
+     * @return the user
+     */
+    private Optional<UserDb> loadUser(final long discordId) {
+        if (this.cacheSnapshot == null) {
+            return this.userDbRepository.get(discordId);
+        }
+
+        return this.userDbRepository.getVersioned(discordId).map(this.cacheSnapshot::recordVersion);
+    }
+
+    /**
+     * Checks if the cached user can be used, users preloaded from the cache snapshot are validated on their first
+     * access.
+     *
+     * @param discordId the discord id
+     * @return false if the cached user was stale and is removed
+     */
+    private boolean isCachedUserValid(final long discordId) {
+        if (this.cacheSnapshot == null || this.cacheSnapshot.validate(discordId)) {
+            return true;
+        }
+
+        this.cache.invalidate(discordId);
+        return false;
+    }
+
+    private void invalidateCached(final long discordId) {
+        this.loadGenerations.invalidate(discordId);
+        this.cache.invalidate(discordId);
+    }
+
+    private void invalidateAllCached() {
+        this.loadGenerations.invalidateAll();
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * Caches the loaded user, unless it was invalidated while it was loaded.
+     *
+     * @param discordId  the discord id
+     * @param userDb     the loaded user
+     * @param generation the load generation captured before the user was read
+     */
+    private void cacheLoaded(final long discordId, final UserDb userDb, final long generation) {
+        this.loadGenerations.putIfCurrent(
+                discordId,
+                generation,
+                () -> this.cache.put(discordId, userDb),
+                id -> this.cache.invalidate(id)
+        );
+    }
+
+    private TieredCache<UserDb> createCache(final Config userConfig, final UserDbSnapshotCodec codec) {
+        OffHeapSnapshotStore offHeapStore = null;
+        if (userConfig.getOffHeapCacheSizeMb() > 0) {
+            offHeapStore = new OffHeapSnapshotStore(
+                    Math.toIntExact(userConfig.getOffHeapCacheSizeMb() * 1024L * 1024L),
+                    TimeUnit.MINUTES.toMillis(userConfig.getOffHeapExpireAfterWriteMinutes())
+            );
+        }
+
+        return new TieredCache<>(
+                "userDB_user",
+                Caffeine.newBuilder()
+                        .maximumWeight(CacheWeights.megabytesToBytes(userConfig.getCacheSizeMb()))
+                        .weigher((Long discordId, UserDb userDb) ->
+                                CacheWeights.toWeight(userDb.estimateRetainedBytes())
+                        )
+                        .expireAfterWrite(userConfig.getCacheExpireAfterWriteMinutes(), TimeUnit.MINUTES),
+                offHeapStore,
+                codec,
+                // Dirty settings are written before the user could be reloaded from the database
+                this.settingWriteBuffer == null ? null : this.settingWriteBuffer::flushAsync
+        );
+    }
+
+    /**
+     * Loads the discord user. The jda entity cache is checked first, before we fall back to a rest request.
+     *
+     * @param discordId the discord user id
+     * @return the user future, completed exceptionally if the user can't be retrieved in time
+     */
+    private CompletableFuture<User> retrieveDiscordUser(final long discordId) {
+        final User cachedUser = this.discord.getUserById(discordId);
+        if (cachedUser != null) {
+            return CompletableFuture.completedFuture(cachedUser);
+        }
+
+        return this.discord.retrieveUserById(discordId)
+                .timeout(DISCORD_RETRIEVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .submit();
+    }
+
+    /**
+     * Gets the discord user for the given id. Failed requests are not cached and are propagated to the future.
+     *
+     * @param discordId the discord user id
+     * @return the user future
+     */
+    public CompletableFuture<User> getDiscordUser(final long discordId) {
+        return this.discordUserCache.get(discordId);
+    }
+
+    /**
+     * Opens the private channel with the given user. Bots will always return an exceptionally completed future,
+     * because we can't send private messages to them.
+     *
+     * @param discordId the discord user id
+     * @return the private channel future
+     */
+    private CompletableFuture<PrivateChannel> openPrivateChannel(final long discordId) {
+        return this.getDiscordUser(discordId).thenCompose(user -> {
+            if (user.isBot()) {
+                return CompletableFuture.failedFuture(
+                        new IllegalArgumentException("Can't open a private channel with bot " + discordId)
+                );
+            }
+
+            return user.openPrivateChannel()
+                    .timeout(DISCORD_RETRIEVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .submit();
+        });
+    }
+
+    /**
+     * Gets the private channel with the given user. The channel is cached to prevent a rest request for every private
+     * message.
+     *
+     * @param discordId the discord user id
+     * @return the private channel future
+     */
+    public CompletableFuture<PrivateChannel> getPrivateChannel(final long discordId) {
+        return this.privateChannelCache.get(discordId);
+    }
+
+    /**
+     * Invalidates the cached user on all other bot processes, after it was changed by this process.
+     *
+     * @param discordId the discord id
+     */
+    protected void publishInvalidation(final long discordId) {
+        // The changed instance could already be moved out of the heap cache, which makes the off heap snapshot stale
+        this.cache.invalidateOffHeap(discordId);
+        if (this.invalidationBus != null) {
+            this.invalidationBus.publish(InvalidationTopic.USER, discordId);
+        }
+    }
+
+    protected boolean isSettingWriteBuffered() {
+        return this.settingWriteBuffer != null;
+    }
+
+    /**
+     * Marks the changed setting as dirty, it is written later by the setting write buffer. The user instance must
+     * already contain the new value.
+     *
+     * @param discordId the discord id
+     * @param settingId the setting id
+     * @param value     the new database value
+     */
+    protected void bufferSettingWrite(final long discordId, final int settingId, final String value) {
+        if (this.settingWriteBuffer == null) {
+            throw new IllegalStateException("The setting write buffer is disabled");
+        }
+
+        this.settingWriteBuffer.setSetting(discordId, settingId, value);
+        // The changed instance could already be moved out of the heap cache, which makes the off heap snapshot stale
+        this.cache.invalidateOffHeap(discordId);
+    }
+
+    /**
+     * Writes the dirty settings of the user, required before the user is loaded from or changed inside the database.
+     * Always waits for a running write of the user, its settings are no longer dirty while they are written.
+     *
+     * @param discordId the discord id
+     */
+    protected void flushSettings(final long discordId) {
+        if (this.settingWriteBuffer != null) {
+            this.settingWriteBuffer.flush(discordId);
+        }
+    }
+
+    private void publishWrittenSettings(final long discordId) {
+        if (this.invalidationBus != null) {
+            this.invalidationBus.publish(InvalidationTopic.USER, discordId);
+        }
+    }
+
     protected UserDb create(final long discordId) {
         // Lock the current discord id to prevent multiple creates
         final Lock lock = this.userCreateLock.get(discordId);
@@ -139,8 +471,9 @@ public class UserDbModule extends AbstractModule {
                 return userDbOpt.get();
             }
 
+            final long generation = this.loadGenerations.get(discordId);
             final UserDb userDb = this.getUserDbRepository().create(discordId);
-            this.getCache().put(discordId, userDb);
+            this.cacheLoaded(discordId, userDb, generation);
             return userDb;
         } finally {
             lock.unlock();
@@ -149,12 +482,14 @@ public class UserDbModule extends AbstractModule {
 
     public Optional<UserDb> get(final long discordId) {
         final UserDb userDbCache = this.getCache().getIfPresent(discordId);
-        if (userDbCache != null) {
+        if (userDbCache != null && this.isCachedUserValid(discordId)) {
             return Optional.of(userDbCache);
         }
 
-        final Optional<UserDb> userDbOpt = this.getUserDbRepository().get(discordId);
-        userDbOpt.ifPresent(userDb -> this.getCache().put(discordId, userDb));
+        this.flushSettings(discordId);
+        final long generation = this.loadGenerations.get(discordId);
+        final Optional<UserDb> userDbOpt = this.loadUser(discordId);
+        userDbOpt.ifPresent(userDb -> this.cacheLoaded(discordId, userDb, generation));
 
         return userDbOpt;
     }
@@ -163,12 +498,59 @@ public class UserDbModule extends AbstractModule {
         return this.get(discordId).orElseGet(() -> this.create(discordId));
     }
 
+    /**
+     * Non blocking version of {@link #get(long)}. Cached users complete directly, all other users are loaded through
+     * the async repository.
+     *
+     * @param discordId the discord id
+     * @return the user future
+     */
+    public CompletableFuture<Optional<UserDb>> getAsync(final long discordId) {
+        final UserDb userDbCache = this.getCache().getIfPresent(discordId);
+        if (userDbCache != null) {
+            if (this.cacheSnapshot == null || !this.cacheSnapshot.isPending(discordId)) {
+                return CompletableFuture.completedFuture(Optional.of(userDbCache));
+            }
+
+            // Reloading the preloaded user is as expensive as validating it
+            this.cache.invalidate(discordId);
+            this.cacheSnapshot.discard(discordId);
+        }
+
+        final long generation = this.loadGenerations.get(discordId);
+        return this.asyncUserDbRepository.get(discordId)
+                .thenApply(userDbOpt -> {
+                    userDbOpt.ifPresent(userDb -> this.cacheLoaded(discordId, userDb, generation));
+                    return userDbOpt;
+                })
+                .toCompletableFuture();
+    }
+
+    /**
+     * Non blocking version of {@link #getOrCreate(long)}.
+     *
+     * @param discordId the discord id
+     * @return the user future
+     */
+    public CompletableFuture<UserDb> getOrCreateAsync(final long discordId) {
+        return this.getAsync(discordId)
+                .thenCompose(userDbOpt -> userDbOpt
+                        .map(CompletableFuture::completedFuture)
+                        // Create checks again under its lock, the repository was already checked
+                        .orElseGet(() -> this.asyncExecutor.supply(() -> this.create(discordId)))
+                );
+    }
+
     public void delete(final long discordId) {
         this.get(discordId).ifPresent(this::delete);
     }
 
     public void delete(@NonNull final UserDb userDb) {
+        if (this.settingWriteBuffer != null) {
+            this.settingWriteBuffer.discard(userDb.getDiscordId());
+        }
         this.getUserDbRepository().delete(userDb.getDiscordId());
-        this.getCache().invalidate(userDb.getDiscordId());
+        this.invalidateCached(userDb.getDiscordId());
+        this.publishInvalidation(userDb.getDiscordId());
     }
 }
@@ -0,0 +1,368 @@
+package de.timmi6790.discord_framework.module.modules.user;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import de.timmi6790.discord_framework.module.modules.database.cache.CacheWeights;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Immutable compact state of a user. Ranks, permissions, stats, settings and achievements are only stored by their
+ * repository ids inside sorted arrays, stat and setting values inside arrays parallel to their ids. Setting values
+ * are interned, most users share the same few values.
+ * <p>
+ * Every change creates a new snapshot, the arrays of a snapshot are never modified. Changes without effect return the
+ * same snapshot, the repository calls them for every row of the joined user query.
+ */
+@Data
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class UserDbSnapshot {
+    private static final int[] EMPTY_IDS = new int[0];
+    private static final String[] EMPTY_VALUES = new String[0];
+    private static final Interner<String> SETTING_VALUES = Interners.newWeakInterner();
+
+    private final long discordId;
+    private final int primaryRankId;
+    private final boolean banned;
+    @Getter(AccessLevel.PACKAGE)
+    private final int[] rankIds;
+    @Getter(AccessLevel.PACKAGE)
+    private final int[] permissionIds;
+    @Getter(AccessLevel.PACKAGE)
+    private final int[] statIds;
+    @Getter(AccessLevel.PACKAGE)
+    private final int[] statValues;
+    @Getter(AccessLevel.PACKAGE)
+    private final int[] settingIds;
+    @Getter(AccessLevel.PACKAGE)
+    private final String[] settingValues;
+    @Getter(AccessLevel.PACKAGE)
+    private final int[] achievementIds;
+
+    /**
+     * Creates the snapshot of a user without ranks, permissions, stats, settings or achievements.
+     *
+     * @param discordId     the discord id
+     * @param primaryRankId the primary rank id
+     * @param banned        the ban status
+     * @return the snapshot
+     */
+    public static UserDbSnapshot of(final long discordId, final int primaryRankId, final boolean banned) {
+        return new UserDbSnapshot(
+                discordId,
+                primaryRankId,
+                banned,
+                EMPTY_IDS,
+                EMPTY_IDS,
+                EMPTY_IDS,
+                EMPTY_IDS,
+                EMPTY_IDS,
+                EMPTY_VALUES,
+                EMPTY_IDS
+        );
+    }
+
+    /**
+     * Creates a snapshot out of decoded arrays. The arrays are taken over and must already be sorted by id.
+     */
+    static UserDbSnapshot fromSortedArrays(final long discordId,
+                                           final int primaryRankId,
+                                           final boolean banned,
+                                           final int[] rankIds,
+                                           final int[] permissionIds,
+                                           final int[] statIds,
+                                           final int[] statValues,
+                                           final int[] settingIds,
+                                           final String[] settingValues,
+                                           final int[] achievementIds) {
+        for (int index = 0; settingValues.length > index; index++) {
+            settingValues[index] = SETTING_VALUES.intern(settingValues[index]);
+        }
+
+        return new UserDbSnapshot(
+                discordId,
+                primaryRankId,
+                banned,
+                orEmpty(rankIds),
+                orEmpty(permissionIds),
+                orEmpty(statIds),
+                orEmpty(statValues),
+                orEmpty(settingIds),
+                settingValues.length == 0 ? EMPTY_VALUES : settingValues,
+                orEmpty(achievementIds)
+        );
+    }
+
+    private static int[] orEmpty(final int[] ids) {
+        return ids.length == 0 ? EMPTY_IDS : ids;
+    }
+
+    private static int[] insert(final int[] sortedIds, final int index, final int value) {
+        final int[] newIds = new int[sortedIds.length + 1];
+        System.arraycopy(sortedIds, 0, newIds, 0, index);
+        newIds[index] = value;
+        System.arraycopy(sortedIds, index, newIds, index + 1, sortedIds.length - index);
+        return newIds;
+    }
+
+    private static String[] insert(final String[] values, final int index, final String value) {
+        final String[] newValues = new String[values.length + 1];
+        System.arraycopy(values, 0, newValues, 0, index);
+        newValues[index] = value;
+        System.arraycopy(values, index, newValues, index + 1, values.length - index);
+        return newValues;
+    }
+
+    private static int[] remove(final int[] sortedIds, final int index) {
+        if (sortedIds.length == 1) {
+            return EMPTY_IDS;
+        }
+
+        final int[] newIds = new int[sortedIds.length - 1];
+        System.arraycopy(sortedIds, 0, newIds, 0, index);
+        System.arraycopy(sortedIds, index + 1, newIds, index, newIds.length - index);
+        return newIds;
+    }
+
+    private static int[] withId(final int[] sortedIds, final int id) {
+        final int index = Arrays.binarySearch(sortedIds, id);
+        return index >= 0 ? sortedIds : insert(sortedIds, -index - 1, id);
+    }
+
+    private static int[] withoutId(final int[] sortedIds, final int id) {
+        final int index = Arrays.binarySearch(sortedIds, id);
+        return index >= 0 ? remove(sortedIds, index) : sortedIds;
+    }
+
+    public boolean hasRank(final int rankId) {
+        return Arrays.binarySearch(this.rankIds, rankId) >= 0;
+    }
+
+    public boolean hasPermission(final int permissionId) {
+        return Arrays.binarySearch(this.permissionIds, permissionId) >= 0;
+    }
+
+    public boolean hasAchievement(final int achievementId) {
+        return Arrays.binarySearch(this.achievementIds, achievementId) >= 0;
+    }
+
+    public OptionalInt getStatValue(final int statId) {
+        final int index = Arrays.binarySearch(this.statIds, statId);
+        return index >= 0 ? OptionalInt.of(this.statValues[index]) : OptionalInt.empty();
+    }
+
+    public Optional<String> getSettingValue(final int settingId) {
+        final int index = Arrays.binarySearch(this.settingIds, settingId);
+        return index >= 0 ? Optional.of(this.settingValues[index]) : Optional.empty();
+    }
+
+    /**
+     * Estimates the retained heap size of this snapshot. Interned setting values are shared and not counted.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateRetainedBytes() {
+        return CacheWeights.objectBytes(Long.BYTES + Integer.BYTES + 1 + 7L * CacheWeights.REFERENCE_BYTES)
+                + CacheWeights.intArrayBytes(this.rankIds.length)
+                + CacheWeights.intArrayBytes(this.permissionIds.length)
+                + CacheWeights.intArrayBytes(this.statIds.length)
+                + CacheWeights.intArrayBytes(this.statValues.length)
+                + CacheWeights.intArrayBytes(this.settingIds.length)
+                + CacheWeights.referenceArrayBytes(this.settingValues.length)
+                + CacheWeights.intArrayBytes(this.achievementIds.length);
+    }
+
+    public int[] copyRankIds() {
+        return this.rankIds.clone();
+    }
+
+    public int[] copyPermissionIds() {
+        return this.permissionIds.clone();
+    }
+
+    public int[] copyAchievementIds() {
+        return this.achievementIds.clone();
+    }
+
+    public UserDbSnapshot withBanned(final boolean newBanned) {
+        if (newBanned == this.banned) {
+            return this;
+        }
+
+        return new UserDbSnapshot(
+                this.discordId,
+                this.primaryRankId,
+                newBanned,
+                this.rankIds,
+                this.permissionIds,
+                this.statIds,
+                this.statValues,
+                this.settingIds,
+                this.settingValues,
+                this.achievementIds
+        );
+    }
+
+    public UserDbSnapshot withPrimaryRankId(final int newPrimaryRankId) {
+        if (newPrimaryRankId == this.primaryRankId) {
+            return this;
+        }
+
+        return new UserDbSnapshot(
+                this.discordId,
+                newPrimaryRankId,
+                this.banned,
+                this.rankIds,
+                this.permissionIds,
+                this.statIds,
+                this.statValues,
+                this.settingIds,
+                this.settingValues,
+                this.achievementIds
+        );
+    }
+
+    private UserDbSnapshot withRankIds(final int[] newRankIds) {
+        if (newRankIds == this.rankIds) {
+            return this;
+        }
+
+        return new UserDbSnapshot(
+                this.discordId,
+                this.primaryRankId,
+                this.banned,
+                newRankIds,
+                this.permissionIds,
+                this.statIds,
+                this.statValues,
+                this.settingIds,
+                this.settingValues,
+                this.achievementIds
+        );
+    }
+
+    public UserDbSnapshot withRank(final int rankId) {
+        return this.withRankIds(withId(this.rankIds, rankId));
+    }
+
+    public UserDbSnapshot withoutRank(final int rankId) {
+        return this.withRankIds(withoutId(this.rankIds, rankId));
+    }
+
+    private UserDbSnapshot withPermissionIds(final int[] newPermissionIds) {
+        if (newPermissionIds == this.permissionIds) {
+            return this;
+        }
+
+        return new UserDbSnapshot(
+                this.discordId,
+                this.primaryRankId,
+                this.banned,
+                this.rankIds,
+                newPermissionIds,
+                this.statIds,
+                this.statValues,
+                this.settingIds,
+                this.settingValues,
+                this.achievementIds
+        );
+    }
+
+    public UserDbSnapshot withPermission(final int permissionId) {
+        return this.withPermissionIds(withId(this.permissionIds, permissionId));
+    }
+
+    public UserDbSnapshot withoutPermission(final int permissionId) {
+        return this.withPermissionIds(withoutId(this.permissionIds, permissionId));
+    }
+
+    public UserDbSnapshot withAchievement(final int achievementId) {
+        final int[] newAchievementIds = withId(this.achievementIds, achievementId);
+        if (newAchievementIds == this.achievementIds) {
+            return this;
+        }
+
+        return new UserDbSnapshot(
+                this.discordId,
+                this.primaryRankId,
+                this.banned,
+                this.rankIds,
+                this.permissionIds,
+                this.statIds,
+                this.statValues,
+                this.settingIds,
+                this.settingValues,
+                newAchievementIds
+        );
+    }
+
+    public UserDbSnapshot withStat(final int statId, final int value) {
+        final int index = Arrays.binarySearch(this.statIds, statId);
+        final int[] newStatIds;
+        final int[] newStatValues;
+        if (index >= 0) {
+            if (this.statValues[index] == value) {
+                return this;
+            }
+
+            newStatIds = this.statIds;
+            newStatValues = this.statValues.clone();
+            newStatValues[index] = value;
+        } else {
+            newStatIds = insert(this.statIds, -index - 1, statId);
+            newStatValues = insert(this.statValues, -index - 1, value);
+        }
+
+        return new UserDbSnapshot(
+                this.discordId,
+                this.primaryRankId,
+                this.banned,
+                this.rankIds,
+                this.permissionIds,
+                newStatIds,
+                newStatValues,
+                this.settingIds,
+                this.settingValues,
+                this.achievementIds
+        );
+    }
+
+    public UserDbSnapshot withSetting(final int settingId, final String value) {
+        final String internedValue = SETTING_VALUES.intern(value);
+        final int index = Arrays.binarySearch(this.settingIds, settingId);
+        final int[] newSettingIds;
+        final String[] newSettingValues;
+        if (index >= 0) {
+            // Interned, equal values are the same instance
+            if (this.settingValues[index] == internedValue) {
+                return this;
+            }
+
+            newSettingIds = this.settingIds;
+            newSettingValues = this.settingValues.clone();
+            newSettingValues[index] = internedValue;
+        } else {
+            newSettingIds = insert(this.settingIds, -index - 1, settingId);
+            newSettingValues = insert(this.settingValues, -index - 1, internedValue);
+        }
+
+        return new UserDbSnapshot(
+                this.discordId,
+                this.primaryRankId,
+                this.banned,
+                this.rankIds,
+                this.permissionIds,
+                this.statIds,
+                this.statValues,
+                newSettingIds,
+                newSettingValues,
+                this.achievementIds
+        );
+    }
+}
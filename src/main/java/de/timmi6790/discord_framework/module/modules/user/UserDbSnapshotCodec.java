@@ -0,0 +1,199 @@
+package de.timmi6790.discord_framework.module.modules.user;
+
+import de.timmi6790.discord_framework.module.modules.database.cache.SnapshotCodec;
+import de.timmi6790.discord_framework.module.modules.event.EventModule;
+import de.timmi6790.discord_framework.module.modules.setting.SettingModule;
+import lombok.AllArgsConstructor;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.Optional;
+
+/**
+ * Versioned binary format of {@link UserDbSnapshot}s, used for cache snapshots and to transfer users between bot
+ * processes.
+ * <p>
+ * Version 1 layout: the version byte, the discord id, a flag byte, the primary rank id and then the rank, permission,
+ * stat, setting and achievement sections. Each section starts with its entry count, followed by the sorted ids as
+ * deltas to the previous id. Counts, ids and deltas are unsigned var ints, stat values zig zag encoded var ints and
+ * setting values modified utf-8 strings.
+ */
+@AllArgsConstructor
+public class UserDbSnapshotCodec implements SnapshotCodec<UserDb> {
+    public static final int CURRENT_VERSION = 1;
+
+    private static final int FLAG_BANNED = 1;
+
+    private final UserDbModule userDbModule;
+    private final EventModule eventModule;
+    private final @Nullable SettingModule settingModule;
+
+    private static void writeVarInt(final DataOutput output, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.writeByte(remaining);
+    }
+
+    private static int readVarInt(final DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; 35 > shift; shift += 7) {
+            final int current = input.readUnsignedByte();
+            value |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Var int is longer than 5 bytes");
+    }
+
+    private static void writeSortedIds(final DataOutput output, final int[] sortedIds) throws IOException {
+        writeVarInt(output, sortedIds.length);
+        int previousId = 0;
+        for (final int id : sortedIds) {
+            writeVarInt(output, id - previousId);
+            previousId = id;
+        }
+    }
+
+    private static int[] readSortedIds(final DataInput input, final int count) throws IOException {
+        final int[] ids = new int[count];
+        int previousId = 0;
+        for (int index = 0; count > index; index++) {
+            previousId += readVarInt(input);
+            ids[index] = previousId;
+        }
+        return ids;
+    }
+
+    private static int readCount(final DataInput input, final int remainingBytes) throws IOException {
+        final int count = readVarInt(input);
+        // Every entry needs at least one byte, which protects us from allocating huge arrays for corrupted snapshots
+        if (count < 0 || count > remainingBytes) {
+            throw new IOException("Invalid entry count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Encode the snapshot in the current version.
+     *
+     * @param snapshot the snapshot
+     * @return the encoded snapshot
+     */
+    public static byte[] write(final UserDbSnapshot snapshot) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (final DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(CURRENT_VERSION);
+            output.writeLong(snapshot.getDiscordId());
+            output.writeByte(snapshot.isBanned() ? FLAG_BANNED : 0);
+            writeVarInt(output, snapshot.getPrimaryRankId());
+
+            writeSortedIds(output, snapshot.getRankIds());
+            writeSortedIds(output, snapshot.getPermissionIds());
+
+            writeSortedIds(output, snapshot.getStatIds());
+            for (final int value : snapshot.getStatValues()) {
+                writeVarInt(output, (value << 1) ^ (value >> 31));
+            }
+
+            writeSortedIds(output, snapshot.getSettingIds());
+            for (final String value : snapshot.getSettingValues()) {
+                output.writeUTF(value);
+            }
+
+            writeSortedIds(output, snapshot.getAchievementIds());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a snapshot written by {@link #write(UserDbSnapshot)}.
+     *
+     * @param bytes the encoded snapshot
+     * @return the snapshot
+     * @throws IllegalArgumentException if the snapshot was written in an unsupported version or is corrupted
+     */
+    public static UserDbSnapshot read(final byte[] bytes) {
+        if (bytes.length == 0 || bytes[0] != CURRENT_VERSION) {
+            throw new IllegalArgumentException(
+                    "Unsupported user snapshot version " + (bytes.length == 0 ? "none" : String.valueOf(bytes[0]))
+            );
+        }
+
+        try (final DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            final long discordId = input.readLong();
+            final boolean banned = (input.readUnsignedByte() & FLAG_BANNED) != 0;
+            final int primaryRankId = readVarInt(input);
+
+            final int[] rankIds = readSortedIds(input, readCount(input, input.available()));
+            final int[] permissionIds = readSortedIds(input, readCount(input, input.available()));
+
+            final int[] statIds = readSortedIds(input, readCount(input, input.available()));
+            final int[] statValues = new int[statIds.length];
+            for (int index = 0; statValues.length > index; index++) {
+                final int encoded = readVarInt(input);
+                statValues[index] = (encoded >>> 1) ^ -(encoded & 1);
+            }
+
+            final int[] settingIds = readSortedIds(input, readCount(input, input.available()));
+            final String[] settingValues = new String[settingIds.length];
+            for (int index = 0; settingValues.length > index; index++) {
+                settingValues[index] = input.readUTF();
+            }
+
+            final int[] achievementIds = readSortedIds(input, readCount(input, input.available()));
+
+            return UserDbSnapshot.fromSortedArrays(
+                    discordId,
+                    primaryRankId,
+                    banned,
+                    rankIds,
+                    permissionIds,
+                    statIds,
+                    statValues,
+                    settingIds,
+                    settingValues,
+                    achievementIds
+            );
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Corrupted user snapshot", e);
+        }
+    }
+
+    /**
+     * Checks if the snapshot was written in a version this codec can read.
+     *
+     * @param bytes the encoded snapshot
+     * @return true if supported
+     */
+    public static boolean isSupported(final byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == CURRENT_VERSION;
+    }
+
+    @Override
+    public byte[] encode(final UserDb userDb) {
+        return write(userDb.getSnapshot());
+    }
+
+    @Override
+    public Optional<UserDb> decode(final byte[] snapshot) {
+        // Snapshots of older versions are dropped, the user is just reloaded from the database
+        if (!isSupported(snapshot)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(
+                new UserDb(
+                        read(snapshot),
+                        this.userDbModule,
+                        this.eventModule,
+                        this.settingModule
+                )
+        );
+    }
+}
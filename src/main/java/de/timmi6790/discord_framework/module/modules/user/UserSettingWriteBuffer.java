@@ -0,0 +1,316 @@
+package de.timmi6790.discord_framework.module.modules.user;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.timmi6790.discord_framework.module.modules.user.repository.UserDbRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Coalesces the setting writes of users. Changed settings are marked as dirty and written in one upsert batch after the
+ * user stopped changing settings for the debounce time, but never later than the max staleness after the first
+ * unwritten change. Repeated changes of the same setting only write the last value.
+ * <p>
+ * Other bot processes are informed about the changes after they are written. Dirty settings must be written before
+ * the user is loaded from the database again, see {@link #flush(long)}.
+ */
+@Log4j2
+public class UserSettingWriteBuffer implements AutoCloseable {
+    /**
+     * Max time we wait for a running flush on close
+     */
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final UserDbRepository userDbRepository;
+    private final LongConsumer onWritten;
+    private final long debounceNanos;
+    private final long maxStalenessNanos;
+    private final Ticker ticker;
+
+    private final Map<Long, DirtySettings> dirtyUsers = new ConcurrentHashMap<>();
+    /**
+     * Held while the settings of the user are written, a flush of the user waits for a running write
+     */
+    private final Striped<Lock> writeLock = Striped.lock(64);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("user-setting-flush")
+                    .setDaemon(true)
+                    .build()
+    );
+
+    private final LongAdder bufferedWrites = new LongAdder();
+    private final LongAdder writtenSettings = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+
+    /**
+     * Instantiates a new user setting write buffer.
+     *
+     * @param userDbRepository   the user repository
+     * @param onWritten          called for every user after its settings are written
+     * @param debounceMillis     milliseconds without changes after which the settings of a user are written
+     * @param maxStalenessMillis max milliseconds a changed setting stays unwritten
+     */
+    public UserSettingWriteBuffer(final UserDbRepository userDbRepository,
+                                  final LongConsumer onWritten,
+                                  final long debounceMillis,
+                                  final long maxStalenessMillis) {
+        this(userDbRepository, onWritten, debounceMillis, maxStalenessMillis, Ticker.systemTicker());
+    }
+
+    UserSettingWriteBuffer(final UserDbRepository userDbRepository,
+                           final LongConsumer onWritten,
+                           final long debounceMillis,
+                           final long maxStalenessMillis,
+                           final Ticker ticker) {
+        this.userDbRepository = userDbRepository;
+        this.onWritten = onWritten;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(debounceMillis, maxStalenessMillis));
+        this.ticker = ticker;
+    }
+
+    /**
+     * Starts the periodic write of all due settings.
+     */
+    public void start() {
+        // Checking twice per debounce time delays a write by at most half the debounce time
+        final long periodMillis = Math.max(10, TimeUnit.NANOSECONDS.toMillis(this.debounceNanos) / 2);
+        this.scheduler.scheduleWithFixedDelay(this::flushDueSafe, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks the setting of the user as dirty.
+     *
+     * @param userId    the user id
+     * @param settingId the setting id
+     * @param value     the new database value
+     */
+    public void setSetting(final long userId, final int settingId, final String value) {
+        final long now = this.ticker.read();
+        this.dirtyUsers.compute(userId, (key, dirtySettings) -> {
+            final DirtySettings settings = dirtySettings == null ? new DirtySettings(now) : dirtySettings;
+            settings.values.put(settingId, value);
+            settings.lastChange = now;
+            return settings;
+        });
+        this.bufferedWrites.increment();
+    }
+
+    public boolean hasDirtySettings(final long userId) {
+        return this.dirtyUsers.containsKey(userId);
+    }
+
+    public int getDirtyUserCount() {
+        return this.dirtyUsers.size();
+    }
+
+    /**
+     * Drops the dirty settings of the user without writing them, used when the user is deleted.
+     *
+     * @param userId the user id
+     */
+    public void discard(final long userId) {
+        this.dirtyUsers.remove(userId);
+    }
+
+    private boolean isDue(final DirtySettings settings, final long now) {
+        return now - settings.lastChange >= this.debounceNanos || now - settings.firstChange >= this.maxStalenessNanos;
+    }
+
+    /**
+     * Writes the dirty settings of all users that stopped changing their settings or reached the max staleness.
+     *
+     * @return the amount of written users
+     */
+    public int flushDue() {
+        final long now = this.ticker.read();
+        final List<Long> dueUsers = new ArrayList<>();
+        for (final Map.Entry<Long, DirtySettings> entry : this.dirtyUsers.entrySet()) {
+            if (this.isDue(entry.getValue(), now)) {
+                dueUsers.add(entry.getKey());
+            }
+        }
+        return this.flush(dueUsers);
+    }
+
+    private void flushDueSafe() {
+        try {
+            this.flushDue();
+        } catch (final RuntimeException e) {
+            log.warn("Failed to write the dirty user settings", e);
+        }
+    }
+
+    /**
+     * Writes the dirty settings of the user. Returns after a running write of the user finished, also if the user has
+     * no dirty settings. Running writes already removed their settings from the dirty settings and restore them on
+     * failure, checking {@link #hasDirtySettings(long)} first doesn't wait for them.
+     *
+     * @param userId the user id
+     */
+    public void flush(final long userId) {
+        this.flush(List.of(userId));
+    }
+
+    /**
+     * Writes the dirty settings of the user in the background.
+     *
+     * @param userId the user id
+     */
+    public void flushAsync(final long userId) {
+        if (!this.hasDirtySettings(userId)) {
+            return;
+        }
+
+        try {
+            this.scheduler.execute(() -> this.flushSafe(userId));
+        } catch (final RejectedExecutionException e) {
+            // Closed, we are inside the shutdown
+            this.flushSafe(userId);
+        }
+    }
+
+    private void flushSafe(final long userId) {
+        try {
+            this.flush(userId);
+        } catch (final RuntimeException e) {
+            log.warn("Failed to write the dirty settings of user {}", userId, e);
+        }
+    }
+
+    /**
+     * Writes the dirty settings of all users.
+     *
+     * @return the amount of written users
+     */
+    public int flushAll() {
+        return this.flush(new ArrayList<>(this.dirtyUsers.keySet()));
+    }
+
+    private int flush(final List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+
+        // The lock is also taken without dirty settings, to wait for a running write of the users.
+        // Bulk locks are ordered, concurrent flushes can't deadlock
+        final List<Lock> locks = new ArrayList<>();
+        this.writeLock.bulkGet(userIds).forEach(locks::add);
+        locks.forEach(Lock::lock);
+        try {
+            final Map<Long, Map<Integer, String>> settings = new HashMap<>();
+            final Map<Long, DirtySettings> removed = new HashMap<>();
+            for (final long userId : userIds) {
+                final DirtySettings dirtySettings = this.dirtyUsers.remove(userId);
+                if (dirtySettings != null) {
+                    removed.put(userId, dirtySettings);
+                    settings.put(userId, dirtySettings.values);
+                }
+            }
+            if (settings.isEmpty()) {
+                return 0;
+            }
+
+            try {
+                this.userDbRepository.upsertSettings(settings);
+            } catch (final RuntimeException e) {
+                this.failedFlushes.increment();
+                this.restore(removed);
+                throw e;
+            }
+
+            for (final Map.Entry<Long, Map<Integer, String>> entry : settings.entrySet()) {
+                this.writtenSettings.add(entry.getValue().size());
+                this.onWritten.accept(entry.getKey());
+            }
+            return settings.size();
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    /**
+     * Marks the settings of a failed write as dirty again, without overwriting newer changes.
+     *
+     * @param failed the settings of the failed write
+     */
+    private void restore(final Map<Long, DirtySettings> failed) {
+        for (final Map.Entry<Long, DirtySettings> entry : failed.entrySet()) {
+            this.dirtyUsers.merge(entry.getKey(), entry.getValue(), (newer, older) -> {
+                older.values.forEach(newer.values::putIfAbsent);
+                newer.firstChange = older.firstChange;
+                return newer;
+            });
+        }
+    }
+
+    /**
+     * Stops the periodic write and writes all dirty settings.
+     */
+    @Override
+    public void close() {
+        this.scheduler.shutdown();
+        try {
+            if (!this.scheduler.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("The user setting flush is still running after {} seconds", CLOSE_TIMEOUT_SECONDS);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            final int written = this.flushAll();
+            if (written > 0) {
+                log.info("Wrote the dirty settings of {} users", written);
+            }
+        } catch (final RuntimeException e) {
+            log.warn("Failed to write the dirty settings of {} users", this.getDirtyUserCount(), e);
+        }
+    }
+
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("userDB.settings.dirty", this, UserSettingWriteBuffer::getDirtyUserCount)
+                .description("Users with unwritten setting changes")
+                .register(registry);
+        FunctionCounter.builder("userDB.settings.writes", this.bufferedWrites, LongAdder::sum)
+                .tag("stage", "buffered")
+                .description("Setting changes, written settings are coalesced")
+                .register(registry);
+        FunctionCounter.builder("userDB.settings.writes", this.writtenSettings, LongAdder::sum)
+                .tag("stage", "written")
+                .description("Setting changes, written settings are coalesced")
+                .register(registry);
+        FunctionCounter.builder("userDB.settings.flush.failures", this.failedFlushes, LongAdder::sum)
+                .description("Failed writes of dirty settings, they are retried on the next flush")
+                .register(registry);
+    }
+
+    private static class DirtySettings {
+        private final Map<Integer, String> values = new LinkedHashMap<>();
+        private long firstChange;
+        private long lastChange;
+
+        private DirtySettings(final long now) {
+            this.firstChange = now;
+            this.lastChange = now;
+        }
+    }
+}
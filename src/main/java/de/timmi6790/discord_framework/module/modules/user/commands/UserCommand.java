@@ -18,13 +18,16 @@ import de.timmi6790.discord_framework.module.modules.setting.AbstractSetting;
 import de.timmi6790.discord_framework.module.modules.setting.SettingModule;
 import de.timmi6790.discord_framework.module.modules.stat.AbstractStat;
 import de.timmi6790.discord_framework.module.modules.user.UserDb;
+import de.timmi6790.discord_framework.module.modules.user.UserDbEdit;
 import de.timmi6790.discord_framework.module.modules.user.UserDbModule;
 import lombok.EqualsAndHashCode;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.utils.MarkdownUtil;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringJoiner;
 
 @EqualsAndHashCode(callSuper = true)
@@ -46,7 +49,7 @@ public class UserCommand extends Command {
                 new CategoryProperty("Management"),
                 new DescriptionProperty("User control command"),
                 new SyntaxProperty("<discordUser> <perms|rank|setPrimaryRank|ban|unBan|info|invalidate> " +
-                        "<add;remove;list|add;remove|rank|||||> <command;permNode|rank|>"),
+                        "<add;remove;list|add;remove|rank|||||> <command;permNode...|rank...|>"),
                 new AliasNamesProperty("u"),
                 new MinArgProperty(2)
         );
@@ -226,45 +229,68 @@ public class UserCommand extends Command {
                 2,
                 AddRemoveArgs.class
         );
-        final Rank rank = ArgumentUtilities.getRankOrThrow(commandParameters, 3, this.rankModule);
+        // Duplicated arguments are only changed once
+        final Set<Rank> ranks = new LinkedHashSet<>();
+        for (int argPosition = 3; commandParameters.getArgs().length > argPosition; argPosition++) {
+            ranks.add(ArgumentUtilities.getRankOrThrow(commandParameters, argPosition, this.rankModule));
+        }
 
+        // All ranks are changed in one transaction
+        final UserDbEdit edit = userDb.edit();
+        final StringJoiner rankNames = new StringJoiner(", ");
         if (AddRemoveArgs.ADD == mode) {
-            if (userDb.hasRank(rank)) {
-                commandParameters.sendMessage(
-                        commandParameters.getEmbedBuilder()
-                                .setTitle(ERROR_TITLE)
-                                .setDescription("The user already has this rank.")
-                );
-                return BaseCommandResult.FAIL;
+            for (final Rank rank : ranks) {
+                if (userDb.hasRank(rank)) {
+                    commandParameters.sendMessage(
+                            commandParameters.getEmbedBuilder()
+                                    .setTitle(ERROR_TITLE)
+                                    .setDescription(
+                                            "The user already has the %s rank.",
+                                            MarkdownUtil.monospace(rank.getRankName())
+                                    )
+                    );
+                    return BaseCommandResult.FAIL;
+                }
+
+                edit.addRank(rank);
+                rankNames.add(MarkdownUtil.monospace(rank.getRankName()));
             }
 
-            userDb.addRank(rank);
+            edit.commit();
             commandParameters.sendMessage(
                     commandParameters.getEmbedBuilder()
                             .setTitle("Added Rank")
                             .setDescription(
                                     "Added %s rank to the user.",
-                                    MarkdownUtil.monospace(rank.getRankName())
+                                    rankNames.toString()
                             )
             );
 
         } else if (AddRemoveArgs.REMOVE == mode) {
-            if (!userDb.hasRank(rank)) {
-                commandParameters.sendMessage(
-                        commandParameters.getEmbedBuilder()
-                                .setTitle(ERROR_TITLE)
-                                .setDescription("The user is not in possession of this rank.")
-                );
-                return BaseCommandResult.FAIL;
+            for (final Rank rank : ranks) {
+                if (!userDb.hasRank(rank)) {
+                    commandParameters.sendMessage(
+                            commandParameters.getEmbedBuilder()
+                                    .setTitle(ERROR_TITLE)
+                                    .setDescription(
+                                            "The user is not in possession of the %s rank.",
+                                            MarkdownUtil.monospace(rank.getRankName())
+                                    )
+                    );
+                    return BaseCommandResult.FAIL;
+                }
+
+                edit.removeRank(rank);
+                rankNames.add(MarkdownUtil.monospace(rank.getRankName()));
             }
 
-            userDb.removeRank(rank);
+            edit.commit();
             commandParameters.sendMessage(
                     commandParameters.getEmbedBuilder()
                             .setTitle("Removed Rank")
                             .setDescription(
                                     "Removed %s rank from the user.",
-                                    MarkdownUtil.monospace(rank.getRankName())
+                                    rankNames.toString()
                             )
             );
         }
@@ -281,55 +307,74 @@ public class UserCommand extends Command {
                 2,
                 AddRemoveArgs.class
         );
-        final int permissionId = this.getPermissionIdOrThrow(commandParameters, 3);
-        final String permissionNode = this.getPermissionsModule().getPermissionFromId(permissionId)
-                .orElseThrow(RuntimeException::new);
+        // Duplicated arguments are only changed once
+        final Set<Integer> permissionIds = new LinkedHashSet<>();
+        for (int argPosition = 3; commandParameters.getArgs().length > argPosition; argPosition++) {
+            permissionIds.add(this.getPermissionIdOrThrow(commandParameters, argPosition));
+        }
 
+        // All permissions are changed in one transaction
+        final UserDbEdit edit = userDb.edit();
+        final StringJoiner permissionNodes = new StringJoiner(", ");
         if (AddRemoveArgs.ADD == mode) {
-            if (userDb.hasPermission(permissionId)) {
-                commandParameters.sendMessage(
-                        commandParameters.getEmbedBuilder()
-                                .setTitle(ERROR_TITLE)
-                                .setDescription(
-                                        "%s does already possess the %s permission.",
-                                        MarkdownUtil.monospace(discordUser.getAsTag()),
-                                        MarkdownUtil.monospace(permissionNode)
-                                )
-                );
-                return BaseCommandResult.FAIL;
+            for (final int permissionId : permissionIds) {
+                final String permissionNode = this.getPermissionsModule().getPermissionFromId(permissionId)
+                        .orElseThrow(RuntimeException::new);
+                if (userDb.hasPermission(permissionId)) {
+                    commandParameters.sendMessage(
+                            commandParameters.getEmbedBuilder()
+                                    .setTitle(ERROR_TITLE)
+                                    .setDescription(
+                                            "%s does already possess the %s permission.",
+                                            MarkdownUtil.monospace(discordUser.getAsTag()),
+                                            MarkdownUtil.monospace(permissionNode)
+                                    )
+                    );
+                    return BaseCommandResult.FAIL;
+                }
+
+                edit.addPermission(permissionId);
+                permissionNodes.add(MarkdownUtil.monospace(permissionNode));
             }
 
-            userDb.addPermission(permissionId);
+            edit.commit();
             commandParameters.sendMessage(
                     commandParameters.getEmbedBuilder()
                             .setTitle("Added Permission")
                             .setDescription(
                                     "%s added to %s.",
-                                    MarkdownUtil.monospace(permissionNode),
+                                    permissionNodes.toString(),
                                     MarkdownUtil.monospace(discordUser.getAsTag())
                             )
             );
         } else if (AddRemoveArgs.REMOVE == mode) {
-            if (!userDb.hasPermission(permissionId)) {
-                commandParameters.sendMessage(
-                        commandParameters.getEmbedBuilder()
-                                .setTitle(ERROR_TITLE)
-                                .setDescription(
-                                        "%s does not possess the %s permission.",
-                                        MarkdownUtil.monospace(discordUser.getAsTag()),
-                                        MarkdownUtil.monospace(permissionNode)
-                                )
-                );
-                return BaseCommandResult.FAIL;
+            for (final int permissionId : permissionIds) {
+                final String permissionNode = this.getPermissionsModule().getPermissionFromId(permissionId)
+                        .orElseThrow(RuntimeException::new);
+                if (!userDb.hasPermission(permissionId)) {
+                    commandParameters.sendMessage(
+                            commandParameters.getEmbedBuilder()
+                                    .setTitle(ERROR_TITLE)
+                                    .setDescription(
+                                            "%s does not possess the %s permission.",
+                                            MarkdownUtil.monospace(discordUser.getAsTag()),
+                                            MarkdownUtil.monospace(permissionNode)
+                                    )
+                    );
+                    return BaseCommandResult.FAIL;
+                }
+
+                edit.removePermission(permissionId);
+                permissionNodes.add(MarkdownUtil.monospace(permissionNode));
             }
 
-            userDb.removePermission(permissionId);
+            edit.commit();
             commandParameters.sendMessage(
                     commandParameters.getEmbedBuilder()
                             .setTitle("Removed Permission")
                             .setDescription(
                                     "%s removed from %s.",
-                                    MarkdownUtil.monospace(permissionNode),
+                                    permissionNodes.toString(),
                                     MarkdownUtil.monospace(discordUser.getAsTag())
                             )
             );
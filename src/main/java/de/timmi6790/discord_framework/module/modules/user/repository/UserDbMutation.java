@@ -0,0 +1,74 @@
+package de.timmi6790.discord_framework.module.modules.user.repository;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Single change of a user, written by {@link UserDbRepository#applyMutations(long, java.util.List)}.
+ */
+@Data
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class UserDbMutation {
+    private final Type type;
+    /**
+     * Id of the changed rank, permission, setting, stat or achievement
+     */
+    private final int targetId;
+    private final int intValue;
+    @Nullable
+    private final String stringValue;
+
+    public static UserDbMutation setBanned(final boolean banned) {
+        return new UserDbMutation(Type.SET_BANNED, 0, banned ? 1 : 0, null);
+    }
+
+    public static UserDbMutation setPrimaryRank(final int rankId) {
+        return new UserDbMutation(Type.SET_PRIMARY_RANK, rankId, 0, null);
+    }
+
+    public static UserDbMutation addRank(final int rankId) {
+        return new UserDbMutation(Type.ADD_RANK, rankId, 0, null);
+    }
+
+    public static UserDbMutation removeRank(final int rankId) {
+        return new UserDbMutation(Type.REMOVE_RANK, rankId, 0, null);
+    }
+
+    public static UserDbMutation addPermission(final int permissionId) {
+        return new UserDbMutation(Type.ADD_PERMISSION, permissionId, 0, null);
+    }
+
+    public static UserDbMutation removePermission(final int permissionId) {
+        return new UserDbMutation(Type.REMOVE_PERMISSION, permissionId, 0, null);
+    }
+
+    public static UserDbMutation setSetting(final int settingId, final String value) {
+        return new UserDbMutation(Type.SET_SETTING, settingId, 0, value);
+    }
+
+    public static UserDbMutation setStat(final int statId, final int value) {
+        return new UserDbMutation(Type.SET_STAT, statId, value, null);
+    }
+
+    public static UserDbMutation grantAchievement(final int achievementId) {
+        return new UserDbMutation(Type.GRANT_ACHIEVEMENT, achievementId, 0, null);
+    }
+
+    public boolean isBanned() {
+        return this.intValue == 1;
+    }
+
+    public enum Type {
+        SET_BANNED,
+        SET_PRIMARY_RANK,
+        ADD_RANK,
+        REMOVE_RANK,
+        ADD_PERMISSION,
+        REMOVE_PERMISSION,
+        SET_SETTING,
+        SET_STAT,
+        GRANT_ACHIEVEMENT
+    }
+}
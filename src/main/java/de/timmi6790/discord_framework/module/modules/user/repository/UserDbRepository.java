@@ -1,7 +1,11 @@
 package de.timmi6790.discord_framework.module.modules.user.repository;
 
+import de.timmi6790.discord_framework.module.modules.database.cache.VersionedEntity;
 import de.timmi6790.discord_framework.module.modules.user.UserDb;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface UserDbRepository {
@@ -9,6 +13,22 @@ public interface UserDbRepository {
 
     Optional<UserDb> get(long userId);
 
+    /**
+     * Gets the user together with its database version at the time of the read, see {@link #getVersions(Collection)}.
+     *
+     * @param userId the user id
+     * @return the user with its version
+     */
+    Optional<VersionedEntity<UserDb>> getVersioned(long userId);
+
+    /**
+     * Gets the current database version of the given users, changed by every change of the user or its relations.
+     *
+     * @param userIds the user ids
+     * @return the versions, users that don't exist are missing
+     */
+    Map<Long, Long> getVersions(Collection<Long> userIds);
+
     void delete(long userId);
 
     void setBanStatus(long userId, boolean isBanned);
@@ -31,5 +51,21 @@ public interface UserDbRepository {
 
     void updateSetting(long userId, int settingId, String newValue);
 
+    /**
+     * Inserts or updates the settings of multiple users in one batch.
+     *
+     * @param settings the setting values per setting id per user id
+     */
+    void upsertSettings(Map<Long, Map<Integer, String>> settings);
+
     void grantAchievement(long userId, int achievementId);
+
+    /**
+     * Writes all mutations of the user in one transaction, either all mutations are applied or none. Mutations are
+     * applied in their order.
+     *
+     * @param userId    the user id
+     * @param mutations the mutations
+     */
+    void applyMutations(long userId, List<UserDbMutation> mutations);
 }
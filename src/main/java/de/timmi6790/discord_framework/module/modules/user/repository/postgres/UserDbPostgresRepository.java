@@ -2,26 +2,45 @@ package de.timmi6790.discord_framework.module.modules.user.repository.postgres;
 
 import de.timmi6790.discord_framework.module.modules.achievement.AchievementModule;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
+import de.timmi6790.discord_framework.module.modules.database.cache.VersionedEntity;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
+import de.timmi6790.discord_framework.module.modules.database.replica.ReplicaRouter;
 import de.timmi6790.discord_framework.module.modules.event.EventModule;
 import de.timmi6790.discord_framework.module.modules.rank.RankModule;
 import de.timmi6790.discord_framework.module.modules.setting.SettingModule;
 import de.timmi6790.discord_framework.module.modules.stat.StatModule;
 import de.timmi6790.discord_framework.module.modules.user.UserDb;
 import de.timmi6790.discord_framework.module.modules.user.UserDbModule;
+import de.timmi6790.discord_framework.module.modules.user.repository.UserDbMutation;
 import de.timmi6790.discord_framework.module.modules.user.repository.UserDbRepository;
 import de.timmi6790.discord_framework.module.modules.user.repository.postgres.mappers.UserDbMapper;
 import de.timmi6790.discord_framework.module.modules.user.repository.postgres.reducers.UserDbReducer;
+import de.timmi6790.discord_framework.module.modules.user.repository.postgres.reducers.VersionedUserDbReducer;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class UserDbPostgresRepository implements UserDbRepository {
     private static final String USER_ID = "userId";
     private static final String DATABASE_ID = "databaseId";
 
-    private static final String GET_PLAYER = "SELECT \"user\".discord_id, \"user\".banned, \"user\".primary_rank_id, u_rank.rank_id, u_perm.permission_id, u_setting.setting_id, u_setting.setting setting_value, u_stat.stat_id, u_stat.value stat_value, u_ach.achievement_id "
-            + "FROM \"user\".users \"user\" "
+    // Fingerprint of the transaction ids of the last change of the user row and all relation rows. The relation ids are
+    // part of it to detect deleted rows
+    private static final String PLAYER_VERSION = "('x' || substr(md5(concat_ws('|', \"user\".xmin::text, "
+            + "coalesce((SELECT string_agg(u_rank.rank_id || ':' || u_rank.xmin::text, ',' ORDER BY u_rank.rank_id) FROM \"user\".user_ranks u_rank WHERE u_rank.user_id = \"user\".discord_id), ''), "
+            + "coalesce((SELECT string_agg(u_perm.permission_id || ':' || u_perm.xmin::text, ',' ORDER BY u_perm.permission_id) FROM \"user\".user_permissions u_perm WHERE u_perm.user_id = \"user\".discord_id), ''), "
+            + "coalesce((SELECT string_agg(u_setting.setting_id || ':' || u_setting.xmin::text, ',' ORDER BY u_setting.setting_id) FROM \"user\".user_settings u_setting WHERE u_setting.user_id = \"user\".discord_id), ''), "
+            + "coalesce((SELECT string_agg(u_stat.stat_id || ':' || u_stat.xmin::text, ',' ORDER BY u_stat.stat_id) FROM \"user\".user_stats u_stat WHERE u_stat.user_id = \"user\".discord_id), ''), "
+            + "coalesce((SELECT string_agg(u_ach.achievement_id || ':' || u_ach.xmin::text, ',' ORDER BY u_ach.achievement_id) FROM \"user\".user_achievements u_ach WHERE u_ach.user_id = \"user\".discord_id), '')"
+            + ")), 1, 16))::bit(64)::bigint";
+
+    private static final String PLAYER_JOINS = "FROM \"user\".users \"user\" "
             + "LEFT JOIN \"user\".user_ranks u_rank ON u_rank.user_id = \"user\".discord_id  "
             + "LEFT JOIN \"user\".user_permissions u_perm ON u_perm.user_id = \"user\".discord_id  "
             + "LEFT JOIN \"user\".user_settings u_setting ON u_setting.user_id = \"user\".discord_id  "
@@ -29,15 +48,31 @@ public class UserDbPostgresRepository implements UserDbRepository {
             + "LEFT JOIN \"user\".user_achievements u_ach ON u_ach.user_id = \"user\".discord_id "
             + "WHERE \"user\".discord_id = :discordId;";
 
+    private static final String GET_PLAYER = "SELECT \"user\".discord_id, \"user\".banned, \"user\".primary_rank_id, u_rank.rank_id, u_perm.permission_id, u_setting.setting_id, u_setting.setting setting_value, u_stat.stat_id, u_stat.value stat_value, u_ach.achievement_id "
+            + PLAYER_JOINS;
+    // The version is computed once and read by the same statement as the user rows. Only used for the cache snapshot,
+    // the fingerprint is too expensive for every load
+    private static final String GET_VERSIONED_PLAYER = "WITH player_version AS (SELECT " + PLAYER_VERSION + " version FROM \"user\".users \"user\" WHERE \"user\".discord_id = :discordId) "
+            + "SELECT \"user\".discord_id, \"user\".banned, \"user\".primary_rank_id, u_rank.rank_id, u_perm.permission_id, u_setting.setting_id, u_setting.setting setting_value, u_stat.stat_id, u_stat.value stat_value, u_ach.achievement_id, (SELECT version FROM player_version) version "
+            + PLAYER_JOINS;
+
+    private static final String GET_PLAYER_VERSIONS = "SELECT \"user\".discord_id, " + PLAYER_VERSION + " version "
+            + "FROM \"user\".users \"user\" "
+            + "WHERE \"user\".discord_id IN (<discordIds>);";
+
     private static final String INSERT_PLAYER = "INSERT INTO \"user\".users(discord_id) VALUES (:discordId);";
     private static final String REMOVE_PLAYER = "DELETE FROM \"user\".users WHERE discord_id = :dbId;";
     private static final String UPDATE_PLAYER_BAN_STATUS = "UPDATE \"user\".users SET banned = :banned WHERE discord_id = :databaseId;";
 
     private static final String UPDATE_STAT_VALUE = "UPDATE \"user\".user_stats SET \"value\" = :value WHERE user_id = :userId AND stat_id = :statId;";
     private static final String INSERT_STAT_VALUE = "INSERT INTO \"user\".user_stats(user_id, stat_id, value) VALUES(:userId, :statId, :value)";
+    private static final String UPSERT_STAT_VALUE = "INSERT INTO \"user\".user_stats(user_id, stat_id, value) VALUES(:userId, :statId, :value) "
+            + "ON CONFLICT (user_id, stat_id) DO UPDATE SET value = EXCLUDED.value";
 
     private static final String INSERT_PLAYER_SETTING = "INSERT INTO \"user\".user_settings(user_id, setting_id, setting) VALUES(:userId, :settingId, :setting);";
     private static final String UPDATE_PLAYER_SETTING = "UPDATE \"user\".user_settings SET setting = :setting WHERE user_id = :userId and setting_id = :settingId;";
+    private static final String UPSERT_PLAYER_SETTING = "INSERT INTO \"user\".user_settings(user_id, setting_id, setting) VALUES(:userId, :settingId, :setting) "
+            + "ON CONFLICT (user_id, setting_id) DO UPDATE SET setting = EXCLUDED.setting";
 
     private static final String INSERT_PLAYER_PERMISSION = "INSERT INTO \"user\".user_permissions(user_id, permission_id) VALUES(:userId, :permissionId);";
     private static final String DELETE_PLAYER_PERMISSION = "DELETE FROM \"user\".user_permissions WHERE user_id = :userId AND permission_id = :permissionId";
@@ -49,6 +84,7 @@ public class UserDbPostgresRepository implements UserDbRepository {
     private static final String INSERT_PLAYER_ACHIEVEMENT = "INSERT INTO \"user\".user_achievements(user_id, achievement_id) VALUES(:userId, :achievementId)";
 
     private final Jdbi database;
+    private final ReplicaRouter replicaRouter;
 
     private final RankModule rankModule;
     private final @Nullable AchievementModule achievementModule;
@@ -63,7 +99,8 @@ public class UserDbPostgresRepository implements UserDbRepository {
                                     @Nullable final SettingModule settingModule,
                                     @Nullable final StatModule statModule) {
         this.database = databaseModule.getJdbi();
-        this.database.registerRowMapper(
+        this.replicaRouter = databaseModule.getReplicaRouter();
+        databaseModule.registerRowMapper(
                 new UserDbMapper(
                         userDbModule,
                         eventModule,
@@ -95,6 +132,8 @@ public class UserDbPostgresRepository implements UserDbRepository {
                         .bind("discordId", userId)
                         .execute()
         );
+        // The replica could still miss the new user
+        this.replicaRouter.recordWrite(InvalidationTopic.USER, userId);
 
         // Should never throw
         return this.get(userId).orElseThrow(RuntimeException::new);
@@ -102,7 +141,7 @@ public class UserDbPostgresRepository implements UserDbRepository {
 
     @Override
     public Optional<UserDb> get(final long userId) {
-        return this.database.withHandle(handle ->
+        return this.replicaRouter.withReadHandle(InvalidationTopic.USER, userId, handle ->
                 handle.createQuery(GET_PLAYER)
                         .bind("discordId", userId)
                         .reduceRows(this.getUserDbReducer())
@@ -110,6 +149,32 @@ public class UserDbPostgresRepository implements UserDbRepository {
         );
     }
 
+    @Override
+    public Optional<VersionedEntity<UserDb>> getVersioned(final long userId) {
+        return this.replicaRouter.withReadHandle(InvalidationTopic.USER, userId, handle ->
+                handle.createQuery(GET_VERSIONED_PLAYER)
+                        .bind("discordId", userId)
+                        .reduceRows(new VersionedUserDbReducer(this.getUserDbReducer()))
+                        .findFirst()
+        );
+    }
+
+    @Override
+    public Map<Long, Long> getVersions(final Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return this.database.withHandle(handle ->
+                handle.createQuery(GET_PLAYER_VERSIONS)
+                        .bindList("discordIds", userIds)
+                        .reduceRows(new HashMap<Long, Long>(), (versions, row) -> {
+                            versions.put(row.getColumn("discord_id", Long.class), row.getColumn("version", Long.class));
+                            return versions;
+                        })
+        );
+    }
+
     @Override
     public void delete(final long userId) {
         this.database.useHandle(handle ->
@@ -223,6 +288,26 @@ public class UserDbPostgresRepository implements UserDbRepository {
         );
     }
 
+    @Override
+    public void upsertSettings(final Map<Long, Map<Integer, String>> settings) {
+        if (settings.isEmpty()) {
+            return;
+        }
+
+        this.database.useTransaction(handle -> {
+            final PreparedBatch batch = handle.prepareBatch(UPSERT_PLAYER_SETTING);
+            for (final Map.Entry<Long, Map<Integer, String>> userEntry : settings.entrySet()) {
+                for (final Map.Entry<Integer, String> settingEntry : userEntry.getValue().entrySet()) {
+                    batch.bind(USER_ID, userEntry.getKey())
+                            .bind("settingId", settingEntry.getKey())
+                            .bind("setting", settingEntry.getValue())
+                            .add();
+                }
+            }
+            batch.execute();
+        });
+    }
+
     @Override
     public void grantAchievement(final long userId, final int achievementId) {
         this.database.useHandle(handle ->
@@ -232,4 +317,65 @@ public class UserDbPostgresRepository implements UserDbRepository {
                         .execute()
         );
     }
+
+    @Override
+    public void applyMutations(final long userId, final List<UserDbMutation> mutations) {
+        if (mutations.isEmpty()) {
+            return;
+        }
+
+        this.database.useTransaction(handle -> {
+            // Consecutive mutations of the same type share one batch, the order of all mutations is kept
+            int batchStart = 0;
+            while (mutations.size() > batchStart) {
+                final UserDbMutation.Type type = mutations.get(batchStart).getType();
+                final PreparedBatch batch = handle.prepareBatch(getMutationStatement(type));
+
+                int index = batchStart;
+                while (mutations.size() > index && mutations.get(index).getType() == type) {
+                    bindMutation(batch, userId, mutations.get(index));
+                    batch.add();
+                    index++;
+                }
+
+                batch.execute();
+                batchStart = index;
+            }
+        });
+    }
+
+    private static String getMutationStatement(final UserDbMutation.Type type) {
+        return switch (type) {
+            case SET_BANNED -> UPDATE_PLAYER_BAN_STATUS;
+            case SET_PRIMARY_RANK -> SET_PRIMARY_RANK;
+            case ADD_RANK -> ADD_RANK;
+            case REMOVE_RANK -> DELETE_RANK;
+            case ADD_PERMISSION -> INSERT_PLAYER_PERMISSION;
+            case REMOVE_PERMISSION -> DELETE_PLAYER_PERMISSION;
+            case SET_SETTING -> UPSERT_PLAYER_SETTING;
+            case SET_STAT -> UPSERT_STAT_VALUE;
+            case GRANT_ACHIEVEMENT -> INSERT_PLAYER_ACHIEVEMENT;
+        };
+    }
+
+    private static void bindMutation(final PreparedBatch batch, final long userId, final UserDbMutation mutation) {
+        switch (mutation.getType()) {
+            case SET_BANNED -> batch.bind("banned", mutation.isBanned())
+                    .bind(DATABASE_ID, userId);
+            case SET_PRIMARY_RANK -> batch.bind("primaryRank", mutation.getTargetId())
+                    .bind(DATABASE_ID, userId);
+            case ADD_RANK, REMOVE_RANK -> batch.bind("rankId", mutation.getTargetId())
+                    .bind(DATABASE_ID, userId);
+            case ADD_PERMISSION, REMOVE_PERMISSION -> batch.bind(USER_ID, userId)
+                    .bind("permissionId", mutation.getTargetId());
+            case SET_SETTING -> batch.bind(USER_ID, userId)
+                    .bind("settingId", mutation.getTargetId())
+                    .bind("setting", mutation.getStringValue());
+            case SET_STAT -> batch.bind(USER_ID, userId)
+                    .bind("statId", mutation.getTargetId())
+                    .bind("value", mutation.getIntValue());
+            case GRANT_ACHIEVEMENT -> batch.bind(USER_ID, userId)
+                    .bind("achievementId", mutation.getTargetId());
+        }
+    }
 }
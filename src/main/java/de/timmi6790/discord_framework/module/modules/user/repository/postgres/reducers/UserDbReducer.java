@@ -53,7 +53,16 @@ public class UserDbReducer implements LinkedHashMapRowReducer<Long, UserDb> {
                 rowView.getColumn("discord_id", Long.class),
                 id -> rowView.getRow(UserDb.class)
         );
+        this.accumulateRelations(userDb, rowView);
+    }
 
+    /**
+     * Adds the ranks, permissions, settings, stats and achievements of the row to the user.
+     *
+     * @param userDb  the user of the row
+     * @param rowView the row
+     */
+    public void accumulateRelations(final UserDb userDb, final RowView rowView) {
         // Ranks
         final Integer rankId = rowView.getColumn("rank_id", Integer.class);
         if (rankId != null) {
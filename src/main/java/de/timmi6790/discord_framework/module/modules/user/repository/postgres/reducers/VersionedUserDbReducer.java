@@ -0,0 +1,26 @@
+package de.timmi6790.discord_framework.module.modules.user.repository.postgres.reducers;
+
+import de.timmi6790.discord_framework.module.modules.database.cache.VersionedEntity;
+import de.timmi6790.discord_framework.module.modules.user.UserDb;
+import lombok.AllArgsConstructor;
+import org.jdbi.v3.core.result.LinkedHashMapRowReducer;
+import org.jdbi.v3.core.result.RowView;
+
+import java.util.Map;
+
+/**
+ * Reduces the user rows together with the version column, which is the same for all rows of a user.
+ */
+@AllArgsConstructor
+public class VersionedUserDbReducer implements LinkedHashMapRowReducer<Long, VersionedEntity<UserDb>> {
+    private final UserDbReducer userDbReducer;
+
+    @Override
+    public void accumulate(final Map<Long, VersionedEntity<UserDb>> container, final RowView rowView) {
+        final UserDb userDb = container.computeIfAbsent(
+                rowView.getColumn("discord_id", Long.class),
+                id -> new VersionedEntity<>(rowView.getRow(UserDb.class), rowView.getColumn("version", Long.class))
+        ).getEntity();
+        this.userDbReducer.accumulateRelations(userDb, rowView);
+    }
+}
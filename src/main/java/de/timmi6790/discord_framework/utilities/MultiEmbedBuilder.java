@@ -1,8 +1,13 @@
 package de.timmi6790.discord_framework.utilities;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.EmbedType;
 import net.dv8tion.jda.api.entities.MessageEmbed;
@@ -17,7 +22,7 @@ import java.time.OffsetDateTime;
 import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 @Data
@@ -36,7 +41,17 @@ public class MultiEmbedBuilder {
 
     protected static final int EMBED_DEFAULT_COLOUR = 536870911;
 
-    private final List<Field> fields = new LinkedList<>();
+    // How far we search backwards from the hard cut point for a nicer break point
+    private static final int NEW_LINE_SEARCH_RANGE = 400;
+    private static final int SPACE_SEARCH_RANGE = 600;
+
+    private final List<Field> fields = new ArrayList<>();
+    // Running sum of all field names and values, to avoid walking all fields on each length check
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int fieldsLength;
     private final StringBuilder description = new StringBuilder();
     private int color = EMBED_DEFAULT_COLOUR;
     private String url;
@@ -50,6 +65,7 @@ public class MultiEmbedBuilder {
     public MultiEmbedBuilder(@NonNull final MultiEmbedBuilder builder) {
         this.setDescription(builder.description.toString());
         this.fields.addAll(builder.fields);
+        this.fieldsLength = builder.fieldsLength;
         this.url = builder.url;
         this.title = builder.title;
         this.timestamp = builder.timestamp;
@@ -70,7 +86,10 @@ public class MultiEmbedBuilder {
         this.author = embed.getAuthor();
         this.footer = embed.getFooter();
         this.image = embed.getImage();
-        this.fields.addAll(embed.getFields());
+        for (final Field field : embed.getFields()) {
+            this.fields.add(field);
+            this.fieldsLength += getFieldLength(field);
+        }
     }
 
     private static void urlCheck(@Nullable final String url) {
@@ -91,41 +110,80 @@ public class MultiEmbedBuilder {
         return fieldSize;
     }
 
-    private static int findMessageBreakPoint(@NonNull final StringBuilder description, final int maxCutPoint) {
-        final int newLineIndex = description.lastIndexOf("\n", maxCutPoint);
-        if (newLineIndex != -1 && 400 > maxCutPoint - newLineIndex) {
+    /**
+     * Searches backwards for the given character without creating any intermediate copies.
+     *
+     * @param text     the text to search in
+     * @param search   the character to search for
+     * @param from     the first index to check, inclusive
+     * @param minIndex the last index to check, inclusive
+     * @return the index of the character or -1 if it is not inside the range
+     */
+    private static int lastIndexOf(@NonNull final CharSequence text, final char search, final int from, final int minIndex) {
+        for (int index = from; index >= minIndex; index--) {
+            if (text.charAt(index) == search) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the end index of the description part starting at start. The returned index is always bigger than start
+     * and never bigger than maxCutPoint. New lines are preferred over spaces, if neither of them is near the max cut
+     * point, we cut hard.
+     *
+     * @param description the description
+     * @param start       the start index of the current part
+     * @param maxCutPoint the max exclusive end index of the current part
+     * @return the exclusive end index of the current part
+     */
+    private static int findMessageBreakPoint(@NonNull final CharSequence description, final int start, final int maxCutPoint) {
+        final int newLineIndex = lastIndexOf(
+                description,
+                '\n',
+                maxCutPoint - 1,
+                Math.max(start, maxCutPoint - NEW_LINE_SEARCH_RANGE)
+        );
+        if (newLineIndex != -1) {
             return newLineIndex + 1;
         }
 
         // Find space near break point
-        final int spaceLindeIndex = description.lastIndexOf(" ", maxCutPoint);
-        if (newLineIndex != -1 && 600 > maxCutPoint - spaceLindeIndex) {
-            return newLineIndex;
+        final int spaceIndex = lastIndexOf(
+                description,
+                ' ',
+                maxCutPoint - 1,
+                Math.max(start, maxCutPoint - SPACE_SEARCH_RANGE)
+        );
+        if (spaceIndex != -1) {
+            return spaceIndex + 1;
         }
 
         return maxCutPoint;
     }
 
     private String splitDescriptionTillOne(@NonNull final List<MessageEmbed> embeds) {
-        String lastDescription = null;
-        int breakPoint;
-        for (int descriptionIndex = 0; this.description.length() > descriptionIndex; descriptionIndex = breakPoint) {
-            // Don't split if we have enough for the entire remaining message
-            if (descriptionIndex + EMBED_DESCRIPTION_MAX > this.description.length()) {
-                breakPoint = this.description.length();
-            } else {
-                breakPoint = findMessageBreakPoint(this.description, descriptionIndex + EMBED_DESCRIPTION_MAX);
-            }
-
-            lastDescription = this.description.substring(descriptionIndex, breakPoint);
-
-            // Exclude the last message
-            if (this.description.length() > breakPoint) {
-                embeds.add(this.createMessageEmbed(lastDescription, null, embeds.isEmpty(), false));
-            }
+        final int descriptionLength = this.description.length();
+        int descriptionIndex = 0;
+        // Every part except the last one gets its own embed, the last part is shared with the fields
+        while (descriptionLength - descriptionIndex > EMBED_DESCRIPTION_MAX) {
+            final int breakPoint = findMessageBreakPoint(
+                    this.description,
+                    descriptionIndex,
+                    descriptionIndex + EMBED_DESCRIPTION_MAX
+            );
+            embeds.add(this.createMessageEmbed(
+                    this.description.substring(descriptionIndex, breakPoint),
+                    null,
+                    embeds.isEmpty(),
+                    false
+            ));
+            descriptionIndex = breakPoint;
         }
 
-        return lastDescription;
+        return descriptionLength > descriptionIndex ? this.description.substring(descriptionIndex) : null;
     }
 
     private int getFooterLength() {
@@ -164,7 +222,9 @@ public class MultiEmbedBuilder {
     public Collection<MessageEmbed> build() {
         Checks.check(!this.isEmpty(), "Cannot build an empty embed!");
 
-        final List<MessageEmbed> embeds = new ArrayList<>();
+        final List<MessageEmbed> embeds = new ArrayList<>(
+                this.description.length() / EMBED_DESCRIPTION_MAX + this.fields.size() / EMBED_FIELD_MAX + 1
+        );
 
         // Descriptions
         final String lastDescription = this.splitDescriptionTillOne(embeds);
@@ -184,7 +244,7 @@ public class MultiEmbedBuilder {
             if (currentEmbedSize + fieldSize > EMBED_TOTAL_MAX || fieldIndex - lastFieldIndex >= EMBED_FIELD_MAX) {
                 embeds.add(this.createMessageEmbed(
                         lastFieldIndex == 0 ? lastDescription : null,
-                        this.fields.subList(lastFieldIndex, fieldIndex),
+                        new ArrayList<>(this.fields.subList(lastFieldIndex, fieldIndex)),
                         embeds.isEmpty(),
                         false
                 ));
@@ -198,7 +258,7 @@ public class MultiEmbedBuilder {
         // Last message
         embeds.add(this.createMessageEmbed(
                 lastFieldIndex == 0 ? lastDescription : null,
-                this.fields.subList(lastFieldIndex, this.fields.size()),
+                new ArrayList<>(this.fields.subList(lastFieldIndex, this.fields.size())),
                 embeds.isEmpty(),
                 true
         ));
@@ -216,7 +276,7 @@ public class MultiEmbedBuilder {
         } else {
             return this.createMessageEmbed(
                     this.description.length() < 1 ? null : this.description.toString(),
-                    this.fields,
+                    new ArrayList<>(this.fields),
                     true,
                     true
             );
@@ -225,7 +285,7 @@ public class MultiEmbedBuilder {
 
     public MultiEmbedBuilder clear() {
         this.description.setLength(0);
-        this.fields.clear();
+        this.clearFields();
         this.url = null;
         this.title = null;
         this.timestamp = null;
@@ -250,12 +310,7 @@ public class MultiEmbedBuilder {
     }
 
     public int length() {
-        int fieldLength = 0;
-        for (final Field field : this.fields) {
-            fieldLength += getFieldLength(field);
-        }
-
-        return fieldLength + this.description.length() + this.getTitleLength() + this.getAuthorLength() + this.getFooterLength();
+        return this.fieldsLength + this.description.length() + this.getTitleLength() + this.getAuthorLength() + this.getFooterLength();
     }
 
     public MultiEmbedBuilder setTitle(@Nullable final String title) {
@@ -426,6 +481,7 @@ public class MultiEmbedBuilder {
         Checks.check(name.length() <= EMBED_FIELD_NAME_MAX, "Name cannot be longer than %d characters.", EMBED_FIELD_NAME_MAX);
         Checks.check(value.length() <= EMBED_FIELD_VALUE_MAX, "Value cannot be longer than %d characters.", EMBED_FIELD_VALUE_MAX);
         this.fields.add(new Field(name, value, inline));
+        this.fieldsLength += name.length() + value.length();
 
         return this;
     }
@@ -434,8 +490,13 @@ public class MultiEmbedBuilder {
         return this.addField(EmbedBuilder.ZERO_WIDTH_SPACE, EmbedBuilder.ZERO_WIDTH_SPACE, inline);
     }
 
+    public List<Field> getFields() {
+        return Collections.unmodifiableList(this.fields);
+    }
+
     public MultiEmbedBuilder clearFields() {
         this.fields.clear();
+        this.fieldsLength = 0;
         return this;
     }
 }
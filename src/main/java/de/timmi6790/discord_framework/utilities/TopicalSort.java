@@ -2,64 +2,169 @@ package de.timmi6790.discord_framework.utilities;
 
 import de.timmi6790.discord_framework.exceptions.TopicalSortCycleException;
 import lombok.Data;
-import lombok.NonNull;
 import lombok.extern.log4j.Log4j2;
 
-import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * Topological sort based on Kahn's algorithm, running in O(vertices + dependencies).
+ * <p>
+ * Vertices are grouped into levels. A vertex is in the first level without dependencies, otherwise in the level after
+ * its deepest dependency. All vertices of one level only depend on vertices of previous levels. Vertices inside a level
+ * keep their input order.
+ *
+ * @param <T> the vertex type
+ */
 @Log4j2
 public class TopicalSort<T> {
+    private static final int[] EMPTY = new int[0];
+
     private final List<T> vertices;
-    private final boolean[][] adjacency;
+    /**
+     * Indices of all vertices that depend on the vertex of the index
+     */
+    private final int[][] dependents;
+    /**
+     * Amount of dependencies per vertex
+     */
+    private final int[] dependencyCounts;
+    /**
+     * Indices of all dependencies of the vertex of the index, only used to extract cycles
+     */
+    private final int[][] dependencies;
 
     public TopicalSort(final List<T> vertices, final List<Dependency> dependencies) {
         this.vertices = vertices;
-        this.adjacency = new boolean[this.vertices.size()][this.vertices.size()];
+        final int size = vertices.size();
 
         log.debug("Dependencies: {}", dependencies);
+        final int[] dependentCounts = new int[size];
+        this.dependencyCounts = new int[size];
+        for (final Dependency edge : dependencies) {
+            dependentCounts[edge.getDependencyId()]++;
+            this.dependencyCounts[edge.getId()]++;
+        }
+
+        this.dependents = new int[size][];
+        this.dependencies = new int[size][];
+        for (int index = 0; size > index; index++) {
+            this.dependents[index] = dependentCounts[index] == 0 ? EMPTY : new int[dependentCounts[index]];
+            this.dependencies[index] = this.dependencyCounts[index] == 0 ? EMPTY : new int[this.dependencyCounts[index]];
+        }
+
+        final int[] dependentPositions = new int[size];
+        final int[] dependencyPositions = new int[size];
         for (final Dependency edge : dependencies) {
-            this.adjacency[edge.getId()][edge.getDependencyId()] = true;
+            this.dependents[edge.getDependencyId()][dependentPositions[edge.getDependencyId()]++] = edge.getId();
+            this.dependencies[edge.getId()][dependencyPositions[edge.getId()]++] = edge.getDependencyId();
         }
     }
 
+    /**
+     * Sort all vertices, each vertex is placed after all of its dependencies.
+     *
+     * @return the sorted vertices
+     * @throws TopicalSortCycleException if the dependencies contain a cycle
+     */
     public List<T> sort() throws TopicalSortCycleException {
-        final List<T> result = new ArrayList<>();
-        final Queue<Integer> queue = IntStream.range(0, this.vertices.size())
-                .boxed()
-                .collect(Collectors.toCollection(ArrayDeque::new));
-
-        boolean cycle;
-        while (!queue.isEmpty()) {
-            cycle = true;
-            final Iterator<Integer> queueIterator = queue.iterator();
-            while (queueIterator.hasNext()) {
-                final int element = queueIterator.next();
-                if (!this.hasDependency(element, queue)) {
-                    queueIterator.remove();
-                    result.add(this.vertices.get(element));
-                    cycle = false;
-                    break;
-                }
+        final List<T> result = new ArrayList<>(this.vertices.size());
+        for (final List<T> level : this.sortLevels()) {
+            result.addAll(level);
+        }
+        return result;
+    }
+
+    /**
+     * Sort all vertices into levels. All vertices of a level only depend on vertices of previous levels, which allows
+     * to process the vertices of one level in parallel.
+     *
+     * @return the vertex levels
+     * @throws TopicalSortCycleException if the dependencies contain a cycle
+     */
+    public List<List<T>> sortLevels() throws TopicalSortCycleException {
+        final int size = this.vertices.size();
+        final int[] remainingDependencies = this.dependencyCounts.clone();
+
+        int[] level = new int[size];
+        int levelSize = 0;
+        for (int index = 0; size > index; index++) {
+            if (remainingDependencies[index] == 0) {
+                level[levelSize++] = index;
             }
+        }
 
-            if (cycle) {
-                throw new TopicalSortCycleException();
+        final List<List<T>> result = new ArrayList<>();
+        int[] nextLevel = new int[size];
+        int sortedVertices = 0;
+        while (levelSize > 0) {
+            final List<T> levelVertices = new ArrayList<>(levelSize);
+            int nextLevelSize = 0;
+            for (int position = 0; levelSize > position; position++) {
+                final int vertex = level[position];
+                levelVertices.add(this.vertices.get(vertex));
+                for (final int dependent : this.dependents[vertex]) {
+                    if (--remainingDependencies[dependent] == 0) {
+                        nextLevel[nextLevelSize++] = dependent;
+                    }
+                }
             }
+            result.add(levelVertices);
+            sortedVertices += levelSize;
+
+            // Keep the input order inside each level
+            Arrays.sort(nextLevel, 0, nextLevelSize);
+            final int[] swap = level;
+            level = nextLevel;
+            nextLevel = swap;
+            levelSize = nextLevelSize;
         }
 
+        if (sortedVertices != size) {
+            throw new TopicalSortCycleException(this.findCycle(remainingDependencies));
+        }
         return result;
     }
 
-    private boolean hasDependency(final int mainIndex, @NonNull final Queue<Integer> queue) {
-        for (final int index : queue) {
-            if (this.adjacency[mainIndex][index]) {
-                return true;
+    /**
+     * Find one cycle between the unsorted vertices. Every unsorted vertex has at least one unsorted dependency, so
+     * following them always ends inside a cycle.
+     *
+     * @param remainingDependencies the remaining dependency count of each vertex after sorting
+     * @return the cycle vertices in dependency order
+     */
+    private List<T> findCycle(final int[] remainingDependencies) {
+        int vertex = -1;
+        for (int index = 0; remainingDependencies.length > index; index++) {
+            if (remainingDependencies[index] > 0) {
+                vertex = index;
+                break;
+            }
+        }
+
+        // Position of each vertex inside the walked path, 0 means not visited
+        final int[] pathPositions = new int[remainingDependencies.length];
+        final List<Integer> path = new ArrayList<>();
+        while (pathPositions[vertex] == 0) {
+            path.add(vertex);
+            pathPositions[vertex] = path.size();
+
+            for (final int dependency : this.dependencies[vertex]) {
+                if (remainingDependencies[dependency] > 0) {
+                    vertex = dependency;
+                    break;
+                }
             }
         }
 
-        return false;
+        final List<Integer> cycleIndices = path.subList(pathPositions[vertex] - 1, path.size());
+        final List<T> cycle = new ArrayList<>(cycleIndices.size());
+        for (final int index : cycleIndices) {
+            cycle.add(this.vertices.get(index));
+        }
+        return Collections.unmodifiableList(cycle);
     }
 
     @Data
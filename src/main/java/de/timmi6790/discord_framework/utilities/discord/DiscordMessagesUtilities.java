@@ -2,27 +2,38 @@ package de.timmi6790.discord_framework.utilities.discord;
 
 import de.timmi6790.discord_framework.DiscordBot;
 import de.timmi6790.discord_framework.module.modules.command.models.CommandParameters;
+import de.timmi6790.discord_framework.module.modules.outbound.MessagePriority;
+import de.timmi6790.discord_framework.module.modules.outbound.OutboundMessageModule;
 import de.timmi6790.discord_framework.module.modules.reactions.button.actions.ButtonAction;
 import de.timmi6790.discord_framework.module.modules.reactions.emote.EmoteReaction;
 import de.timmi6790.discord_framework.module.modules.reactions.emote.EmoteReactionModule;
 import de.timmi6790.discord_framework.module.modules.reactions.emote.actions.EmoteAction;
+import de.timmi6790.discord_framework.module.modules.user.UserDbModule;
 import de.timmi6790.discord_framework.utilities.MultiEmbedBuilder;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.PrivateChannel;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.exceptions.ErrorHandler;
 import net.dv8tion.jda.api.requests.ErrorResponse;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.awt.*;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 @UtilityClass
+@Log4j2
 public class DiscordMessagesUtilities {
     protected final Color DEFAULT_EMBED_COLOUR = Color.MAGENTA;
 
@@ -41,25 +52,86 @@ public class DiscordMessagesUtilities {
     }
 
     /**
-     * Sends the embedBuilder to the user private message.
+     * Sends the embedBuilder to the user private message. The future fails when the private channel can't be opened or
+     * the user doesn't accept private messages from the bot, failures are only logged on debug.
      *
      * @param user         the user
      * @param embedBuilder the embed builder
-     * @return will return false for bot users
+     * @return future completed with the send messages, bot users don't receive any messages
      */
-    public boolean sendPrivateMessage(final @NonNull User user, final @NonNull MultiEmbedBuilder embedBuilder) {
+    public CompletableFuture<List<Message>> sendPrivateMessage(final @NonNull User user,
+                                                               final @NonNull MultiEmbedBuilder embedBuilder) {
         // We can't send private messages to other bots
         if (user.isBot()) {
-            return false;
+            return CompletableFuture.completedFuture(List.of());
         }
 
-        user.openPrivateChannel().queue(privateChannel ->
-                privateChannel
-                        .sendMessageEmbeds(embedBuilder.build())
-                        .queue()
-        );
+        return getPrivateChannel(user)
+                .thenCompose(privateChannel ->
+                        sendMessage(
+                                privateChannel,
+                                embedBuilder,
+                                MessagePriority.NOTIFICATION,
+                                null
+                        )
+                )
+                .whenComplete((messages, throwable) -> {
+                    if (throwable != null) {
+                        log.debug("Failed to send a private message to {}", user.getIdLong(), throwable);
+                    }
+                });
+    }
+
+    /**
+     * Gets the private channel of the user. The cached channel of the UserDbModule is used when it is available.
+     *
+     * @param user the user
+     * @return the private channel future
+     */
+    private CompletableFuture<PrivateChannel> getPrivateChannel(final @NonNull User user) {
+        return DiscordBot.getInstance()
+                .getModuleManager()
+                .getModule(UserDbModule.class)
+                .map(userDbModule -> userDbModule.getPrivateChannel(user.getIdLong()))
+                .orElseGet(() -> user.openPrivateChannel().submit());
+    }
+
+    private Optional<OutboundMessageModule> getOutboundMessageModule() {
+        return DiscordBot.getInstance()
+                .getModuleManager()
+                .getModule(OutboundMessageModule.class);
+    }
+
+    /**
+     * Send the embedBuilder into the give textChannel. The embeds are send over the {@link OutboundMessageModule} when
+     * it is available, otherwise they are send directly. The success consumer will be consumed on each individual
+     * message after send.
+     *
+     * @param textChannel  the text channel
+     * @param embedBuilder the embed builder
+     * @param priority     the message priority
+     * @param success      consumer after message was send.
+     * @return future completed with the send messages
+     */
+    public CompletableFuture<List<Message>> sendMessage(final @NonNull MessageChannel textChannel,
+                                                        final @NonNull MultiEmbedBuilder embedBuilder,
+                                                        final @NonNull MessagePriority priority,
+                                                        final @Nullable Consumer<Message> success) {
+        final Collection<MessageEmbed> embeds = embedBuilder.build();
+        final Optional<OutboundMessageModule> outboundMessageModuleOpt = getOutboundMessageModule();
+        if (outboundMessageModuleOpt.isPresent()) {
+            return outboundMessageModuleOpt.get().sendMessage(textChannel, embeds, priority, success);
+        }
 
-        return true;
+        return textChannel
+                .sendMessageEmbeds(embeds)
+                .submit()
+                .thenApply(message -> {
+                    if (success != null) {
+                        success.accept(message);
+                    }
+                    return List.of(message);
+                });
     }
 
     /**
@@ -73,9 +145,21 @@ public class DiscordMessagesUtilities {
     public void sendMessage(final @NonNull MessageChannel textChannel,
                             final @NonNull MultiEmbedBuilder embedBuilder,
                             final @NonNull Consumer<Message> success) {
-        textChannel
-                .sendMessageEmbeds(embedBuilder.build())
-                .queue(success);
+        sendMessage(textChannel, embedBuilder, MessagePriority.NOTIFICATION, success);
+    }
+
+    /**
+     * Send the embedBuilder into the give textChannel.
+     *
+     * @param textChannel  the text channel
+     * @param embedBuilder the embed builder
+     * @param priority     the message priority
+     * @return future completed with the send messages
+     */
+    public CompletableFuture<List<Message>> sendMessage(final @NonNull MessageChannel textChannel,
+                                                        final @NonNull MultiEmbedBuilder embedBuilder,
+                                                        final @NonNull MessagePriority priority) {
+        return sendMessage(textChannel, embedBuilder, priority, null);
     }
 
     /**
@@ -86,9 +170,7 @@ public class DiscordMessagesUtilities {
      */
     public void sendMessage(final @NonNull MessageChannel textChannel,
                             final @NonNull MultiEmbedBuilder embedBuilder) {
-        textChannel
-                .sendMessageEmbeds(embedBuilder.build())
-                .queue();
+        sendMessage(textChannel, embedBuilder, MessagePriority.NOTIFICATION, null);
     }
 
     /**
@@ -101,11 +183,18 @@ public class DiscordMessagesUtilities {
     public void sendMessageTimed(@NonNull final MessageChannel textChannel,
                                  @NonNull final MultiEmbedBuilder embedBuilder,
                                  final long deleteAfterSeconds) {
-        textChannel
-                .sendMessageEmbeds(embedBuilder.build())
-                .delay(deleteAfterSeconds, TimeUnit.SECONDS)
-                .flatMap(Message::delete)
-                .queue(null, new ErrorHandler().ignore(ErrorResponse.UNKNOWN_MESSAGE));
+        sendMessage(
+                textChannel,
+                embedBuilder,
+                MessagePriority.NOTIFICATION,
+                message -> message.delete()
+                        .queueAfter(
+                                deleteAfterSeconds,
+                                TimeUnit.SECONDS,
+                                null,
+                                new ErrorHandler().ignore(ErrorResponse.UNKNOWN_MESSAGE)
+                        )
+        );
     }
 
     public void sendButtonMessage(final CommandParameters commandParameters,
@@ -141,7 +230,7 @@ public class DiscordMessagesUtilities {
                                         message,
                                         new EmoteReaction(
                                                 emotes,
-                                                commandParameters.getUser().getIdLong(),
+                                                commandParameters.getUserDb().getDiscordId(),
                                                 commandParameters.getLowestMessageChannel().getIdLong()
                                         )
                                 );
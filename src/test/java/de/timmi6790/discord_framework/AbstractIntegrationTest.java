@@ -15,7 +15,7 @@ import static org.mockito.Mockito.doReturn;
 @Testcontainers
 public abstract class AbstractIntegrationTest {
     @Container
-    private static final PostgreSQLContainer<?> POSTGRES_SQL_CONTAINER = new PostgreSQLContainer<>(
+    protected static final PostgreSQLContainer<?> POSTGRES_SQL_CONTAINER = new PostgreSQLContainer<>(
             DockerImageName
                     .parse("timescale/timescaledb:2.3.0-pg12")
                     .asCompatibleSubstituteFor("postgres")
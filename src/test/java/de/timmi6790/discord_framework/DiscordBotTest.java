@@ -9,6 +9,8 @@ import org.mockito.MockedStatic;
 import javax.security.auth.login.LoginException;
 import java.io.IOException;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 class DiscordBotTest {
@@ -22,6 +24,7 @@ class DiscordBotTest {
 
             final DefaultShardManagerBuilder jdaBuilder = mock(DefaultShardManagerBuilder.class);
             when(jdaBuilder.setStatus(any())).thenReturn(jdaBuilder);
+            when(jdaBuilder.addEventListeners(any())).thenReturn(jdaBuilder);
             when(jdaBuilder.build()).thenReturn(jda);
 
             jdaMock.when(() -> DefaultShardManagerBuilder.createLight(any(), anySet())).thenReturn(jdaBuilder);
@@ -30,4 +33,39 @@ class DiscordBotTest {
             verify(jda, never()).shutdown();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void applyShardRange_all_shards() {
+        final DiscordBot discordBot = new DiscordBot();
+        final DefaultShardManagerBuilder builder = mock(DefaultShardManagerBuilder.class);
+
+        assertThat(discordBot.applyShardRange(builder, new Config())).isEqualTo(-1);
+        verify(builder, never()).setShards(anyInt(), anyInt());
+        verify(builder, never()).setShardsTotal(anyInt());
+    }
+
+    @Test
+    void applyShardRange_range() {
+        final DiscordBot discordBot = new DiscordBot();
+        final DefaultShardManagerBuilder builder = mock(DefaultShardManagerBuilder.class);
+        final Config config = new Config();
+        config.setShardsTotal(4);
+        config.setShardIdFrom(2);
+        config.setShardIdTo(3);
+
+        assertThat(discordBot.applyShardRange(builder, config)).isEqualTo(2);
+        verify(builder).setShardsTotal(4);
+        verify(builder).setShards(2, 3);
+    }
+
+    @Test
+    void applyShardRange_range_without_total() {
+        final DiscordBot discordBot = new DiscordBot();
+        final DefaultShardManagerBuilder builder = mock(DefaultShardManagerBuilder.class);
+        final Config config = new Config();
+        config.setShardIdFrom(0);
+        config.setShardIdTo(1);
+
+        assertThrows(IllegalStateException.class, () -> discordBot.applyShardRange(builder, config));
+    }
+}
@@ -3,10 +3,15 @@ package de.timmi6790.discord_framework.module;
 import de.timmi6790.discord_framework.exceptions.TopicalSortCycleException;
 import de.timmi6790.discord_framework.module.exceptions.ModuleNotFoundException;
 import de.timmi6790.discord_framework.module.provider.providers.InternalModuleProvider;
+import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -92,6 +97,50 @@ class ModuleManagerTest {
         assertThat(moduleManager.getModules(ModuleStatus.INITIALIZED)).hasSize(3);
     }
 
+    @Test
+    void initializeAll_parallel_respects_dependencies() throws TopicalSortCycleException {
+        final ModuleManager moduleManager = this.getModuleManager();
+        moduleManager.getConfig().setStartupConcurrency(4);
+        moduleManager.registerModules(
+                DependencyModule.class,
+                ExampleModule.class,
+                ExampleModule2.class
+        );
+
+        final Map<Class<? extends AbstractModule>, ModuleStartupTiming> timings = moduleManager.initializeAll();
+        assertThat(moduleManager.getModules(ModuleStatus.INITIALIZED)).hasSize(3);
+        assertThat(timings).hasSize(3);
+        assertThat(moduleManager.getStartupTimings()).hasSize(3);
+
+        final ModuleStartupTiming dependencyTiming = timings.get(DependencyModule.class);
+        assertThat(dependencyTiming.isSuccess()).isTrue();
+        assertThat(dependencyTiming.getPhase()).isEqualTo(ModuleStatus.INITIALIZED);
+        assertThat(dependencyTiming.getStartOffsetNanos())
+                .isGreaterThanOrEqualTo(timings.get(ExampleModule.class).getEndOffsetNanos())
+                .isGreaterThanOrEqualTo(timings.get(ExampleModule2.class).getEndOffsetNanos());
+    }
+
+    @Test
+    void startAll_critical_path_ends_with_dependent_module() throws TopicalSortCycleException {
+        final ModuleManager moduleManager = this.getModuleManager();
+        moduleManager.registerModules(
+                DependencyModule.class,
+                ExampleModule.class,
+                ExampleModule2.class
+        );
+        moduleManager.initializeAll();
+
+        final Map<Class<? extends AbstractModule>, ModuleStartupTiming> timings = moduleManager.startAll();
+        final Map<Class<? extends AbstractModule>, AbstractModule> modules = new HashMap<>();
+        for (final AbstractModule module : moduleManager.getModules(ModuleStatus.STARTED)) {
+            modules.put(module.getClass(), module);
+        }
+
+        final List<ModuleStartupTiming> criticalPath = ModuleStartupScheduler.getCriticalPath(timings, modules);
+        assertThat(criticalPath).hasSize(2);
+        assertThat(criticalPath.get(1).getModuleClass()).isEqualTo(DependencyModule.class);
+    }
+
     @Test
     void initialize_while_started() throws TopicalSortCycleException {
         final ModuleManager moduleManager = this.getModuleManager();
@@ -163,6 +212,61 @@ class ModuleManagerTest {
     }
 
 
+    @Test
+    void startAll_waits_for_shard_requirement() throws TopicalSortCycleException {
+        final ModuleManager moduleManager = this.getModuleManager();
+        moduleManager.registerModules(
+                ExampleModule.class,
+                NoShardModule.class
+        );
+        moduleManager.initializeAll();
+
+        final ShardReadinessTracker tracker = new ShardReadinessTracker();
+        tracker.setExpectedShards(1);
+        final CompletableFuture<Map<Class<? extends AbstractModule>, ModuleStartupTiming>> startFuture = moduleManager.startAllAsync(tracker);
+
+        // The module without shard requirement is started while the shards are not ready
+        Awaitility.await().until(() -> moduleManager.getModuleInfo(NoShardModule.class).orElseThrow().getStatus() == ModuleStatus.STARTED);
+        assertThat(startFuture).isNotDone();
+        assertThat(moduleManager.getModuleInfo(ExampleModule.class).orElseThrow().getStatus()).isEqualTo(ModuleStatus.INITIALIZED);
+
+        tracker.markReady(0);
+        final Map<Class<? extends AbstractModule>, ModuleStartupTiming> timings = startFuture.orTimeout(5, TimeUnit.SECONDS).join();
+        assertThat(moduleManager.getModules(ModuleStatus.STARTED)).hasSize(2);
+
+        // The shard wait is timed separately from the worker wait
+        assertThat(timings.get(NoShardModule.class).getGateWaitNanos()).isZero();
+        final ModuleStartupTiming exampleTiming = timings.get(ExampleModule.class);
+        assertThat(exampleTiming.getGateWaitNanos()).isPositive();
+        assertThat(exampleTiming.getQueueWaitNanos()).isLessThan(exampleTiming.getGateWaitNanos());
+    }
+
+    @Test
+    void critical_path_stops_at_the_gate() throws TopicalSortCycleException {
+        final ModuleManager moduleManager = this.getModuleManager();
+        moduleManager.registerModules(
+                NoShardModule.class,
+                ShardAfterNoShardModule.class
+        );
+        moduleManager.initializeAll();
+
+        final ShardReadinessTracker tracker = new ShardReadinessTracker();
+        tracker.setExpectedShards(1);
+        final CompletableFuture<Map<Class<? extends AbstractModule>, ModuleStartupTiming>> startFuture = moduleManager.startAllAsync(tracker);
+        Awaitility.await().until(() -> moduleManager.getModuleInfo(NoShardModule.class).orElseThrow().getStatus() == ModuleStatus.STARTED);
+        tracker.markReady(0);
+        final Map<Class<? extends AbstractModule>, ModuleStartupTiming> timings = startFuture.orTimeout(5, TimeUnit.SECONDS).join();
+
+        final Map<Class<? extends AbstractModule>, AbstractModule> modules = new HashMap<>();
+        for (final AbstractModule module : moduleManager.getModules(ModuleStatus.STARTED)) {
+            modules.put(module.getClass(), module);
+        }
+        // The dependency was done long before the shards, it didn't delay the start
+        assertThat(ModuleStartupScheduler.getCriticalPath(timings, modules))
+                .extracting(ModuleStartupTiming::getModuleClass)
+                .containsExactly(ShardAfterNoShardModule.class);
+    }
+
     @Test
     void stopModule() {
         final ModuleManager moduleManager = this.getModuleManager();
@@ -223,6 +327,24 @@ class ModuleManagerTest {
         }
     }
 
+    private static class NoShardModule extends AbstractModule {
+        public NoShardModule() {
+            super("NoShard");
+
+            this.setShardRequirement(ShardRequirement.NONE);
+        }
+    }
+
+    private static class ShardAfterNoShardModule extends AbstractModule {
+        public ShardAfterNoShardModule() {
+            super("ShardAfterNoShard");
+
+            this.addDependenciesAndLoadAfter(
+                    NoShardModule.class
+            );
+        }
+    }
+
     private static class DependencyModule extends AbstractModule {
         public DependencyModule() {
             super("Test");
@@ -0,0 +1,61 @@
+package de.timmi6790.discord_framework.module;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardReadinessTrackerTest {
+    @Test
+    void none_requirement_is_always_met() {
+        final ShardReadinessTracker tracker = new ShardReadinessTracker();
+        assertThat(tracker.awaitRequirement(ShardRequirement.NONE)).isDone();
+    }
+
+    @Test
+    void any_requirement_after_first_shard() {
+        final ShardReadinessTracker tracker = new ShardReadinessTracker();
+        tracker.setExpectedShards(2);
+        assertThat(tracker.awaitRequirement(ShardRequirement.ANY)).isNotDone();
+
+        tracker.markReady(1);
+        assertThat(tracker.awaitRequirement(ShardRequirement.ANY)).isDone();
+        assertThat(tracker.awaitRequirement(ShardRequirement.ALL)).isNotDone();
+    }
+
+    @Test
+    void all_requirement_after_all_shards() {
+        final ShardReadinessTracker tracker = new ShardReadinessTracker();
+        tracker.setExpectedShards(2);
+
+        tracker.markReady(0);
+        // Duplicated ready events after a reconnect are not counted twice
+        tracker.markReady(0);
+        assertThat(tracker.awaitRequirement(ShardRequirement.ALL)).isNotDone();
+
+        tracker.markReady(1);
+        assertThat(tracker.getReadyShards()).isEqualTo(2);
+        assertThat(tracker.awaitRequirement(ShardRequirement.ALL)).isDone();
+    }
+
+    @Test
+    void shards_ready_before_expected_shards_are_known() {
+        final ShardReadinessTracker tracker = new ShardReadinessTracker();
+        tracker.markReady(0);
+        assertThat(tracker.awaitRequirement(ShardRequirement.ALL)).isNotDone();
+
+        tracker.setExpectedShards(1);
+        assertThat(tracker.awaitRequirement(ShardRequirement.ALL)).isDone();
+    }
+
+    @Test
+    void timeout_completes_all_requirements() {
+        final ShardReadinessTracker tracker = new ShardReadinessTracker();
+        tracker.setExpectedShards(2);
+        tracker.completeAfterTimeout(10, TimeUnit.MILLISECONDS);
+
+        tracker.awaitRequirement(ShardRequirement.ALL).orTimeout(5, TimeUnit.SECONDS).join();
+        assertThat(tracker.awaitRequirement(ShardRequirement.ANY)).isDone();
+    }
+}
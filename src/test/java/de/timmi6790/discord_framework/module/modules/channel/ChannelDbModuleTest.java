@@ -3,6 +3,7 @@ package de.timmi6790.discord_framework.module.modules.channel;
 import de.timmi6790.discord_framework.AbstractIntegrationTest;
 import de.timmi6790.discord_framework.DiscordBot;
 import de.timmi6790.discord_framework.module.ModuleManager;
+import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
 import de.timmi6790.discord_framework.module.modules.guild.GuildDbModule;
 import de.timmi6790.discord_framework.module.modules.setting.SettingModule;
@@ -34,6 +35,9 @@ class ChannelDbModuleTest {
     @BeforeAll
     static void setup() {
         final ModuleManager moduleManager = mock(ModuleManager.class);
+        final ConfigModule configModule = mock(ConfigModule.class);
+        when(configModule.registerAndGetConfig(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(moduleManager.getModuleOrThrow(ConfigModule.class)).thenReturn(configModule);
         when(moduleManager.getModuleOrThrow(DatabaseModule.class)).thenReturn(AbstractIntegrationTest.databaseModule);
         when(moduleManager.getModuleOrThrow(GuildDbModule.class)).thenReturn(guildDbModule);
         when(moduleManager.getModuleOrThrow(ChannelDbModule.class)).thenReturn(channelDbModule);
@@ -8,11 +8,16 @@ import de.timmi6790.discord_framework.module.modules.channel.ChannelDbModule;
 import de.timmi6790.discord_framework.module.modules.command.models.BaseCommandResult;
 import de.timmi6790.discord_framework.module.modules.command.models.CommandParameters;
 import de.timmi6790.discord_framework.module.modules.command.models.CommandResult;
+import de.timmi6790.discord_framework.module.modules.command.models.CommandStage;
 import de.timmi6790.discord_framework.module.modules.command.property.properties.info.AliasNamesProperty;
 import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
 import de.timmi6790.discord_framework.module.modules.event.EventModule;
+import de.timmi6790.discord_framework.module.modules.metric.MetricModule;
 import de.timmi6790.discord_framework.module.modules.permisssion.PermissionsModule;
 import de.timmi6790.discord_framework.module.modules.user.UserDbModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.SelfUser;
 import net.dv8tion.jda.api.sharding.ShardManager;
@@ -22,6 +27,7 @@ import org.mockito.MockedStatic;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -76,6 +82,51 @@ class CommandModuleTest {
         }
     }
 
+    @Test
+    void recordStage() {
+        final PermissionsModule permissionModule = mock(PermissionsModule.class);
+        final ConfigModule configModule = mock(ConfigModule.class);
+        when(configModule.registerAndGetConfig(any(), any())).thenReturn(new Config());
+        final EventModule eventModule = mock(EventModule.class);
+
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        final MetricModule metricModule = mock(MetricModule.class);
+        when(metricModule.getMeterRegistry()).thenReturn(registry);
+
+        final ModuleManager moduleManager = mock(ModuleManager.class);
+        when(moduleManager.getModuleOrThrow(PermissionsModule.class)).thenReturn(permissionModule);
+        when(moduleManager.getModuleOrThrow(ConfigModule.class)).thenReturn(configModule);
+        when(moduleManager.getModuleOrThrow(EventModule.class)).thenReturn(eventModule);
+        when(moduleManager.getModule(MetricModule.class)).thenReturn(Optional.of(metricModule));
+
+        final CommandModule commandModule = new CommandModule();
+
+        try (final MockedStatic<DiscordBot> botMock = mockStatic(DiscordBot.class)) {
+            final DiscordBot bot = mock(DiscordBot.class);
+            when(bot.getModuleManager()).thenReturn(moduleManager);
+            when(bot.getDiscord()).thenReturn(mock(ShardManager.class));
+            botMock.when(DiscordBot::getInstance).thenReturn(bot);
+
+            commandModule.onInitialize();
+        }
+
+        commandModule.recordStage(CommandStage.EXECUTE, "test", TimeUnit.MILLISECONDS.toNanos(5));
+
+        final Timer timer = registry.find("command.stage.duration")
+                .tag("stage", CommandStage.EXECUTE.getTagValue())
+                .tag("command", "test")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    void recordStage_without_metrics() {
+        final CommandModule commandModule = new CommandModule();
+        commandModule.recordStage(CommandStage.EXECUTE, "test", 1);
+        assertThat(commandModule.getMetricModule()).isEmpty();
+    }
+
     @Test
     void onEnable() {
         final PermissionsModule permissionModule = mock(PermissionsModule.class);
@@ -221,6 +272,20 @@ class CommandModuleTest {
         assertThat(duplicate).isFalse();
     }
 
+    @Test
+    void getCommandRegistryVersion() {
+        final CommandModule commandModule = new CommandModule();
+        final long startVersion = commandModule.getCommandRegistryVersion();
+
+        commandModule.registerCommand(commandModule, this.createCommand("test"));
+        final long registeredVersion = commandModule.getCommandRegistryVersion();
+        assertThat(registeredVersion).isNotEqualTo(startVersion);
+
+        // Duplicates are not registered
+        commandModule.registerCommand(commandModule, this.createCommand("test"));
+        assertThat(commandModule.getCommandRegistryVersion()).isEqualTo(registeredVersion);
+    }
+
     @Test
     void registerCommand_changed_permission_id() {
         final int requiredPermissionId = 900;
@@ -17,6 +17,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -35,11 +36,12 @@ class MessageListenerTest {
 
         final ChannelDbModule channelDbModule = mock(ChannelDbModule.class);
         final ChannelDb channelDb = mock(ChannelDb.class);
-        when(channelDbModule.getOrCreate(anyLong(), anyLong())).thenReturn(channelDb);
+        when(channelDbModule.getOrCreateAsync(anyLong(), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(channelDb));
 
         final UserDbModule userDbModule = mock(UserDbModule.class);
         final UserDb userDb = mock(UserDb.class);
-        when(userDbModule.getOrCreate(anyLong())).thenReturn(userDb);
+        when(userDbModule.getOrCreateAsync(anyLong())).thenReturn(CompletableFuture.completedFuture(userDb));
 
         final ButtonReactionModule buttonReactionModule = mock(ButtonReactionModule.class);
 
@@ -64,11 +66,12 @@ class MessageListenerTest {
 
         final ChannelDbModule channelDbModule = mock(ChannelDbModule.class);
         final ChannelDb channelDb = mock(ChannelDb.class);
-        when(channelDbModule.getOrCreate(anyLong(), anyLong())).thenReturn(channelDb);
+        when(channelDbModule.getOrCreateAsync(anyLong(), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(channelDb));
 
         final UserDbModule userDbModule = mock(UserDbModule.class);
         final UserDb userDb = mock(UserDb.class);
-        when(userDbModule.getOrCreate(anyLong())).thenReturn(userDb);
+        when(userDbModule.getOrCreateAsync(anyLong())).thenReturn(CompletableFuture.completedFuture(userDb));
 
         final ButtonReactionModule buttonReactionModule = mock(ButtonReactionModule.class);
 
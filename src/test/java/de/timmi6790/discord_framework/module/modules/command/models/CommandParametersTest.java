@@ -9,6 +9,8 @@ import net.dv8tion.jda.api.entities.MessageChannel;
 import net.dv8tion.jda.api.entities.User;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CompletableFuture;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
@@ -45,7 +47,7 @@ class CommandParametersTest {
         final User expected = mock(User.class);
 
         final UserDb userDb = mock(UserDb.class);
-        when(userDb.getUser()).thenReturn(expected);
+        when(userDb.retrieveUser()).thenReturn(CompletableFuture.completedFuture(expected));
         final ChannelDb channelDb = mock(ChannelDb.class);
         final CommandParameters commandParameters = this.createCommandParameters(channelDb, userDb);
 
@@ -53,6 +55,19 @@ class CommandParametersTest {
         assertThat(result).isEqualTo(expected);
     }
 
+    @Test
+    void retrieveUser() {
+        final CompletableFuture<User> expected = new CompletableFuture<>();
+
+        final UserDb userDb = mock(UserDb.class);
+        when(userDb.retrieveUser()).thenReturn(expected);
+        final ChannelDb channelDb = mock(ChannelDb.class);
+        final CommandParameters commandParameters = this.createCommandParameters(channelDb, userDb);
+
+        // The future is passed through without waiting for the user
+        assertThat(commandParameters.retrieveUser()).isSameAs(expected);
+    }
+
     @Test
     void getGuild() {
         final Guild expected = mock(Guild.class);
@@ -1,6 +1,5 @@
 package de.timmi6790.discord_framework.module.modules.command.utilities;
 
-import com.github.benmanes.caffeine.cache.LoadingCache;
 import de.timmi6790.discord_framework.module.modules.command.Command;
 import de.timmi6790.discord_framework.module.modules.command.CommandModule;
 import de.timmi6790.discord_framework.module.modules.command.exceptions.CommandReturnException;
@@ -20,6 +19,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.MockedStatic;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,11 +38,8 @@ class ArgumentUtilitiesTest {
 
         final User expected = mock(User.class);
 
-        final LoadingCache<Long, User> userCache = mock(LoadingCache.class);
-        when(userCache.get(userId)).thenReturn(expected);
-
         final UserDbModule userDbModule = mock(UserDbModule.class);
-        when(userDbModule.getDiscordUserCache()).thenReturn(userCache);
+        when(userDbModule.getDiscordUser(userId)).thenReturn(CompletableFuture.completedFuture(expected));
 
         final UserDb userDb = mock(UserDb.class);
         when(userDb.getUserDbModule()).thenReturn(userDbModule);
@@ -226,9 +223,8 @@ class ArgumentUtilitiesTest {
     void getDiscordUserOrThrow_exception_user_not_found() {
         final int argPosition = 0;
 
-        final LoadingCache<Long, User> userCache = mock(LoadingCache.class);
         final UserDbModule userDbModule = mock(UserDbModule.class);
-        when(userDbModule.getDiscordUserCache()).thenReturn(userCache);
+        when(userDbModule.getDiscordUser(anyLong())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException()));
 
         final UserDb userDb = mock(UserDb.class);
         when(userDb.getUserDbModule()).thenReturn(userDbModule);
@@ -0,0 +1,34 @@
+package de.timmi6790.discord_framework.module.modules.database;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatabaseModuleTest {
+    @Test
+    void hikariConfig_postgres_properties() {
+        final Config databaseConfig = new Config();
+        databaseConfig.setQueryConcurrency(7);
+        databaseConfig.setPrepareThreshold(2);
+
+        final HikariConfig hikariConfig = new DatabaseModule().getHikariConfig(databaseConfig);
+        assertThat(hikariConfig.getMaximumPoolSize()).isEqualTo(7);
+        assertThat(hikariConfig.getMinimumIdle()).isEqualTo(7);
+        assertThat(hikariConfig.getLeakDetectionThreshold()).isEqualTo(databaseConfig.getLeakDetectionThresholdMs());
+        assertThat(hikariConfig.getDataSourceProperties())
+                .containsEntry("prepareThreshold", 2)
+                .containsEntry("preparedStatementCacheQueries", databaseConfig.getPreparedStatementCacheQueries())
+                .containsEntry("reWriteBatchedInserts", true)
+                .doesNotContainKeys("cachePrepStmts", "useServerPrepStmts");
+    }
+
+    @Test
+    void resolveQueryConcurrency_derived_from_cpu_count() {
+        final Config databaseConfig = new Config();
+        databaseConfig.setQueryConcurrency(0);
+
+        assertThat(DatabaseModule.resolveQueryConcurrency(databaseConfig))
+                .isEqualTo(Runtime.getRuntime().availableProcessors() * 2 + 1);
+    }
+}
@@ -0,0 +1,93 @@
+package de.timmi6790.discord_framework.module.modules.database.async;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncDatabaseExecutorTest {
+    @Test
+    void supply_completes_with_the_result() throws Exception {
+        try (final AsyncDatabaseExecutor executor = new AsyncDatabaseExecutor(2, 10)) {
+            assertThat(executor.supply(() -> 5).get(5, TimeUnit.SECONDS)).isEqualTo(5);
+        }
+    }
+
+    @Test
+    void supply_runs_on_a_database_thread() throws Exception {
+        try (final AsyncDatabaseExecutor executor = new AsyncDatabaseExecutor(1, 10)) {
+            final String threadName = executor.supply(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+            assertThat(threadName).startsWith("database-");
+        }
+    }
+
+    @Test
+    void supply_propagates_exceptions() {
+        try (final AsyncDatabaseExecutor executor = new AsyncDatabaseExecutor(1, 10)) {
+            final CompletableFuture<Object> future = executor.supply(() -> {
+                throw new IllegalStateException("query failed");
+            });
+
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void supply_rejects_calls_above_the_queue_capacity() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        try (final AsyncDatabaseExecutor executor = new AsyncDatabaseExecutor(1, 1)) {
+            final CompletableFuture<Boolean> running = executor.supply(() -> this.await(release));
+            final CompletableFuture<Boolean> queued = executor.supply(() -> this.await(release));
+            final CompletableFuture<Boolean> rejected = executor.supply(() -> this.await(release));
+
+            assertThat(rejected).isCompletedExceptionally();
+            assertThatThrownBy(rejected::join).hasCauseInstanceOf(RejectedExecutionException.class);
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void close_finishes_queued_calls() {
+        final AsyncDatabaseExecutor executor = new AsyncDatabaseExecutor(1, 10);
+        final CompletableFuture<Integer> future = executor.supply(() -> 1);
+        executor.close();
+
+        assertThat(future).isCompletedWithValue(1);
+        assertThat(executor.getExecutor().isTerminated()).isTrue();
+        assertThat(executor.supply(() -> 2)).isCompletedExceptionally();
+    }
+
+    @Test
+    void executor_repository_uses_the_blocking_get() throws Exception {
+        try (final AsyncDatabaseExecutor executor = new AsyncDatabaseExecutor(1, 10)) {
+            final AsyncEntityRepository<String> repository = new ExecutorAsyncEntityRepository<>(
+                    executor,
+                    id -> id == 1 ? Optional.of("found") : Optional.empty()
+            );
+
+            assertThat(repository.get(1).toCompletableFuture().get(5, TimeUnit.SECONDS)).contains("found");
+            assertThat(repository.get(2).toCompletableFuture().get(5, TimeUnit.SECONDS)).isEmpty();
+        }
+    }
+
+    private boolean await(final CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
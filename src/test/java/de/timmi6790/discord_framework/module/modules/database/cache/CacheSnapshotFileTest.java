@@ -0,0 +1,77 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheSnapshotFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void write_and_read() throws IOException {
+        final Path path = this.directory.resolve("nested/test.snapshot");
+        CacheSnapshotFile.write(
+                path,
+                "test",
+                Arrays.asList(
+                        new CacheSnapshotFile.Entry(1, 10, new byte[]{1, 2, 3}),
+                        new CacheSnapshotFile.Entry(Long.MAX_VALUE, -1, new byte[0])
+                )
+        );
+
+        final List<CacheSnapshotFile.Entry> entries = CacheSnapshotFile.read(path, "test");
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).getId()).isEqualTo(1);
+        assertThat(entries.get(0).getVersion()).isEqualTo(10);
+        assertThat(entries.get(0).getSnapshot()).containsExactly(1, 2, 3);
+        assertThat(entries.get(1).getId()).isEqualTo(Long.MAX_VALUE);
+        assertThat(entries.get(1).getVersion()).isEqualTo(-1);
+        assertThat(entries.get(1).getSnapshot()).isEmpty();
+
+        // No temporary file is left behind
+        assertThat(Files.list(path.getParent())).containsExactly(path);
+    }
+
+    @Test
+    void read_missing_file() throws IOException {
+        assertThat(CacheSnapshotFile.read(this.directory.resolve("missing.snapshot"), "test")).isEmpty();
+    }
+
+    @Test
+    void read_other_entity_type() throws IOException {
+        final Path path = this.directory.resolve("test.snapshot");
+        CacheSnapshotFile.write(path, "test", List.of(new CacheSnapshotFile.Entry(1, 1, new byte[1])));
+
+        assertThatThrownBy(() -> CacheSnapshotFile.read(path, "other"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void read_truncated_file() throws IOException {
+        final Path path = this.directory.resolve("test.snapshot");
+        CacheSnapshotFile.write(path, "test", List.of(new CacheSnapshotFile.Entry(1, 1, new byte[16])));
+        final byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThatThrownBy(() -> CacheSnapshotFile.read(path, "test"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void read_no_snapshot_file() throws IOException {
+        final Path path = this.directory.resolve("test.snapshot");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThatThrownBy(() -> CacheSnapshotFile.read(path, "test"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
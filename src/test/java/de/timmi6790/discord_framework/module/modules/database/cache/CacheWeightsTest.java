@@ -0,0 +1,64 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheWeightsTest {
+    @Test
+    void array_bytes() {
+        assertThat(CacheWeights.intArrayBytes(0)).isZero();
+        assertThat(CacheWeights.intArrayBytes(1)).isEqualTo(24);
+        assertThat(CacheWeights.intArrayBytes(2)).isEqualTo(24);
+        assertThat(CacheWeights.intArrayBytes(3)).isEqualTo(32);
+        assertThat(CacheWeights.referenceArrayBytes(4)).isEqualTo(32);
+    }
+
+    @Test
+    void object_bytes_are_aligned() {
+        assertThat(CacheWeights.objectBytes(0)).isEqualTo(16);
+        assertThat(CacheWeights.objectBytes(Long.BYTES + 1)).isEqualTo(24);
+    }
+
+    @Test
+    void weight_is_capped() {
+        assertThat(CacheWeights.toWeight(0)).isEqualTo(CacheWeights.CACHE_ENTRY_BYTES);
+        assertThat(CacheWeights.toWeight(Long.MAX_VALUE / 2)).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void estimated_size_gauge() {
+        final Cache<Long, String> cache = Caffeine.newBuilder()
+                .maximumWeight(CacheWeights.megabytesToBytes(1))
+                .weigher((Long key, String value) -> value.length())
+                .executor(Runnable::run)
+                .build();
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheWeights.bindEstimatedSize(registry, "test", cache);
+
+        cache.put(1L, "a".repeat(100));
+        cache.put(2L, "b".repeat(50));
+
+        assertThat(registry.get("cache.estimated.size").tag("cache", "test").gauge().value()).isEqualTo(150);
+        assertThat(registry.get("cache.budget").tag("cache", "test").gauge().value()).isEqualTo(1024 * 1024);
+    }
+
+    @Test
+    void weighted_cache_evicts_by_budget() {
+        final Cache<Long, String> cache = Caffeine.newBuilder()
+                .maximumWeight(100)
+                .weigher((Long key, String value) -> value.length())
+                .executor(Runnable::run)
+                .build();
+
+        for (long key = 0; 10 > key; key++) {
+            cache.put(key, "a".repeat(40));
+        }
+        cache.cleanUp();
+
+        assertThat(cache.policy().eviction().orElseThrow().weightedSize().orElseThrow()).isLessThanOrEqualTo(100);
+    }
+}
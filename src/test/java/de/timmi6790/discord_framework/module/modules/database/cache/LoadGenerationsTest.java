@@ -0,0 +1,123 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InMemoryInvalidationBus;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoadGenerationsTest {
+    private static final long ID = 10;
+
+    private final LoadGenerations loadGenerations = new LoadGenerations();
+    private final Cache<Long, String> cache = Caffeine.newBuilder().build();
+    private final InMemoryInvalidationBus bus = new InMemoryInvalidationBus();
+    /**
+     * Bus of the other bot process
+     */
+    private final InMemoryInvalidationBus peerBus = new InMemoryInvalidationBus();
+
+    /**
+     * Subscribes the cache like the entity modules do, the generation is increased before the entity is removed.
+     */
+    @BeforeEach
+    void setUp() {
+        this.bus.connect(this.peerBus);
+        this.bus.subscribe(
+                InvalidationTopic.USER,
+                id -> {
+                    this.loadGenerations.invalidate(id);
+                    this.cache.invalidate(id);
+                },
+                () -> {
+                    this.loadGenerations.invalidateAll();
+                    this.cache.invalidateAll();
+                }
+        );
+    }
+
+    private boolean cacheLoaded(final long generation, final String value) {
+        return this.loadGenerations.putIfCurrent(
+                ID,
+                generation,
+                () -> this.cache.put(ID, value),
+                this.cache::invalidate
+        );
+    }
+
+    @Test
+    void load_without_invalidation_is_cached() {
+        final long generation = this.loadGenerations.get(ID);
+        assertThat(this.cacheLoaded(generation, "loaded")).isTrue();
+        assertThat(this.cache.getIfPresent(ID)).isEqualTo("loaded");
+    }
+
+    @Test
+    void peer_invalidation_during_load_is_not_cached() {
+        final long generation = this.loadGenerations.get(ID);
+        // The entity is read before the peer committed its change
+        final String loaded = "stale";
+        this.peerBus.publish(InvalidationTopic.USER, ID);
+
+        assertThat(this.cacheLoaded(generation, loaded)).isFalse();
+        assertThat(this.cache.getIfPresent(ID)).isNull();
+
+        // The next load reads the changed entity
+        final long nextGeneration = this.loadGenerations.get(ID);
+        assertThat(this.cacheLoaded(nextGeneration, "changed")).isTrue();
+        assertThat(this.cache.getIfPresent(ID)).isEqualTo("changed");
+    }
+
+    @Test
+    void peer_invalidation_during_put_is_undone() {
+        final long generation = this.loadGenerations.get(ID);
+        final boolean cached = this.loadGenerations.putIfCurrent(
+                ID,
+                generation,
+                () -> {
+                    // Arrives after the generation check, before the entity is inside the cache
+                    this.peerBus.publish(InvalidationTopic.USER, ID);
+                    this.cache.put(ID, "stale");
+                },
+                this.cache::invalidate
+        );
+
+        assertThat(cached).isFalse();
+        assertThat(this.cache.getIfPresent(ID)).isNull();
+    }
+
+    @Test
+    void resync_during_load_is_not_cached() {
+        final long generation = this.loadGenerations.get(ID);
+        this.bus.triggerResync();
+
+        assertThat(this.cacheLoaded(generation, "stale")).isFalse();
+        assertThat(this.cache.getIfPresent(ID)).isNull();
+    }
+
+    @Test
+    void invalidation_of_other_stripe_keeps_generation() {
+        final LoadGenerations generations = new LoadGenerations(2);
+
+        // With two stripes some of the following ids use the other stripe
+        int unchanged = 0;
+        for (long otherId = ID + 1; ID + 16 >= otherId; otherId++) {
+            final long generation = generations.get(ID);
+            generations.invalidate(otherId);
+            if (generations.get(ID) == generation) {
+                unchanged++;
+            }
+        }
+        assertThat(unchanged).isPositive();
+    }
+
+    @Test
+    void stripes_must_be_power_of_two() {
+        assertThatThrownBy(() -> new LoadGenerations(3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LoadGenerations(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
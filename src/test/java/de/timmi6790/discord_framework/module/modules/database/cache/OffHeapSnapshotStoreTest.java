@@ -0,0 +1,148 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapSnapshotStoreTest {
+    private static final int HEADER_BYTES = 20;
+
+    private static byte[] snapshot(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Optional<String> asString(final Optional<byte[]> snapshot) {
+        return snapshot.map(bytes -> new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void put_and_get() {
+        final OffHeapSnapshotStore store = new OffHeapSnapshotStore(1_024, 0);
+        assertThat(store.put(1, snapshot("first"))).isTrue();
+        assertThat(store.put(2, snapshot("second"))).isTrue();
+
+        assertThat(asString(store.get(1))).hasValue("first");
+        assertThat(asString(store.get(2))).hasValue("second");
+        assertThat(store.get(3)).isEmpty();
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    void put_replaces_snapshot() {
+        final OffHeapSnapshotStore store = new OffHeapSnapshotStore(1_024, 0);
+        store.put(1, snapshot("old"));
+        store.put(1, snapshot("new"));
+
+        assertThat(asString(store.get(1))).hasValue("new");
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void remove() {
+        final OffHeapSnapshotStore store = new OffHeapSnapshotStore(1_024, 0);
+        store.put(1, snapshot("value"));
+
+        assertThat(asString(store.remove(1))).hasValue("value");
+        assertThat(store.get(1)).isEmpty();
+        assertThat(store.remove(1)).isEmpty();
+    }
+
+    @Test
+    void invalidate() {
+        final OffHeapSnapshotStore store = new OffHeapSnapshotStore(1_024, 0);
+        store.put(1, snapshot("value"));
+
+        assertThat(store.invalidate(1)).isTrue();
+        assertThat(store.get(1)).isEmpty();
+        assertThat(store.invalidate(1)).isFalse();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void index_grows_and_shrinks() {
+        final OffHeapSnapshotStore store = new OffHeapSnapshotStore(1_024 * 1_024, 0);
+        for (long id = 0; 1_000 > id; id++) {
+            store.put(id * 4_194_304L, snapshot(String.valueOf(id)));
+        }
+        for (long id = 0; 1_000 > id; id += 2) {
+            assertThat(store.invalidate(id * 4_194_304L)).isTrue();
+        }
+
+        assertThat(store.size()).isEqualTo(500);
+        for (long id = 0; 1_000 > id; id++) {
+            final Optional<String> expected = id % 2 == 0 ? Optional.empty() : Optional.of(String.valueOf(id));
+            assertThat(asString(store.get(id * 4_194_304L))).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void full_store_overwrites_oldest() {
+        // Room for exactly three records of ten bytes
+        final OffHeapSnapshotStore store = new OffHeapSnapshotStore(3 * (HEADER_BYTES + 10), 0);
+        for (int id = 0; 3 > id; id++) {
+            store.put(id, snapshot("value-000" + id));
+        }
+        assertThat(store.size()).isEqualTo(3);
+
+        store.put(3, snapshot("value-0003"));
+        assertThat(store.get(0)).isEmpty();
+        assertThat(asString(store.get(1))).hasValue("value-0001");
+        assertThat(asString(store.get(3))).hasValue("value-0003");
+        assertThat(store.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void records_are_not_split_at_the_buffer_end() {
+        final OffHeapSnapshotStore store = new OffHeapSnapshotStore(100, 0);
+        store.put(1, snapshot("a".repeat(30)));
+        // Doesn't fit behind the first record, the buffer is skipped to the start
+        store.put(2, snapshot("b".repeat(40)));
+
+        assertThat(store.get(1)).isEmpty();
+        assertThat(asString(store.get(2))).hasValue("b".repeat(40));
+
+        for (int id = 3; 50 > id; id++) {
+            store.put(id, snapshot(String.valueOf(id).repeat(id % 7 + 1)));
+            assertThat(asString(store.get(id))).hasValue(String.valueOf(id).repeat(id % 7 + 1));
+        }
+        assertThat(store.getUsedBytes()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void too_large_snapshot_is_rejected() {
+        final OffHeapSnapshotStore store = new OffHeapSnapshotStore(64, 0);
+        assertThat(store.put(1, new byte[64])).isFalse();
+        assertThat(store.get(1)).isEmpty();
+    }
+
+    @Test
+    void expired_snapshot_is_not_returned() throws InterruptedException {
+        final OffHeapSnapshotStore store = new OffHeapSnapshotStore(1_024, 1);
+        store.put(1, snapshot("value"));
+        Thread.sleep(10);
+
+        assertThat(store.get(1)).isEmpty();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void clear() {
+        final OffHeapSnapshotStore store = new OffHeapSnapshotStore(1_024, 0);
+        store.put(1, snapshot("value"));
+        store.clear();
+
+        assertThat(store.get(1)).isEmpty();
+        assertThat(store.getUsedBytes()).isZero();
+        assertThat(store.put(2, snapshot("value"))).isTrue();
+    }
+
+    @Test
+    void capacity_below_header_size() {
+        assertThatThrownBy(() -> new OffHeapSnapshotStore(HEADER_BYTES - 1, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
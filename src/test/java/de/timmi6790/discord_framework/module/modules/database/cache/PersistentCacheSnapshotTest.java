@@ -0,0 +1,280 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistentCacheSnapshotTest {
+    private static final SnapshotCodec<String> CODEC = new SnapshotCodec<>() {
+        @Override
+        public byte[] encode(final String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Optional<String> decode(final byte[] snapshot) {
+            final String value = new String(snapshot, StandardCharsets.UTF_8);
+            // Simulates a snapshot referencing data that doesn't exist anymore
+            return value.equals("removed") ? Optional.empty() : Optional.of(value);
+        }
+    };
+
+    @TempDir
+    Path directory;
+
+    private PersistentCacheSnapshot<String> createSnapshot(final EntityVersionLookup versionLookup,
+                                                           final int maxEntries) {
+        return new PersistentCacheSnapshot<>(
+                "test",
+                this.directory.resolve("test.snapshot"),
+                maxEntries,
+                CODEC,
+                versionLookup
+        );
+    }
+
+    private static Cache<Long, String> createCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    private static void putLoaded(final Cache<Long, String> cache,
+                                  final PersistentCacheSnapshot<String> snapshot,
+                                  final long id,
+                                  final String value,
+                                  final long version) {
+        snapshot.recordVersion(new VersionedEntity<>(value, version));
+        cache.put(id, value);
+    }
+
+    @Test
+    void save_and_load() {
+        final VersionLookup versionLookup = new VersionLookup();
+        versionLookup.versions.put(1L, 10L);
+        versionLookup.versions.put(2L, 20L);
+
+        final Cache<Long, String> cache = createCache();
+        final PersistentCacheSnapshot<String> savedSnapshot = this.createSnapshot(versionLookup, 10);
+        putLoaded(cache, savedSnapshot, 1L, "first", 10L);
+        putLoaded(cache, savedSnapshot, 2L, "second", 20L);
+        // Not loaded from the database
+        cache.put(3L, "third");
+        assertThat(savedSnapshot.save(cache)).isEqualTo(2);
+        // The save doesn't read the current versions
+        assertThat(versionLookup.lookups).isEmpty();
+
+        final Cache<Long, String> restartedCache = createCache();
+        final PersistentCacheSnapshot<String> snapshot = this.createSnapshot(versionLookup, 10);
+        assertThat(snapshot.load(restartedCache::put)).isEqualTo(2);
+        assertThat(restartedCache.asMap()).containsOnly(Map.entry(1L, "first"), Map.entry(2L, "second"));
+        assertThat(snapshot.getPendingCount()).isEqualTo(2);
+    }
+
+    @Test
+    void save_uses_the_version_of_the_loaded_instance() {
+        final VersionLookup versionLookup = new VersionLookup();
+        versionLookup.versions.put(1L, 11L);
+
+        final Cache<Long, String> cache = createCache();
+        final PersistentCacheSnapshot<String> savedSnapshot = this.createSnapshot(versionLookup, 10);
+        putLoaded(cache, savedSnapshot, 1L, "first", 10L);
+        // Replaced by an instance without a version, e.g. created by this process
+        cache.put(1L, new String("first"));
+        assertThat(savedSnapshot.save(cache)).isZero();
+
+        // The database changed after the load, the saved entry is stale on the next start
+        putLoaded(cache, savedSnapshot, 1L, "first", 10L);
+        assertThat(savedSnapshot.save(cache)).isOne();
+        final PersistentCacheSnapshot<String> snapshot = this.createSnapshot(versionLookup, 10);
+        snapshot.load((id, value) -> {
+        });
+        assertThat(snapshot.validate(1)).isFalse();
+    }
+
+    @Test
+    void save_keeps_the_version_of_preloaded_entries() {
+        final VersionLookup versionLookup = new VersionLookup();
+        versionLookup.versions.put(1L, 10L);
+        final Cache<Long, String> cache = createCache();
+        final PersistentCacheSnapshot<String> firstRun = this.createSnapshot(versionLookup, 10);
+        putLoaded(cache, firstRun, 1L, "first", 10L);
+        firstRun.save(cache);
+
+        final Cache<Long, String> secondCache = createCache();
+        final PersistentCacheSnapshot<String> secondRun = this.createSnapshot(versionLookup, 10);
+        secondRun.load(secondCache::put);
+        assertThat(secondRun.validate(1)).isTrue();
+        assertThat(secondRun.save(secondCache)).isOne();
+
+        final PersistentCacheSnapshot<String> thirdRun = this.createSnapshot(versionLookup, 10);
+        thirdRun.load((id, value) -> {
+        });
+        assertThat(thirdRun.validate(1)).isTrue();
+    }
+
+    @Test
+    void save_limits_entries() {
+        final VersionLookup versionLookup = new VersionLookup();
+        final Cache<Long, String> cache = createCache();
+        final PersistentCacheSnapshot<String> savedSnapshot = this.createSnapshot(versionLookup, 3);
+        for (long id = 0; 10 > id; id++) {
+            versionLookup.versions.put(id, id);
+            putLoaded(cache, savedSnapshot, id, "value" + id, id);
+        }
+
+        assertThat(savedSnapshot.save(cache)).isEqualTo(3);
+        assertThat(this.createSnapshot(versionLookup, 3).load((id, value) -> {
+        })).isEqualTo(3);
+    }
+
+    @Test
+    void load_skips_undecodable_entries() {
+        final VersionLookup versionLookup = new VersionLookup();
+        versionLookup.versions.put(1L, 1L);
+        versionLookup.versions.put(2L, 1L);
+        final Cache<Long, String> cache = createCache();
+        final PersistentCacheSnapshot<String> savedSnapshot = this.createSnapshot(versionLookup, 10);
+        putLoaded(cache, savedSnapshot, 1L, "removed", 1L);
+        putLoaded(cache, savedSnapshot, 2L, "second", 1L);
+        savedSnapshot.save(cache);
+
+        final PersistentCacheSnapshot<String> snapshot = this.createSnapshot(versionLookup, 10);
+        assertThat(snapshot.load((id, value) -> {
+        })).isEqualTo(1);
+        // Skipped entries are never validated
+        assertThat(snapshot.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void load_missing_file() {
+        assertThat(this.createSnapshot(new VersionLookup(), 10).load((id, value) -> {
+        })).isZero();
+    }
+
+    @Test
+    void validate_on_access() {
+        final VersionLookup versionLookup = new VersionLookup();
+        versionLookup.versions.put(1L, 10L);
+        versionLookup.versions.put(2L, 20L);
+        final Cache<Long, String> cache = createCache();
+        final PersistentCacheSnapshot<String> savedSnapshot = this.createSnapshot(versionLookup, 10);
+        putLoaded(cache, savedSnapshot, 1L, "first", 10L);
+        putLoaded(cache, savedSnapshot, 2L, "second", 20L);
+        savedSnapshot.save(cache);
+
+        final PersistentCacheSnapshot<String> snapshot = this.createSnapshot(versionLookup, 10);
+        snapshot.load((id, value) -> {
+        });
+        versionLookup.versions.put(2L, 21L);
+        versionLookup.lookups.clear();
+
+        assertThat(snapshot.validate(1)).isTrue();
+        assertThat(snapshot.validate(2)).isFalse();
+        assertThat(snapshot.getPendingCount()).isZero();
+        assertThat(versionLookup.lookups).hasSize(2);
+
+        // Validated entries and entries not from the snapshot don't require a lookup
+        assertThat(snapshot.validate(1)).isTrue();
+        assertThat(snapshot.validate(3)).isTrue();
+        assertThat(versionLookup.lookups).hasSize(2);
+    }
+
+    @Test
+    void validate_pending() {
+        final VersionLookup versionLookup = new VersionLookup();
+        final Cache<Long, String> cache = createCache();
+        final PersistentCacheSnapshot<String> savedSnapshot = this.createSnapshot(versionLookup, Integer.MAX_VALUE);
+        for (long id = 0; PersistentCacheSnapshot.VERSION_BATCH_SIZE + 10 > id; id++) {
+            versionLookup.versions.put(id, id);
+            putLoaded(cache, savedSnapshot, id, "value" + id, id);
+        }
+        savedSnapshot.save(cache);
+
+        final PersistentCacheSnapshot<String> snapshot = this.createSnapshot(versionLookup, Integer.MAX_VALUE);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        snapshot.bindTo(registry);
+        snapshot.load((id, value) -> {
+        });
+        // Changed and deleted entries
+        versionLookup.versions.put(5L, -5L);
+        versionLookup.versions.remove(6L);
+        versionLookup.lookups.clear();
+
+        final List<Long> staleIds = new ArrayList<>();
+        snapshot.validatePending(staleIds::add);
+
+        assertThat(staleIds).containsExactlyInAnyOrder(5L, 6L);
+        assertThat(snapshot.getPendingCount()).isZero();
+        assertThat(versionLookup.lookups).hasSize(2);
+        assertThat(registry.get("cache.snapshot.validations").tag("result", "valid").functionCounter().count())
+                .isEqualTo(PersistentCacheSnapshot.VERSION_BATCH_SIZE + 8);
+        assertThat(registry.get("cache.snapshot.validations").tag("result", "stale").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("cache.snapshot.preloaded").gauge().value())
+                .isEqualTo(PersistentCacheSnapshot.VERSION_BATCH_SIZE + 10);
+    }
+
+    @Test
+    void validate_pending_async_uses_the_executor() {
+        final VersionLookup versionLookup = new VersionLookup();
+        versionLookup.versions.put(1L, 10L);
+        final Cache<Long, String> cache = createCache();
+        final PersistentCacheSnapshot<String> savedSnapshot = this.createSnapshot(versionLookup, 10);
+        putLoaded(cache, savedSnapshot, 1L, "first", 10L);
+        savedSnapshot.save(cache);
+
+        final PersistentCacheSnapshot<String> snapshot = this.createSnapshot(versionLookup, 10);
+        snapshot.load((id, value) -> {
+        });
+
+        // Full executor, the entry stays pending and is validated on access
+        assertThat(snapshot.validatePendingAsync(id -> {
+        }, command -> {
+            throw new RejectedExecutionException();
+        })).isCompletedExceptionally();
+        assertThat(snapshot.getPendingCount()).isOne();
+
+        final List<Runnable> tasks = new ArrayList<>();
+        final CompletableFuture<Void> validation = snapshot.validatePendingAsync(id -> {
+        }, tasks::add);
+        assertThat(tasks).hasSize(1);
+        tasks.get(0).run();
+        assertThat(validation).isCompleted();
+        assertThat(snapshot.getPendingCount()).isZero();
+    }
+
+    private static class VersionLookup implements EntityVersionLookup {
+        private final Map<Long, Long> versions = new HashMap<>();
+        private final List<Collection<Long>> lookups = new ArrayList<>();
+
+        @Override
+        public Map<Long, Long> getVersions(final Collection<Long> ids) {
+            this.lookups.add(new ArrayList<>(ids));
+            final Map<Long, Long> found = new HashMap<>();
+            for (final Long id : ids) {
+                final Long version = this.versions.get(id);
+                if (version != null) {
+                    found.put(id, version);
+                }
+            }
+            return found;
+        }
+    }
+}
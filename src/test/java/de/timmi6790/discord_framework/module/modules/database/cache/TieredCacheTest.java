@@ -0,0 +1,130 @@
+package de.timmi6790.discord_framework.module.modules.database.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredCacheTest {
+    private static final SnapshotCodec<String> CODEC = new SnapshotCodec<>() {
+        @Override
+        public byte[] encode(final String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Optional<String> decode(final byte[] snapshot) {
+            return Optional.of(new String(snapshot, StandardCharsets.UTF_8));
+        }
+    };
+
+    private static TieredCache<String> createCache(final OffHeapSnapshotStore offHeapStore) {
+        return new TieredCache<>(
+                "test",
+                Caffeine.newBuilder()
+                        .maximumSize(1)
+                        .executor(Runnable::run),
+                offHeapStore,
+                CODEC
+        );
+    }
+
+    @Test
+    void evicted_entries_are_moved_off_heap_and_promoted() {
+        final TieredCache<String> cache = createCache(new OffHeapSnapshotStore(1_024, 0));
+        cache.put(1, "first");
+        cache.put(2, "second");
+        cache.getHeapCache().cleanUp();
+
+        assertThat(cache.getHeapCache().estimatedSize()).isEqualTo(1);
+        assertThat(cache.getOffHeapSize()).isEqualTo(1);
+
+        assertThat(cache.getIfPresent(1)).isEqualTo("first");
+        assertThat(cache.getIfPresent(2)).isEqualTo("second");
+        assertThat(cache.getIfPresent(3)).isNull();
+    }
+
+    @Test
+    void invalidate_removes_all_tiers() {
+        final TieredCache<String> cache = createCache(new OffHeapSnapshotStore(1_024, 0));
+        cache.put(1, "first");
+        cache.put(2, "second");
+        cache.getHeapCache().cleanUp();
+
+        cache.invalidate(1);
+        cache.invalidate(2);
+        assertThat(cache.getIfPresent(1)).isNull();
+        assertThat(cache.getIfPresent(2)).isNull();
+        assertThat(cache.getOffHeapSize()).isZero();
+    }
+
+    @Test
+    void invalidate_off_heap_keeps_heap_entry() {
+        final TieredCache<String> cache = createCache(new OffHeapSnapshotStore(1_024, 0));
+        cache.put(1, "first");
+
+        cache.invalidateOffHeap(1);
+        assertThat(cache.getIfPresent(1)).isEqualTo("first");
+    }
+
+    @Test
+    void expired_entries_are_not_moved_off_heap() {
+        final AtomicLong time = new AtomicLong();
+        final TieredCache<String> cache = new TieredCache<>(
+                "test",
+                Caffeine.newBuilder()
+                        .expireAfterWrite(1, TimeUnit.MINUTES)
+                        .ticker(time::get)
+                        .executor(Runnable::run),
+                new OffHeapSnapshotStore(1_024, 0),
+                CODEC
+        );
+        cache.put(1, "first");
+        time.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        cache.getHeapCache().cleanUp();
+
+        assertThat(cache.getOffHeapSize()).isZero();
+        assertThat(cache.getIfPresent(1)).isNull();
+    }
+
+    @Test
+    void without_off_heap_store() {
+        final TieredCache<String> cache = createCache(null);
+        cache.put(1, "first");
+        cache.put(2, "second");
+        cache.getHeapCache().cleanUp();
+
+        assertThat(cache.getHeapCache().estimatedSize()).isEqualTo(1);
+        assertThat(cache.getOffHeapSize()).isZero();
+    }
+
+    @Test
+    void tier_metrics() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final TieredCache<String> cache = createCache(new OffHeapSnapshotStore(1_024, 0));
+        cache.bindTo(registry);
+
+        cache.put(1, "first");
+        cache.put(2, "second");
+        cache.getHeapCache().cleanUp();
+
+        final long offHeapKey = cache.getHeapCache().getIfPresent(1L) == null ? 1 : 2;
+        cache.getIfPresent(offHeapKey);
+        cache.getIfPresent(3);
+
+        assertThat(registry.get("cache.tier.gets").tags("tier", "off_heap", "result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.tier.gets").tags("tier", "off_heap", "result", "miss").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.tier.gets").tags("tier", "heap", "result", "miss").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("cache.tier.promotions").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.tier.demotions").functionCounter().count()).isGreaterThanOrEqualTo(1);
+    }
+}
@@ -0,0 +1,166 @@
+package de.timmi6790.discord_framework.module.modules.database.invalidation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryInvalidationBusTest {
+    @Test
+    void publish_is_received_by_connected_bus() {
+        final InMemoryInvalidationBus bus = new InMemoryInvalidationBus();
+        final InMemoryInvalidationBus otherBus = new InMemoryInvalidationBus();
+        bus.connect(otherBus);
+
+        final List<Long> received = new ArrayList<>();
+        final List<Long> ownReceived = new ArrayList<>();
+        otherBus.subscribe(InvalidationTopic.USER, received::add, () -> {
+        });
+        bus.subscribe(InvalidationTopic.USER, ownReceived::add, () -> {
+        });
+
+        bus.publish(InvalidationTopic.USER, 10);
+        assertThat(received).containsExactly(10L);
+        assertThat(ownReceived).isEmpty();
+    }
+
+    @Test
+    void publish_is_only_received_by_topic_subscribers() {
+        final InMemoryInvalidationBus bus = new InMemoryInvalidationBus();
+        final InMemoryInvalidationBus otherBus = new InMemoryInvalidationBus();
+        bus.connect(otherBus);
+
+        final List<Long> received = new ArrayList<>();
+        otherBus.subscribe(InvalidationTopic.GUILD, received::add, () -> {
+        });
+
+        bus.publish(InvalidationTopic.USER, 10);
+        bus.publish(InvalidationTopic.GUILD, 20);
+        assertThat(received).containsExactly(20L);
+    }
+
+    @Test
+    void batched_publish_is_deduplicated() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // A long interval, the test flushes manually
+        final InMemoryInvalidationBus bus = new InMemoryInvalidationBus(60_000, registry);
+        final InMemoryInvalidationBus otherBus = new InMemoryInvalidationBus(0, registry);
+        bus.connect(otherBus);
+
+        final List<Long> received = new CopyOnWriteArrayList<>();
+        otherBus.subscribe(InvalidationTopic.RANK, received::add, () -> {
+        });
+
+        bus.publish(InvalidationTopic.RANK, 1);
+        bus.publish(InvalidationTopic.RANK, 2);
+        bus.publish(InvalidationTopic.RANK, 1);
+        assertThat(received).isEmpty();
+
+        bus.flush();
+        assertThat(received).containsExactly(1L, 2L);
+
+        assertThat(registry.get("cache.invalidation.published").tag("topic", "rank").counter().count()).isEqualTo(3);
+        assertThat(registry.get("cache.invalidation.received").tag("topic", "rank").counter().count()).isEqualTo(2);
+        assertThat(registry.get("cache.invalidation.batch.size").tag("topic", "rank").summary().totalAmount()).isEqualTo(2);
+        assertThat(registry.get("cache.invalidation.lag").tag("topic", "rank").timer().count()).isEqualTo(1);
+
+        bus.close();
+    }
+
+    @Test
+    void close_flushes_pending_invalidations() {
+        final InMemoryInvalidationBus bus = new InMemoryInvalidationBus(60_000, null);
+        final InMemoryInvalidationBus otherBus = new InMemoryInvalidationBus();
+        bus.connect(otherBus);
+
+        final List<Long> received = new CopyOnWriteArrayList<>();
+        otherBus.subscribe(InvalidationTopic.CHANNEL, received::add, () -> {
+        });
+
+        bus.publish(InvalidationTopic.CHANNEL, 5);
+        bus.close();
+        assertThat(received).containsExactly(5L);
+    }
+
+    @Test
+    void resync_calls_all_subscribers() {
+        final InMemoryInvalidationBus bus = new InMemoryInvalidationBus();
+        final AtomicInteger resyncs = new AtomicInteger();
+        bus.subscribe(InvalidationTopic.USER, id -> {
+        }, resyncs::incrementAndGet);
+        bus.subscribe(InvalidationTopic.GUILD, id -> {
+        }, resyncs::incrementAndGet);
+
+        bus.triggerResync();
+        assertThat(resyncs).hasValue(2);
+    }
+
+    @Test
+    void failing_subscriber_does_not_stop_others() {
+        final InMemoryInvalidationBus bus = new InMemoryInvalidationBus();
+        final InMemoryInvalidationBus otherBus = new InMemoryInvalidationBus();
+        bus.connect(otherBus);
+
+        final List<Long> received = new ArrayList<>();
+        otherBus.subscribe(InvalidationTopic.USER, id -> {
+            throw new IllegalStateException();
+        }, () -> {
+        });
+        otherBus.subscribe(InvalidationTopic.USER, received::add, () -> {
+        });
+
+        bus.publish(InvalidationTopic.USER, 1);
+        assertThat(received).containsExactly(1L);
+    }
+
+    @Test
+    void failed_send_is_retried() {
+        final FailingBus bus = new FailingBus(2);
+        final InMemoryInvalidationBus otherBus = new InMemoryInvalidationBus();
+        bus.connect(otherBus);
+
+        final List<Long> received = new ArrayList<>();
+        final AtomicInteger resyncs = new AtomicInteger();
+        otherBus.subscribe(InvalidationTopic.USER, received::add, resyncs::incrementAndGet);
+
+        bus.publish(InvalidationTopic.USER, 1);
+        assertThat(received).containsExactly(1L);
+        assertThat(resyncs).hasValue(0);
+    }
+
+    @Test
+    void lost_batch_sends_resync() {
+        final FailingBus bus = new FailingBus(Integer.MAX_VALUE);
+        final InMemoryInvalidationBus otherBus = new InMemoryInvalidationBus();
+        bus.connect(otherBus);
+
+        final List<Long> received = new ArrayList<>();
+        final AtomicInteger resyncs = new AtomicInteger();
+        otherBus.subscribe(InvalidationTopic.USER, received::add, resyncs::incrementAndGet);
+
+        bus.publish(InvalidationTopic.USER, 1);
+        assertThat(received).isEmpty();
+        assertThat(resyncs).hasValue(1);
+    }
+
+    private static class FailingBus extends InMemoryInvalidationBus {
+        private final AtomicInteger remainingFailures;
+
+        private FailingBus(final int failures) {
+            this.remainingFailures = new AtomicInteger(failures);
+        }
+
+        @Override
+        protected void sendBatch(final InvalidationTopic topic, final long publishedAt, final long[] ids) {
+            if (this.remainingFailures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Send failed");
+            }
+            super.sendBatch(topic, publishedAt, ids);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package de.timmi6790.discord_framework.module.modules.database.invalidation;
+
+import de.timmi6790.discord_framework.AbstractIntegrationTest;
+import de.timmi6790.discord_framework.module.modules.database.notification.PostgresNotificationListener;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostgresInvalidationBusTest extends AbstractIntegrationTest {
+    @Test
+    void encode_splits_large_batches() {
+        final long[] ids = LongStream.range(0, PostgresInvalidationBus.MAX_IDS_PER_NOTIFICATION + 1L)
+                .map(id -> Long.MAX_VALUE - id)
+                .toArray();
+
+        final List<String> payloads = PostgresInvalidationBus.encode(InvalidationTopic.CHANNEL, 1L, ids);
+        assertThat(payloads).hasSize(2);
+        assertThat(payloads.get(1)).isEqualTo("CHANNEL;1;" + (Long.MAX_VALUE - PostgresInvalidationBus.MAX_IDS_PER_NOTIFICATION));
+        // Postgres rejects payloads of 8000 bytes or more
+        for (final String payload : payloads) {
+            assertThat(payload.length()).isLessThan(7_900);
+        }
+    }
+
+    @Test
+    void invalidation_between_processes() {
+        final PostgresNotificationListener listener = databaseModule.getNotificationListener().orElseThrow();
+        final List<Long> received = new CopyOnWriteArrayList<>();
+        databaseModule.getInvalidationBus().subscribe(InvalidationTopic.GUILD, received::add, () -> {
+        });
+
+        try (final PostgresNotificationListener otherListener = new PostgresNotificationListener(
+                databaseModule.getJdbi(),
+                POSTGRES_SQL_CONTAINER.getJdbcUrl(),
+                POSTGRES_SQL_CONTAINER.getUsername(),
+                POSTGRES_SQL_CONTAINER.getPassword()
+        ); final PostgresInvalidationBus otherBus = new PostgresInvalidationBus(otherListener, 10, null)) {
+            Awaitility.await().until(listener::isConnected);
+
+            otherBus.publish(InvalidationTopic.GUILD, 1);
+            otherBus.publish(InvalidationTopic.GUILD, 2);
+
+            Awaitility.await().until(() -> received.size() == 2);
+            assertThat(received).containsExactly(1L, 2L);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package de.timmi6790.discord_framework.module.modules.database.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PoolMetricsTrackerFactoryTest {
+    @Test
+    void record_wait_time_and_saturation() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final TestPoolStats poolStats = new TestPoolStats();
+        poolStats.setStats(5, 10, 0);
+
+        final IMetricsTracker tracker = new PoolMetricsTrackerFactory(registry).create("test", poolStats);
+        tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(2));
+        tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(4));
+
+        assertThat(registry.get("database.pool.wait").tag("pool", "test").timer().count()).isEqualTo(2);
+        assertThat(registry.get("database.pool.wait").timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(6);
+        // The default hikari metrics are still recorded
+        assertThat(registry.get("hikaricp.connections.acquire").timer().count()).isEqualTo(2);
+
+        assertThat(registry.get("database.pool.utilization").gauge().value()).isEqualTo(0.5);
+        assertThat(registry.get("database.pool.saturated").gauge().value()).isZero();
+
+        poolStats.setStats(10, 10, 3);
+        assertThat(registry.get("database.pool.utilization").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("database.pool.saturated").gauge().value()).isEqualTo(1);
+
+        tracker.close();
+    }
+
+    private static class TestPoolStats extends PoolStats {
+        private int active;
+        private int max;
+        private int pending;
+
+        TestPoolStats() {
+            super(0);
+        }
+
+        void setStats(final int active, final int max, final int pending) {
+            this.active = active;
+            this.max = max;
+            this.pending = pending;
+        }
+
+        @Override
+        protected void update() {
+            this.activeConnections = this.active;
+            this.maxConnections = this.max;
+            this.pendingThreads = this.pending;
+            this.totalConnections = this.max;
+            this.idleConnections = this.max - this.active;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.timmi6790.discord_framework.module.modules.database.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGStatement;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class RowCountingStatementBuilderTest {
+    private static final String SQL = "SELECT 1;";
+    private static final StatementName STATEMENT_NAME = new StatementName("TestRepository", "TEST");
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StatementMetrics statementMetrics = this.createStatementMetrics();
+
+    private StatementMetrics createStatementMetrics() {
+        final StatementNameRegistry statementNameRegistry = new StatementNameRegistry();
+        statementNameRegistry.registerStatement(SQL, STATEMENT_NAME);
+        return new StatementMetrics(statementNameRegistry, this.meterRegistry, 100);
+    }
+
+    private DistributionSummary getRowSummary() {
+        return this.meterRegistry.find("database.statement.rows")
+                .tag("statement", STATEMENT_NAME.getStatement())
+                .summary();
+    }
+
+    @Test
+    void executeQuery_counts_rows_on_close() throws SQLException {
+        final ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        final PreparedStatement delegate = mock(PreparedStatement.class);
+        when(delegate.executeQuery()).thenReturn(resultSet);
+
+        final PreparedStatement statement = RowCountingStatementBuilder.wrap(
+                delegate,
+                STATEMENT_NAME,
+                this.statementMetrics
+        );
+        final ResultSet wrapped = statement.executeQuery();
+        while (wrapped.next()) {
+            assertThat(wrapped.getStatement()).isSameAs(statement);
+        }
+        wrapped.close();
+        wrapped.close();
+
+        final DistributionSummary summary = this.getRowSummary();
+        assertThat(summary).isNotNull();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void executeBatch_counts_modified_rows() throws SQLException {
+        final PreparedStatement delegate = mock(PreparedStatement.class);
+        when(delegate.executeBatch()).thenReturn(new int[]{1, 2, PreparedStatement.SUCCESS_NO_INFO});
+
+        RowCountingStatementBuilder.wrap(delegate, STATEMENT_NAME, this.statementMetrics).executeBatch();
+
+        final DistributionSummary summary = this.getRowSummary();
+        assertThat(summary).isNotNull();
+        assertThat(summary.totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void unwrap_returns_the_driver_statement() throws SQLException {
+        final PreparedStatement delegate = mock(
+                PreparedStatement.class,
+                withSettings().extraInterfaces(PGStatement.class)
+        );
+        final PreparedStatement statement = RowCountingStatementBuilder.wrap(
+                delegate,
+                STATEMENT_NAME,
+                this.statementMetrics
+        );
+
+        assertThat(statement.isWrapperFor(PGStatement.class)).isTrue();
+        assertThat(statement.unwrap(PGStatement.class)).isSameAs(delegate);
+        assertThat(statement.unwrap(PreparedStatement.class)).isSameAs(delegate);
+        assertThat(statement).isEqualTo(statement).isNotEqualTo(delegate);
+    }
+
+    @Test
+    void unwrap_returns_the_driver_result_set() throws SQLException {
+        final ResultSet resultSet = mock(ResultSet.class);
+        final PreparedStatement delegate = mock(PreparedStatement.class);
+        when(delegate.getResultSet()).thenReturn(resultSet);
+
+        final PreparedStatement statement = RowCountingStatementBuilder.wrap(
+                delegate,
+                STATEMENT_NAME,
+                this.statementMetrics
+        );
+        final ResultSet wrapped = statement.getResultSet();
+
+        // The same result set is wrapped once
+        assertThat(statement.getResultSet()).isSameAs(wrapped);
+        assertThat(wrapped.isWrapperFor(ResultSet.class)).isTrue();
+        assertThat(wrapped.unwrap(ResultSet.class)).isSameAs(resultSet);
+    }
+}
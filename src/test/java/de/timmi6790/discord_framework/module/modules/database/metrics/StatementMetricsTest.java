@@ -0,0 +1,98 @@
+package de.timmi6790.discord_framework.module.modules.database.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StatementMetricsTest {
+    private static final String SQL = "SELECT 1;";
+
+    private StatementMetrics createStatementMetrics(final MeterRegistry meterRegistry) {
+        final StatementNameRegistry statementNameRegistry = new StatementNameRegistry();
+        statementNameRegistry.registerStatement(SQL, new StatementName("TestRepository", "TEST"));
+        return new StatementMetrics(statementNameRegistry, meterRegistry, 100);
+    }
+
+    private StatementContext createContext(final Instant executionMoment, final Instant endMoment) {
+        final StatementContext context = mock(StatementContext.class);
+        when(context.getRawSql()).thenReturn(SQL);
+        when(context.getExecutionMoment()).thenReturn(executionMoment);
+        when(context.getCompletionMoment()).thenReturn(endMoment);
+        when(context.getExceptionMoment()).thenReturn(endMoment);
+        return context;
+    }
+
+    @Test
+    void logAfterExecution() {
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final StatementMetrics statementMetrics = this.createStatementMetrics(meterRegistry);
+
+        final Instant start = Instant.now();
+        statementMetrics.logAfterExecution(this.createContext(start, start.plusMillis(20)));
+
+        final Timer timer = meterRegistry.find("database.statement.duration")
+                .tag("repository", "TestRepository")
+                .tag("statement", "TEST")
+                .tag("result", "success")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(20);
+    }
+
+    @Test
+    void logException() {
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final StatementMetrics statementMetrics = this.createStatementMetrics(meterRegistry);
+
+        final Instant start = Instant.now();
+        statementMetrics.logException(this.createContext(start, start.plusMillis(200)), new SQLException());
+
+        final Timer timer = meterRegistry.find("database.statement.duration")
+                .tag("result", "exception")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    void logAfterExecution_without_meter_registry() {
+        final StatementMetrics statementMetrics = this.createStatementMetrics(null);
+        assertThat(statementMetrics.isRecordingMetrics()).isFalse();
+
+        final Instant start = Instant.now();
+        statementMetrics.logAfterExecution(this.createContext(start, start.plusMillis(200)));
+        statementMetrics.recordRows(statementMetrics.resolve(SQL), 5);
+    }
+
+    @Test
+    void recordRows() {
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final StatementMetrics statementMetrics = this.createStatementMetrics(meterRegistry);
+
+        final StatementName statementName = statementMetrics.resolve(SQL);
+        statementMetrics.recordRows(statementName, 5);
+        statementMetrics.recordRows(statementName, 3);
+        // Negative update counts are ignored
+        statementMetrics.recordRows(statementName, -1);
+
+        final DistributionSummary summary = meterRegistry.find("database.statement.rows")
+                .tag("repository", "TestRepository")
+                .tag("statement", "TEST")
+                .summary();
+        assertThat(summary).isNotNull();
+        assertThat(summary.count()).isEqualTo(2);
+        assertThat(summary.totalAmount()).isEqualTo(8);
+    }
+}
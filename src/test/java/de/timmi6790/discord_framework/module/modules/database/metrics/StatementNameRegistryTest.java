@@ -0,0 +1,51 @@
+package de.timmi6790.discord_framework.module.modules.database.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementNameRegistryTest {
+    @Test
+    void resolve_registered_repository() {
+        final StatementNameRegistry registry = new StatementNameRegistry();
+        registry.registerRepository(TestRepository.class);
+
+        assertThat(registry.resolve(TestRepository.GET_VALUE))
+                .isEqualTo(new StatementName("TestRepository", "GET_VALUE"));
+        assertThat(registry.resolve(TestRepository.INSERT_VALUE))
+                .isEqualTo(new StatementName("TestRepository", "INSERT_VALUE"));
+    }
+
+    @Test
+    void resolve_ignores_non_constants() {
+        final StatementNameRegistry registry = new StatementNameRegistry();
+        registry.registerRepository(TestRepository.class);
+
+        assertThat(registry.resolve(new TestRepository().instanceValue)).isEqualTo(StatementName.UNKNOWN);
+    }
+
+    @Test
+    void resolve_unknown() {
+        final StatementNameRegistry registry = new StatementNameRegistry();
+
+        assertThat(registry.resolve("SELECT 1;")).isEqualTo(StatementName.UNKNOWN);
+        assertThat(registry.resolve(null)).isEqualTo(StatementName.UNKNOWN);
+    }
+
+    @Test
+    void registerStatement_first_wins() {
+        final StatementNameRegistry registry = new StatementNameRegistry();
+        final StatementName first = new StatementName("First", "SQL");
+        registry.registerStatement("SELECT 1;", first);
+        registry.registerStatement("SELECT 1;", new StatementName("Second", "SQL"));
+
+        assertThat(registry.resolve("SELECT 1;")).isEqualTo(first);
+    }
+
+    private static class TestRepository {
+        private static final String GET_VALUE = "SELECT value FROM test WHERE id = :id;";
+        private static final String INSERT_VALUE = "INSERT INTO test(value) VALUES(:value);";
+
+        private final String instanceValue = "SELECT instance;";
+    }
+}
@@ -0,0 +1,23 @@
+package de.timmi6790.discord_framework.module.modules.database.notification;
+
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Entry point of a second bot process, that publishes a single notification.
+ */
+public final class NotificationPublisherProcess {
+    private NotificationPublisherProcess() {
+    }
+
+    /**
+     * Publish the notification.
+     *
+     * @param args url, user, password, channel and payload
+     */
+    public static void main(final String[] args) {
+        final Jdbi jdbi = Jdbi.create(args[0], args[1], args[2]);
+        try (final PostgresNotificationListener listener = new PostgresNotificationListener(jdbi, args[0], args[1], args[2])) {
+            listener.notify(args[3], args[4]);
+        }
+    }
+}
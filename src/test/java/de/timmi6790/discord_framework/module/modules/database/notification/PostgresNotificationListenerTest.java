@@ -0,0 +1,91 @@
+package de.timmi6790.discord_framework.module.modules.database.notification;
+
+import de.timmi6790.discord_framework.AbstractIntegrationTest;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PostgresNotificationListenerTest extends AbstractIntegrationTest {
+    private PostgresNotificationListener getConnectedListener() {
+        final PostgresNotificationListener listener = databaseModule.getNotificationListener().orElseThrow();
+        Awaitility.await().until(listener::isConnected);
+        return listener;
+    }
+
+    @Test
+    void notification_from_other_process() throws Exception {
+        final PostgresNotificationListener listener = this.getConnectedListener();
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        listener.listen("process_test", received::add);
+
+        final Process process = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp",
+                System.getProperty("java.class.path"),
+                NotificationPublisherProcess.class.getName(),
+                POSTGRES_SQL_CONTAINER.getJdbcUrl(),
+                POSTGRES_SQL_CONTAINER.getUsername(),
+                POSTGRES_SQL_CONTAINER.getPassword(),
+                "process_test",
+                "42"
+        )
+                .inheritIO()
+                .start();
+        assertThat(process.waitFor(60, TimeUnit.SECONDS)).isTrue();
+        assertThat(process.exitValue()).isZero();
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo("42");
+    }
+
+    @Test
+    void own_notifications_are_ignored() throws Exception {
+        final PostgresNotificationListener listener = this.getConnectedListener();
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        listener.listen("own_test", received::add);
+
+        try (final PostgresNotificationListener otherListener = new PostgresNotificationListener(
+                databaseModule.getJdbi(),
+                POSTGRES_SQL_CONTAINER.getJdbcUrl(),
+                POSTGRES_SQL_CONTAINER.getUsername(),
+                POSTGRES_SQL_CONTAINER.getPassword()
+        )) {
+            final BlockingQueue<String> otherReceived = new LinkedBlockingQueue<>();
+            otherListener.listen("own_test", otherReceived::add);
+            otherListener.start();
+            Awaitility.await().until(otherListener::isConnected);
+
+            listener.notify("own_test", "1");
+            assertThat(otherReceived.poll(10, TimeUnit.SECONDS)).isEqualTo("1");
+            assertThat(received.poll(1, TimeUnit.SECONDS)).isNull();
+        }
+    }
+
+    @Test
+    void dispatch_ignores_own_node() {
+        final PostgresNotificationListener listener = new PostgresNotificationListener(null, "", "", "");
+        final List<String> received = new ArrayList<>();
+        listener.listen("dispatch_test", received::add);
+
+        listener.dispatch("dispatch_test", listener.getNodeId() + ":1");
+        listener.dispatch("dispatch_test", "other-node:2:3");
+        listener.dispatch("dispatch_test", "missing-node-id");
+
+        assertThat(received).containsExactly("2:3");
+    }
+
+    @Test
+    void invalid_channel() {
+        final PostgresNotificationListener listener = new PostgresNotificationListener(null, "", "", "");
+        assertThrows(IllegalArgumentException.class, () -> listener.listen("invalid; DROP TABLE user", value -> {
+        }));
+    }
+}
@@ -0,0 +1,146 @@
+package de.timmi6790.discord_framework.module.modules.database.replica;
+
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.JdbiException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.ContainerState;
+import org.testcontainers.containers.DockerComposeContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the replica routing against the primary and streaming replica of {@code docker/postgres-replica}.
+ */
+@Testcontainers
+class ReplicaRouterIntegrationTest {
+    private static final String PRIMARY_SERVICE = "postgres-primary_1";
+    private static final String REPLICA_SERVICE = "postgres-replica_1";
+    private static final int POSTGRES_PORT = 5432;
+    private static final String USER = "bot";
+    private static final String PASSWORD = "bot";
+    /**
+     * Seconds until a connection to the paused replica fails
+     */
+    private static final int CONNECT_TIMEOUT_SECONDS = 2;
+    private static final long REPLICA_RETRY_MILLIS = 10_000;
+    private static final long STARTUP_TIMEOUT_MILLIS = 120_000;
+
+    @Container
+    private static final DockerComposeContainer<?> COMPOSE = new DockerComposeContainer<>(
+            new File("docker/postgres-replica/docker-compose.yml")
+    )
+            .withExposedService(PRIMARY_SERVICE, POSTGRES_PORT, Wait.forListeningPort())
+            .withExposedService(REPLICA_SERVICE, POSTGRES_PORT, Wait.forListeningPort());
+
+    private final AtomicLong ticks = new AtomicLong();
+
+    private static Jdbi createJdbi(final String service) {
+        final String url = String.format(
+                "jdbc:postgresql://%s:%d/bot?connectTimeout=%d&loginTimeout=%d&socketTimeout=%d",
+                COMPOSE.getServiceHost(service, POSTGRES_PORT),
+                COMPOSE.getServicePort(service, POSTGRES_PORT),
+                CONNECT_TIMEOUT_SECONDS,
+                CONNECT_TIMEOUT_SECONDS,
+                CONNECT_TIMEOUT_SECONDS
+        );
+        return Jdbi.create(url, USER, PASSWORD);
+    }
+
+    private static boolean isReplicated(final Jdbi replica) {
+        try {
+            return replica.withHandle(handle ->
+                    handle.createQuery("SELECT count(*) FROM replica_router_test;")
+                            .mapTo(Integer.class)
+                            .one()
+            ) > 0;
+        } catch (final JdbiException e) {
+            // Replica still starting or the table is not replicated yet
+            return false;
+        }
+    }
+
+    @BeforeAll
+    static void awaitReplication() throws InterruptedException {
+        createJdbi(PRIMARY_SERVICE).useHandle(handle -> {
+            handle.execute("CREATE TABLE IF NOT EXISTS replica_router_test(id INT);");
+            handle.execute("INSERT INTO replica_router_test(id) VALUES (1);");
+        });
+
+        final Jdbi replica = createJdbi(REPLICA_SERVICE);
+        final long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (!isReplicated(replica)) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(500);
+        }
+    }
+
+    private ReplicaRouter createRouter() {
+        return new ReplicaRouter(
+                createJdbi(PRIMARY_SERVICE),
+                createJdbi(REPLICA_SERVICE),
+                0,
+                REPLICA_RETRY_MILLIS,
+                this.ticks::get
+        );
+    }
+
+    private boolean readsFromReplica(final ReplicaRouter router) {
+        return router.withReadHandle(InvalidationTopic.USER, 1, handle ->
+                handle.createQuery("SELECT pg_is_in_recovery();")
+                        .mapTo(Boolean.class)
+                        .one()
+        );
+    }
+
+    private void setReplicaPaused(final boolean paused) {
+        final ContainerState replica = COMPOSE.getContainerByServiceName(REPLICA_SERVICE).orElseThrow();
+        if (paused) {
+            DockerClientFactory.instance().client().pauseContainerCmd(replica.getContainerId()).exec();
+        } else {
+            DockerClientFactory.instance().client().unpauseContainerCmd(replica.getContainerId()).exec();
+        }
+    }
+
+    @Test
+    void reads_use_the_replica() {
+        final ReplicaRouter router = this.createRouter();
+        assertThat(this.readsFromReplica(router)).isTrue();
+        assertThat(router.isReplicaAvailable()).isTrue();
+    }
+
+    @Test
+    void paused_replica_only_delays_the_probe_reads() {
+        final ReplicaRouter router = this.createRouter();
+        this.setReplicaPaused(true);
+        try {
+            // The first read waits for the connect timeout and falls back to the primary
+            assertThat(this.readsFromReplica(router)).isFalse();
+            assertThat(router.isReplicaAvailable()).isFalse();
+
+            final long start = System.nanoTime();
+            for (int count = 0; 20 > count; count++) {
+                assertThat(this.readsFromReplica(router)).isFalse();
+            }
+            assertThat(Duration.ofNanos(System.nanoTime() - start))
+                    .isLessThan(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS));
+        } finally {
+            this.setReplicaPaused(false);
+        }
+
+        // The first read after the retry time probes the resumed replica
+        this.ticks.addAndGet(TimeUnit.MILLISECONDS.toNanos(REPLICA_RETRY_MILLIS));
+        assertThat(this.readsFromReplica(router)).isTrue();
+        assertThat(router.isReplicaAvailable()).isTrue();
+    }
+}
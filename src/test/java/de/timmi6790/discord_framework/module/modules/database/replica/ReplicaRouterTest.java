@@ -0,0 +1,173 @@
+package de.timmi6790.discord_framework.module.modules.database.replica;
+
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InMemoryInvalidationBus;
+import de.timmi6790.discord_framework.module.modules.database.invalidation.InvalidationTopic;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jdbi.v3.core.ConnectionException;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReplicaRouterTest {
+    private static final long READ_YOUR_WRITES_MILLIS = 1_000;
+    private static final long REPLICA_RETRY_MILLIS = 10_000;
+
+    private final Jdbi primary = mock(Jdbi.class);
+    private final Jdbi replica = mock(Jdbi.class);
+    private final AtomicLong ticks = new AtomicLong();
+
+    private ReplicaRouter createRouter(final Jdbi replica) {
+        return new ReplicaRouter(
+                this.primary,
+                replica,
+                READ_YOUR_WRITES_MILLIS,
+                REPLICA_RETRY_MILLIS,
+                this.ticks::get
+        );
+    }
+
+    private void advance(final long millis) {
+        this.ticks.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void without_replica_all_reads_use_the_primary() {
+        final ReplicaRouter router = this.createRouter(null);
+        assertThat(router.hasReplica()).isFalse();
+        assertThat(router.forRead(InvalidationTopic.USER, 1)).isSameAs(this.primary);
+    }
+
+    @Test
+    void recent_writes_are_read_from_the_primary() {
+        final ReplicaRouter router = this.createRouter(this.replica);
+        assertThat(router.forRead(InvalidationTopic.USER, 1)).isSameAs(this.replica);
+
+        router.recordWrite(InvalidationTopic.USER, 1);
+        assertThat(router.forRead(InvalidationTopic.USER, 1)).isSameAs(this.primary);
+        // Other entities and topics are not affected
+        assertThat(router.forRead(InvalidationTopic.USER, 2)).isSameAs(this.replica);
+        assertThat(router.forRead(InvalidationTopic.GUILD, 1)).isSameAs(this.replica);
+
+        this.advance(READ_YOUR_WRITES_MILLIS + 1);
+        assertThat(router.forRead(InvalidationTopic.USER, 1)).isSameAs(this.replica);
+    }
+
+    @Test
+    void unknown_writes_read_everything_from_the_primary() {
+        final ReplicaRouter router = this.createRouter(this.replica);
+        router.recordUnknownWrites();
+        assertThat(router.forRead(InvalidationTopic.CHANNEL, 5)).isSameAs(this.primary);
+
+        this.advance(READ_YOUR_WRITES_MILLIS + 1);
+        assertThat(router.forRead(InvalidationTopic.CHANNEL, 5)).isSameAs(this.replica);
+    }
+
+    @Test
+    void unreachable_replica_falls_back_to_the_primary() {
+        when(this.replica.withHandle(any())).thenThrow(new ConnectionException(new SQLException("Connection refused")));
+        when(this.primary.withHandle(any())).thenReturn("primary");
+
+        final ReplicaRouter router = this.createRouter(this.replica);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        router.bindTo(registry);
+
+        final String result = router.withReadHandle(InvalidationTopic.USER, 1, handle -> "replica");
+        assertThat(result).isEqualTo("primary");
+        assertThat(registry.get("database.replica.failures").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("database.reads").tag("target", "primary").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void unreachable_replica_is_skipped_until_the_retry() {
+        when(this.replica.withHandle(any())).thenThrow(new ConnectionException(new SQLException("Connection refused")));
+        when(this.primary.withHandle(any())).thenReturn("primary");
+
+        final ReplicaRouter router = this.createRouter(this.replica);
+        router.withReadHandle(InvalidationTopic.USER, 1, handle -> "replica");
+        assertThat(router.isReplicaAvailable()).isFalse();
+        assertThat(router.forRead(InvalidationTopic.USER, 2)).isSameAs(this.primary);
+
+        // Reads in the retry time don't wait for the replica
+        for (int id = 0; 10 > id; id++) {
+            assertThat(router.withReadHandle(InvalidationTopic.USER, id, handle -> "replica")).isEqualTo("primary");
+        }
+        verify(this.replica, times(1)).withHandle(any());
+
+        // The probe after the retry time fails again and restarts the retry time
+        this.advance(REPLICA_RETRY_MILLIS);
+        assertThat(router.forRead(InvalidationTopic.USER, 2)).isSameAs(this.replica);
+        router.withReadHandle(InvalidationTopic.USER, 2, handle -> "replica");
+        verify(this.replica, times(2)).withHandle(any());
+        assertThat(router.forRead(InvalidationTopic.USER, 2)).isSameAs(this.primary);
+    }
+
+    @Test
+    void successful_probe_makes_the_replica_available() {
+        when(this.replica.withHandle(any()))
+                .thenThrow(new ConnectionException(new SQLException("Connection refused")))
+                .thenReturn("replica");
+        when(this.primary.withHandle(any())).thenReturn("primary");
+
+        final ReplicaRouter router = this.createRouter(this.replica);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        router.bindTo(registry);
+
+        router.withReadHandle(InvalidationTopic.USER, 1, handle -> "replica");
+        assertThat(registry.get("database.replica.available").gauge().value()).isZero();
+
+        this.advance(REPLICA_RETRY_MILLIS);
+        assertThat(router.withReadHandle(InvalidationTopic.USER, 1, handle -> "replica")).isEqualTo("replica");
+        assertThat(router.isReplicaAvailable()).isTrue();
+        assertThat(registry.get("database.replica.available").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void only_one_read_probes_the_replica() throws InterruptedException {
+        final CountDownLatch probeStarted = new CountDownLatch(1);
+        final CountDownLatch releaseProbe = new CountDownLatch(1);
+        when(this.replica.withHandle(any()))
+                .thenThrow(new ConnectionException(new SQLException("Connection refused")))
+                .thenAnswer(invocation -> {
+                    probeStarted.countDown();
+                    releaseProbe.await();
+                    return "replica";
+                });
+        when(this.primary.withHandle(any())).thenReturn("primary");
+
+        final ReplicaRouter router = this.createRouter(this.replica);
+        router.withReadHandle(InvalidationTopic.USER, 1, handle -> "replica");
+        this.advance(REPLICA_RETRY_MILLIS);
+
+        final CompletableFuture<String> probe = CompletableFuture.supplyAsync(
+                () -> router.withReadHandle(InvalidationTopic.USER, 1, handle -> "replica")
+        );
+        assertThat(probeStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(router.withReadHandle(InvalidationTopic.USER, 2, handle -> "replica")).isEqualTo("primary");
+
+        releaseProbe.countDown();
+        assertThat(probe.join()).isEqualTo("replica");
+        verify(this.replica, times(2)).withHandle(any());
+    }
+
+    @Test
+    void invalidations_are_recorded_as_writes() {
+        final ReplicaRouter router = this.createRouter(this.replica);
+        final InMemoryInvalidationBus delegate = new InMemoryInvalidationBus(0, null);
+        try (final ReplicaRoutingInvalidationBus bus = new ReplicaRoutingInvalidationBus(delegate, router)) {
+            bus.publish(InvalidationTopic.GUILD, 10);
+            assertThat(router.forRead(InvalidationTopic.GUILD, 10)).isSameAs(this.primary);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import de.timmi6790.discord_framework.AbstractIntegrationTest;
 import de.timmi6790.discord_framework.DiscordBot;
 import de.timmi6790.discord_framework.module.ModuleManager;
 import de.timmi6790.discord_framework.module.modules.command.CommandModule;
+import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
 import de.timmi6790.discord_framework.module.modules.event.EventModule;
 import de.timmi6790.discord_framework.module.modules.rank.RankModule;
@@ -38,6 +39,9 @@ class DsgvoModuleTest {
         final CommandModule commandModule = spy(new CommandModule());
         doNothing().when(commandModule).registerCommands(any(), any());
 
+        final ConfigModule configModule = mock(ConfigModule.class);
+        when(configModule.registerAndGetConfig(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(MODULE_MANAGER.getModuleOrThrow(ConfigModule.class)).thenReturn(configModule);
         doReturn(AbstractIntegrationTest.databaseModule).when(MODULE_MANAGER).getModuleOrThrow(DatabaseModule.class);
         when(MODULE_MANAGER.getModuleOrThrow(CommandModule.class)).thenReturn(commandModule);
         when(MODULE_MANAGER.getModuleOrThrow(UserDbModule.class)).thenReturn(USER_DB_MODULE);
@@ -0,0 +1,108 @@
+package de.timmi6790.discord_framework.module.modules.event;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.GenericEvent;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares the synchronous event dispatch with and without metrics. Not executed by surefire, run it with
+ * {@link #main(String[])} after the test classes are compiled.
+ * <p>
+ * The difference between both params is the cost of the metrics per dispatch of two listeners: one counter increment,
+ * two {@link System#nanoTime()} pairs and two timer records. No meter is looked up after the first dispatch, which
+ * {@code EventModuleTest#executeEvent_metrics_are_resolved_once} verifies on every build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventModuleBenchmark {
+    @Param({"false", "true"})
+    private boolean instrumented;
+
+    private EventModule eventModule;
+    private BenchmarkEvent event;
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+                .include(EventModuleBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    @Setup
+    public void setup() {
+        this.eventModule = new EventModule();
+        if (this.instrumented) {
+            this.eventModule.enableMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        }
+
+        this.eventModule.addEventListeners(
+                new BenchmarkListener(),
+                new BenchmarkListener()
+        );
+        this.event = new BenchmarkEvent();
+    }
+
+    @Benchmark
+    public void executeEvent(final Blackhole blackhole) {
+        this.eventModule.executeEvent(this.event);
+        blackhole.consume(this.event.getCalls());
+    }
+
+    public static class BenchmarkListener {
+        @SubscribeEvent
+        public void listener(final BenchmarkEvent event) {
+            event.call();
+        }
+    }
+
+    public static class BenchmarkEvent implements GenericEvent, Cancelable {
+        private static final JDA MOCKED_JDA = mock(JDA.class);
+
+        private long calls;
+
+        public void call() {
+            this.calls++;
+        }
+
+        public long getCalls() {
+            return this.calls;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void setCancelled(final boolean cancelled) {
+
+        }
+
+        @NotNull
+        @Override
+        public JDA getJDA() {
+            return MOCKED_JDA;
+        }
+
+        @Override
+        public long getResponseNumber() {
+            return 0;
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package de.timmi6790.discord_framework.module.modules.event;
 
 import com.google.common.collect.SetMultimap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.events.GenericEvent;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -44,6 +53,17 @@ class EventModuleTest {
         assertThat(listeners.values()).hasSize(4);
     }
 
+    @Test
+    void addEventListener_parallel() {
+        final EventModule eventModule = this.generateEventModule();
+        IntStream.range(0, 400)
+                .parallel()
+                .forEach(count -> eventModule.addEventListener(new TestEventListener()));
+
+        final SetMultimap<EventPriority, EventObject> listeners = eventModule.getEventListeners().get(GenericEvent.class);
+        assertThat(listeners.values()).hasSize(800);
+    }
+
     @Test
     void removeEventListener() {
         final EventModule eventModule = this.generateEventModule();
@@ -97,6 +117,91 @@ class EventModuleTest {
         verify(listener).cancelListener(any());
     }
 
+    @Test
+    void executeEvent_sync_metrics() {
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        final EventModule eventModule = this.generateEventModule();
+        eventModule.enableMetrics(registry);
+
+        eventModule.addEventListener(new EventCallListener());
+        eventModule.executeEvent(new CancelableEvent());
+        eventModule.executeEvent(new CancelableEvent());
+
+        final Counter dispatchCounter = registry.find("event.dispatch")
+                .tag("event", "CancelableEvent")
+                .counter();
+        assertThat(dispatchCounter).isNotNull();
+        assertThat(dispatchCounter.count()).isEqualTo(2);
+
+        final Timer listenerTimer = registry.find("event.listener.duration")
+                .tag("listener", "EventCallListener.cancelListener")
+                .tag("event", "CancelableEvent")
+                .timer();
+        assertThat(listenerTimer).isNotNull();
+        assertThat(listenerTimer.count()).isEqualTo(2);
+    }
+
+    @Test
+    void executeEvent_metrics_are_resolved_once() {
+        final AtomicInteger meterLookups = new AtomicInteger();
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        // Every meter lookup passes the filters, also the lookups of already registered meters
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public Meter.Id map(final Meter.Id id) {
+                meterLookups.incrementAndGet();
+                return id;
+            }
+        });
+        final EventModule eventModule = this.generateEventModule();
+        eventModule.enableMetrics(registry);
+
+        eventModule.addEventListener(new EventCallListener());
+        eventModule.executeEvent(new CancelableEvent());
+        final int warmUpLookups = meterLookups.get();
+        assertThat(warmUpLookups).isPositive();
+
+        for (int count = 0; 1_000 > count; count++) {
+            eventModule.executeEvent(new CancelableEvent());
+        }
+        assertThat(meterLookups.get()).isEqualTo(warmUpLookups);
+    }
+
+    @Test
+    void executeEvent_async_metrics() {
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        final EventModule eventModule = this.generateEventModule();
+        eventModule.enableMetrics(registry);
+
+        final EventCallListener listener = spy(new EventCallListener());
+        eventModule.addEventListener(listener);
+        eventModule.executeEvent(new TestEvent());
+
+        verify(listener, timeout(1_000).times(1)).listener(any());
+        final Timer queueWaitTimer = registry.find("event.async.queue_wait")
+                .tag("event", "TestEvent")
+                .timer();
+        assertThat(queueWaitTimer).isNotNull();
+        assertThat(queueWaitTimer.count()).isEqualTo(1);
+    }
+
+    @Test
+    void executeEvent_exception_metrics() {
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        final EventModule eventModule = this.generateEventModule();
+        eventModule.enableMetrics(registry);
+
+        eventModule.addEventListener(new ExceptionListener());
+        eventModule.executeEvent(new CancelableEvent());
+
+        final Counter exceptionCounter = registry.find("event.listener.exceptions")
+                .tag("listener", "ExceptionListener.listener")
+                .tag("exception", "IllegalStateException")
+                .counter();
+        assertThat(exceptionCounter).isNotNull();
+        assertThat(exceptionCounter.count()).isEqualTo(1);
+    }
+
     @Test
     void registeredEvent_invalid_parameter_amount() {
         final InvalidParameterCountTestListener event = new InvalidParameterCountTestListener();
@@ -157,6 +262,13 @@ class EventModuleTest {
         }
     }
 
+    private static class ExceptionListener {
+        @SubscribeEvent
+        public void listener(final CancelableEvent event) {
+            throw new IllegalStateException();
+        }
+    }
+
     private static class InvalidParameterCountTestListener {
         @SubscribeEvent
         public void listener() {
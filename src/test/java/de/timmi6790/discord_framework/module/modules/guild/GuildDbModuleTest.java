@@ -3,6 +3,7 @@ package de.timmi6790.discord_framework.module.modules.guild;
 import de.timmi6790.discord_framework.AbstractIntegrationTest;
 import de.timmi6790.discord_framework.DiscordBot;
 import de.timmi6790.discord_framework.module.ModuleManager;
+import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
 import lombok.SneakyThrows;
 import net.dv8tion.jda.api.sharding.ShardManager;
@@ -15,6 +16,7 @@ import org.mockito.Spy;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -31,6 +33,9 @@ class GuildDbModuleTest {
     @BeforeAll
     static void setUp() {
         final ModuleManager moduleManager = mock(ModuleManager.class);
+        final ConfigModule configModule = mock(ConfigModule.class);
+        when(configModule.registerAndGetConfig(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(moduleManager.getModuleOrThrow(ConfigModule.class)).thenReturn(configModule);
         when(moduleManager.getModuleOrThrow(DatabaseModule.class)).thenReturn(AbstractIntegrationTest.databaseModule);
         when(moduleManager.getModuleOrThrow(GuildDbModule.class)).thenReturn(guildDbModule);
 
@@ -82,6 +87,26 @@ class GuildDbModuleTest {
                 .isEqualTo(guildldDatabase.get().getDiscordId());
     }
 
+    @SneakyThrows
+    @Test
+    void getAsync() {
+        final long discordId = createRandomId();
+
+        assertThat(guildDbModule.getAsync(discordId).get(5, TimeUnit.SECONDS)).isNotPresent();
+
+        final GuildDb guildDbCreate = guildDbModule.getOrCreateAsync(discordId).get(5, TimeUnit.SECONDS);
+        assertThat(guildDbCreate.getDiscordId()).isEqualTo(discordId);
+
+        // Cache hit
+        assertThat(guildDbModule.getAsync(discordId)).isCompletedWithValue(Optional.of(guildDbCreate));
+
+        guildDbModule.getCache().invalidate(discordId);
+        final Optional<GuildDb> guildDbDatabase = guildDbModule.getAsync(discordId).get(5, TimeUnit.SECONDS);
+        assertThat(guildDbDatabase).isPresent();
+        assertThat(guildDbDatabase.get().getDiscordId()).isEqualTo(discordId);
+        assertThat(guildDbModule.getCache().getIfPresent(discordId)).isEqualTo(guildDbDatabase.get());
+    }
+
     @Test
     void getOrCreate() {
         final long guildId = createRandomId();
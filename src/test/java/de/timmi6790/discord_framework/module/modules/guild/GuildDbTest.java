@@ -0,0 +1,31 @@
+package de.timmi6790.discord_framework.module.modules.guild;
+
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class GuildDbTest {
+    private static final long GUILD_ID = 1;
+    private static final long USER_ID = 2;
+
+    @Test
+    void cached_member_is_used_without_a_request() {
+        final ShardManager discord = mock(ShardManager.class);
+        final GuildDb guildDb = new GuildDb(discord, StatsCounter.disabledStatsCounter(), GUILD_ID, false);
+        assertThat(guildDb.getCachedMember(USER_ID)).isEmpty();
+
+        final Member member = mock(Member.class);
+        when(member.getIdLong()).thenReturn(USER_ID);
+        guildDb.cacheMember(member);
+
+        assertThat(guildDb.getCachedMember(USER_ID)).containsSame(member);
+        assertThat(guildDb.getMember(USER_ID)).isCompletedWithValue(member);
+        verifyNoInteractions(discord);
+    }
+}
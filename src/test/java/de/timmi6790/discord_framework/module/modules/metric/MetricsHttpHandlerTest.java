@@ -0,0 +1,31 @@
+package de.timmi6790.discord_framework.module.modules.metric;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsHttpHandlerTest {
+    @Test
+    void acceptsGzip() {
+        assertThat(MetricsHttpHandler.acceptsGzip(null)).isFalse();
+        assertThat(MetricsHttpHandler.acceptsGzip("")).isFalse();
+        assertThat(MetricsHttpHandler.acceptsGzip("gzip")).isTrue();
+        assertThat(MetricsHttpHandler.acceptsGzip("deflate, GZIP;q=0.8")).isTrue();
+        assertThat(MetricsHttpHandler.acceptsGzip("x-gzip")).isTrue();
+        assertThat(MetricsHttpHandler.acceptsGzip("identity")).isFalse();
+    }
+
+    @Test
+    void acceptsGzip_refused_quality() {
+        assertThat(MetricsHttpHandler.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(MetricsHttpHandler.acceptsGzip("gzip; q=0.000, identity")).isFalse();
+        assertThat(MetricsHttpHandler.acceptsGzip("gzip;q=invalid")).isFalse();
+    }
+
+    @Test
+    void acceptsGzip_wildcard() {
+        assertThat(MetricsHttpHandler.acceptsGzip("*")).isTrue();
+        assertThat(MetricsHttpHandler.acceptsGzip("*;q=0")).isFalse();
+        assertThat(MetricsHttpHandler.acceptsGzip("*, gzip;q=0")).isFalse();
+    }
+}
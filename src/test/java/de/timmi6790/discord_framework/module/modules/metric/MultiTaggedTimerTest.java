@@ -0,0 +1,120 @@
+package de.timmi6790.discord_framework.module.modules.metric;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MultiTaggedTimerTest {
+    private static final String TIMER_NAME = "test.timer";
+
+    private MultiTaggedTimer createTimer(final MeterRegistry registry, final int maxCardinality) {
+        return new MultiTaggedTimer(
+                TIMER_NAME,
+                "Test timer",
+                registry,
+                maxCardinality,
+                "first",
+                "second"
+        );
+    }
+
+    @Test
+    void get_same_instance() {
+        final MultiTaggedTimer multiTimer = this.createTimer(new SimpleMeterRegistry(), 10);
+
+        final Timer timer = multiTimer.get("a", "b");
+        assertThat(multiTimer.get("a", "b")).isSameAs(timer);
+        assertThat(multiTimer.get("a", "c")).isNotSameAs(timer);
+        assertThat(multiTimer.getCardinality()).isEqualTo(2);
+    }
+
+    @Test
+    void get_tags() {
+        final MultiTaggedTimer multiTimer = this.createTimer(new SimpleMeterRegistry(), 10);
+
+        final Timer timer = multiTimer.get("a", "b");
+        assertThat(timer.getId().getName()).isEqualTo(TIMER_NAME);
+        assertThat(timer.getId().getTag("first")).isEqualTo("a");
+        assertThat(timer.getId().getTag("second")).isEqualTo("b");
+    }
+
+    @Test
+    void get_invalid_tag_count() {
+        final MultiTaggedTimer multiTimer = this.createTimer(new SimpleMeterRegistry(), 10);
+        assertThrows(IllegalArgumentException.class, () -> multiTimer.get("a"));
+        assertThrows(IllegalArgumentException.class, () -> multiTimer.get("a", "b", "c"));
+    }
+
+    @Test
+    void get_null_tag_value() {
+        final MultiTaggedTimer multiTimer = this.createTimer(new SimpleMeterRegistry(), 10);
+        assertThrows(IllegalArgumentException.class, () -> multiTimer.get("a", null));
+        assertThrows(IllegalArgumentException.class, () -> multiTimer.get(null, "b"));
+    }
+
+    @Test
+    void get_cardinality_limit() {
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        final MultiTaggedTimer multiTimer = this.createTimer(registry, 2);
+
+        final Timer first = multiTimer.get("a", "1");
+        final Timer second = multiTimer.get("a", "2");
+        final Timer overflow = multiTimer.get("b", "3");
+
+        assertThat(multiTimer.getCardinality()).isEqualTo(2);
+        assertThat(overflow).isNotSameAs(first).isNotSameAs(second);
+        assertThat(overflow.getId().getTag("first")).isEqualTo(MultiTaggedTimer.OVERFLOW_TAG_VALUE);
+        assertThat(overflow.getId().getTag("second")).isEqualTo(MultiTaggedTimer.OVERFLOW_TAG_VALUE);
+        assertThat(multiTimer.get("a", "4")).isSameAs(overflow);
+
+        // Already registered timers are still returned
+        assertThat(multiTimer.get("a", "1")).isSameAs(first);
+        assertThat(registry.find(TIMER_NAME).timers()).hasSize(3);
+    }
+
+    @Test
+    void get_concurrent() throws Exception {
+        final int threads = 8;
+        final int maxCardinality = 50;
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        final MultiTaggedTimer multiTimer = this.createTimer(registry, maxCardinality);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final List<Future<Set<Timer>>> futures = new ArrayList<>();
+            for (int thread = 0; threads > thread; thread++) {
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    final Set<Timer> timers = ConcurrentHashMap.newKeySet();
+                    for (int count = 0; 100 > count; count++) {
+                        timers.add(multiTimer.get(String.valueOf(count % 10), String.valueOf(count)));
+                    }
+                    return timers;
+                }));
+            }
+            startLatch.countDown();
+
+            final Set<Timer> allTimers = ConcurrentHashMap.newKeySet();
+            for (final Future<Set<Timer>> future : futures) {
+                allTimers.addAll(future.get(10, TimeUnit.SECONDS));
+            }
+
+            // Every thread must see the same instances, including the overflow timer
+            assertThat(multiTimer.getCardinality()).isEqualTo(maxCardinality);
+            assertThat(allTimers).hasSize(maxCardinality + 1);
+            assertThat(registry.find(TIMER_NAME).timers()).hasSize(maxCardinality + 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
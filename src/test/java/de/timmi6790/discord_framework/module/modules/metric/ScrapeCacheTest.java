@@ -0,0 +1,107 @@
+package de.timmi6790.discord_framework.module.modules.metric;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScrapeCacheTest {
+    private static PrometheusMeterRegistry createRegistry() {
+        final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        Counter.builder("test.counter").register(registry).increment();
+        return registry;
+    }
+
+    private static String decompress(final byte[] data) throws IOException {
+        try (final GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void getScrape_prometheus() throws IOException {
+        final ScrapeCache scrapeCache = new ScrapeCache(createRegistry(), 10_000);
+
+        final String scrape = new String(scrapeCache.getScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, false), StandardCharsets.UTF_8);
+        assertThat(scrape)
+                .contains("test_counter_total 1.0")
+                .doesNotContain("# EOF");
+    }
+
+    @Test
+    void getScrape_open_metrics() throws IOException {
+        final ScrapeCache scrapeCache = new ScrapeCache(createRegistry(), 10_000);
+
+        final String scrape = new String(scrapeCache.getScrape(ScrapeCache.ScrapeFormat.OPEN_METRICS, false), StandardCharsets.UTF_8);
+        assertThat(scrape)
+                .contains("test_counter_total 1.0")
+                .endsWith("# EOF\n");
+    }
+
+    @Test
+    void getScrape_gzip() throws IOException {
+        final ScrapeCache scrapeCache = new ScrapeCache(createRegistry(), 10_000);
+
+        final byte[] plain = scrapeCache.getScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, false);
+        final byte[] gzip = scrapeCache.getScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, true);
+        assertThat(decompress(gzip)).isEqualTo(new String(plain, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void getScrape_gzip_is_compressed_once() throws IOException {
+        final ScrapeCache scrapeCache = new ScrapeCache(createRegistry(), 60_000);
+
+        scrapeCache.getScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, false);
+        final byte[] gzip = scrapeCache.getScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, true);
+        assertThat(scrapeCache.getScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, true)).isSameAs(gzip);
+    }
+
+    @Test
+    void getScrape_cached() throws IOException {
+        final PrometheusMeterRegistry registry = createRegistry();
+        final ScrapeCache scrapeCache = new ScrapeCache(registry, 60_000);
+
+        final byte[] first = scrapeCache.getScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, false);
+        registry.counter("test.counter").increment();
+        assertThat(scrapeCache.getScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, false)).isSameAs(first);
+    }
+
+    @Test
+    void getScrape_cache_disabled() throws IOException {
+        final PrometheusMeterRegistry registry = createRegistry();
+        final ScrapeCache scrapeCache = new ScrapeCache(registry, 0);
+        assertThat(scrapeCache.isCacheEnabled()).isFalse();
+
+        scrapeCache.getScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, false);
+        registry.counter("test.counter").increment();
+
+        final String scrape = new String(scrapeCache.getScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, false), StandardCharsets.UTF_8);
+        assertThat(scrape).contains("test_counter_total 2.0");
+    }
+
+    @Test
+    void writeScrape_gzip() throws IOException {
+        final ScrapeCache scrapeCache = new ScrapeCache(createRegistry(), 0);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        scrapeCache.writeScrape(ScrapeCache.ScrapeFormat.PROMETHEUS, true, outputStream);
+        assertThat(decompress(outputStream.toByteArray())).contains("test_counter_total 1.0");
+    }
+
+    @Test
+    void fromAcceptHeader() {
+        assertThat(ScrapeCache.ScrapeFormat.fromAcceptHeader(null)).isEqualTo(ScrapeCache.ScrapeFormat.PROMETHEUS);
+        assertThat(ScrapeCache.ScrapeFormat.fromAcceptHeader("text/plain;version=0.0.4"))
+                .isEqualTo(ScrapeCache.ScrapeFormat.PROMETHEUS);
+        assertThat(ScrapeCache.ScrapeFormat.fromAcceptHeader("application/openmetrics-text; version=0.0.1,text/plain;version=0.0.4;q=0.5,*/*;q=0.1"))
+                .isEqualTo(ScrapeCache.ScrapeFormat.OPEN_METRICS);
+    }
+}
@@ -0,0 +1,85 @@
+package de.timmi6790.discord_framework.module.modules.metric.profiling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JfrEventMetricsTest {
+    @Test
+    void start_registers_meters() {
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        try (final JfrEventMetrics jfrEventMetrics = new JfrEventMetrics(registry, 5432)) {
+            assertThat(registry.find("jfr.allocation").counter()).isNotNull();
+            assertThat(registry.find("jfr.postgres.socket.read").tag("port", "5432").timer()).isNotNull();
+
+            jfrEventMetrics.start();
+            // Starting twice is ignored
+            jfrEventMetrics.start();
+        }
+    }
+
+    @Test
+    void gcPause() {
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        try (final JfrEventMetrics jfrEventMetrics = new JfrEventMetrics(registry, 5432)) {
+            jfrEventMetrics.start();
+
+            Awaitility.await()
+                    .atMost(Duration.ofSeconds(30))
+                    .pollInterval(Duration.ofMillis(250))
+                    .untilAsserted(() -> {
+                        System.gc();
+                        assertThat(registry.find("jfr.gc.pause").timers()).isNotEmpty();
+                    });
+        }
+    }
+
+    private static void contend(final ReentrantLock lock) throws InterruptedException {
+        lock.lock();
+        final Thread waiter = new Thread(() -> {
+            lock.lock();
+            lock.unlock();
+        });
+        try {
+            waiter.start();
+            Thread.sleep(50);
+        } finally {
+            lock.unlock();
+        }
+        waiter.join();
+    }
+
+    @Test
+    void lockContention_only_records_lock_parks() {
+        final MeterRegistry registry = new SimpleMeterRegistry();
+        try (final JfrEventMetrics jfrEventMetrics = new JfrEventMetrics(registry, 5432)) {
+            jfrEventMetrics.start();
+
+            final ReentrantLock lock = new ReentrantLock();
+            Awaitility.await()
+                    .atMost(Duration.ofSeconds(30))
+                    .pollInterval(Duration.ofMillis(250))
+                    .untilAsserted(() -> {
+                        // Idle pool threads park the same way on the condition of their queue
+                        new LinkedBlockingQueue<>().poll(50, TimeUnit.MILLISECONDS);
+                        contend(lock);
+                        assertThat(registry.find("jfr.lock.contention")
+                                .tags("kind", "park", "class", "ReentrantLock$NonfairSync")
+                                .timer()
+                        ).isNotNull();
+                    });
+            assertThat(registry.find("jfr.lock.contention")
+                    .tag("class", "AbstractQueuedSynchronizer$ConditionObject")
+                    .timer()
+            ).isNull();
+        }
+    }
+}
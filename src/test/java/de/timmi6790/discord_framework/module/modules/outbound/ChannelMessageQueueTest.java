@@ -0,0 +1,115 @@
+package de.timmi6790.discord_framework.module.modules.outbound;
+
+import de.timmi6790.discord_framework.module.modules.outbound.models.OutboundMessage;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ChannelMessageQueueTest {
+    private static MessageEmbed createEmbed(final int descriptionLength) {
+        return new EmbedBuilder()
+                .setDescription("A".repeat(descriptionLength))
+                .build();
+    }
+
+    private static OutboundMessage createMessage(final MessagePriority priority,
+                                                 final int embedCount,
+                                                 final int descriptionLength) {
+        final List<MessageEmbed> embeds = new ArrayList<>(embedCount);
+        for (int count = 0; embedCount > count; count++) {
+            embeds.add(createEmbed(descriptionLength));
+        }
+        return new OutboundMessage(mock(MessageChannel.class), priority, embeds, null);
+    }
+
+    @Test
+    void pollBatch_empty() {
+        final ChannelMessageQueue queue = new ChannelMessageQueue();
+        assertThat(queue.pollBatch()).isEmpty();
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void pollBatch_embed_limit() {
+        final ChannelMessageQueue queue = new ChannelMessageQueue();
+        queue.add(createMessage(MessagePriority.NOTIFICATION, 25, 10));
+
+        assertThat(queue.pollBatch()).hasSize(ChannelMessageQueue.MAX_EMBEDS_PER_MESSAGE);
+        assertThat(queue.pollBatch()).hasSize(ChannelMessageQueue.MAX_EMBEDS_PER_MESSAGE);
+        assertThat(queue.pollBatch()).hasSize(5);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void pollBatch_length_limit() {
+        final ChannelMessageQueue queue = new ChannelMessageQueue();
+        queue.add(createMessage(MessagePriority.NOTIFICATION, 4, 2_000));
+
+        assertThat(queue.pollBatch()).hasSize(3);
+        assertThat(queue.pollBatch()).hasSize(1);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void pollBatch_coalesce_messages() {
+        final ChannelMessageQueue queue = new ChannelMessageQueue();
+        final OutboundMessage first = createMessage(MessagePriority.NOTIFICATION, 2, 10);
+        final OutboundMessage second = createMessage(MessagePriority.NOTIFICATION, 3, 10);
+        queue.add(first);
+        queue.add(second);
+
+        final List<ChannelMessageQueue.PendingEmbed> batch = queue.pollBatch();
+        assertThat(batch).hasSize(5);
+        assertThat(batch.get(0).getMessage()).isSameAs(first);
+        assertThat(batch.get(4).getMessage()).isSameAs(second);
+    }
+
+    @Test
+    void pollBatch_exclusive_messages() {
+        final ChannelMessageQueue queue = new ChannelMessageQueue();
+        final OutboundMessage first = createMessage(MessagePriority.NOTIFICATION, 2, 10);
+        final OutboundMessage exclusive = new OutboundMessage(
+                mock(MessageChannel.class),
+                MessagePriority.NOTIFICATION,
+                List.of(createEmbed(10), createEmbed(10)),
+                message -> {
+                }
+        );
+        final OutboundMessage last = createMessage(MessagePriority.NOTIFICATION, 3, 10);
+        queue.add(first);
+        queue.add(exclusive);
+        queue.add(last);
+
+        assertThat(queue.pollBatch())
+                .hasSize(2)
+                .allMatch(pendingEmbed -> pendingEmbed.getMessage() == first);
+        assertThat(queue.pollBatch())
+                .hasSize(2)
+                .allMatch(pendingEmbed -> pendingEmbed.getMessage() == exclusive);
+        assertThat(queue.pollBatch())
+                .hasSize(3)
+                .allMatch(pendingEmbed -> pendingEmbed.getMessage() == last);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void pollBatch_priority() {
+        final ChannelMessageQueue queue = new ChannelMessageQueue();
+        final OutboundMessage notification = createMessage(MessagePriority.NOTIFICATION, 1, 10);
+        final OutboundMessage commandReply = createMessage(MessagePriority.COMMAND_REPLY, 1, 10);
+        queue.add(notification);
+        queue.add(commandReply);
+
+        final List<ChannelMessageQueue.PendingEmbed> batch = queue.pollBatch();
+        assertThat(batch).hasSize(2);
+        assertThat(batch.get(0).getMessage()).isSameAs(commandReply);
+        assertThat(batch.get(1).getMessage()).isSameAs(notification);
+    }
+}
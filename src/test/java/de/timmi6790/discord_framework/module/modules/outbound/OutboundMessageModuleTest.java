@@ -0,0 +1,53 @@
+package de.timmi6790.discord_framework.module.modules.outbound;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.ChannelType;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.requests.restaction.MessageAction;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class OutboundMessageModuleTest {
+    @Test
+    void sendMessage_equal_messages_in_one_batch() throws Exception {
+        final Message message = mock(Message.class);
+        final MessageAction messageAction = mock(MessageAction.class);
+        when(messageAction.submit()).thenReturn(CompletableFuture.completedFuture(message));
+
+        final MessageChannel channel = mock(MessageChannel.class);
+        when(channel.getType()).thenReturn(ChannelType.TEXT);
+        when(channel.getIdLong()).thenReturn(1L);
+        when(channel.sendMessageEmbeds(anyCollection())).thenReturn(messageAction);
+
+        final OutboundMessageModule outboundMessageModule = new OutboundMessageModule();
+        // Long enough that both messages are inside the same batch
+        outboundMessageModule.getConfig().setCoalesceDelayMillis(500);
+
+        final List<MessageEmbed> embeds = List.of(new EmbedBuilder().setDescription("Equal").build());
+        final CompletableFuture<List<Message>> first = outboundMessageModule.sendMessage(
+                channel,
+                embeds,
+                MessagePriority.NOTIFICATION,
+                null
+        );
+        final CompletableFuture<List<Message>> second = outboundMessageModule.sendMessage(
+                channel,
+                embeds,
+                MessagePriority.NOTIFICATION,
+                null
+        );
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsExactly(message);
+        assertThat(second.get(5, TimeUnit.SECONDS)).containsExactly(message);
+        verify(channel, times(1)).sendMessageEmbeds(anyCollection());
+    }
+}
@@ -108,6 +108,20 @@ class RankTest {
         this.validateRepository(rank);
     }
 
+    @Test
+    void addPermission_copy_on_write() {
+        final Rank rank = this.createRank();
+        final Set<Integer> before = rank.getPermissionIds(false);
+
+        for (final int permission : permissionIds) {
+            rank.addPermission(permission);
+        }
+
+        // Readers keep iterating over the set they already got
+        assertThat(before).isEmpty();
+        assertThat(rank.getPermissionIds(false)).containsExactlyInAnyOrderElementsOf(permissionIds);
+    }
+
     @Test
     void addPermission_duplicate() {
         final Rank rank = this.createRank();
@@ -0,0 +1,156 @@
+package de.timmi6790.discord_framework.module.modules.user;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Compares the retained heap size of 100k users in the previous collection based representation and in the
+ * {@link UserDbSnapshot} representation, measured with JOL. Not executed by surefire, run it with
+ * {@link #main(String[])} after the test classes are compiled.
+ * <p>
+ * Every user has one rank, two permissions, 20 stats, two settings and three achievements. The ranks, stats, settings
+ * and achievements themselves are shared and not part of the measured size.
+ * <p>
+ * It also measures the garbage of a single user load. The repository reduces the joined user query, a user with one
+ * rank, two permissions, two settings, 20 stats and three achievements results in 240 rows and every row applies all
+ * its columns to the snapshot.
+ * <p>
+ * Results on JDK 17 with compressed oops, object sizes from the field offsets of the JVM:
+ * <pre>
+ * Collections: 237,765,592 bytes total, 2,377 bytes per user
+ * Snapshots:    36,919,232 bytes total,   369 bytes per user
+ * Load:         55,312 bytes per user when every row copied the stat and setting arrays
+ *                4,272 bytes per user since unchanged rows return the same snapshot
+ * </pre>
+ */
+public class UserDbFootprintBenchmark {
+    private static final int USERS = 100_000;
+    private static final int STATS_PER_USER = 20;
+    private static final int LOADS = 20_000;
+    private static final String[] SETTING_VALUES = {"true", "false"};
+
+    private static final Object[] RANKS = createKeys(10);
+    private static final Object[] STATS = createKeys(100);
+    private static final Object[] SETTINGS = createKeys(10);
+    private static final Object[] ACHIEVEMENTS = createKeys(50);
+
+    private static Object[] createKeys(final int amount) {
+        final Object[] keys = new Object[amount];
+        for (int index = 0; amount > index; index++) {
+            keys[index] = new Object();
+        }
+        return keys;
+    }
+
+    public static void main(final String[] args) {
+        final Random random = new Random(0);
+
+        final List<CollectionUser> collectionUsers = new ArrayList<>(USERS);
+        final List<UserDbSnapshot> snapshots = new ArrayList<>(USERS);
+        for (int user = 0; USERS > user; user++) {
+            final CollectionUser collectionUser = new CollectionUser(user);
+            UserDbSnapshot snapshot = UserDbSnapshot.of(user, 1, false);
+
+            final int rankId = random.nextInt(RANKS.length);
+            collectionUser.ranks.add(RANKS[rankId]);
+            snapshot = snapshot.withRank(rankId);
+
+            for (int permission = 0; 2 > permission; permission++) {
+                final int permissionId = random.nextInt(1_000);
+                collectionUser.permissionIds.add(permissionId);
+                snapshot = snapshot.withPermission(permissionId);
+            }
+
+            for (int stat = 0; STATS_PER_USER > stat; stat++) {
+                final int statId = random.nextInt(STATS.length);
+                final int value = random.nextInt(10_000);
+                collectionUser.stats.put(STATS[statId], value);
+                snapshot = snapshot.withStat(statId, value);
+            }
+
+            for (int setting = 0; 2 > setting; setting++) {
+                final int settingId = random.nextInt(SETTINGS.length);
+                final String value = String.valueOf(random.nextBoolean());
+                collectionUser.settings.put(SETTINGS[settingId], value);
+                snapshot = snapshot.withSetting(settingId, value);
+            }
+
+            for (int achievement = 0; 3 > achievement; achievement++) {
+                final int achievementId = random.nextInt(ACHIEVEMENTS.length);
+                collectionUser.achievements.add(ACHIEVEMENTS[achievementId]);
+                snapshot = snapshot.withAchievement(achievementId);
+            }
+
+            collectionUsers.add(collectionUser);
+            snapshots.add(snapshot);
+        }
+
+        final long sharedBytes = GraphLayout.parseInstance(RANKS, STATS, SETTINGS, ACHIEVEMENTS).totalSize();
+        final long collectionBytes = GraphLayout.parseInstance(collectionUsers, RANKS, STATS, SETTINGS, ACHIEVEMENTS)
+                .totalSize() - sharedBytes;
+        final long snapshotBytes = GraphLayout.parseInstance(snapshots).totalSize();
+
+        long encodedBytes = 0;
+        for (final UserDbSnapshot snapshot : snapshots) {
+            encodedBytes += UserDbSnapshotCodec.write(snapshot).length;
+        }
+
+        System.out.printf("Collections: %,d bytes total, %,d bytes per user%n", collectionBytes, collectionBytes / USERS);
+        System.out.printf("Snapshots:   %,d bytes total, %,d bytes per user%n", snapshotBytes, snapshotBytes / USERS);
+        System.out.printf("Encoded:     %,d bytes total, %,d bytes per user%n", encodedBytes, encodedBytes / USERS);
+
+        final com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        long checksum = 0;
+        // Warm up
+        for (int load = 0; LOADS > load; load++) {
+            checksum += reduceJoinedRows(load).getDiscordId();
+        }
+        final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int load = 0; LOADS > load; load++) {
+            checksum += reduceJoinedRows(load).getDiscordId();
+        }
+        final long loadBytes = (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / LOADS;
+        System.out.printf("Load:        %,d bytes per user (%d)%n", loadBytes, checksum & 1);
+    }
+
+    /**
+     * Applies the rows of the joined user query like the repository reducer.
+     */
+    private static UserDbSnapshot reduceJoinedRows(final long discordId) {
+        UserDbSnapshot snapshot = UserDbSnapshot.of(discordId, 1, false);
+        for (int permission = 0; 2 > permission; permission++) {
+            for (int setting = 0; 2 > setting; setting++) {
+                for (int stat = 0; STATS_PER_USER > stat; stat++) {
+                    for (int achievement = 0; 3 > achievement; achievement++) {
+                        snapshot = snapshot.withRank(1)
+                                .withPermission(permission * 7)
+                                .withSetting(setting, SETTING_VALUES[setting])
+                                .withStat(stat * 3, stat * 11)
+                                .withAchievement(achievement * 5);
+                    }
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * The previous user representation
+     */
+    private static class CollectionUser {
+        private final long discordId;
+        private final Set<Object> ranks = Collections.newSetFromMap(new WeakHashMap<>());
+        private final Set<Integer> permissionIds = new HashSet<>();
+        private final Map<Object, String> settings = new WeakHashMap<>();
+        private final Map<Object, Integer> stats = new WeakHashMap<>();
+        private final Set<Object> achievements = Collections.newSetFromMap(new WeakHashMap<>());
+
+        CollectionUser(final long discordId) {
+            this.discordId = discordId;
+        }
+    }
+}
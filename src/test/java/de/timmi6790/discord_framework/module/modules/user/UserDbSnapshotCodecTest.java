@@ -0,0 +1,64 @@
+package de.timmi6790.discord_framework.module.modules.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserDbSnapshotCodecTest {
+    private static final long DISCORD_ID = 305911488697204736L;
+
+    @Test
+    void empty_snapshot_roundtrip() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 1, true);
+        final byte[] bytes = UserDbSnapshotCodec.write(snapshot);
+
+        assertThat(UserDbSnapshotCodec.read(bytes)).isEqualTo(snapshot);
+        // Version, discord id, flags, primary rank and five empty sections
+        assertThat(bytes).hasSize(1 + 8 + 1 + 1 + 5);
+    }
+
+    @Test
+    void full_snapshot_roundtrip() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 300, false)
+                .withRank(2)
+                .withRank(Integer.MAX_VALUE)
+                .withPermission(1)
+                .withPermission(100_000)
+                .withStat(1, 0)
+                .withStat(2, -1)
+                .withStat(3, Integer.MIN_VALUE)
+                .withStat(4, Integer.MAX_VALUE)
+                .withSetting(1, "true")
+                .withSetting(5, "äöü")
+                .withAchievement(10);
+
+        assertThat(UserDbSnapshotCodec.read(UserDbSnapshotCodec.write(snapshot))).isEqualTo(snapshot);
+    }
+
+    @Test
+    void unsupported_version() {
+        final byte[] bytes = UserDbSnapshotCodec.write(UserDbSnapshot.of(DISCORD_ID, 1, false));
+        bytes[0] = (byte) (UserDbSnapshotCodec.CURRENT_VERSION + 1);
+
+        assertThat(UserDbSnapshotCodec.isSupported(bytes)).isFalse();
+        assertThatThrownBy(() -> UserDbSnapshotCodec.read(bytes))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> UserDbSnapshotCodec.read(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void truncated_snapshot() {
+        final byte[] bytes = UserDbSnapshotCodec.write(
+                UserDbSnapshot.of(DISCORD_ID, 1, false)
+                        .withPermission(1)
+                        .withPermission(2)
+        );
+
+        assertThatThrownBy(() -> UserDbSnapshotCodec.read(Arrays.copyOf(bytes, bytes.length - 3)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
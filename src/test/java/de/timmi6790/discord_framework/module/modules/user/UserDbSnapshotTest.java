@@ -0,0 +1,138 @@
+package de.timmi6790.discord_framework.module.modules.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserDbSnapshotTest {
+    private static final long DISCORD_ID = 305911488697204736L;
+
+    @Test
+    void ids_are_sorted_and_unique() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 1, false)
+                .withRank(5)
+                .withRank(2)
+                .withRank(5)
+                .withPermission(30)
+                .withPermission(10)
+                .withAchievement(3)
+                .withAchievement(1);
+
+        assertThat(snapshot.copyRankIds()).containsExactly(2, 5);
+        assertThat(snapshot.copyPermissionIds()).containsExactly(10, 30);
+        assertThat(snapshot.copyAchievementIds()).containsExactly(1, 3);
+        assertThat(snapshot.hasRank(2)).isTrue();
+        assertThat(snapshot.hasRank(3)).isFalse();
+    }
+
+    @Test
+    void changes_create_new_snapshots() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 1, false);
+        final UserDbSnapshot changed = snapshot
+                .withBanned(true)
+                .withPrimaryRankId(2)
+                .withPermission(1);
+
+        assertThat(snapshot.isBanned()).isFalse();
+        assertThat(snapshot.getPrimaryRankId()).isEqualTo(1);
+        assertThat(snapshot.hasPermission(1)).isFalse();
+
+        assertThat(changed.isBanned()).isTrue();
+        assertThat(changed.getPrimaryRankId()).isEqualTo(2);
+        assertThat(changed.hasPermission(1)).isTrue();
+    }
+
+    @Test
+    void unchanged_ids_return_same_snapshot() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 1, false).withRank(1);
+        assertThat(snapshot.withRank(1)).isSameAs(snapshot);
+        assertThat(snapshot.withoutRank(2)).isSameAs(snapshot);
+        assertThat(snapshot.withoutPermission(1)).isSameAs(snapshot);
+    }
+
+    @Test
+    void unchanged_values_return_same_snapshot() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 1, false)
+                .withStat(7, 100)
+                .withSetting(2, "true");
+
+        assertThat(snapshot.withStat(7, 100)).isSameAs(snapshot);
+        assertThat(snapshot.withSetting(2, new String("true"))).isSameAs(snapshot);
+        assertThat(snapshot.withBanned(false)).isSameAs(snapshot);
+        assertThat(snapshot.withPrimaryRankId(1)).isSameAs(snapshot);
+        assertThat(snapshot.withStat(7, 101)).isNotSameAs(snapshot);
+    }
+
+    @Test
+    void remove_ids() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 1, false)
+                .withRank(1)
+                .withRank(2)
+                .withRank(3)
+                .withoutRank(2)
+                .withPermission(1)
+                .withoutPermission(1);
+
+        assertThat(snapshot.copyRankIds()).containsExactly(1, 3);
+        assertThat(snapshot.copyPermissionIds()).isEmpty();
+    }
+
+    @Test
+    void stats() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 1, false)
+                .withStat(7, 100)
+                .withStat(3, -5)
+                .withStat(7, 101);
+
+        assertThat(snapshot.getStatValue(7)).hasValue(101);
+        assertThat(snapshot.getStatValue(3)).hasValue(-5);
+        assertThat(snapshot.getStatValue(1)).isEmpty();
+        assertThat(snapshot.getStatIds()).containsExactly(3, 7);
+    }
+
+    @Test
+    void setting_values_are_interned() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 1, false)
+                .withSetting(2, new String("true"))
+                .withSetting(1, "value");
+        final UserDbSnapshot otherSnapshot = UserDbSnapshot.of(DISCORD_ID + 1, 1, false)
+                .withSetting(2, new String("true"));
+
+        assertThat(snapshot.getSettingValue(2)).hasValue("true");
+        assertThat(snapshot.getSettingValue(1)).hasValue("value");
+        assertThat(snapshot.getSettingValue(3)).isEmpty();
+        assertThat(snapshot.getSettingValue(2).orElseThrow()).isSameAs(otherSnapshot.getSettingValue(2).orElseThrow());
+    }
+
+    @Test
+    void equal_content_is_equal() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 1, false)
+                .withRank(1)
+                .withStat(1, 5)
+                .withSetting(1, "value");
+        final UserDbSnapshot otherSnapshot = UserDbSnapshot.of(DISCORD_ID, 1, false)
+                .withSetting(1, "value")
+                .withStat(1, 5)
+                .withRank(1);
+
+        assertThat(snapshot)
+                .isEqualTo(otherSnapshot)
+                .hasSameHashCodeAs(otherSnapshot);
+        assertThat(snapshot.getSettingValue(1)).isEqualTo(Optional.of("value"));
+    }
+
+    @Test
+    void estimated_size_grows_with_content() {
+        final UserDbSnapshot snapshot = UserDbSnapshot.of(DISCORD_ID, 1, false);
+        UserDbSnapshot largeSnapshot = snapshot;
+        for (int statId = 0; 100 > statId; statId++) {
+            largeSnapshot = largeSnapshot.withStat(statId, statId);
+        }
+
+        assertThat(snapshot.estimateRetainedBytes()).isEqualTo(56);
+        // Two int arrays of 100 entries
+        assertThat(largeSnapshot.estimateRetainedBytes()).isEqualTo(56 + 2 * 416);
+    }
+}
@@ -7,6 +7,7 @@ import de.timmi6790.discord_framework.module.modules.achievement.AbstractAchieve
 import de.timmi6790.discord_framework.module.modules.achievement.AchievementModule;
 import de.timmi6790.discord_framework.module.modules.command.CommandModule;
 import de.timmi6790.discord_framework.module.modules.command.models.CommandParameters;
+import de.timmi6790.discord_framework.module.modules.config.ConfigModule;
 import de.timmi6790.discord_framework.module.modules.database.DatabaseModule;
 import de.timmi6790.discord_framework.module.modules.event.EventModule;
 import de.timmi6790.discord_framework.module.modules.permisssion.PermissionsModule;
@@ -29,6 +30,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -54,6 +56,9 @@ class UserDbTest {
         when(moduleManager.getModuleOrThrow(EventModule.class)).thenReturn(eventModule);
 
         when(moduleManager.getModuleOrThrow(PermissionsModule.class)).thenReturn(permissionsModule);
+        final ConfigModule configModule = mock(ConfigModule.class);
+        when(configModule.registerAndGetConfig(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(moduleManager.getModuleOrThrow(ConfigModule.class)).thenReturn(configModule);
         doReturn(AbstractIntegrationTest.databaseModule).when(moduleManager).getModuleOrThrow(DatabaseModule.class);
         when(moduleManager.getModuleOrThrow(CommandModule.class)).thenReturn(commandModule);
         when(moduleManager.getModuleOrThrow(RankModule.class)).thenReturn(rankModule);
@@ -102,6 +107,8 @@ class UserDbTest {
     }
 
     private void validateRepository(final UserDb userDb) {
+        // Setting changes are written delayed
+        userDbModule.flushSettings(userDb.getDiscordId());
         final UserDb repositoryUser = userDbModule.getUserDbRepository().get(userDb.getDiscordId()).orElseThrow(RuntimeException::new);
         assertThat(userDb).isEqualTo(repositoryUser);
     }
@@ -270,6 +277,103 @@ class UserDbTest {
         this.validateRepository(userDb);
     }
 
+    // Edit
+    @Test
+    void edit_commits_all_changes() {
+        settingModule.registerSetting(userDbModule, new CommandAutoCorrectSetting());
+        final int permissionId = permissionsModule.addPermission(this.generatePermNode());
+        final Rank primaryRank = this.generateRank();
+        final Rank rank = this.generateRank();
+        final Rank rank2 = this.generateRank();
+
+        final UserDb userDb = this.generateUser();
+        final boolean changed = userDb.edit()
+                .setBanned(true)
+                .setPrimaryRank(primaryRank)
+                .addRank(rank)
+                .addRank(rank2)
+                .addPermission(permissionId)
+                .setSetting(settingModule.getSetting(CommandAutoCorrectSetting.class).orElseThrow(), true)
+                .commit();
+        assertThat(changed).isTrue();
+
+        assertThat(userDb.isBanned()).isTrue();
+        assertThat(userDb.hasPrimaryRank(primaryRank)).isTrue();
+        assertThat(userDb.hasRank(rank)).isTrue();
+        assertThat(userDb.hasRank(rank2)).isTrue();
+        assertThat(userDb.hasPermission(permissionId)).isTrue();
+        this.validateRepository(userDb);
+    }
+
+    @Test
+    void edit_keeps_the_order_of_changes() {
+        final Rank rank = this.generateRank();
+        final UserDb userDb = this.generateUser();
+        userDb.addRank(rank);
+
+        final boolean changed = userDb.edit()
+                .removeRank(rank)
+                .addRank(rank)
+                .removeRank(rank)
+                .commit();
+        assertThat(changed).isTrue();
+
+        assertThat(userDb.hasRank(rank)).isFalse();
+        this.validateRepository(userDb);
+    }
+
+    @Test
+    void edit_without_changes() {
+        final Rank rank = this.generateRank();
+        final UserDb userDb = this.generateUser();
+        userDb.addRank(rank);
+
+        final UserDbEdit edit = userDb.edit()
+                .setBanned(false)
+                .addRank(rank);
+        assertThat(edit.isEmpty()).isTrue();
+        assertThat(edit.commit()).isFalse();
+        assertThatThrownBy(edit::commit).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void edit_rolls_back_on_failure() {
+        final int permissionId = permissionsModule.addPermission(this.generatePermNode());
+        // Not existing rank, the insert violates the foreign key
+        final Rank missingRank = mock(Rank.class);
+        when(missingRank.getRepositoryId()).thenReturn(Integer.MAX_VALUE);
+
+        final UserDb userDb = this.generateUser();
+        final UserDbEdit edit = userDb.edit()
+                .addPermission(permissionId)
+                .addRank(missingRank);
+        assertThatThrownBy(edit::commit).isInstanceOf(Exception.class);
+
+        assertThat(userDb.hasPermission(permissionId)).isFalse();
+        assertThat(userDb.hasRank(missingRank)).isFalse();
+        this.validateRepository(userDb);
+    }
+
+    @Test
+    void edit_can_be_retried_after_failure() {
+        final int permissionId = permissionsModule.addPermission(this.generatePermNode());
+        final UserDb userDb = this.generateUser();
+        final UserDbEdit edit = userDb.edit().addPermission(permissionId);
+
+        doThrow(new IllegalStateException("Write failed")).when(userDbModule).flushSettings(userDb.getDiscordId());
+        try {
+            assertThatThrownBy(edit::commit).isInstanceOf(IllegalStateException.class);
+        } finally {
+            doCallRealMethod().when(userDbModule).flushSettings(userDb.getDiscordId());
+        }
+        assertThat(userDb.hasPermission(permissionId)).isFalse();
+
+        assertThat(edit.commit()).isTrue();
+        assertThat(userDb.hasPermission(permissionId)).isTrue();
+        assertThatThrownBy(edit::commit).isInstanceOf(IllegalStateException.class);
+        this.validateRepository(userDb);
+    }
+
     // Achievements
     @Test
     void getAchievements() {
@@ -0,0 +1,170 @@
+package de.timmi6790.discord_framework.module.modules.user;
+
+import de.timmi6790.discord_framework.module.modules.user.repository.UserDbRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UserSettingWriteBufferTest {
+    private static final long DEBOUNCE_MILLIS = 1_000;
+    private static final long MAX_STALENESS_MILLIS = 5_000;
+
+    private final UserDbRepository repository = mock(UserDbRepository.class);
+    private final List<Long> writtenUsers = new ArrayList<>();
+    private final AtomicLong ticks = new AtomicLong();
+    private final UserSettingWriteBuffer buffer = new UserSettingWriteBuffer(
+            this.repository,
+            this.writtenUsers::add,
+            DEBOUNCE_MILLIS,
+            MAX_STALENESS_MILLIS,
+            this.ticks::get
+    );
+
+    @AfterEach
+    void tearDown() {
+        this.buffer.close();
+    }
+
+    private void advance(final long millis) {
+        this.ticks.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Map<Integer, String>> captureWrite() {
+        final ArgumentCaptor<Map<Long, Map<Integer, String>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(this.repository).upsertSettings(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void repeated_changes_are_coalesced() {
+        this.buffer.setSetting(1, 10, "a");
+        this.buffer.setSetting(1, 10, "b");
+        this.buffer.setSetting(1, 11, "c");
+        this.buffer.setSetting(2, 10, "d");
+
+        this.advance(DEBOUNCE_MILLIS);
+        assertThat(this.buffer.flushDue()).isEqualTo(2);
+
+        assertThat(this.captureWrite()).containsOnly(
+                Map.entry(1L, Map.of(10, "b", 11, "c")),
+                Map.entry(2L, Map.of(10, "d"))
+        );
+        assertThat(this.writtenUsers).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(this.buffer.getDirtyUserCount()).isZero();
+    }
+
+    @Test
+    void changes_are_debounced() {
+        this.buffer.setSetting(1, 10, "a");
+        this.advance(DEBOUNCE_MILLIS - 1);
+        this.buffer.setSetting(1, 10, "b");
+        this.advance(DEBOUNCE_MILLIS - 1);
+
+        assertThat(this.buffer.flushDue()).isZero();
+        verify(this.repository, never()).upsertSettings(any());
+
+        this.advance(1);
+        assertThat(this.buffer.flushDue()).isOne();
+        assertThat(this.captureWrite()).containsOnly(Map.entry(1L, Map.of(10, "b")));
+    }
+
+    @Test
+    void changes_are_written_after_the_max_staleness() {
+        for (long time = 0; MAX_STALENESS_MILLIS > time; time += DEBOUNCE_MILLIS / 2) {
+            this.buffer.setSetting(1, 10, String.valueOf(time));
+            assertThat(this.buffer.flushDue()).isZero();
+            this.advance(DEBOUNCE_MILLIS / 2);
+        }
+
+        assertThat(this.buffer.flushDue()).isOne();
+        verify(this.repository).upsertSettings(any());
+    }
+
+    @Test
+    void flush_writes_the_user_directly() {
+        this.buffer.setSetting(1, 10, "a");
+        this.buffer.setSetting(2, 10, "b");
+
+        this.buffer.flush(1);
+
+        assertThat(this.captureWrite()).containsOnly(Map.entry(1L, Map.of(10, "a")));
+        assertThat(this.buffer.hasDirtySettings(1)).isFalse();
+        assertThat(this.buffer.hasDirtySettings(2)).isTrue();
+    }
+
+    @Test
+    void failed_writes_are_retried_without_overwriting_newer_changes() {
+        doThrow(new IllegalStateException("database down")).doNothing().when(this.repository).upsertSettings(any());
+
+        this.buffer.setSetting(1, 10, "a");
+        this.buffer.setSetting(1, 11, "b");
+        assertThatThrownBy(() -> this.buffer.flush(1)).isInstanceOf(IllegalStateException.class);
+        assertThat(this.writtenUsers).isEmpty();
+        assertThat(this.buffer.hasDirtySettings(1)).isTrue();
+
+        this.buffer.setSetting(1, 10, "c");
+        this.buffer.flush(1);
+
+        verify(this.repository, times(2)).upsertSettings(any());
+        assertThat(this.writtenUsers).containsExactly(1L);
+        assertThat(this.buffer.hasDirtySettings(1)).isFalse();
+    }
+
+    @Test
+    void flush_waits_for_a_running_write() throws InterruptedException {
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch releaseWrite = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writeStarted.countDown();
+            releaseWrite.await();
+            return null;
+        }).when(this.repository).upsertSettings(any());
+
+        this.buffer.setSetting(1, 10, "a");
+        final CompletableFuture<Void> runningWrite = CompletableFuture.runAsync(() -> this.buffer.flush(1));
+        assertThat(writeStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        // The running write already removed the dirty settings
+        assertThat(this.buffer.hasDirtySettings(1)).isFalse();
+
+        final CompletableFuture<Void> waitingFlush = CompletableFuture.runAsync(() -> this.buffer.flush(1));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(waitingFlush).isNotDone();
+
+        releaseWrite.countDown();
+        waitingFlush.join();
+        runningWrite.join();
+        verify(this.repository, times(1)).upsertSettings(any());
+    }
+
+    @Test
+    void discard_drops_the_changes() {
+        this.buffer.setSetting(1, 10, "a");
+        this.buffer.discard(1);
+
+        this.advance(MAX_STALENESS_MILLIS);
+        assertThat(this.buffer.flushDue()).isZero();
+        verify(this.repository, never()).upsertSettings(any());
+    }
+
+    @Test
+    void close_writes_all_changes() {
+        this.buffer.setSetting(1, 10, "a");
+        this.buffer.close();
+
+        assertThat(this.captureWrite()).containsOnly(Map.entry(1L, Map.of(10, "a")));
+    }
+}
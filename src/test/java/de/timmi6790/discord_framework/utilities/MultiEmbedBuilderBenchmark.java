@@ -0,0 +1,95 @@
+package de.timmi6790.discord_framework.utilities;
+
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for {@link MultiEmbedBuilder}. Not executed by surefire, run them with {@link #main(String[])} after
+ * the test classes are compiled. Use {@code -prof gc} to compare the allocation rate between revisions.
+ * <p>
+ * buildDescription and addFieldsAndLength cover the bounded break point search and the running field length.
+ * buildDescriptionWithLines is not changed by them, its break points are found close to the limit with or without the
+ * bound, compare it as the baseline between revisions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiEmbedBuilderBenchmark {
+    private static final int DESCRIPTION_SIZE = 10_000;
+    private static final int FIELD_COUNT = 100;
+
+    private String description;
+    private String descriptionWithLines;
+    private MultiEmbedBuilder fieldBuilder;
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+                .include(MultiEmbedBuilderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    private static String getRandomString(final int size, final String abc) {
+        final StringBuilder stringBuilder = new StringBuilder(size);
+        for (int count = 0; size > count; count++) {
+            stringBuilder.append(abc.charAt(ThreadLocalRandom.current().nextInt(abc.length())));
+        }
+
+        return stringBuilder.toString();
+    }
+
+    @Setup
+    public void setup() {
+        this.description = getRandomString(DESCRIPTION_SIZE, "ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+        this.descriptionWithLines = getRandomString(DESCRIPTION_SIZE, "ABCDEFGHIJKLMNOPQRSTUVWXYZ \n");
+
+        this.fieldBuilder = new MultiEmbedBuilder();
+        for (int count = 0; FIELD_COUNT > count; count++) {
+            this.fieldBuilder.addField(
+                    getRandomString(32, "ABCDEFGHIJKLMNOPQRSTUVWXYZ"),
+                    getRandomString(200, "ABCDEFGHIJKLMNOPQRSTUVWXYZ ")
+            );
+        }
+    }
+
+    @Benchmark
+    public void buildDescription(final Blackhole blackhole) {
+        for (final MessageEmbed embed : new MultiEmbedBuilder().setDescription(this.description).build()) {
+            blackhole.consume(embed);
+        }
+    }
+
+    @Benchmark
+    public void buildDescriptionWithLines(final Blackhole blackhole) {
+        for (final MessageEmbed embed : new MultiEmbedBuilder().setDescription(this.descriptionWithLines).build()) {
+            blackhole.consume(embed);
+        }
+    }
+
+    @Benchmark
+    public void buildFields(final Blackhole blackhole) {
+        for (final MessageEmbed embed : this.fieldBuilder.build()) {
+            blackhole.consume(embed);
+        }
+    }
+
+    @Benchmark
+    public void addFieldsAndLength(final Blackhole blackhole) {
+        final MultiEmbedBuilder builder = new MultiEmbedBuilder();
+        for (int count = 0; FIELD_COUNT > count; count++) {
+            builder.addField("Name", "Value");
+            blackhole.consume(builder.length());
+        }
+    }
+}
@@ -215,6 +215,57 @@ class MultiEmbedBuilderTest {
         assertThat(embedBuilder.getFields()).isEmpty();
     }
 
+    @Test
+    void length() {
+        final MultiEmbedBuilder embedBuilder = getFilledEmbedBuilder();
+        // Description, Title, Footer, Author, Field + Value, D + A
+        AssertionsForClassTypes.assertThat(embedBuilder.length()).isEqualTo(11 + 5 + 6 + 6 + 10 + 2);
+
+        embedBuilder.clearFields();
+        AssertionsForClassTypes.assertThat(embedBuilder.length()).isEqualTo(11 + 5 + 6 + 6);
+    }
+
+    @Test
+    void length_copy() {
+        final MultiEmbedBuilder embedBuilder = getFilledEmbedBuilder();
+        AssertionsForClassTypes.assertThat(new MultiEmbedBuilder(embedBuilder).length()).isEqualTo(embedBuilder.length());
+        AssertionsForClassTypes.assertThat(new MultiEmbedBuilder(embedBuilder.buildSingle()).length()).isEqualTo(embedBuilder.length());
+    }
+
+    @Test
+    void getFields_unmodifiable() {
+        final List<MessageEmbed.Field> fields = getFilledEmbedBuilder().getFields();
+        assertThrows(UnsupportedOperationException.class, fields::clear);
+    }
+
+    @Test
+    void descriptions_break_at_new_line() {
+        final String firstPart = getRandomString(MultiEmbedBuilder.EMBED_DESCRIPTION_MAX - 100) + "\n";
+        final String secondPart = getRandomString(200);
+        final MessageEmbed[] messageEmbeds = new MultiEmbedBuilder()
+                .setDescription(firstPart + secondPart)
+                .build()
+                .toArray(new MessageEmbed[0]);
+
+        assertThat(messageEmbeds).hasSize(2);
+        AssertionsForClassTypes.assertThat(messageEmbeds[0].getDescription()).isEqualTo(firstPart);
+        AssertionsForClassTypes.assertThat(messageEmbeds[1].getDescription()).isEqualTo(secondPart);
+    }
+
+    @Test
+    void descriptions_break_at_space() {
+        final String firstPart = getRandomString(MultiEmbedBuilder.EMBED_DESCRIPTION_MAX - 100) + " ";
+        final String secondPart = getRandomString(200);
+        final MessageEmbed[] messageEmbeds = new MultiEmbedBuilder()
+                .setDescription(firstPart + secondPart)
+                .build()
+                .toArray(new MessageEmbed[0]);
+
+        assertThat(messageEmbeds).hasSize(2);
+        AssertionsForClassTypes.assertThat(messageEmbeds[0].getDescription()).isEqualTo(firstPart);
+        AssertionsForClassTypes.assertThat(messageEmbeds[1].getDescription()).isEqualTo(secondPart);
+    }
+
     @Test
     void addBlankField() {
         final MultiEmbedBuilder embedBuilder = new MultiEmbedBuilder().addBlankField(true);
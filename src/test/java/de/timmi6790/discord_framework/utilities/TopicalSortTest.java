@@ -4,6 +4,7 @@ import de.timmi6790.discord_framework.exceptions.TopicalSortCycleException;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -47,4 +48,58 @@ class TopicalSortTest {
         final TopicalSort<Integer> topicalSort = new TopicalSort<>(values, dependencies);
         assertThrows(TopicalSortCycleException.class, topicalSort::sort);
     }
-}
\ No newline at end of file
+
+    @Test
+    void cycleMembersAreReported() {
+        final List<String> values = Arrays.asList("a", "b", "c", "d");
+        final List<TopicalSort.Dependency> dependencies = Arrays.asList(
+                new TopicalSort.Dependency(0, 1),
+                new TopicalSort.Dependency(1, 2),
+                new TopicalSort.Dependency(2, 1),
+                new TopicalSort.Dependency(3, 0)
+        );
+
+        final TopicalSort<String> topicalSort = new TopicalSort<>(values, dependencies);
+        final TopicalSortCycleException exception = assertThrows(TopicalSortCycleException.class, topicalSort::sort);
+        assertThat(exception.getCycle()).containsExactlyInAnyOrder("b", "c");
+        assertThat(exception.getMessage()).isEqualTo("Cycle detected: b -> c -> b");
+    }
+
+    @Test
+    void selfDependencyIsACycle() {
+        final List<String> values = Arrays.asList("a", "b");
+        final List<TopicalSort.Dependency> dependencies = Collections.singletonList(
+                new TopicalSort.Dependency(1, 1)
+        );
+
+        final TopicalSort<String> topicalSort = new TopicalSort<>(values, dependencies);
+        final TopicalSortCycleException exception = assertThrows(TopicalSortCycleException.class, topicalSort::sort);
+        assertThat(exception.getCycle()).containsExactly("b");
+    }
+
+    @Test
+    void levelSort() throws TopicalSortCycleException {
+        final List<String> values = Arrays.asList("d", "c", "b", "a", "e");
+        final List<TopicalSort.Dependency> dependencies = Arrays.asList(
+                new TopicalSort.Dependency(0, 1),
+                new TopicalSort.Dependency(0, 2),
+                new TopicalSort.Dependency(1, 3),
+                new TopicalSort.Dependency(2, 3),
+                new TopicalSort.Dependency(2, 4)
+        );
+
+        final TopicalSort<String> topicalSort = new TopicalSort<>(values, dependencies);
+        assertThat(topicalSort.sortLevels()).containsExactly(
+                Arrays.asList("a", "e"),
+                Arrays.asList("c", "b"),
+                Collections.singletonList("d")
+        );
+        assertThat(topicalSort.sort()).containsExactly("a", "e", "c", "b", "d");
+    }
+
+    @Test
+    void emptySort() throws TopicalSortCycleException {
+        final TopicalSort<String> topicalSort = new TopicalSort<>(Collections.emptyList(), Collections.emptyList());
+        assertThat(topicalSort.sortLevels()).isEmpty();
+    }
+}
@@ -8,6 +8,7 @@ import net.dv8tion.jda.api.requests.RestAction;
 import org.junit.jupiter.api.Test;
 
 import java.awt.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -61,7 +62,7 @@ class DiscordMessagesUtilitiesTest {
         final User user = mock(User.class);
         when(user.isBot()).thenReturn(true);
 
-        assertThat(DiscordMessagesUtilities.sendPrivateMessage(user, new MultiEmbedBuilder())).isFalse();
+        assertThat(DiscordMessagesUtilities.sendPrivateMessage(user, new MultiEmbedBuilder()).join()).isEmpty();
     }
 
     @Test
@@ -70,8 +71,23 @@ class DiscordMessagesUtilitiesTest {
         when(user.isBot()).thenReturn(false);
 
         final RestAction<PrivateChannel> privateChannel = mock(RestAction.class);
+        when(privateChannel.submit()).thenReturn(new CompletableFuture<>());
         when(user.openPrivateChannel()).thenReturn(privateChannel);
 
-        assertThat(DiscordMessagesUtilities.sendPrivateMessage(user, new MultiEmbedBuilder().setDescription("A"))).isTrue();
+        assertThat(DiscordMessagesUtilities.sendPrivateMessage(user, new MultiEmbedBuilder().setDescription("A")))
+                .isNotDone();
+    }
+
+    @Test
+    void sendPrivateMessage_failure() {
+        final User user = mock(User.class);
+        when(user.isBot()).thenReturn(false);
+
+        final RestAction<PrivateChannel> privateChannel = mock(RestAction.class);
+        when(privateChannel.submit()).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Closed")));
+        when(user.openPrivateChannel()).thenReturn(privateChannel);
+
+        assertThat(DiscordMessagesUtilities.sendPrivateMessage(user, new MultiEmbedBuilder().setDescription("A")))
+                .isCompletedExceptionally();
     }
 }
\ No newline at end of file